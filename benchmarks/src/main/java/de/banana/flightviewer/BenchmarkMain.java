@@ -0,0 +1,42 @@
+package de.banana.flightviewer;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of {@code benchmarks.jar}: the JMH command line with defaults for tracking regressions.
+ * <p>
+ * Unless given otherwise, results are written as JSON to {@code jmh-result.json} and the GC profiler adds
+ * the allocation rate ({@code gc.alloc.rate.norm}, bytes per operation) to every score. All JMH options work
+ * as usual, e.g. {@code -l} to list the benchmarks or a regular expression to select some.
+ * </p>
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {}
+
+    /**
+     * Runs the selected benchmarks.
+     *
+     * @param args JMH command-line options
+     * @throws Exception if the options are invalid or a benchmark fails
+     */
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        if (cli.shouldHelp() || cli.shouldList() || cli.shouldListWithParams() || cli.shouldListProfilers()
+                || cli.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cli);
+        if (cli.getProfilers().isEmpty()) options.addProfiler(GCProfiler.class);
+        if (!cli.getResultFormat().hasValue()) options.resultFormat(ResultFormatType.JSON);
+        if (!cli.getResult().hasValue()) options.result("jmh-result.json");
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,88 @@
+package de.banana.flightviewer.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.banana.flightviewer.codec.SampleCodec;
+import de.banana.flightviewer.controller.FlightApiController.SampleDto;
+import de.banana.flightviewer.model.SampleColumns;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of sample responses, in the three ways {@code /api/flights/{id}/samples} produces them:
+ * <ul>
+ *     <li>{@code dtoList}: a list of {@link SampleDto} written by the object mapper, as for {@code maxPoints}</li>
+ *     <li>{@code streaming}: field by field with a {@link JsonGenerator}, as for whole flights</li>
+ *     <li>{@code binary}: the compact {@link SampleCodec} encoding</li>
+ * </ul>
+ * Scores are microseconds per response; compare them with the allocation rate of the GC profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SampleJsonBenchmark {
+
+    @Param({"1000", "100000"})
+    int samples;
+
+    private final ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+    private SampleColumns columns;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        columns = new SampleColumns(samples);
+        double lat = 52.99, lon = 9.07;
+        for (int i = 0; i < samples; i++) {
+            lat += random.nextDouble(-1e-5, 1e-5);
+            lon += random.nextDouble(-1e-5, 1e-5);
+            columns.add(1_750_000_000_000L + i * 100L, lat, lon, random.nextDouble(0, 120),
+                    random.nextDouble(0, 15), 100 - i * 80 / samples);
+        }
+    }
+
+    @Benchmark
+    public byte[] dtoList() throws IOException {
+        List<SampleDto> out = new ArrayList<>(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            out.add(new SampleDto(columns.timestamp(i), columns.latitude(i), columns.longitude(i),
+                    columns.altitude(i), columns.speed(i), columns.battery(i)));
+        }
+        return json.writeValueAsBytes(out);
+    }
+
+    @Benchmark
+    public byte[] streaming() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+        try (JsonGenerator gen = json.getFactory().createGenerator(out)) {
+            gen.writeStartArray();
+            for (int i = 0; i < columns.size(); i++) {
+                gen.writeStartObject();
+                gen.writeNumberField("timestamp", columns.timestamp(i));
+                gen.writeNumberField("latitude", columns.latitude(i));
+                gen.writeNumberField("longitude", columns.longitude(i));
+                gen.writeNumberField("altitude", columns.altitude(i));
+                gen.writeNumberField("speed", columns.speed(i));
+                gen.writeNumberField("battery", columns.battery(i));
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] binary() {
+        return SampleCodec.encode(columns);
+    }
+}
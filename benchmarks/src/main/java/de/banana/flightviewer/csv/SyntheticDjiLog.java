@@ -0,0 +1,196 @@
+package de.banana.flightviewer.csv;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Generator of synthetic DJI flight logs in the CSV layout of the converters, for benchmarks.
+ * <p>
+ * A log starts with a {@code sep=,} line and a header with every column the import reads (time, position,
+ * altitude, speed, battery, satellites, flight mode, warnings, aircraft serial), followed by any number of
+ * filler columns standing in for the gimbal, RC and battery cell columns of real logs: the first ones carry
+ * the names of such columns ({@code OSD.pitch}, {@code GIMBAL.yaw}, {@code RC.throttle}, ...), flags
+ * ({@code is...}) hold {@code True}/{@code False}, all others numbers. Rows are 10 Hz samples
+ * of a random walk: the aircraft climbs, cruises with a drifting heading and descends while the battery
+ * drains, with occasional flight mode changes, satellite drop-outs and warnings.
+ * </p>
+ * <p>
+ * The output depends on the seed only, so runs are repeatable; logs with different seeds have different
+ * aircraft serials, start times and positions, so they are imported as different flights.
+ * </p>
+ */
+public final class SyntheticDjiLog {
+
+    private static final String[] MODES = {"P-GPS", "P-GPS", "P-GPS", "P-Atti", "Go Home", "Landing"};
+    private static final String[] WARNINGS = {"Weak GPS signal.", "Low battery.", "Strong wind."};
+    private static final String[] FILLER_NAMES = {"OSD.height [ft]", "OSD.vpsHeight [ft]", "OSD.mileage [ft]",
+            "OSD.xSpeed [MPH]", "OSD.ySpeed [MPH]", "OSD.zSpeed [MPH]", "OSD.pitch", "OSD.roll", "OSD.yaw",
+            "OSD.isGPSUsed", "OSD.isOnGround", "OSD.isMotorOn", "OSD.isVisionUsed", "GIMBAL.pitch", "GIMBAL.roll",
+            "GIMBAL.yaw", "GIMBAL.isStuck", "RC.downlinkSignal", "RC.uplinkSignal", "RC.aileron", "RC.elevator",
+            "RC.throttle", "RC.rudder", "BATTERY.voltage [V]", "BATTERY.current [A]", "BATTERY.temperature [F]",
+            "BATTERY.cellVoltage1 [V]", "BATTERY.cellVoltage2 [V]", "BATTERY.cellVoltage3 [V]",
+            "BATTERY.cellVoltage4 [V]", "BATTERY.isCellOverVoltage", "HOME.latitude", "HOME.longitude",
+            "HOME.height [ft]", "HOME.isHomeRecord", "WEATHER.windSpeed [MPH]", "WEATHER.windDirection",
+            "CALC.distance2D [ft]", "CALC.distance3D [ft]", "CALC.currentElectricity [A]"};
+    private static final double FEET_PER_METER = 3.28084;
+    private static final double MPH_PER_MPS = 2.23694;
+
+    private final long seed;
+    private final int rows;
+    private final int fillerColumns;
+
+    /**
+     * Constructs a SyntheticDjiLog.
+     *
+     * @param seed          random seed
+     * @param rows          number of samples
+     * @param fillerColumns number of additional columns the import does not interpret
+     */
+    public SyntheticDjiLog(long seed, int rows, int fillerColumns) {
+        if (rows < 0 || fillerColumns < 0) {
+            throw new IllegalArgumentException("Rows and filler columns must not be negative");
+        }
+        this.seed = seed;
+        this.rows = rows;
+        this.fillerColumns = fillerColumns;
+    }
+
+    /**
+     * Writes the log to a file.
+     *
+     * @param file the target file, replaced if it exists
+     * @return the file
+     * @throws IOException if writing fails
+     */
+    public Path writeTo(Path file) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            write(out);
+        }
+        return file;
+    }
+
+    /**
+     * Writes the log into memory, for small logs.
+     *
+     * @return the CSV text in UTF-8
+     */
+    public byte[] toBytes() {
+        StringWriter out = new StringWriter();
+        try {
+            write(out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // cannot happen with a StringWriter
+        }
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the log.
+     *
+     * @param target the writer; not closed
+     * @throws IOException if writing fails
+     */
+    public void write(Writer target) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        BufferedWriter out = new BufferedWriter(target, 1 << 16);
+
+        out.write("sep=,\n");
+        out.write("CUSTOM.date [local],CUSTOM.updateTime [local],OSD.flyTime [s],OSD.latitude,OSD.longitude,"
+                + "OSD.altitude [ft],OSD.hSpeed [MPH],OSD.gpsNum,OSD.flycState,BATTERY.chargeLevel,APP.warning,"
+                + "DETAILS.aircraftSerial");
+        boolean[] flags = new boolean[fillerColumns];
+        for (int c = 0; c < fillerColumns; c++) {
+            String name = c < FILLER_NAMES.length ? FILLER_NAMES[c] : "FILLER.column" + c;
+            flags[c] = name.contains(".is");
+            out.write(',');
+            out.write(name);
+        }
+        out.write('\n');
+
+        String date = (1 + random.nextInt(12)) + "/" + (1 + random.nextInt(28)) + "/" + (2020 + random.nextInt(6));
+        String serial = String.format("SYN%013X", seed & 0xFFFFFFFFFFFFFL);
+        int startSecond = random.nextInt(12 * 3600); // in the half day
+        double lat = 47 + random.nextDouble() * 8;
+        double lon = 6 + random.nextDouble() * 9;
+        double heading = random.nextDouble() * 2 * Math.PI;
+        double altitude = 0, speed = 0;
+        String mode = MODES[0];
+        int satellites = 18;
+
+        StringBuilder row = new StringBuilder(256 + fillerColumns * 8);
+        for (int i = 0; i < rows; i++) {
+            double progress = rows > 1 ? (double) i / (rows - 1) : 0;
+
+            /* Climb over the first tenth, descend over the last, cruise in between */
+            double targetAltitude = progress < 0.1 ? progress * 1200 : progress > 0.9 ? (1 - progress) * 1200 : 120;
+            altitude += (targetAltitude - altitude) * 0.05 + random.nextDouble(-0.2, 0.2);
+            speed = Math.max(0, Math.min(15, speed + random.nextDouble(-0.3, 0.32)));
+            heading += random.nextDouble(-0.05, 0.05);
+            double step = speed * 0.1 / 6_371_000; // 10 Hz, radians
+            lat += Math.toDegrees(step * Math.cos(heading));
+            lon += Math.toDegrees(step * Math.sin(heading)) / Math.cos(Math.toRadians(lat));
+            int battery = (int) Math.round(100 - progress * 80);
+            if (random.nextInt(2000) == 0) mode = MODES[random.nextInt(MODES.length)];
+            if (random.nextInt(500) == 0) satellites = 4 + random.nextInt(16);
+            String warning = random.nextInt(1000) == 0 ? WARNINGS[random.nextInt(WARNINGS.length)] : "";
+
+            row.setLength(0);
+            row.append(date).append(',');
+            appendTime(row, startSecond * 100L + i * 10L).append(',');
+            row.append(i / 10).append('.').append(i % 10).append(',');
+            row.append(round(lat, 1e10)).append(',');
+            row.append(round(lon, 1e10)).append(',');
+            row.append(round(altitude * FEET_PER_METER, 10)).append(',');
+            row.append(round(speed * MPH_PER_MPS, 10)).append(',');
+            row.append(satellites).append(',');
+            row.append(mode).append(',');
+            row.append(battery).append(',');
+            row.append(warning).append(',');
+            row.append(serial);
+            for (int c = 0; c < fillerColumns; c++) {
+                row.append(',');
+                if (flags[c]) {
+                    row.append((i & 64) == 0 ? "False" : "True");
+                } else if ((c & 1) == 0) {
+                    row.append(round(random.nextDouble(-90, 90), 10));
+                } else {
+                    row.append(random.nextInt(4096));
+                }
+            }
+            row.append('\n');
+            out.append(row);
+        }
+        out.flush();
+    }
+
+    /* ---------- Helpers ---------- */
+
+    /**
+     * Appends a local time like {@code 4:56:59.59 PM}.
+     */
+    private static StringBuilder appendTime(StringBuilder sb, long centis) {
+        long seconds = centis / 100 % 86_400;
+        long hour = seconds / 3600;
+        long h12 = hour % 12 == 0 ? 12 : hour % 12;
+        sb.append(h12).append(':');
+        pad(sb, seconds / 60 % 60).append(':');
+        pad(sb, seconds % 60).append('.');
+        pad(sb, centis % 100).append(hour < 12 ? " AM" : " PM");
+        return sb;
+    }
+
+    private static StringBuilder pad(StringBuilder sb, long twoDigits) {
+        if (twoDigits < 10) sb.append('0');
+        return sb.append(twoDigits);
+    }
+
+    private static double round(double value, double scale) {
+        return Math.round(value * scale) / scale;
+    }
+}
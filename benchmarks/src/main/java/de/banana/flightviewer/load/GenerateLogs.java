@@ -0,0 +1,50 @@
+package de.banana.flightviewer.load;
+
+import de.banana.flightviewer.csv.SyntheticDjiLog;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes synthetic DJI flight logs ({@link SyntheticDjiLog}) to files, e.g. for manual uploads, the import
+ * directory watcher or other load tools:
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar de.banana.flightviewer.load.GenerateLogs \
+ *     --count 10 --rows 100000 --columns 180 --seed 7 --dir logs
+ * </pre>
+ * Log {@code i} uses seed {@code seed + i} and is named {@code synthetic-<seed>.csv}.
+ */
+public final class GenerateLogs {
+
+    private GenerateLogs() {}
+
+    /**
+     * Writes the logs.
+     *
+     * @param args {@code --count}, {@code --rows}, {@code --columns}, {@code --seed}, {@code --dir}
+     * @throws IOException if a file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        int count = 1, rows = 10_000, columns = 40;
+        long seed = 1;
+        Path dir = Path.of(".");
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String v = args[i + 1];
+            switch (args[i]) {
+                case "--count" -> count = Integer.parseInt(v);
+                case "--rows" -> rows = Integer.parseInt(v);
+                case "--columns" -> columns = Integer.parseInt(v);
+                case "--seed" -> seed = Long.parseLong(v);
+                case "--dir" -> dir = Path.of(v);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (args.length % 2 != 0) throw new IllegalArgumentException("Missing value of " + args[args.length - 1]);
+        Files.createDirectories(dir);
+        for (int i = 0; i < count; i++) {
+            Path file = new SyntheticDjiLog(seed + i, rows, columns).writeTo(dir.resolve("synthetic-" + (seed + i) + ".csv"));
+            System.out.printf("%s (%d bytes)%n", file, Files.size(file));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package de.banana.flightviewer.load;
+
+import java.util.Arrays;
+
+/**
+ * Latencies, errors and bytes received of one operation. Thread-safe.
+ * <p>
+ * Every latency is kept, which is a few megabytes for a million requests, so percentiles are exact.
+ * </p>
+ */
+final class LatencyRecorder {
+
+    private long[] nanos = new long[1024];
+    private int count;
+    private long errors;
+    private long bytes;
+
+    /**
+     * Records a successful request.
+     *
+     * @param latencyNanos time to the last byte of the response
+     * @param bodyBytes    bytes of the response body
+     */
+    synchronized void success(long latencyNanos, long bodyBytes) {
+        if (count == nanos.length) nanos = Arrays.copyOf(nanos, count * 2);
+        nanos[count++] = latencyNanos;
+        bytes += bodyBytes;
+    }
+
+    /**
+     * Records a failed request: an error status, a timeout or a connection failure.
+     */
+    synchronized void error() {
+        errors++;
+    }
+
+    /**
+     * Adds the recorded requests to another recorder, e.g. for a total over all operations.
+     *
+     * @param total the recorder to add to
+     */
+    synchronized void addTo(LatencyRecorder total) {
+        for (int i = 0; i < count; i++) total.success(nanos[i], 0);
+        synchronized (total) {
+            total.errors += errors;
+            total.bytes += bytes;
+        }
+    }
+
+    /**
+     * Summarizes the recorded requests.
+     *
+     * @param label   the operation label
+     * @param seconds the measured run time
+     * @return the summary
+     */
+    synchronized Summary summarize(String label, double seconds) {
+        long[] sorted = Arrays.copyOf(nanos, count);
+        Arrays.sort(sorted);
+        return new Summary(label, count, errors, count / seconds, bytes / seconds / (1 << 20),
+                percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99), percentile(sorted, 99.9),
+                count > 0 ? sorted[count - 1] / 1e6 : 0);
+    }
+
+    /**
+     * Summary of one operation; latencies in milliseconds.
+     *
+     * @param operation    the operation label
+     * @param requests     successful requests
+     * @param errors       failed requests
+     * @param throughput   successful requests per second
+     * @param mibPerSecond response body MiB per second
+     * @param p50          median latency
+     * @param p90          90th percentile latency
+     * @param p99          99th percentile latency
+     * @param p999         99.9th percentile latency
+     * @param max          highest latency
+     */
+    record Summary(String operation, long requests, long errors, double throughput, double mibPerSecond,
+                   double p50, double p90, double p99, double p999, double max) { }
+
+    /* ---------- Helpers ---------- */
+
+    /**
+     * Nearest-rank percentile in milliseconds.
+     */
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(p / 100 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)] / 1e6;
+    }
+}
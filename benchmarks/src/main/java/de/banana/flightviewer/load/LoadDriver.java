@@ -0,0 +1,295 @@
+package de.banana.flightviewer.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.banana.flightviewer.csv.SyntheticDjiLog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Headless HTTP load driver: a fixed number of virtual users send a weighted mix of uploads, track, samples
+ * and index page requests to a running application, and latency percentiles and throughput are reported per
+ * operation.
+ * <p>
+ * Every user sends one request at a time and the next one as soon as the response is read (a closed loop),
+ * so {@code --concurrency} is the number of requests in flight. Uploads are synthetic logs
+ * ({@link SyntheticDjiLog}) generated before the request is timed; their seeds follow from {@code --seed}, so
+ * a rerun against the same database uploads duplicates. Flight requests pick from the flights listed at
+ * start; if there are fewer than {@code --flights}, synthetic ones are imported first.
+ * </p>
+ * <p>
+ * Only the given application is contacted, so it runs on a single machine without network access:
+ * </p>
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar de.banana.flightviewer.load.LoadDriver --concurrency 16 --duration 2m
+ * </pre>
+ */
+public final class LoadDriver {
+
+    private final LoadOptions options;
+    private final HttpClient http;
+    private final ObjectMapper json = new ObjectMapper();
+    private final AtomicLong uploadSeq;
+    private final Map<Operation, LatencyRecorder> recorders = new EnumMap<>(Operation.class);
+    private List<Long> flightIds = List.of();
+
+    private LoadDriver(LoadOptions options) {
+        this.options = options;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newCachedThreadPool())
+                .build();
+        this.uploadSeq = new AtomicLong(options.seed << 24);
+        for (Operation o : options.mix.keySet()) recorders.put(o, new LatencyRecorder());
+    }
+
+    /**
+     * Runs the load test.
+     *
+     * @param args options, see {@code --help}
+     * @throws Exception if the application cannot be reached or the report cannot be written
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && (args[0].equals("--help") || args[0].equals("-h"))) {
+            System.out.println("Usage: LoadDriver [options]\n" + LoadOptions.USAGE);
+            return;
+        }
+        LoadOptions options;
+        try {
+            options = LoadOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage() + "\n\n" + LoadOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+        LoadDriver driver = new LoadDriver(options);
+        driver.prepare();
+        List<LatencyRecorder.Summary> report = driver.run();
+        driver.print(report);
+        if (options.json != null) {
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("url", options.url.toString());
+            out.put("concurrency", options.concurrency);
+            out.put("durationSeconds", options.duration.toMillis() / 1000.0);
+            out.put("rows", options.rows);
+            out.put("columns", options.columns);
+            out.put("seed", options.seed);
+            out.put("operations", report);
+            driver.json.writerWithDefaultPrettyPrinter().writeValue(options.json.toFile(), out);
+        }
+        System.exit(0); // the client's threads would keep idle connections open
+    }
+
+    /**
+     * Lists the flights, importing synthetic ones first if there are too few.
+     */
+    private void prepare() throws IOException, InterruptedException {
+        List<Long> ids = listFlights();
+        boolean needFlights = options.mix.keySet().stream().anyMatch(Operation::perFlight);
+        if (needFlights && ids.size() < options.flights) {
+            int missing = options.flights - ids.size();
+            System.out.printf("Importing %d synthetic flight(s) of %d rows%n", missing, options.rows);
+            for (int i = 0; i < missing; i++) {
+                HttpResponse<byte[]> response = upload();
+                if (response.statusCode() / 100 != 2) {
+                    throw new IOException("Upload failed with status " + response.statusCode());
+                }
+                awaitJob(response);
+            }
+            ids = listFlights();
+        }
+        if (needFlights && ids.isEmpty()) {
+            throw new IllegalStateException("No flights to request; use --flights to import some");
+        }
+        flightIds = ids;
+    }
+
+    /**
+     * Runs the warm-up and the measured phase.
+     */
+    private List<LatencyRecorder.Summary> run() throws InterruptedException {
+        Operation[] ops = options.mix.keySet().toArray(new Operation[0]);
+        int[] cumulative = new int[ops.length];
+        int total = 0;
+        for (int i = 0; i < ops.length; i++) cumulative[i] = total += options.mix.get(ops[i]);
+        int totalWeight = total;
+
+        long startNanos = System.nanoTime();
+        long measureFrom = startNanos + options.warmup.toNanos();
+        long end = measureFrom + options.duration.toNanos();
+        System.out.printf("%d user(s) against %s: %.1fs warm-up, %.1fs measured, %d flight(s) in the pool%n",
+                options.concurrency, options.url, options.warmup.toMillis() / 1000.0,
+                options.duration.toMillis() / 1000.0, flightIds.size());
+
+        ExecutorService users = Executors.newFixedThreadPool(options.concurrency);
+        SplittableRandom seeds = new SplittableRandom(options.seed);
+        for (int u = 0; u < options.concurrency; u++) {
+            SplittableRandom random = seeds.split();
+            users.execute(() -> {
+                while (System.nanoTime() < end && !Thread.currentThread().isInterrupted()) {
+                    int pick = random.nextInt(totalWeight);
+                    int i = 0;
+                    while (cumulative[i] <= pick) i++;
+                    execute(ops[i], random, measureFrom, end);
+                }
+            });
+        }
+        users.shutdown();
+        if (!users.awaitTermination(options.warmup.plus(options.duration).plus(options.timeout).toMillis() + 10_000,
+                TimeUnit.MILLISECONDS)) {
+            users.shutdownNow();
+        }
+
+        double seconds = options.duration.toNanos() / 1e9;
+        List<LatencyRecorder.Summary> report = new ArrayList<>();
+        LatencyRecorder all = new LatencyRecorder();
+        for (Operation o : ops) {
+            report.add(recorders.get(o).summarize(o.label, seconds));
+            recorders.get(o).addTo(all);
+        }
+        report.add(all.summarize("all", seconds));
+        return report;
+    }
+
+    /**
+     * Sends one request and records it if it started and ended in the measured phase.
+     */
+    private void execute(Operation op, SplittableRandom random, long measureFrom, long end) {
+        try {
+            HttpRequest request;
+            if (op == Operation.UPLOAD) {
+                request = uploadRequest();
+            } else {
+                String path = op.perFlight()
+                        ? String.format(op.path, flightIds.get(random.nextInt(flightIds.size()))) : op.path;
+                HttpRequest.Builder b = HttpRequest.newBuilder(options.url.resolve(path)).timeout(options.timeout);
+                if (op.accept != null) b.header("Accept", op.accept);
+                if (options.gzip) b.header("Accept-Encoding", "gzip");
+                request = b.GET().build();
+            }
+            long t0 = System.nanoTime();
+            HttpResponse<InputStream> response = http.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            long bytes;
+            byte[] body = null;
+            try (InputStream in = response.body()) {
+                if (op == Operation.UPLOAD) {
+                    body = in.readAllBytes();
+                    bytes = body.length;
+                } else {
+                    bytes = in.transferTo(OutputStream.nullOutputStream());
+                }
+            }
+            boolean ok = response.statusCode() / 100 == 2 || response.statusCode() == 304;
+            if (ok && op == Operation.UPLOAD && options.waitImports) {
+                ok = awaitJob(json.readTree(body));
+            }
+            long t1 = System.nanoTime();
+            if (t0 < measureFrom || t1 > end) return;
+            if (ok) recorders.get(op).success(t1 - t0, bytes);
+            else recorders.get(op).error();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            long now = System.nanoTime();
+            if (now >= measureFrom && now <= end) recorders.get(op).error();
+        }
+    }
+
+    /**
+     * Prints the report as a table.
+     */
+    private void print(List<LatencyRecorder.Summary> report) {
+        System.out.printf("%n%-15s %9s %7s %9s %8s %9s %9s %9s %9s %9s%n", "operation", "requests", "errors",
+                "req/s", "MiB/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (LatencyRecorder.Summary s : report) {
+            System.out.printf("%-15s %9d %7d %9.1f %8.2f %9.1f %9.1f %9.1f %9.1f %9.1f%n", s.operation(),
+                    s.requests(), s.errors(), s.throughput(), s.mibPerSecond(), s.p50(), s.p90(), s.p99(),
+                    s.p999(), s.max());
+        }
+    }
+
+    /* ---------- Helpers ---------- */
+
+    private List<Long> listFlights() throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = http.send(
+                HttpRequest.newBuilder(options.url.resolve("/api/flights?limit=500")).timeout(options.timeout).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IOException("Cannot list flights at " + options.url + ": status " + response.statusCode());
+        }
+        List<Long> ids = new ArrayList<>();
+        for (JsonNode item : json.readTree(response.body()).path("items")) ids.add(item.path("id").asLong());
+        return ids;
+    }
+
+    private HttpResponse<byte[]> upload() throws IOException, InterruptedException {
+        return http.send(uploadRequest(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    /**
+     * Builds a multipart upload of a new synthetic log.
+     */
+    private HttpRequest uploadRequest() {
+        long seed = uploadSeq.getAndIncrement();
+        byte[] csv = new SyntheticDjiLog(seed, options.rows, options.columns).toBytes();
+        String boundary = "----flightviewer-load-" + Long.toHexString(seed);
+        ByteArrayOutputStream body = new ByteArrayOutputStream(csv.length + 512);
+        body.writeBytes(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"synthetic-" + seed + ".csv\"\r\n"
+                + "Content-Type: text/csv\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(csv);
+        body.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return HttpRequest.newBuilder(options.url.resolve("/api/imports"))
+                .timeout(options.timeout)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+    }
+
+    private void awaitJob(HttpResponse<byte[]> response) throws IOException, InterruptedException {
+        if (!awaitJob(json.readTree(response.body()))) {
+            throw new IOException("Import failed: " + new String(response.body(), StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Polls an import job until it is done.
+     *
+     * @return whether it succeeded
+     */
+    private boolean awaitJob(JsonNode job) throws IOException, InterruptedException {
+        URI status = options.url.resolve("/api/imports/" + job.path("id").asText());
+        long deadline = System.nanoTime() + options.timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            String state = job.path("state").asText();
+            if (state.equals("DONE")) return true;
+            if (state.equals("FAILED")) return false;
+            Thread.sleep(50);
+            HttpResponse<byte[]> response = http.send(HttpRequest.newBuilder(status).timeout(options.timeout).build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) return false;
+            job = json.readTree(response.body());
+        }
+        return false;
+    }
+}
@@ -0,0 +1,111 @@
+package de.banana.flightviewer.load;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command-line options of the {@link LoadDriver}, given as {@code --name=value} or {@code --name value}.
+ */
+final class LoadOptions {
+
+    static final String USAGE = """
+            Options (defaults in brackets):
+              --url URL            application base URL [http://localhost:8080]
+              --concurrency N      concurrent virtual users, each sending one request at a time [8]
+              --warmup D           run time not measured, e.g. 10s [10s]
+              --duration D         measured run time, e.g. 60s or 5m [60s]
+              --mix LIST           operation weights [upload=1,track=4,samples=4,index=1]
+                                   operations: upload, track, track-lod, samples, samples-lod, samples-binary, index
+              --rows N             samples per uploaded log [10000]
+              --columns N          filler columns per uploaded log [40]
+              --seed N             seed of the generated logs and of the operation mix [1]
+              --flights N          upload logs before the run until this many flights exist [5]
+              --wait-imports B     measure uploads until the import job finishes, not until it is queued [false]
+              --gzip B             send Accept-Encoding: gzip like a browser [true]
+              --timeout D          timeout of a single request [60s]
+              --json FILE          also write the report as JSON
+            """;
+
+    URI url = URI.create("http://localhost:8080");
+    int concurrency = 8;
+    Duration warmup = Duration.ofSeconds(10);
+    Duration duration = Duration.ofSeconds(60);
+    Map<Operation, Integer> mix = parseMix("upload=1,track=4,samples=4,index=1");
+    int rows = 10_000;
+    int columns = 40;
+    long seed = 1;
+    int flights = 5;
+    boolean waitImports;
+    boolean gzip = true;
+    Duration timeout = Duration.ofSeconds(60);
+    Path json;
+
+    /**
+     * Parses the command line.
+     *
+     * @param args the arguments
+     * @return the options
+     * @throws IllegalArgumentException if an option is unknown or has an invalid value
+     */
+    static LoadOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) throw new IllegalArgumentException("Unexpected argument: " + arg);
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                values.put(arg.substring(2, eq), arg.substring(eq + 1));
+            } else if (i + 1 < args.length) {
+                values.put(arg.substring(2), args[++i]);
+            } else {
+                throw new IllegalArgumentException("Missing value of " + arg);
+            }
+        }
+        LoadOptions o = new LoadOptions();
+        for (Map.Entry<String, String> e : values.entrySet()) {
+            String v = e.getValue().trim();
+            switch (e.getKey()) {
+                case "url" -> o.url = URI.create(v.endsWith("/") ? v.substring(0, v.length() - 1) : v);
+                case "concurrency" -> o.concurrency = positive(e.getKey(), Integer.parseInt(v));
+                case "warmup" -> o.warmup = DurationStyle.detectAndParse(v);
+                case "duration" -> o.duration = DurationStyle.detectAndParse(v);
+                case "mix" -> o.mix = parseMix(v);
+                case "rows" -> o.rows = positive(e.getKey(), Integer.parseInt(v));
+                case "columns" -> o.columns = Integer.parseInt(v);
+                case "seed" -> o.seed = Long.parseLong(v);
+                case "flights" -> o.flights = Integer.parseInt(v);
+                case "wait-imports" -> o.waitImports = Boolean.parseBoolean(v);
+                case "gzip" -> o.gzip = Boolean.parseBoolean(v);
+                case "timeout" -> o.timeout = DurationStyle.detectAndParse(v);
+                case "json" -> o.json = Path.of(v);
+                default -> throw new IllegalArgumentException("Unknown option: --" + e.getKey());
+            }
+        }
+        return o;
+    }
+
+    /* ---------- Helpers ---------- */
+
+    private static Map<Operation, Integer> parseMix(String list) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String part : list.split(",")) {
+            String[] kv = part.split("=", 2);
+            int weight = kv.length > 1 ? Integer.parseInt(kv[1].trim()) : 1;
+            if (weight < 0) throw new IllegalArgumentException("Negative weight: " + part);
+            if (weight > 0) mix.put(Operation.parse(kv[0]), weight);
+        }
+        if (mix.isEmpty()) throw new IllegalArgumentException("The mix has no operation");
+        return mix;
+    }
+
+    private static int positive(String name, int value) {
+        if (value <= 0) throw new IllegalArgumentException("--" + name + " must be positive");
+        return value;
+    }
+}
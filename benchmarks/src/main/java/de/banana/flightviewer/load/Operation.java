@@ -0,0 +1,52 @@
+package de.banana.flightviewer.load;
+
+/**
+ * Requests the {@link LoadDriver} sends. Flight requests pick a random flight of the pool listed at start.
+ */
+enum Operation {
+    /** {@code POST /api/imports} with a new synthetic log. */
+    UPLOAD("upload", null, null),
+    /** {@code GET /api/flights/{id}/track}, every point. */
+    TRACK("track", "/api/flights/%d/track", null),
+    /** {@code GET /api/flights/{id}/track?zoom=14}, simplified for the map. */
+    TRACK_LOD("track-lod", "/api/flights/%d/track?zoom=14", null),
+    /** {@code GET /api/flights/{id}/samples}, every sample as JSON. */
+    SAMPLES("samples", "/api/flights/%d/samples", null),
+    /** {@code GET /api/flights/{id}/samples?maxPoints=1000}, downsampled for the charts. */
+    SAMPLES_LOD("samples-lod", "/api/flights/%d/samples?maxPoints=1000", null),
+    /** {@code GET /api/flights/{id}/samples} in the binary encoding. */
+    SAMPLES_BINARY("samples-binary", "/api/flights/%d/samples", "application/x-flight-samples"),
+    /** {@code GET /}, the flight list page. */
+    INDEX("index", "/", null);
+
+    final String label;
+    final String path;
+    final String accept;
+
+    Operation(String label, String path, String accept) {
+        this.label = label;
+        this.path = path;
+        this.accept = accept;
+    }
+
+    /**
+     * Whether the request is about one flight.
+     */
+    boolean perFlight() {
+        return path != null && path.contains("%d");
+    }
+
+    /**
+     * Parses a label like {@code track-lod}.
+     *
+     * @param label the label
+     * @return the operation
+     * @throws IllegalArgumentException if the label is unknown
+     */
+    static Operation parse(String label) {
+        for (Operation o : values()) {
+            if (o.label.equalsIgnoreCase(label.trim())) return o;
+        }
+        throw new IllegalArgumentException("Unknown operation: " + label);
+    }
+}
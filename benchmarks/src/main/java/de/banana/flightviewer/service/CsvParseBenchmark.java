@@ -0,0 +1,71 @@
+package de.banana.flightviewer.service;
+
+import de.banana.flightviewer.csv.DjiCsvReader;
+import de.banana.flightviewer.csv.SyntheticDjiLog;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSV parsing throughput: a synthetic log file is read with {@link DjiCsvReader} and parsed into chunks by
+ * {@link CsvChunkParser} on a parser thread, exactly as the import does, without storing anything.
+ * <p>
+ * The score is the time per log; rows per second are {@code rows / score}. With {@code telemetry} the
+ * filler columns are encoded as channels as well, like with {@code flightviewer.import.full-telemetry}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class CsvParseBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    int rows;
+
+    @Param({"false", "true"})
+    boolean telemetry;
+
+    /**
+     * Columns besides the ones the import reads; real logs have about 200.
+     */
+    @Param("40")
+    int fillerColumns;
+
+    private Path file;
+    private ExecutorService parsers;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = new SyntheticDjiLog(42, rows, fillerColumns).writeTo(Files.createTempFile("flightviewer-bench-", ".csv"));
+        parsers = Executors.newSingleThreadExecutor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        parsers.shutdownNow();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long parse() throws IOException {
+        long parsed = 0;
+        try (DjiCsvReader csv = DjiCsvReader.open(new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8));
+             CsvChunkParser parser = new CsvChunkParser(csv, 0, CsvImportService.PROGRESS_INTERVAL, parsers, telemetry)) {
+            CsvChunkParser.Chunk chunk;
+            while ((chunk = parser.next()) != null) {
+                parsed += chunk.size();
+            }
+        }
+        return parsed;
+    }
+}
@@ -0,0 +1,81 @@
+package de.banana.flightviewer.service;
+
+import de.banana.flightviewer.FlightviewerApplication;
+import de.banana.flightviewer.csv.SyntheticDjiLog;
+import de.banana.flightviewer.model.Flight;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end import of a synthetic log into an embedded H2 database, through {@link CsvImportService} in the
+ * application context: parsing, sample store, segment file, events, search index and rollups.
+ * <p>
+ * Each iteration imports one new log (different seed, so it is not a duplicate) into a file database in a
+ * temporary directory; single-shot iterations keep the database from growing without bound. Coverage tiles
+ * are disabled as they are updated after the import completes.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ImportBenchmark {
+
+    @Param({"10000", "100000"})
+    int rows;
+
+    @Param({"rows", "columnar"})
+    String storage;
+
+    private Path dir;
+    private ConfigurableApplicationContext context;
+    private CsvImportService imports;
+    private Path file;
+    private long seed;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("flightviewer-bench-");
+        context = new SpringApplicationBuilder(FlightviewerApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:file:" + dir.resolve("db") + ";DB_CLOSE_DELAY=-1",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN",
+                        "flightviewer.storage.samples=" + storage,
+                        "flightviewer.segments.dir=" + dir.resolve("segments"),
+                        "flightviewer.tiles.enabled=false")
+                .run();
+        imports = context.getBean(CsvImportService.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void writeLog() throws IOException {
+        file = new SyntheticDjiLog(++seed, rows, 40).writeTo(dir.resolve("log.csv"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public Flight importLog() throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return imports.importCsv(in, "synthetic.csv");
+        }
+    }
+}
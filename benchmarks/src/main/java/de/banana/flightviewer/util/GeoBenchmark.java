@@ -0,0 +1,67 @@
+package de.banana.flightviewer.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-sample cost of the geometry on the import path: {@link GeoMath#haversine} between consecutive points,
+ * and the whole {@link TrackStats} pass (distance, altitude, battery and time span) that the import and live
+ * ingest run for every sample.
+ * <p>
+ * Both run over the same seeded random walk; scores are nanoseconds per sample.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeoBenchmark {
+
+    static final int POINTS = 100_000;
+
+    private final long[] timestamps = new long[POINTS];
+    private final double[] latitudes = new double[POINTS];
+    private final double[] longitudes = new double[POINTS];
+    private final double[] altitudes = new double[POINTS];
+    private final int[] batteries = new int[POINTS];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        double lat = 52.99, lon = 9.07, alt = 0;
+        for (int i = 0; i < POINTS; i++) {
+            lat += random.nextDouble(-1e-5, 1e-5);
+            lon += random.nextDouble(-1e-5, 1e-5);
+            alt = Math.max(0, alt + random.nextDouble(-0.5, 0.5));
+            timestamps[i] = 1_750_000_000_000L + i * 100L;
+            latitudes[i] = lat;
+            longitudes[i] = lon;
+            altitudes[i] = alt;
+            batteries[i] = 100 - i * 80 / POINTS;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS - 1)
+    public double haversine() {
+        double sum = 0;
+        for (int i = 1; i < POINTS; i++) {
+            sum += GeoMath.haversine(latitudes[i - 1], longitudes[i - 1], latitudes[i], longitudes[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public TrackStats trackStats() {
+        TrackStats track = new TrackStats();
+        for (int i = 0; i < POINTS; i++) {
+            track.add(timestamps[i], latitudes[i], longitudes[i], altitudes[i], batteries[i]);
+        }
+        return track;
+    }
+}
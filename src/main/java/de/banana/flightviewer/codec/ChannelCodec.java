@@ -0,0 +1,279 @@
+package de.banana.flightviewer.codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of one telemetry channel: the cells of one CSV column, in row order.
+ * <p>
+ * Cells are kept exactly as logged. Each cell is one tag byte, optionally followed by a payload:
+ * <ul>
+ *     <li>{@code BLANK}: empty cell</li>
+ *     <li>{@code REPEAT}: same text as the previous cell</li>
+ *     <li>{@code DECIMAL}: scale byte and the zigzag varint delta of the unscaled value to the previous
+ *     decimal, for cells like {@code -10.2} with at most 18 digits</li>
+ *     <li>{@code TEXT_REF}: varint index into the channel's dictionary of texts seen so far</li>
+ *     <li>{@code TEXT_NEW}: varint length and UTF-8 bytes of a text, which is added to the dictionary</li>
+ *     <li>{@code TEXT}: like {@code TEXT_NEW} but not added, once the dictionary is full</li>
+ * </ul>
+ * Most DJI columns are constant over long stretches or change in small steps, so a typical channel needs
+ * one or two bytes per row before compression.
+ * </p>
+ */
+public final class ChannelCodec {
+
+    private static final byte BLANK = 0;
+    private static final byte REPEAT = 1;
+    private static final byte DECIMAL = 2;
+    private static final byte TEXT_REF = 3;
+    private static final byte TEXT_NEW = 4;
+    private static final byte TEXT = 5;
+
+    /**
+     * Maximum number of distinct texts per channel kept in the dictionary.
+     */
+    private static final int MAX_DICTIONARY = 4096;
+    private static final int MAX_DIGITS = 18;
+
+    private ChannelCodec() {}
+
+    /**
+     * Receives the decoded cells of a channel.
+     */
+    public interface ValueHandler {
+
+        /**
+         * Handles an empty cell.
+         *
+         * @throws IOException if writing the value somewhere fails
+         */
+        void blank() throws IOException;
+
+        /**
+         * Handles a decimal number, {@code unscaled / 10^scale}.
+         *
+         * @param unscaled the digits without decimal point
+         * @param scale    number of fraction digits
+         * @throws IOException if writing the value somewhere fails
+         */
+        void decimal(long unscaled, int scale) throws IOException;
+
+        /**
+         * Handles any other text.
+         *
+         * @param text the cell
+         * @throws IOException if writing the value somewhere fails
+         */
+        void text(String text) throws IOException;
+    }
+
+    /**
+     * Decodes a channel.
+     *
+     * @param data    encoded bytes
+     * @param handler receives the cells in row order
+     * @throws IOException if the handler fails
+     */
+    public static void decode(byte[] data, ValueHandler handler) throws IOException {
+        List<String> dictionary = new ArrayList<>();
+        int[] pos = {0};
+        byte kind = BLANK; // BLANK, DECIMAL or TEXT: what the current cell is
+        long unscaled = 0;
+        int scale = 0;
+        String text = null;
+        while (pos[0] < data.length) {
+            byte tag = data[pos[0]++];
+            switch (tag) {
+                case REPEAT -> { }
+                case BLANK -> kind = BLANK;
+                case DECIMAL -> {
+                    kind = DECIMAL;
+                    scale = data[pos[0]++];
+                    long z = varint(data, pos);
+                    unscaled += (z >>> 1) ^ -(z & 1);
+                }
+                case TEXT_REF -> {
+                    kind = TEXT;
+                    text = dictionary.get((int) varint(data, pos));
+                }
+                case TEXT_NEW, TEXT -> {
+                    kind = TEXT;
+                    int len = (int) varint(data, pos);
+                    text = new String(data, pos[0], len, StandardCharsets.UTF_8);
+                    pos[0] += len;
+                    if (tag == TEXT_NEW) dictionary.add(text);
+                }
+                default -> throw new IllegalArgumentException("Corrupt channel: tag " + tag);
+            }
+            if (kind == BLANK) handler.blank();
+            else if (kind == DECIMAL) handler.decimal(unscaled, scale);
+            else handler.text(text);
+        }
+    }
+
+    /* ---------- Encoding ---------- */
+
+    /**
+     * Single-pass encoder; memory use is about the size of the encoded output not yet
+     * {@linkplain #drainTo(OutputStream) drained}. Not thread-safe.
+     */
+    public static final class Encoder {
+
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private byte[] data = new byte[256];
+        private int size;
+        private int count;
+        private String prev;
+        private long prevUnscaled;
+
+        /**
+         * Appends the next cell.
+         *
+         * @param cell the trimmed cell text; blank for an empty cell
+         */
+        public void add(String cell) {
+            count++;
+            if (cell.equals(prev)) {
+                put(REPEAT);
+                return;
+            }
+            prev = cell;
+            if (cell.isEmpty()) {
+                put(BLANK);
+                return;
+            }
+            int scale = scale(cell);
+            if (scale >= 0) {
+                long unscaled = unscaled(cell);
+                put(DECIMAL);
+                put((byte) scale);
+                long d = unscaled - prevUnscaled;
+                varint((d << 1) ^ (d >> 63));
+                prevUnscaled = unscaled;
+                return;
+            }
+            Integer ref = dictionary.get(cell);
+            if (ref != null) {
+                put(TEXT_REF);
+                varint(ref);
+                return;
+            }
+            byte[] utf8 = cell.getBytes(StandardCharsets.UTF_8);
+            if (dictionary.size() < MAX_DICTIONARY) {
+                dictionary.put(cell, dictionary.size());
+                put(TEXT_NEW);
+            } else {
+                put(TEXT);
+            }
+            varint(utf8.length);
+            for (byte b : utf8) put(b);
+        }
+
+        /**
+         * Gets the number of cells appended.
+         * @return the cell count
+         */
+        public int getCount() { return count; }
+
+        /**
+         * Gets the number of encoded bytes held in memory, i.e. not yet drained.
+         * @return the buffered size in bytes
+         */
+        public int getBufferedSize() { return size; }
+
+        /**
+         * Returns the encoded cells not yet drained; without {@link #drainTo} calls, the whole channel.
+         * @return the encoded bytes
+         */
+        public byte[] toByteArray() {
+            return Arrays.copyOf(data, size);
+        }
+
+        /**
+         * Writes the buffered bytes to a stream and empties the buffer. Encoding continues where it left off,
+         * so the bytes of successive calls concatenate to the encoding of the whole channel.
+         *
+         * @param out the target
+         * @return the number of bytes written
+         * @throws IOException if writing fails
+         */
+        public int drainTo(OutputStream out) throws IOException {
+            int n = size;
+            out.write(data, 0, n);
+            size = 0;
+            return n;
+        }
+
+        private void put(byte b) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = b;
+        }
+
+        private void varint(long v) {
+            while ((v & ~0x7FL) != 0) {
+                put((byte) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            put((byte) v);
+        }
+    }
+
+    /* ---------- Helpers ---------- */
+
+    /**
+     * Checks whether a cell is a plain decimal ({@code -?digits[.digits]}) that fits a long and is spelled the
+     * way it decodes, i.e. without leading zeros or a negative zero.
+     *
+     * @return the number of fraction digits, or {@code -1} if the cell is not such a decimal
+     */
+    static int scale(String cell) {
+        int start = cell.charAt(0) == '-' ? 1 : 0;
+        int n = cell.length();
+        int dot = -1, digits = 0;
+        boolean nonZero = false;
+        for (int i = start; i < n; i++) {
+            char c = cell.charAt(i);
+            if (c >= '1' && c <= '9') {
+                nonZero = true;
+                digits++;
+            } else if (c == '0') {
+                digits++;
+            } else if (c == '.' && dot < 0) {
+                dot = i;
+            } else {
+                return -1;
+            }
+        }
+        int intEnd = dot < 0 ? n : dot;
+        if (intEnd == start || dot == n - 1 || digits > MAX_DIGITS) return -1; // ".5", "1."
+        if (cell.charAt(start) == '0' && intEnd - start > 1) return -1;      // "007"
+        if (start == 1 && !nonZero) return -1;                                // "-0.0"
+        return dot < 0 ? 0 : n - dot - 1;
+    }
+
+    private static long unscaled(String cell) {
+        long v = 0;
+        for (int i = 0; i < cell.length(); i++) {
+            char c = cell.charAt(i);
+            if (c >= '0' && c <= '9') v = v * 10 + (c - '0');
+        }
+        return cell.charAt(0) == '-' ? -v : v;
+    }
+
+    private static long varint(byte[] data, int[] pos) {
+        long v = 0;
+        int shift = 0;
+        while (true) {
+            byte b = data[pos[0]++];
+            v |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return v;
+            shift += 7;
+        }
+    }
+}
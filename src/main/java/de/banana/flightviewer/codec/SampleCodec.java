@@ -0,0 +1,280 @@
+package de.banana.flightviewer.codec;
+
+import de.banana.flightviewer.model.SampleColumns;
+import de.banana.flightviewer.repository.SampleRowHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Compact columnar binary encoding of flight samples ({@value #MEDIA_TYPE}).
+ * <p>
+ * Layout (version 1):
+ * <ul>
+ *     <li>magic {@code "FVS1"} (4 ASCII bytes)</li>
+ *     <li>sample count (varint)</li>
+ *     <li>timestamps: epoch milliseconds, delta-encoded zigzag varints</li>
+ *     <li>latitudes, longitudes: fixed-point 1e-7 degrees, delta-encoded zigzag varints</li>
+ *     <li>altitudes: centimeters, delta-encoded zigzag varints</li>
+ *     <li>speeds: centimeters per second, delta-encoded zigzag varints</li>
+ *     <li>batteries: one unsigned byte per sample</li>
+ * </ul>
+ * Every delta column starts from 0, so its first value is the absolute value. Varints are little-endian
+ * base-128 (7 payload bits per byte, high bit set on all but the last byte). A typical 10 Hz DJI log needs
+ * 7–10 bytes per sample instead of roughly 140 for JSON.
+ * </p>
+ */
+public final class SampleCodec {
+
+    /**
+     * Media type of the encoding.
+     */
+    public static final String MEDIA_TYPE = "application/x-flight-samples";
+
+    private static final byte[] MAGIC = {'F', 'V', 'S', '1'};
+    private static final double DEGREE_SCALE = 1e7;
+    private static final double CENTI_SCALE = 100;
+
+    private SampleCodec() {}
+
+    /**
+     * Encodes a column view.
+     *
+     * @param columns the samples
+     * @return the encoded bytes
+     */
+    public static byte[] encode(SampleColumns columns) {
+        Encoder encoder = new Encoder();
+        for (int i = 0; i < columns.size(); i++) {
+            encoder.add(columns.timestamp(i), columns.latitude(i), columns.longitude(i),
+                    columns.altitude(i), columns.speed(i), columns.battery(i));
+        }
+        return encoder.toByteArray();
+    }
+
+    /**
+     * Decodes samples into a column view.
+     *
+     * @param data encoded bytes
+     * @return the samples, quantized as described in the class documentation
+     */
+    public static SampleColumns decode(byte[] data) {
+        Reader r = new Reader(data);
+        SampleColumns out = new SampleColumns(r.count);
+        try {
+            r.forEach(out::add);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // SampleColumns.add does not throw
+        }
+        return out;
+    }
+
+    /**
+     * Decodes samples and hands them to a callback one by one.
+     *
+     * @param data    encoded bytes
+     * @param handler receives each sample
+     * @throws IOException if the handler fails
+     */
+    public static void decode(byte[] data, SampleRowHandler handler) throws IOException {
+        new Reader(data).forEach(handler);
+    }
+
+    /* ---------- Encoding ---------- */
+
+    /**
+     * Single-pass encoder: each column is varint-encoded into its own growing buffer as samples arrive, so
+     * memory use is about the size of the encoded output. Not thread-safe.
+     */
+    public static final class Encoder implements SampleRowHandler {
+
+        private final Bytes ts = new Bytes();
+        private final Bytes lat = new Bytes();
+        private final Bytes lon = new Bytes();
+        private final Bytes alt = new Bytes();
+        private final Bytes spd = new Bytes();
+        private final Bytes bat = new Bytes();
+        private long prevTs, prevLat, prevLon, prevAlt, prevSpd;
+        private int count;
+
+        /**
+         * Appends one sample.
+         *
+         * @param timestamp epoch milliseconds
+         * @param latitude  latitude in decimal degrees
+         * @param longitude longitude in decimal degrees
+         * @param altitude  altitude in meters
+         * @param speed     horizontal speed in m/s
+         * @param battery   battery percentage
+         */
+        public void add(long timestamp, double latitude, double longitude, double altitude, double speed, int battery) {
+            long qLat = Math.round(latitude * DEGREE_SCALE);
+            long qLon = Math.round(longitude * DEGREE_SCALE);
+            long qAlt = Math.round(altitude * CENTI_SCALE);
+            long qSpd = Math.round(speed * CENTI_SCALE);
+            ts.zigzag(timestamp - prevTs);
+            lat.zigzag(qLat - prevLat);
+            lon.zigzag(qLon - prevLon);
+            alt.zigzag(qAlt - prevAlt);
+            spd.zigzag(qSpd - prevSpd);
+            bat.put((byte) Math.max(0, Math.min(255, battery)));
+            prevTs = timestamp;
+            prevLat = qLat;
+            prevLon = qLon;
+            prevAlt = qAlt;
+            prevSpd = qSpd;
+            count++;
+        }
+
+        @Override
+        public void sample(long timestamp, double latitude, double longitude, double altitude, double speed, int battery) {
+            add(timestamp, latitude, longitude, altitude, speed, battery);
+        }
+
+        /**
+         * Gets the number of encoded bytes {@link #writeTo} will produce.
+         * @return the encoded size
+         */
+        public int size() {
+            return MAGIC.length + varintLength(count) + ts.size + lat.size + lon.size + alt.size + spd.size + bat.size;
+        }
+
+        /**
+         * Writes the encoded samples.
+         *
+         * @param out the target stream; not closed
+         * @throws IOException if writing fails
+         */
+        public void writeTo(OutputStream out) throws IOException {
+            out.write(MAGIC);
+            Bytes header = new Bytes();
+            header.varint(count);
+            for (Bytes b : new Bytes[]{header, ts, lat, lon, alt, spd, bat}) {
+                out.write(b.data, 0, b.size);
+            }
+        }
+
+        /**
+         * Returns the encoded samples.
+         * @return the encoded bytes
+         */
+        public byte[] toByteArray() {
+            Bytes all = new Bytes();
+            try {
+                writeTo(all.asStream());
+            } catch (IOException e) {
+                throw new IllegalStateException(e); // in-memory target does not throw
+            }
+            return Arrays.copyOf(all.data, all.size);
+        }
+    }
+
+    private static int varintLength(long v) {
+        int n = 1;
+        while ((v >>>= 7) != 0) n++;
+        return n;
+    }
+
+    /**
+     * Minimal growable byte buffer with varint helpers.
+     */
+    private static final class Bytes {
+        byte[] data = new byte[256];
+        int size;
+
+        void put(byte b) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = b;
+        }
+
+        void varint(long v) {
+            while ((v & ~0x7FL) != 0) {
+                put((byte) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            put((byte) v);
+        }
+
+        void zigzag(long v) {
+            varint((v << 1) ^ (v >> 63));
+        }
+
+        OutputStream asStream() {
+            return new OutputStream() {
+                @Override
+                public void write(int b) {
+                    put((byte) b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    if (size + len > data.length) data = Arrays.copyOf(data, Math.max(size + len, data.length * 2));
+                    System.arraycopy(b, off, data, size, len);
+                    size += len;
+                }
+            };
+        }
+    }
+
+    /* ---------- Decoding ---------- */
+
+    /**
+     * Sequential decoder over an encoded buffer.
+     */
+    private static final class Reader {
+        private final byte[] data;
+        private int pos;
+        final int count;
+
+        Reader(byte[] data) {
+            this.data = data;
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (data.length <= i || data[i] != MAGIC[i]) {
+                    throw new IllegalArgumentException("Not an encoded sample block");
+                }
+            }
+            pos = MAGIC.length;
+            count = (int) varint();
+        }
+
+        void forEach(SampleRowHandler handler) throws IOException {
+            int n = count;
+            // locate the start of each column, then decode all columns side by side
+            int[] cursor = new int[5];
+            for (int c = 0; c < cursor.length; c++) {
+                cursor[c] = pos;
+                for (int i = 0; i < n; i++) {
+                    while (data[pos++] < 0) { /* skip continuation bytes */ }
+                }
+            }
+            int batPos = pos;
+            long ts = 0, lat = 0, lon = 0, alt = 0, spd = 0;
+            for (int i = 0; i < n; i++) {
+                pos = cursor[0]; ts += zigzag(varint()); cursor[0] = pos;
+                pos = cursor[1]; lat += zigzag(varint()); cursor[1] = pos;
+                pos = cursor[2]; lon += zigzag(varint()); cursor[2] = pos;
+                pos = cursor[3]; alt += zigzag(varint()); cursor[3] = pos;
+                pos = cursor[4]; spd += zigzag(varint()); cursor[4] = pos;
+                handler.sample(ts, lat / DEGREE_SCALE, lon / DEGREE_SCALE,
+                        alt / CENTI_SCALE, spd / CENTI_SCALE, data[batPos + i] & 0xFF);
+            }
+            pos = batPos + n;
+        }
+
+        private static long zigzag(long z) {
+            return (z >>> 1) ^ -(z & 1);
+        }
+
+        private long varint() {
+            long v = 0;
+            int shift = 0;
+            while (true) {
+                byte b = data[pos++];
+                v |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return v;
+                shift += 7;
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package de.banana.flightviewer.controller;
+
+import de.banana.flightviewer.model.FlightEvent;
+import de.banana.flightviewer.repository.FlightEventRepository;
+import de.banana.flightviewer.service.FlightEventService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * REST controller for the flight event index.
+ * <ul>
+ *     <li><b>GET /api/events?type=&amp;flight=&amp;since=&amp;until=&amp;limit=</b>: Events of all or one
+ *     flight, ordered by time. {@code type} may be repeated or comma-separated (e.g.
+ *     {@code LOW_BATTERY,GPS_LOST}); {@code since} and {@code until} are ISO-8601 instants or epoch
+ *     milliseconds.</li>
+ * </ul>
+ */
+@RestController
+@RequestMapping("/api/events")
+public class EventApiController {
+
+    private final FlightEventService events;
+
+    /**
+     * Constructs a new EventApiController.
+     *
+     * @param events the event index
+     */
+    public EventApiController(FlightEventService events) {
+        this.events = events;
+    }
+
+    /**
+     * Finds events.
+     *
+     * @param type   kinds of events, see {@link FlightEvent.Type}; all kinds if absent
+     * @param flight only events of this flight
+     * @param since  only events at or after this instant
+     * @param until  only events before this instant
+     * @param limit  maximum number of events, capped at {@value FlightEventRepository#MAX_LIMIT}
+     * @return the events ordered by time
+     */
+    @GetMapping
+    public List<FlightEventRepository.Event> find(@RequestParam(required = false) List<String> type,
+                                                  @RequestParam(required = false) Long flight,
+                                                  @RequestParam(required = false) Instant since,
+                                                  @RequestParam(required = false) Instant until,
+                                                  @RequestParam(defaultValue = "100") int limit) {
+        Set<FlightEvent.Type> types = EnumSet.noneOf(FlightEvent.Type.class);
+        if (type != null) {
+            for (String t : type) types.add(FlightEvent.Type.parse(t.trim()));
+        }
+        return events.find(types, flight, since, until, limit);
+    }
+
+    /**
+     * Translates unknown event types into 400 Bad Request.
+     *
+     * @param e the exception
+     * @return the error response
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+    }
+}
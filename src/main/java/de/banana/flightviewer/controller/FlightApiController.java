@@ -1,9 +1,40 @@
 package de.banana.flightviewer.controller;
 
+import de.banana.flightviewer.codec.ChannelCodec;
+import de.banana.flightviewer.codec.SampleCodec;
 import de.banana.flightviewer.model.Sample;
-import de.banana.flightviewer.repository.SampleRepository;
+import de.banana.flightviewer.model.SampleColumns;
+import de.banana.flightviewer.repository.FlightChannelRepository;
+import de.banana.flightviewer.repository.FlightListRepository;
+import de.banana.flightviewer.repository.FlightRepository;
+import de.banana.flightviewer.repository.FlightSegmentFiles;
+import de.banana.flightviewer.repository.SampleArchive;
+import de.banana.flightviewer.repository.SampleStore;
+import de.banana.flightviewer.service.FlightLodService;
+import de.banana.flightviewer.service.FlightSearchService;
+import de.banana.flightviewer.service.LiveFlightService;
+import de.banana.flightviewer.service.SampleBuckets;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -13,57 +44,592 @@ import java.util.Map;
  * Provides endpoints to retrieve flight samples and track data for a given flight.
  * </p>
  * <ul>
- *     <li><b>GET /api/flights/{id}/samples</b>: Returns a list of flight samples for the specified flight.</li>
+ *     <li><b>GET /api/flights</b>: Returns a keyset-paginated page of flight summaries.</li>
+ *     <li><b>GET /api/flights/search?bbox=</b>: Returns the flights that passed through an area, and when.</li>
+ *     <li><b>GET /api/flights/{id}/samples</b>: Returns a list of flight samples for the specified flight,
+ *     optionally limited to a time range with {@code from} and {@code to}.</li>
+ *     <li><b>GET /api/flights/{id}/samples?bucket=5s</b>: Returns min/max/avg of altitude, speed and battery
+ *     per time bucket.</li>
  *     <li><b>GET /api/flights/{id}/track</b>: Returns a GeoJSON LineString of the flight path.</li>
+ *     <li><b>GET /api/flights/{id}/segment</b>: Returns a time range of raw segment-file records.</li>
+ *     <li><b>GET /api/flights/{id}/channels</b>: Lists the extra telemetry columns of a full-telemetry import.</li>
+ *     <li><b>GET /api/flights/{id}/channels/{name}</b>: Returns one telemetry column with the sample times.</li>
  * </ul>
+ * Samples are also available in a compact binary encoding via {@code Accept: application/x-flight-samples}.
+ * Both endpoints accept level-of-detail parameters so that payload size follows the screen resolution
+ * instead of the flight length; without them every point is returned.
+ * <p>
+ * Flights never change after import, so samples and track responses are served from the
+ * {@link FlightResponseCache} with strong ETags and {@code Cache-Control: immutable}. Flights that are still
+ * live ({@link LiveFlightService}) change with every append and are never cached.
+ * </p>
+ * <p>
+ * Requests for a flight's samples count as accesses for the {@link SampleArchive}, and the first one for an
+ * archived flight rehydrates it (see {@link SampleArchive#access}).
+ * </p>
+ * <p>
+ * Latency, payload size, sample count and the time spent reading versus serializing samples of the samples
+ * and track endpoints are published by {@link FlightApiMetrics}.
+ * </p>
  */
 @RestController
 @RequestMapping("/api/flights")
 public class FlightApiController {
 
-    private final SampleRepository samples;
+    private static final MediaType SAMPLES_BINARY = MediaType.parseMediaType(SampleCodec.MEDIA_TYPE);
+
+    private final SampleStore samples;
+    private final FlightLodService lod;
+    private final FlightSegmentFiles segments;
+    private final FlightRepository flights;
+    private final FlightListRepository flightList;
+    private final FlightSearchService search;
+    private final FlightChannelRepository channels;
+    private final LiveFlightService live;
+    private final FlightResponseCache cache;
+    private final SampleArchive archive;
+    private final FlightApiMetrics metrics;
+    private final ObjectMapper json;
 
     /**
-     * Constructs a new FlightApiController with the given SampleRepository.
+     * Constructs a new FlightApiController with the given SampleStore.
      *
-     * @param samples the repository for accessing flight samples
+     * @param samples    the store for accessing flight samples
+     * @param lod        the service providing simplified levels of detail
+     * @param segments   the memory-mapped per-flight segment files
+     * @param flights    the flight repository, to cache responses of existing flights only
+     * @param flightList the paginated flight listing
+     * @param search     the spatial flight search
+     * @param channels   the extra telemetry channels
+     * @param live       the live flights, whose responses are not cached
+     * @param cache      the cache of serialized responses
+     * @param archive    the cold tier, told about the flights clients read
+     * @param metrics    the latency, payload and phase metrics of the sample and track endpoints
+     * @param json       the object mapper whose factory creates streaming generators
      */
-    public FlightApiController(SampleRepository samples) {
+    public FlightApiController(SampleStore samples, FlightLodService lod, FlightSegmentFiles segments,
+                               FlightRepository flights, FlightListRepository flightList,
+                               FlightSearchService search, FlightChannelRepository channels,
+                               LiveFlightService live, FlightResponseCache cache, SampleArchive archive,
+                               FlightApiMetrics metrics, ObjectMapper json) {
         this.samples = samples;
+        this.lod = lod;
+        this.segments = segments;
+        this.flights = flights;
+        this.flightList = flightList;
+        this.search = search;
+        this.channels = channels;
+        this.live = live;
+        this.cache = cache;
+        this.archive = archive;
+        this.metrics = metrics;
+        this.json = json;
     }
 
     /**
-     * Retrieves all samples for a given flight, ordered by timestamp.
+     * Lists flights, one keyset-paginated page at a time.
+     * <p>
+     * The response holds the page's {@code items} and the cursor of the {@code next} page ({@code null} on
+     * the last page); pass it back as {@code after} with the same sort and filters.
+     * </p>
      *
-     * @param id the ID of the flight
-     * @return a list of SampleDto objects representing the flight samples
+     * @param sort  sort column: {@code start}, {@code distance}, {@code altitude} or {@code battery}
+     * @param dir   {@code asc} or {@code desc}
+     * @param from  optional first day (UTC) of flight start
+     * @param to    optional last day (UTC) of flight start, inclusive
+     * @param after optional cursor from the previous page
+     * @param limit page size (at most {@value FlightListRepository#MAX_LIMIT})
+     * @return the page
+     * @throws IllegalArgumentException if the sort or cursor is invalid, answered with 400
+     */
+    @GetMapping
+    public FlightListRepository.Page list(@RequestParam(defaultValue = "start") String sort,
+                                          @RequestParam(defaultValue = "desc") String dir,
+                                          @RequestParam(required = false) LocalDate from,
+                                          @RequestParam(required = false) LocalDate to,
+                                          @RequestParam(required = false) String after,
+                                          @RequestParam(defaultValue = "50") int limit) {
+        FlightListRepository.Sort order = FlightListRepository.Sort.parse(sort);
+        return flightList.page(order, "asc".equalsIgnoreCase(dir),
+                from != null ? from.atStartOfDay(ZoneOffset.UTC).toInstant() : null,
+                to != null ? to.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant() : null,
+                FlightListRepository.Cursor.parse(order, after), limit);
+    }
+
+    /**
+     * Finds the flights with samples inside a box, with the time windows they spent inside.
+     * <p>
+     * Backed by the spatial index built at import time; see {@link FlightSearchService}. Boxes crossing the
+     * antimeridian are not supported.
+     * </p>
+     *
+     * @param bbox {@code west,south,east,north} in decimal degrees
+     * @return the matches, ordered by flight ID
+     * @throws IOException if reading samples fails
+     */
+    @GetMapping("/search")
+    public List<FlightSearchService.Match> search(@RequestParam String bbox) throws IOException {
+        String[] parts = bbox.split(",");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("bbox must be west,south,east,north");
+        }
+        double west = Double.parseDouble(parts[0].trim());
+        double south = Double.parseDouble(parts[1].trim());
+        double east = Double.parseDouble(parts[2].trim());
+        double north = Double.parseDouble(parts[3].trim());
+        if (!(south >= -90 && north <= 90 && south <= north && west >= -180 && east <= 180 && west <= east)) {
+            throw new IllegalArgumentException("bbox out of range: " + bbox);
+        }
+        return search.search(south, west, north, east);
+    }
+
+    /**
+     * Streams all samples for a given flight, ordered by timestamp, as a JSON array.
+     * <p>
+     * Rows are read from the sample store (a forward-only cursor for row storage) and written straight to the
+     * response with a Jackson generator, so neither entities nor DTOs are materialized and per-request
+     * memory does not depend on the number of samples.
+     * </p>
+     * <p>
+     * While streaming, the output of whole flights is also captured up to the cache's entry limit; later
+     * requests are answered from the cache. Time ranges, as fetched while scrubbing the replay timeline, are
+     * read through the {@code (flight_id, timestamp)} index and not cached.
+     * </p>
+     *
+     * @param id      the ID of the flight
+     * @param from    optional inclusive lower bound in epoch milliseconds
+     * @param to      optional inclusive upper bound in epoch milliseconds
+     * @param request the request, for conditional and encoding headers
+     * @return the streaming JSON body
+     */
+    @GetMapping(value = "/{id}/samples", params = {"!maxPoints", "!bucket"})
+    public ResponseEntity<StreamingResponseBody> samples(@PathVariable Long id,
+                                                         @RequestParam(required = false) Long from,
+                                                         @RequestParam(required = false) Long to,
+                                                         HttpServletRequest request) {
+        FlightApiMetrics.Request metered = metrics.start("samples", "json");
+        boolean ranged = from != null || to != null;
+        String key = id + "/samples.json";
+        FlightResponseCache.Entry hit = ranged ? null : cache.get(key);
+        if (hit != null) {
+            archive.recordAccess(id);
+            return streaming(metered.finish(respond(hit, request)));
+        }
+        boolean cacheable = cacheable(id) && !ranged;
+        StreamingResponseBody body = target -> {
+            CapturingOutputStream out = new CapturingOutputStream(target, cacheable ? cache.getMaxEntryBytes() : 0);
+            try (JsonGenerator gen = json.getFactory().createGenerator(out)) {
+                gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                gen.writeStartArray();
+                samples.stream(id, lower(from), upper(to), metered.serializing((ts, lat, lon, alt, spd, batt) -> {
+                    gen.writeStartObject();
+                    gen.writeNumberField("timestamp", ts);
+                    gen.writeNumberField("latitude", lat);
+                    gen.writeNumberField("longitude", lon);
+                    gen.writeNumberField("altitude", alt);
+                    gen.writeNumberField("speed", spd);
+                    gen.writeNumberField("battery", batt);
+                    gen.writeEndObject();
+                }));
+                metered.streamed();
+                gen.writeEndArray();
+            }
+            metered.serialized();
+            metered.finish(out.getWritten());
+            byte[] captured = out.getCaptured();
+            if (captured != null) cache.put(key, MediaType.APPLICATION_JSON, captured);
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Retrieves the samples for a given flight with the altitude series downsampled by LTTB.
+     *
+     * @param id        the ID of the flight
+     * @param maxPoints point budget (rounded up to the next cached level)
+     * @param request   the request, for conditional and encoding headers
+     * @return a JSON list of SampleDto objects representing the selected samples
+     * @throws IOException if serializing fails
+     */
+    @GetMapping(value = "/{id}/samples", params = {"maxPoints", "!bucket"})
+    public ResponseEntity<byte[]> samples(@PathVariable Long id, @RequestParam int maxPoints,
+                                          HttpServletRequest request) throws IOException {
+        FlightApiMetrics.Request metered = metrics.start("samples", "json");
+        String key = "samples.json?level=" + lod.samplesLevel(id, maxPoints);
+        return metered.finish(cached(id, key, MediaType.APPLICATION_JSON, request, () -> {
+            SampleColumns cols = lod.samples(id, maxPoints);
+            metered.read(cols.size());
+            List<SampleDto> out = new ArrayList<>(cols.size());
+            for (int i = 0; i < cols.size(); i++) out.add(SampleDto.from(cols, i));
+            byte[] body = json.writeValueAsBytes(out);
+            metered.serialized();
+            return body;
+        }));
+    }
+
+    /**
+     * Returns all samples for a given flight in the compact binary encoding of {@link SampleCodec}.
+     * <p>
+     * Selected by content negotiation ({@code Accept: application/x-flight-samples}); JSON stays the
+     * default. Time ranges are not cached.
+     * </p>
+     *
+     * @param id      the ID of the flight
+     * @param from    optional inclusive lower bound in epoch milliseconds
+     * @param to      optional inclusive upper bound in epoch milliseconds
+     * @param request the request, for conditional and encoding headers
+     * @return the encoded samples
+     * @throws IOException if reading the samples fails
+     */
+    @GetMapping(value = "/{id}/samples", params = {"!maxPoints", "!bucket"}, produces = SampleCodec.MEDIA_TYPE)
+    public ResponseEntity<byte[]> samplesBinary(@PathVariable Long id,
+                                                @RequestParam(required = false) Long from,
+                                                @RequestParam(required = false) Long to,
+                                                HttpServletRequest request) throws IOException {
+        FlightApiMetrics.Request metered = metrics.start("samples", "binary");
+        Renderer renderer = () -> {
+            SampleCodec.Encoder encoder = new SampleCodec.Encoder();
+            samples.stream(id, lower(from), upper(to), metered.serializing(encoder));
+            metered.streamed();
+            byte[] body = encoder.toByteArray();
+            metered.serialized();
+            return body;
+        };
+        if (from != null || to != null) {
+            access(id);
+            return metered.finish(respond(cache.uncached(SAMPLES_BINARY, renderer.render()), request));
+        }
+        return metered.finish(cached(id, "samples.bin", SAMPLES_BINARY, request, renderer));
+    }
+
+    /**
+     * Returns the LTTB-downsampled samples for a given flight in the compact binary encoding.
+     *
+     * @param id        the ID of the flight
+     * @param maxPoints point budget (rounded up to the next cached level)
+     * @param request   the request, for conditional and encoding headers
+     * @return the encoded samples
+     * @throws IOException if encoding fails
+     */
+    @GetMapping(value = "/{id}/samples", params = {"maxPoints", "!bucket"}, produces = SampleCodec.MEDIA_TYPE)
+    public ResponseEntity<byte[]> samplesBinary(@PathVariable Long id, @RequestParam int maxPoints,
+                                                HttpServletRequest request) throws IOException {
+        FlightApiMetrics.Request metered = metrics.start("samples", "binary");
+        String key = "samples.bin?level=" + lod.samplesLevel(id, maxPoints);
+        return metered.finish(cached(id, key, SAMPLES_BINARY, request, () -> {
+            SampleColumns cols = lod.samples(id, maxPoints);
+            metered.read(cols.size());
+            byte[] body = SampleCodec.encode(cols);
+            metered.serialized();
+            return body;
+        }));
+    }
+
+    /**
+     * Returns windowed aggregates of a flight's samples: min, max and average of altitude, speed and battery
+     * per time bucket.
+     * <p>
+     * Buckets are aligned to multiples of the width since the epoch and only buckets containing samples are
+     * returned. The aggregation streams the (optionally time-limited) samples through {@link SampleBuckets},
+     * so memory use depends on the number of buckets only. Results are small and cached.
+     * </p>
+     *
+     * @param id      the ID of the flight
+     * @param bucket  bucket width, e.g. {@code 5s}, {@code 500ms} or {@code 1m}
+     * @param from    optional inclusive lower bound in epoch milliseconds
+     * @param to      optional inclusive upper bound in epoch milliseconds
+     * @param request the request, for conditional and encoding headers
+     * @return a JSON list of buckets
+     * @throws IOException if reading the samples fails
+     */
+    @GetMapping(value = "/{id}/samples", params = "bucket")
+    public ResponseEntity<byte[]> buckets(@PathVariable Long id, @RequestParam String bucket,
+                                          @RequestParam(required = false) Long from,
+                                          @RequestParam(required = false) Long to,
+                                          HttpServletRequest request) throws IOException {
+        long width = DurationStyle.detectAndParse(bucket).toMillis();
+        SampleBuckets aggregator = new SampleBuckets(width);
+        String key = "samples.json?bucket=" + width + "&from=" + from + "&to=" + to;
+        return cached(id, key, MediaType.APPLICATION_JSON, request, () -> {
+            samples.stream(id, lower(from), upper(to), aggregator);
+            return json.writeValueAsBytes(aggregator.finish());
+        });
+    }
+
+    /**
+     * Returns the records of a flight's segment file within a time range.
+     * <p>
+     * The range is found by binary search on the memory-mapped timestamps and the matching slice of the
+     * mapping is written to the response as is: little-endian records of {@value FlightSegmentFiles#RECORD_SIZE}
+     * bytes, laid out as documented on {@link FlightSegmentFiles}. No per-sample objects are created.
+     * Flights imported before segment files existed answer 404.
+     * </p>
+     *
+     * @param id   the ID of the flight
+     * @param from optional inclusive lower bound in epoch milliseconds
+     * @param to   optional inclusive upper bound in epoch milliseconds
+     * @return the raw records, or 404 if the flight has no segment file
+     * @throws IOException if the segment file cannot be read
      */
-    @GetMapping("/{id}/samples")
-    public List<SampleDto> samples(@PathVariable Long id){
-        var list = samples.findByFlightIdOrderByTimestamp(id);
-        if (!list.isEmpty()) {
-            var s = list.get(0);
-            System.out.println("[FlightApi] First sample: lat=" + s.getLatitude()
-                    + ", lon=" + s.getLongitude()
-                    + ", alt=" + s.getAltitude()
-                    + ", ts=" + s.getTimestamp().toEpochMilli());
+    @GetMapping("/{id}/segment")
+    public ResponseEntity<StreamingResponseBody> segment(@PathVariable Long id,
+                                                         @RequestParam(required = false) Long from,
+                                                         @RequestParam(required = false) Long to) throws IOException {
+        ByteBuffer slice = segments.slice(id, from, to);
+        if (slice == null) {
+            return ResponseEntity.notFound().build();
         }
-        return list.stream().map(SampleDto::from).toList();
+        StreamingResponseBody body = out -> {
+            WritableByteChannel ch = Channels.newChannel(out);
+            while (slice.hasRemaining()) ch.write(slice);
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(slice.remaining())
+                .header("X-Record-Size", String.valueOf(FlightSegmentFiles.RECORD_SIZE))
+                .body(body);
     }
 
     /**
      * Returns a GeoJSON LineString representing the flight path for the given flight ID.
+     * <p>
+     * With any of the optional parameters the path is simplified with Douglas-Peucker; if several are
+     * given, the coarsest result wins.
+     * </p>
      *
-     * @param id the ID of the flight
-     * @return a map containing the GeoJSON LineString
+     * @param id        the ID of the flight
+     * @param maxPoints optional maximum number of points
+     * @param tolerance optional simplification tolerance in meters
+     * @param zoom      optional map zoom level (tolerance of one screen pixel)
+     * @param request   the request, for conditional and encoding headers
+     * @return the GeoJSON LineString
+     * @throws IOException if reading the samples fails
      */
     @GetMapping("/{id}/track")
-    public Map<String, Object> track(@PathVariable Long id) {
-        var coords = samples.findByFlightIdOrderByTimestamp(id)
-                .stream()
-                .map(s -> List.of(s.getLongitude(), s.getLatitude()))
-                .toList();
-        return Map.of("type", "LineString", "coordinates", coords);
+    public ResponseEntity<byte[]> track(@PathVariable Long id,
+                                        @RequestParam(required = false) Integer maxPoints,
+                                        @RequestParam(required = false) Double tolerance,
+                                        @RequestParam(required = false) Integer zoom,
+                                        HttpServletRequest request) throws IOException {
+        FlightApiMetrics.Request metered = metrics.start("track", "json");
+        boolean simplified = maxPoints != null || tolerance != null || zoom != null;
+        String key = simplified ? "track?points=" + lod.trackLevel(id, maxPoints, tolerance, zoom) : "track";
+        return metered.finish(cached(id, key, MediaType.APPLICATION_JSON, request, () -> {
+            List<List<Double>> coords;
+            if (simplified) {
+                SampleColumns cols = lod.track(id, maxPoints, tolerance, zoom);
+                metered.read(cols.size());
+                coords = new ArrayList<>(cols.size());
+                for (int i = 0; i < cols.size(); i++) coords.add(List.of(cols.longitude(i), cols.latitude(i)));
+            } else {
+                List<List<Double>> all = new ArrayList<>();
+                samples.stream(id, metered.serializing((ts, lat, lon, alt, spd, batt) -> all.add(List.of(lon, lat))));
+                metered.streamed();
+                coords = all;
+            }
+            byte[] body = json.writeValueAsBytes(Map.of("type", "LineString", "coordinates", coords));
+            metered.serialized();
+            return body;
+        }));
+    }
+
+    /**
+     * Lists the telemetry channels stored by a full-telemetry import.
+     *
+     * @param id the ID of the flight
+     * @return name, cell count and compressed size per channel; empty for other flights
+     */
+    @GetMapping("/{id}/channels")
+    public List<FlightChannelRepository.Info> channels(@PathVariable Long id) {
+        return channels.list(id);
+    }
+
+    /**
+     * Returns one telemetry channel as {@code {"name", "timestamps", "values"}}, one value per sample.
+     * <p>
+     * Channels are stored apart from the samples and loaded only here, so the samples and track endpoints do
+     * not pay for them. Numeric cells are JSON numbers with the logged digits, other cells strings, empty
+     * cells {@code null}. Results are cached like the other flight responses.
+     * </p>
+     *
+     * @param id      the ID of the flight
+     * @param name    the column name, e.g. {@code GIMBAL.pitch} or {@code BATTERY.current}
+     * @param request the request, for conditional and encoding headers
+     * @return the channel, or 404 if the flight has no such channel
+     * @throws IOException if serializing fails
+     */
+    @GetMapping("/{id}/channels/{name}")
+    public ResponseEntity<byte[]> channel(@PathVariable Long id, @PathVariable String name,
+                                          HttpServletRequest request) throws IOException {
+        String representation = "channels/" + name;
+        FlightResponseCache.Entry hit = cache.get(id + "/" + representation);
+        if (hit != null) {
+            return respond(hit, request);
+        }
+        byte[] encoded = channels.load(id, name);
+        if (encoded == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return cached(id, representation, MediaType.APPLICATION_JSON, request, () -> {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(encoded.length * 4 + 64);
+            try (JsonGenerator gen = json.getFactory().createGenerator(out)) {
+                gen.writeStartObject();
+                gen.writeStringField("name", name);
+                gen.writeArrayFieldStart("timestamps");
+                samples.stream(id, (ts, lat, lon, alt, spd, batt) -> gen.writeNumber(ts));
+                gen.writeEndArray();
+                gen.writeArrayFieldStart("values");
+                ChannelCodec.decode(encoded, new ChannelCodec.ValueHandler() {
+                    @Override
+                    public void blank() throws IOException {
+                        gen.writeNull();
+                    }
+
+                    @Override
+                    public void decimal(long unscaled, int scale) throws IOException {
+                        gen.writeNumber(BigDecimal.valueOf(unscaled, scale).toPlainString());
+                    }
+
+                    @Override
+                    public void text(String text) throws IOException {
+                        gen.writeString(text);
+                    }
+                });
+                gen.writeEndArray();
+                gen.writeEndObject();
+            }
+            return out.toByteArray();
+        });
+    }
+
+    /**
+     * Translates invalid parameters (unknown sort, malformed cursor, bad bucket width or box) into 400 Bad
+     * Request.
+     *
+     * @param e the exception
+     * @return the error response
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+    }
+
+    /* ---------- Helpers ---------- */
+
+    /**
+     * Renders a body.
+     */
+    @FunctionalInterface
+    private interface Renderer {
+        byte[] render() throws IOException;
+    }
+
+    /**
+     * Answers from the response cache, rendering and caching the body on a miss. Responses for flights that
+     * do not exist or are still live are rendered but not cached.
+     */
+    private ResponseEntity<byte[]> cached(Long id, String representation, MediaType type,
+                                          HttpServletRequest request, Renderer renderer) throws IOException {
+        String key = id + "/" + representation;
+        FlightResponseCache.Entry entry = cache.get(key);
+        if (entry != null) {
+            archive.recordAccess(id);
+        } else {
+            boolean cacheable = cacheable(id); // before rendering, so a flight finishing meanwhile is not cached
+            byte[] body = renderer.render();
+            entry = cacheable ? cache.put(key, type, body) : cache.uncached(type, body);
+        }
+        return respond(entry, request);
+    }
+
+    /**
+     * Checks whether a flight's responses can be cached: the ID may be assigned later, and live flights change.
+     * A flight becomes visible together with its samples, and {@link FlightLodService} keeps nothing for
+     * flights without samples, so a body rendered after this check never comes from data read before the
+     * import committed.
+     */
+    private boolean cacheable(Long id) {
+        return access(id) && !live.isLive(id);
+    }
+
+    /**
+     * Records a client's read of a flight's samples and rehydrates them if they are archived.
+     *
+     * @return {@code false} if the flight does not exist
+     */
+    private boolean access(Long id) {
+        if (!flights.existsById(id)) return false;
+        archive.access(id);
+        return true;
+    }
+
+    private static long lower(Long from) {
+        return from != null ? from : Long.MIN_VALUE;
+    }
+
+    private static long upper(Long to) {
+        return to != null ? to : Long.MAX_VALUE;
+    }
+
+    private static ResponseEntity<byte[]> respond(FlightResponseCache.Entry entry, HttpServletRequest request) {
+        return entry.toResponse(request.getHeader(HttpHeaders.IF_NONE_MATCH),
+                request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> streaming(ResponseEntity<byte[]> response) {
+        byte[] body = response.getBody();
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .body(body == null ? null : out -> out.write(body));
+    }
+
+    /**
+     * Passes bytes through and keeps a copy of them, unless they exceed a limit.
+     */
+    private static final class CapturingOutputStream extends FilterOutputStream {
+        private final long limit;
+        private ByteArrayOutputStream copy;
+        private long written;
+
+        CapturingOutputStream(OutputStream out, long limit) {
+            super(out);
+            this.limit = limit;
+            this.copy = limit > 0 ? new ByteArrayOutputStream(8192) : null;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            written++;
+            if (copy != null) {
+                copy.write(b);
+                if (copy.size() > limit) copy = null;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            written += len;
+            if (copy != null) {
+                copy.write(b, off, len);
+                if (copy.size() > limit) copy = null;
+            }
+        }
+
+        /**
+         * Gets the bytes written, or {@code null} if they exceeded the limit.
+         */
+        byte[] getCaptured() {
+            return copy != null ? copy.toByteArray() : null;
+        }
+
+        /**
+         * Gets the number of bytes written.
+         */
+        long getWritten() {
+            return written;
+        }
     }
 
     /**
@@ -93,6 +659,17 @@ public class FlightApiController {
                     s.getBatteryPercent());
         }
 
+        /**
+         * Creates a SampleDto from one row of a column view.
+         *
+         * @param c the samples
+         * @param i the sample position
+         * @return a SampleDto representing the sample
+         */
+        static SampleDto from(SampleColumns c, int i) {
+            return new SampleDto(c.timestamp(i), c.latitude(i), c.longitude(i), c.altitude(i), c.speed(i), c.battery(i));
+        }
+
         public SampleDto(long timestamp, double latitude, double longitude, double altitude, double speed, int battery) {
             this.timestamp = timestamp;
             this.latitude = latitude;
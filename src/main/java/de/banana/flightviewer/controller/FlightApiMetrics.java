@@ -0,0 +1,161 @@
+package de.banana.flightviewer.controller;
+
+import de.banana.flightviewer.repository.SampleRowHandler;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics of the sample and track endpoints, tagged by {@code endpoint} ({@code samples}, {@code track}) and
+ * {@code format} ({@code json}, {@code binary}):
+ * <ul>
+ *     <li>{@code flightviewer.api.latency}: time to answer, also tagged by {@code cache} ({@code hit},
+ *     {@code miss})</li>
+ *     <li>{@code flightviewer.api.payload}: bytes of the response body, also tagged by {@code cache}</li>
+ *     <li>{@code flightviewer.api.samples}: samples per rendered response</li>
+ *     <li>{@code flightviewer.api.phase}: time spent reading samples ({@code phase=db}, the sample store or
+ *     the level-of-detail cache) versus writing them ({@code phase=serialization}) per rendered response</li>
+ * </ul>
+ * Cache hits render nothing, so they only count for latency and payload. Histogram buckets for all
+ * {@code flightviewer.*} meters are switched on in {@code application.yml}.
+ */
+@Component
+public class FlightApiMetrics {
+
+    private final Meter.MeterProvider<Timer> latency;
+    private final Meter.MeterProvider<DistributionSummary> payload;
+    private final Meter.MeterProvider<DistributionSummary> samples;
+    private final Meter.MeterProvider<Timer> phases;
+
+    /**
+     * Constructs a FlightApiMetrics.
+     *
+     * @param metrics registry the metrics are published to
+     */
+    public FlightApiMetrics(MeterRegistry metrics) {
+        latency = Timer.builder("flightviewer.api.latency")
+                .description("Time to answer sample and track requests").withRegistry(metrics);
+        payload = DistributionSummary.builder("flightviewer.api.payload").baseUnit("bytes")
+                .description("Body size of sample and track responses").withRegistry(metrics);
+        samples = DistributionSummary.builder("flightviewer.api.samples")
+                .description("Samples per rendered sample or track response").withRegistry(metrics);
+        phases = Timer.builder("flightviewer.api.phase")
+                .description("Time reading versus serializing samples per rendered response").withRegistry(metrics);
+    }
+
+    /**
+     * Starts measuring a request. The first phase starts now.
+     *
+     * @param endpoint {@code samples} or {@code track}
+     * @param format   {@code json} or {@code binary}
+     * @return the measurement
+     */
+    public Request start(String endpoint, String format) {
+        return new Request(endpoint, format);
+    }
+
+    /**
+     * Measurement of one request. Used by one thread at a time.
+     */
+    public final class Request {
+        private final String endpoint;
+        private final String format;
+        private final long start = System.nanoTime();
+        private long phaseStart = start;
+        private long nestedNanos;
+        private long dbNanos;
+        private long serializationNanos;
+        private long sampleCount;
+        private boolean rendered;
+
+        private Request(String endpoint, String format) {
+            this.endpoint = endpoint;
+            this.format = format;
+        }
+
+        /**
+         * Ends a phase that read samples as a whole.
+         *
+         * @param count the number of samples read
+         */
+        public void read(int count) {
+            long now = System.nanoTime();
+            dbNanos += now - phaseStart;
+            sampleCount += count;
+            phaseStart = now;
+            rendered = true;
+        }
+
+        /**
+         * Wraps a handler so that the time spent in it counts as serialization and the samples are counted.
+         * The rest of the phase, ended by {@link #streamed()}, counts as reading.
+         *
+         * @param handler the handler writing the samples
+         * @return the measuring handler
+         */
+        public SampleRowHandler serializing(SampleRowHandler handler) {
+            return (ts, lat, lon, alt, spd, batt) -> {
+                long t0 = System.nanoTime();
+                handler.sample(ts, lat, lon, alt, spd, batt);
+                nestedNanos += System.nanoTime() - t0;
+                sampleCount++;
+            };
+        }
+
+        /**
+         * Ends a phase that streamed samples through a {@link #serializing} handler.
+         */
+        public void streamed() {
+            long now = System.nanoTime();
+            dbNanos += now - phaseStart - nestedNanos;
+            serializationNanos += nestedNanos;
+            nestedNanos = 0;
+            phaseStart = now;
+            rendered = true;
+        }
+
+        /**
+         * Ends a phase that serialized samples.
+         */
+        public void serialized() {
+            long now = System.nanoTime();
+            serializationNanos += now - phaseStart;
+            phaseStart = now;
+        }
+
+        /**
+         * Records the request.
+         *
+         * @param bytes the size of the response body
+         */
+        public void finish(long bytes) {
+            String cache = rendered ? "miss" : "hit";
+            latency.withTags("endpoint", endpoint, "format", format, "cache", cache)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            payload.withTags("endpoint", endpoint, "format", format, "cache", cache).record(bytes);
+            if (!rendered) return;
+            samples.withTags("endpoint", endpoint, "format", format).record(sampleCount);
+            phases.withTags("endpoint", endpoint, "format", format, "phase", "db")
+                    .record(dbNanos, TimeUnit.NANOSECONDS);
+            phases.withTags("endpoint", endpoint, "format", format, "phase", "serialization")
+                    .record(serializationNanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Records the request answered by a response.
+         *
+         * @param response the response; a 304 has no body
+         * @return the response
+         */
+        public ResponseEntity<byte[]> finish(ResponseEntity<byte[]> response) {
+            byte[] body = response.getBody();
+            finish(body != null ? body.length : 0);
+            return response;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package de.banana.flightviewer.controller;
+
+import de.banana.flightviewer.model.Flight;
+import de.banana.flightviewer.repository.FlightRepository;
+import de.banana.flightviewer.service.FlightExportService;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * REST controller exporting flights as files.
+ * <ul>
+ *     <li><b>GET /api/flights/{id}/export?format=</b>: One flight as {@code gpx}, {@code kml}, {@code geojson}
+ *     or {@code csv}; gzipped if the client accepts it.</li>
+ *     <li><b>GET /api/flights/export?ids=&amp;format=</b>: Several flights as a ZIP archive with one file per
+ *     flight.</li>
+ * </ul>
+ * Bodies are streamed while the samples are read, see {@link FlightExportService}; nothing is buffered per
+ * flight.
+ */
+@RestController
+@RequestMapping("/api/flights")
+public class FlightExportController {
+
+    /**
+     * Maximum number of flights in one ZIP export.
+     */
+    static final int MAX_ZIP_FLIGHTS = 1000;
+
+    private final FlightRepository flights;
+    private final FlightExportService export;
+
+    /**
+     * Constructs a new FlightExportController.
+     *
+     * @param flights the flight repository
+     * @param export  the export writer
+     */
+    public FlightExportController(FlightRepository flights, FlightExportService export) {
+        this.flights = flights;
+        this.export = export;
+    }
+
+    /**
+     * Exports one flight.
+     *
+     * @param id             the ID of the flight
+     * @param format         {@code gpx}, {@code kml}, {@code geojson} or {@code csv}
+     * @param acceptEncoding the {@code Accept-Encoding} request header
+     * @return the streaming file, or 404 if the flight does not exist
+     */
+    @GetMapping("/{id}/export")
+    public ResponseEntity<StreamingResponseBody> export(@PathVariable long id,
+                                                        @RequestParam(defaultValue = "gpx") String format,
+                                                        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+                                                        String acceptEncoding) {
+        FlightExportService.Format f = FlightExportService.Format.parse(format);
+        Optional<Flight> flight = flights.findById(id);
+        if (flight.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        boolean gzip = FlightResponseCache.acceptsGzip(acceptEncoding);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(f.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, attachment(FlightExportService.fileName(flight.get(), f)))
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (!gzip) {
+            return response.body(out -> export.write(flight.get(), f, out));
+        }
+        return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(out -> {
+            GZIPOutputStream gz = new GZIPOutputStream(out, 8192);
+            export.write(flight.get(), f, gz);
+            gz.finish();
+        });
+    }
+
+    /**
+     * Exports several flights as a ZIP archive.
+     *
+     * @param ids    the IDs of the flights, at most {@value #MAX_ZIP_FLIGHTS}
+     * @param format format of the files in the archive
+     * @return the streaming archive, or 404 if a flight does not exist
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportZip(@RequestParam List<Long> ids,
+                                                           @RequestParam(defaultValue = "gpx") String format) {
+        FlightExportService.Format f = FlightExportService.Format.parse(format);
+        LinkedHashSet<Long> unique = new LinkedHashSet<>(ids);
+        if (unique.isEmpty() || unique.size() > MAX_ZIP_FLIGHTS) {
+            throw new IllegalArgumentException("ids must list 1 to " + MAX_ZIP_FLIGHTS + " flights");
+        }
+        List<Flight> found = flights.findAllById(unique);
+        if (found.size() != unique.size()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, attachment("flights-" + f.getExtension() + ".zip"))
+                .body(out -> export.writeZip(found, f, out));
+    }
+
+    /**
+     * Translates unknown formats and bad ID lists into 400 Bad Request.
+     *
+     * @param e the exception
+     * @return the error response
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+    }
+
+    /* ---------- Helpers ---------- */
+
+    private static String attachment(String fileName) {
+        return ContentDisposition.attachment().filename(fileName).build().toString();
+    }
+}
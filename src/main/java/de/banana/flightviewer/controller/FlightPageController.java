@@ -1,20 +1,28 @@
 package de.banana.flightviewer.controller;
 
-import de.banana.flightviewer.repository.FlightRepository;
-import de.banana.flightviewer.service.CsvImportService;
+import de.banana.flightviewer.repository.FlightListRepository;
+import de.banana.flightviewer.service.ImportJob;
+import de.banana.flightviewer.service.ImportJobService;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
+
 /**
  * Controller for handling web page requests related to flights.
  * <p>
  * Provides endpoints for:
  * <ul>
- *     <li>Displaying all flights on the index page (GET /)</li>
- *     <li>Uploading flight data via CSV (POST /upload)</li>
+ *     <li>Displaying a sortable, filterable page of flights on the index page (GET /)</li>
+ *     <li>Uploading flight data via CSV or ZIP files (POST /upload)</li>
  *     <li>Displaying a specific flight's details (GET /flight/{id})</li>
  * </ul>
  * </p>
@@ -23,49 +31,95 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 public class FlightPageController {
 
     /**
-     * Repository for accessing flight data.
+     * Paginated listing of flight summaries.
      */
-    private final FlightRepository flights;
+    private final FlightListRepository flights;
     /**
-     * Service for importing flight data from CSV files.
+     * Service running CSV imports in the background.
      */
-    private final CsvImportService importer;
+    private final ImportJobService importer;
 
     /**
      * Constructs a new FlightPageController with the given dependencies.
      *
-     * @param flights  the flight repository
-     * @param importer the CSV import service
+     * @param flights  the paginated flight listing
+     * @param importer the import job service
      */
-    public FlightPageController(FlightRepository flights, CsvImportService importer) {
+    public FlightPageController(FlightListRepository flights, ImportJobService importer) {
         this.flights = flights;
         this.importer = importer;
     }
 
     /**
-     * Handles requests to the index page, displaying all flights.
+     * Handles requests to the index page, displaying one page of flights.
+     * <p>
+     * Takes the same parameters as {@code GET /api/flights}; an invalid cursor falls back to the first page.
+     * </p>
      *
+     * @param sort  sort column: {@code start}, {@code distance}, {@code altitude} or {@code battery}
+     * @param dir   {@code asc} or {@code desc}
+     * @param from  optional first day (UTC) of flight start
+     * @param to    optional last day (UTC) of flight start, inclusive
+     * @param after optional cursor of the page to show
+     * @param limit page size
      * @param model the model to add attributes to for the view
      * @return the name of the index view template
      */
     @GetMapping("/")
-    public String index(Model model) {
-        model.addAttribute("flights", flights.findAll());
+    public String index(@RequestParam(defaultValue = "start") String sort,
+                        @RequestParam(defaultValue = "desc") String dir,
+                        @RequestParam(required = false) LocalDate from,
+                        @RequestParam(required = false) LocalDate to,
+                        @RequestParam(required = false) String after,
+                        @RequestParam(defaultValue = "50") int limit,
+                        Model model) {
+        FlightListRepository.Sort order;
+        try {
+            order = FlightListRepository.Sort.parse(sort);
+        } catch (IllegalArgumentException e) {
+            order = FlightListRepository.Sort.START;
+        }
+        boolean ascending = "asc".equalsIgnoreCase(dir);
+        Instant start = from != null ? from.atStartOfDay(ZoneOffset.UTC).toInstant() : null;
+        Instant end = to != null ? to.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant() : null;
+        FlightListRepository.Cursor cursor;
+        try {
+            cursor = FlightListRepository.Cursor.parse(order, after);
+        } catch (IllegalArgumentException e) {
+            cursor = null;
+        }
+        FlightListRepository.Page page = flights.page(order, ascending, start, end, cursor, limit);
+        model.addAttribute("flights", page.items());
+        model.addAttribute("next", page.next());
+        model.addAttribute("sort", order.name().toLowerCase(Locale.ROOT));
+        model.addAttribute("dir", ascending ? "asc" : "desc");
+        model.addAttribute("from", from);
+        model.addAttribute("to", to);
+        model.addAttribute("limit", limit);
+        model.addAttribute("paged", cursor != null);
         return "index";
     }
 
     /**
-     * Handles uploading a CSV file and importing flight data.
+     * Handles uploading CSV files or ZIP archives of them and queues one import per CSV.
+     * <p>
+     * The imports run in the background; the index page polls the jobs and reloads once they are finished.
+     * </p>
      *
-     * @param file the uploaded CSV file
+     * @param files the uploaded CSV and ZIP files
      * @param redirectAttributes attributes for flash messages
      * @return redirect to the index page
      */
     @PostMapping("/upload")
-    public String handleFileUpload(@RequestParam("file") MultipartFile file, RedirectAttributes redirectAttributes) {
+    public String handleFileUpload(@RequestParam("file") List<MultipartFile> files, RedirectAttributes redirectAttributes) {
         try {
-            importer.importCsv(file);
-            redirectAttributes.addFlashAttribute("msg", "Imported successfully!");
+            List<ImportJob> jobs = importer.submitAll(files);
+            redirectAttributes.addFlashAttribute("msg", jobs.size() == 1
+                    ? "Import of " + jobs.get(0).getFileName() + " queued."
+                    : jobs.size() + " imports queued.");
+            redirectAttributes.addFlashAttribute("jobIds", jobs.stream().map(ImportJob::getId).toList());
+        } catch (RejectedExecutionException e) {
+            redirectAttributes.addFlashAttribute("error", "Too many imports running, please try again later.");
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", e.getMessage());
         }
@@ -0,0 +1,271 @@
+package de.banana.flightviewer.controller;
+
+import de.banana.flightviewer.util.Sha256;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of serialized flight API responses.
+ * <p>
+ * Imported flights never change, so a response rendered once for a key (flight ID, representation and
+ * level of detail) stays valid forever. Entries hold the serialized body, optionally a gzipped copy, and a
+ * strong ETag derived from the body. Responses are marked {@code immutable} with a one-year max-age, and a
+ * matching {@code If-None-Match} is answered with 304 without touching the body.
+ * </p>
+ * <p>
+ * The cache is an LRU bounded by the bytes held ({@code flightviewer.response-cache.max-bytes}); a single
+ * entry may use at most a quarter of the budget. Hits, misses, evictions, bytes and entries are published as
+ * {@code flightviewer.response.cache.*} metrics.
+ * </p>
+ */
+@Component
+public class FlightResponseCache {
+
+    /**
+     * Bodies smaller than this are not gzipped.
+     */
+    private static final int GZIP_MIN_BYTES = 1024;
+    /**
+     * Estimated per-entry overhead (key, entry object, map node).
+     */
+    private static final int ENTRY_OVERHEAD = 200;
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+
+    private final long maxBytes;
+    private final boolean gzip;
+    /**
+     * Access-ordered entries; guarded by its own monitor.
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Constructs a FlightResponseCache.
+     *
+     * @param maxBytes upper bound of the bytes held
+     * @param gzip     whether to keep pre-gzipped copies of compressible bodies
+     * @param metrics  registry the cache metrics are published to
+     */
+    public FlightResponseCache(@Value("${flightviewer.response-cache.max-bytes:67108864}") long maxBytes,
+                               @Value("${flightviewer.response-cache.gzip:true}") boolean gzip,
+                               MeterRegistry metrics) {
+        this.maxBytes = maxBytes;
+        this.gzip = gzip;
+        FunctionCounter.builder("flightviewer.response.cache.requests", hits, AtomicLong::get)
+                .tag("result", "hit").description("Response cache lookups").register(metrics);
+        FunctionCounter.builder("flightviewer.response.cache.requests", misses, AtomicLong::get)
+                .tag("result", "miss").description("Response cache lookups").register(metrics);
+        FunctionCounter.builder("flightviewer.response.cache.evictions", evictions, AtomicLong::get)
+                .description("Entries evicted to stay within the byte budget").register(metrics);
+        Gauge.builder("flightviewer.response.cache.bytes", this, c -> c.getBytes())
+                .description("Bytes held by the response cache").baseUnit("bytes").register(metrics);
+        Gauge.builder("flightviewer.response.cache.entries", this, c -> c.size())
+                .description("Entries held by the response cache").register(metrics);
+        Gauge.builder("flightviewer.response.cache.hit.ratio", this, c -> c.getHitRatio())
+                .description("Share of lookups answered from the cache").register(metrics);
+    }
+
+    /**
+     * Looks up a cached response.
+     *
+     * @param key the cache key
+     * @return the entry, or {@code null} on a miss
+     */
+    public Entry get(String key) {
+        Entry e;
+        synchronized (entries) {
+            e = entries.get(key);
+        }
+        (e != null ? hits : misses).incrementAndGet();
+        return e;
+    }
+
+    /**
+     * Creates an entry for a rendered body and caches it if it fits the budget.
+     *
+     * @param key         the cache key
+     * @param contentType the media type of the body
+     * @param body        the serialized body
+     * @return the entry, whether cached or not
+     */
+    public Entry put(String key, MediaType contentType, byte[] body) {
+        Entry e = entry(contentType, body);
+        if (e.size() > maxBytes / 4) return e;
+        synchronized (entries) {
+            Entry old = entries.put(key, e);
+            if (old != null) bytes -= old.size();
+            bytes += e.size();
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while (bytes > maxBytes && it.hasNext()) {
+                Map.Entry<String, Entry> eldest = it.next();
+                if (eldest.getValue() == e) continue;
+                bytes -= eldest.getValue().size();
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        }
+        return e;
+    }
+
+    /**
+     * Creates an entry without caching it, e.g. for flights that do not exist (yet).
+     *
+     * @param contentType the media type of the body
+     * @param body        the serialized body
+     * @return the entry
+     */
+    public Entry uncached(MediaType contentType, byte[] body) {
+        return new Entry(contentType, body, null, null);
+    }
+
+    /**
+     * Gets the largest body that may be cached.
+     * @return the per-entry limit in bytes
+     */
+    public long getMaxEntryBytes() {
+        return maxBytes / 4;
+    }
+
+    /**
+     * Gets the bytes currently held.
+     * @return bytes held
+     */
+    public long getBytes() {
+        synchronized (entries) {
+            return bytes;
+        }
+    }
+
+    /**
+     * Gets the number of entries.
+     * @return entry count
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Gets the share of lookups that were hits.
+     * @return hit ratio between 0 and 1
+     */
+    public double getHitRatio() {
+        long h = hits.get(), total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /* ---------- Helpers ---------- */
+
+    private Entry entry(MediaType contentType, byte[] body) {
+        MessageDigest digest = Sha256.newDigest();
+        digest.update(contentType.toString().getBytes(StandardCharsets.UTF_8));
+        digest.update(body);
+        String tag = Sha256.hex(digest).substring(0, 32);
+        byte[] gz = gzip && body.length >= GZIP_MIN_BYTES ? gzip(body) : null;
+        if (gz != null && gz.length >= body.length) gz = null;
+        return new Entry(contentType, body, gz, tag);
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out, 8192)) {
+            gz.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // in-memory target does not throw
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * One serialized response.
+     */
+    public static final class Entry {
+        private final MediaType contentType;
+        private final byte[] body;
+        private final byte[] gzipped;
+        /**
+         * Opaque tag without quotes, or {@code null} for uncached entries.
+         */
+        private final String tag;
+
+        private Entry(MediaType contentType, byte[] body, byte[] gzipped, String tag) {
+            this.contentType = contentType;
+            this.body = body;
+            this.gzipped = gzipped;
+            this.tag = tag;
+        }
+
+        long size() {
+            return body.length + (gzipped != null ? gzipped.length : 0) + ENTRY_OVERHEAD;
+        }
+
+        /**
+         * Builds the HTTP response for a request.
+         * <p>
+         * Sends the gzipped copy if the client accepts gzip; the two encodings carry different strong ETags.
+         * A matching {@code If-None-Match} is answered with 304.
+         * </p>
+         *
+         * @param ifNoneMatch    the {@code If-None-Match} request header, or {@code null}
+         * @param acceptEncoding the {@code Accept-Encoding} request header, or {@code null}
+         * @return the response
+         */
+        public ResponseEntity<byte[]> toResponse(String ifNoneMatch, String acceptEncoding) {
+            if (tag == null) {
+                return ResponseEntity.ok().contentType(contentType).body(body);
+            }
+            boolean gz = gzipped != null && acceptsGzip(acceptEncoding);
+            String etag = "\"" + tag + (gz ? "-gz" : "") + "\"";
+            boolean notModified = ifNoneMatch != null
+                    && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"));
+            ResponseEntity.BodyBuilder response = ResponseEntity.status(notModified ? HttpStatus.NOT_MODIFIED : HttpStatus.OK)
+                    .eTag(etag)
+                    .cacheControl(IMMUTABLE);
+            if (gzipped != null) response.varyBy(HttpHeaders.ACCEPT_ENCODING);
+            if (notModified) return response.build();
+            if (gz) response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            return response.contentType(contentType).body(gz ? gzipped : body);
+        }
+    }
+
+    /**
+     * Checks whether an {@code Accept-Encoding} header admits gzip.
+     *
+     * @param acceptEncoding the header value, or {@code null}
+     * @return {@code true} unless gzip is absent or has {@code q=0}
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] p = part.trim().split(";");
+            if (p[0].trim().equalsIgnoreCase("gzip")) {
+                return p.length < 2 || !p[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+}
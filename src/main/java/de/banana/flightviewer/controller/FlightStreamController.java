@@ -0,0 +1,179 @@
+package de.banana.flightviewer.controller;
+
+import de.banana.flightviewer.model.SampleColumns;
+import de.banana.flightviewer.repository.FlightRepository;
+import de.banana.flightviewer.repository.SampleArchive;
+import de.banana.flightviewer.service.FlightLodService;
+import de.banana.flightviewer.service.LiveFlightService;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Arrays;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * REST controller streaming flights to viewers as Server-Sent Events.
+ * <ul>
+ *     <li><b>GET /api/flights/{id}/stream?speed=&amp;from=</b>: For a live flight, the points received so far
+ *     followed by new points as they are appended; for a finished flight, a replay paced at {@code speed}
+ *     times real time.</li>
+ * </ul>
+ * Events are {@code samples} (a JSON array of samples) and a final {@code end}. Live points are pushed from
+ * memory by {@link LiveFlightService}; replays read the full-resolution samples cached by
+ * {@link FlightLodService}, so neither polls the database per viewer. Sending happens on a small shared pool
+ * of {@code flightviewer.live.sender-threads} threads, with a bounded queue per viewer; see
+ * {@link SseSubscriber}. A viewer that stops reading blocks a send; the pool then starts another thread for
+ * the other viewers, and the viewer is disconnected after {@code flightviewer.live.write-timeout-ms}.
+ */
+@RestController
+@RequestMapping("/api/flights")
+public class FlightStreamController {
+
+    /**
+     * Interval at which replays advance their clock.
+     */
+    private static final long REPLAY_TICK_MILLIS = 100;
+
+    private final LiveFlightService live;
+    private final FlightLodService lod;
+    private final FlightRepository flights;
+    private final SampleArchive archive;
+    /**
+     * Runs the drain tasks; grows beyond its core size only while sends are blocked.
+     */
+    private final ThreadPoolExecutor sender;
+    /**
+     * Advances the replay clocks and enforces the write timeout; never blocks.
+     */
+    private final ScheduledThreadPoolExecutor timer;
+    private final long writeTimeoutMillis;
+    private final int queueCapacity;
+
+    /**
+     * Constructs a new FlightStreamController.
+     *
+     * @param live          the live flights
+     * @param lod           the cache of full-resolution samples replays read from
+     * @param flights       the flight repository, to answer 404 for unknown flights
+     * @param archive       the cold tier, which rehydrates replayed flights
+     * @param senderThreads      number of threads sending events to all viewers
+     * @param queueCapacity      maximum number of points queued per viewer
+     * @param writeTimeoutMillis time after which a viewer whose send is blocked is disconnected
+     */
+    public FlightStreamController(LiveFlightService live, FlightLodService lod, FlightRepository flights,
+                                  SampleArchive archive,
+                                  @Value("${flightviewer.live.sender-threads:4}") int senderThreads,
+                                  @Value("${flightviewer.live.queue-capacity:5000}") int queueCapacity,
+                                  @Value("${flightviewer.live.write-timeout-ms:10000}") long writeTimeoutMillis) {
+        this.live = live;
+        this.lod = lod;
+        this.flights = flights;
+        this.archive = archive;
+        this.queueCapacity = queueCapacity;
+        this.writeTimeoutMillis = writeTimeoutMillis;
+        // a viewer drains on one thread at a time, so the pool never has more threads than viewers
+        this.sender = new ThreadPoolExecutor(senderThreads, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), new CustomizableThreadFactory("sse-"));
+        this.timer = new ScheduledThreadPoolExecutor(1, new CustomizableThreadFactory("sse-timer-"));
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Streams a flight.
+     *
+     * @param id          the ID of the flight
+     * @param speed       replay speed as a multiple of real time; ignored for live flights
+     * @param from        optional first timestamp in epoch milliseconds
+     * @param lastEventId sent by reconnecting browsers; resumes after that timestamp
+     * @return the event stream, 404 for unknown flights, or 400 for a non-positive speed
+     */
+    @GetMapping(value = "/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream(@PathVariable long id,
+                                             @RequestParam(defaultValue = "1") double speed,
+                                             @RequestParam(required = false) Long from,
+                                             @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        if (!(speed > 0)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!flights.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        long start = lastEventId != null ? lastEventId + 1 : from != null ? from : Long.MIN_VALUE;
+        SseEmitter emitter = new SseEmitter(0L);
+        SseSubscriber subscriber = new SseSubscriber(emitter, sender, timer, writeTimeoutMillis, queueCapacity);
+        if (live.subscribe(id, start, subscriber)) {
+            subscriber.onClose(() -> live.unsubscribe(id, subscriber));
+        } else {
+            archive.access(id);
+            Replay replay = new Replay(lod.track(id, null, null, null), start, speed, subscriber);
+            replay.future = timer.scheduleAtFixedRate(replay, REPLAY_TICK_MILLIS, REPLAY_TICK_MILLIS,
+                    TimeUnit.MILLISECONDS);
+            subscriber.onClose(() -> replay.future.cancel(false));
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    /**
+     * Stops the sender threads.
+     */
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        sender.shutdownNow();
+    }
+
+    /* ---------- Helpers ---------- */
+
+    /**
+     * Offers the points of a finished flight to one viewer as a replay clock passes them.
+     */
+    private final class Replay implements Runnable {
+        private final SampleColumns samples;
+        private final SseSubscriber subscriber;
+        private final double speed;
+        private final long startMillis;
+        private final long startNanos = System.nanoTime();
+        private int next;
+        volatile ScheduledFuture<?> future;
+
+        Replay(SampleColumns samples, long from, double speed, SseSubscriber subscriber) {
+            this.samples = samples;
+            this.subscriber = subscriber;
+            this.speed = speed;
+            int i = Arrays.binarySearch(samples.timestamps(), 0, samples.size(), from);
+            if (i < 0) {
+                i = -i - 1;
+            } else {
+                while (i > 0 && samples.timestamp(i - 1) == from) i--;
+            }
+            this.next = i;
+            this.startMillis = i < samples.size() ? samples.timestamp(i) : 0;
+        }
+
+        @Override
+        public void run() {
+            if (!subscriber.isIdle()) return; // the viewer is behind; the clock keeps running
+            long clock = startMillis + (long) ((System.nanoTime() - startNanos) / 1e6 * speed);
+            int to = next;
+            int limit = Math.min(samples.size(), next + queueCapacity);
+            while (to < limit && samples.timestamp(to) <= clock) to++;
+            if (to > next) {
+                subscriber.samples(samples, next, to);
+                next = to;
+            }
+            if (next == samples.size()) {
+                subscriber.finished();
+                future.cancel(false);
+            }
+        }
+    }
+}
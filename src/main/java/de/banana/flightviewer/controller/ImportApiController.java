@@ -0,0 +1,91 @@
+package de.banana.flightviewer.controller;
+
+import de.banana.flightviewer.service.ImportJob;
+import de.banana.flightviewer.service.ImportJobService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * REST controller for asynchronous CSV imports.
+ * <ul>
+ *     <li><b>POST /api/imports</b>: Queues an uploaded CSV and answers 202 with the job status.</li>
+ *     <li><b>POST /api/imports/bulk</b>: Queues many CSVs and ZIP archives, one job per CSV.</li>
+ *     <li><b>GET /api/imports/{jobId}</b>: Returns rows parsed, rows persisted, throughput and errors of a job.</li>
+ * </ul>
+ * A full import queue answers 503 with a {@code Retry-After} header.
+ */
+@RestController
+@RequestMapping("/api/imports")
+public class ImportApiController {
+
+    private final ImportJobService jobs;
+
+    /**
+     * Constructs a new ImportApiController.
+     *
+     * @param jobs the service running import jobs
+     */
+    public ImportApiController(ImportJobService jobs) {
+        this.jobs = jobs;
+    }
+
+    /**
+     * Queues an uploaded CSV file for import.
+     *
+     * @param file the uploaded CSV file
+     * @return the queued job, with its status URL as {@code Location}
+     * @throws IOException if the upload cannot be spooled
+     */
+    @PostMapping
+    public ResponseEntity<ImportJob> submit(@RequestParam("file") MultipartFile file) throws IOException {
+        ImportJob job = jobs.submit(file);
+        return ResponseEntity.accepted().location(URI.create("/api/imports/" + job.getId())).body(job);
+    }
+
+    /**
+     * Queues many uploaded files for import. ZIP archives are expanded; every CSV becomes its own job and
+     * commits or rolls back on its own.
+     *
+     * @param files the uploaded CSV and ZIP files
+     * @return the queued jobs
+     * @throws IOException if an upload cannot be spooled or an archive cannot be read
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<List<ImportJob>> submitAll(@RequestParam("files") List<MultipartFile> files) throws IOException {
+        return ResponseEntity.accepted().body(jobs.submitAll(files));
+    }
+
+    /**
+     * Returns the status of an import job.
+     *
+     * @param jobId the job ID
+     * @return the job, or 404 if unknown
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ImportJob> status(@PathVariable String jobId) {
+        ImportJob job = jobs.get(jobId);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Translates a full import queue into 503 Service Unavailable.
+     *
+     * @param e the rejection
+     * @return the error response
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, String>> rejected(RejectedExecutionException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "10")
+                .body(Map.of("error", e.getMessage()));
+    }
+}
@@ -0,0 +1,108 @@
+package de.banana.flightviewer.controller;
+
+import de.banana.flightviewer.model.Flight;
+import de.banana.flightviewer.model.FlightSummary;
+import de.banana.flightviewer.model.SampleColumns;
+import de.banana.flightviewer.service.LiveFlightService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST controller for ingesting flights while they are in progress.
+ * <ul>
+ *     <li><b>POST /api/live/flights?name=&amp;aircraft=</b>: Starts a live flight and answers 201 with its
+ *     summary.</li>
+ *     <li><b>POST /api/live/flights/{id}/samples</b>: Appends a JSON array of points in time order and returns
+ *     the updated summary.</li>
+ *     <li><b>POST /api/live/flights/{id}/finish</b>: Ends the flight and indexes it like an imported one.</li>
+ * </ul>
+ * Viewers follow a live flight with {@code GET /api/flights/{id}/stream}. Flights that are not live answer
+ * 404; points older than the last appended one answer 400.
+ */
+@RestController
+@RequestMapping("/api/live/flights")
+public class LiveApiController {
+
+    private final LiveFlightService live;
+
+    /**
+     * Constructs a new LiveApiController.
+     *
+     * @param live the live flight service
+     */
+    public LiveApiController(LiveFlightService live) {
+        this.live = live;
+    }
+
+    /**
+     * One point of a live flight, as posted by the aircraft or its ground station.
+     *
+     * @param timestamp epoch milliseconds
+     * @param latitude  latitude in decimal degrees
+     * @param longitude longitude in decimal degrees
+     * @param altitude  altitude in meters
+     * @param speed     horizontal speed in m/s
+     * @param battery   battery percentage
+     */
+    public record Point(long timestamp, double latitude, double longitude, double altitude, double speed,
+                        int battery) { }
+
+    /**
+     * Starts a live flight.
+     *
+     * @param name     optional name shown in the flight list
+     * @param aircraft optional serial number of the aircraft, for the fleet statistics
+     * @return the new flight, with its stream URL as {@code Location}
+     */
+    @PostMapping
+    public ResponseEntity<FlightSummary> start(@RequestParam(defaultValue = "live") String name,
+                                               @RequestParam(required = false) String aircraft) {
+        Flight flight = live.start(name, aircraft);
+        return ResponseEntity.created(URI.create("/api/flights/" + flight.getId() + "/stream"))
+                .body(FlightSummary.of(flight));
+    }
+
+    /**
+     * Appends points to a live flight.
+     *
+     * @param id     the ID of the flight
+     * @param points the points in time order
+     * @return the flight with updated stats, or 404 if it is not live
+     */
+    @PostMapping("/{id}/samples")
+    public ResponseEntity<FlightSummary> append(@PathVariable long id, @RequestBody List<Point> points) {
+        SampleColumns batch = new SampleColumns(points.size());
+        for (Point p : points) {
+            batch.add(p.timestamp(), p.latitude(), p.longitude(), p.altitude(), p.speed(), p.battery());
+        }
+        Flight flight = live.append(id, batch);
+        return flight != null ? ResponseEntity.ok(FlightSummary.of(flight)) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Ends a live flight.
+     *
+     * @param id the ID of the flight
+     * @return the final summary, or 404 if it is not live
+     */
+    @PostMapping("/{id}/finish")
+    public ResponseEntity<FlightSummary> finish(@PathVariable long id) {
+        Flight flight = live.finish(id);
+        return flight != null ? ResponseEntity.ok(FlightSummary.of(flight)) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Translates out-of-order points into 400 Bad Request.
+     *
+     * @param e the exception
+     * @return the error response
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+    }
+}
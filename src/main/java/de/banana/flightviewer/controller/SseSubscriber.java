@@ -0,0 +1,212 @@
+package de.banana.flightviewer.controller;
+
+import de.banana.flightviewer.model.SampleColumns;
+import de.banana.flightviewer.service.LiveFlightService;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes the points of one flight to one Server-Sent Events client.
+ * <p>
+ * Points are queued per client and sent by a drain task on the shared sender pool, one {@code samples} event
+ * per drain, so a slow client only delays itself and no request thread is held while streaming. Sends block
+ * while the client's socket buffer is full; a send that takes longer than the write timeout marks the client
+ * as stalled and disconnects it, so that it stops taking sender threads. The queue
+ * holds at most {@code capacity} points; a client that falls further behind a live flight loses the oldest
+ * queued points, never the newest position. Replays offer points only while the client is {@link #isIdle()},
+ * so they slow down to the client's pace instead of dropping. Each event carries the timestamp of its last
+ * point as event ID, which browsers send back as {@code Last-Event-ID} when they reconnect.
+ * </p>
+ */
+final class SseSubscriber implements LiveFlightService.Listener {
+
+    private final SseEmitter emitter;
+    private final Executor sender;
+    private final ScheduledExecutorService timer;
+    private final long writeTimeoutMillis;
+    private final int capacity;
+    private final ArrayDeque<FlightApiController.SampleDto> queue = new ArrayDeque<>();
+    private final List<Runnable> closeHandlers = new ArrayList<>();
+    /**
+     * Whether a drain task is queued or running; guarded by {@code this}.
+     */
+    private boolean draining;
+    private boolean finished;
+    private boolean closed;
+    /**
+     * Whether a send is in progress, and whether one exceeded the write timeout; guarded by {@code this}.
+     */
+    private boolean sending, stalled;
+
+    /**
+     * Constructs an SseSubscriber.
+     *
+     * @param emitter            the client's emitter
+     * @param sender             the pool running the drain tasks
+     * @param timer              the scheduler enforcing the write timeout
+     * @param writeTimeoutMillis time after which a blocked send disconnects the client
+     * @param capacity           maximum number of queued points
+     */
+    SseSubscriber(SseEmitter emitter, Executor sender, ScheduledExecutorService timer, long writeTimeoutMillis,
+                  int capacity) {
+        this.emitter = emitter;
+        this.sender = sender;
+        this.timer = timer;
+        this.writeTimeoutMillis = writeTimeoutMillis;
+        this.capacity = capacity;
+        emitter.onCompletion(this::close);
+        emitter.onTimeout(this::close);
+        emitter.onError(e -> close());
+    }
+
+    @Override
+    public synchronized void samples(SampleColumns points, int from, int to) {
+        if (closed || finished) return;
+        for (int i = from; i < to; i++) {
+            queue.addLast(FlightApiController.SampleDto.from(points, i));
+            if (queue.size() > capacity) queue.pollFirst();
+        }
+        schedule();
+    }
+
+    @Override
+    public synchronized void finished() {
+        if (closed || finished) return;
+        finished = true;
+        schedule();
+    }
+
+    /**
+     * Checks whether everything offered so far has been sent.
+     *
+     * @return {@code true} if no drain is pending
+     */
+    synchronized boolean isIdle() {
+        return !draining;
+    }
+
+    /**
+     * Checks whether the client was disconnected for not reading.
+     *
+     * @return {@code true} if a send exceeded the write timeout
+     */
+    synchronized boolean isStalled() {
+        return stalled;
+    }
+
+    /**
+     * Registers a callback run once when the client disconnects or the stream ends; runs it right away if
+     * that already happened.
+     *
+     * @param handler the callback
+     */
+    void onClose(Runnable handler) {
+        synchronized (this) {
+            if (!closed) {
+                closeHandlers.add(handler);
+                return;
+            }
+        }
+        handler.run();
+    }
+
+    /* ---------- Helpers ---------- */
+
+    private void schedule() {
+        if (!draining) {
+            draining = true;
+            sender.execute(this::drain);
+        }
+    }
+
+    /**
+     * Sends what is queued as one event; runs on the sender pool, never twice at the same time.
+     */
+    private void drain() {
+        List<FlightApiController.SampleDto> batch;
+        boolean end;
+        synchronized (this) {
+            if (closed) return;
+            if (queue.isEmpty() && !finished) {
+                draining = false;
+                return;
+            }
+            batch = new ArrayList<>(queue);
+            queue.clear();
+            end = finished;
+        }
+        try {
+            if (!batch.isEmpty()) {
+                send(SseEmitter.event()
+                        .id(Long.toString(batch.get(batch.size() - 1).timestamp))
+                        .name("samples")
+                        .data(batch));
+            }
+            if (end) {
+                send(SseEmitter.event().name("end").data("{}"));
+                emitter.complete();
+                close();
+                return;
+            }
+        } catch (IOException | IllegalStateException e) {
+            close(); // client gone
+            return;
+        }
+        sender.execute(this::drain); // pick up what arrived while sending
+    }
+
+    /**
+     * Sends one event, giving up on the client if the send blocks longer than the write timeout.
+     */
+    private void send(SseEmitter.SseEventBuilder event) throws IOException {
+        synchronized (this) {
+            if (closed) throw new IOException("Client disconnected");
+            sending = true;
+        }
+        ScheduledFuture<?> timeout = timer.schedule(this::stall, writeTimeoutMillis, TimeUnit.MILLISECONDS);
+        try {
+            emitter.send(event);
+        } finally {
+            timeout.cancel(false);
+            synchronized (this) {
+                sending = false;
+            }
+        }
+        if (isStalled()) {
+            emitter.completeWithError(new IOException("Client stopped reading"));
+            throw new IOException("Client stopped reading");
+        }
+    }
+
+    /**
+     * Disconnects a client whose send exceeded the write timeout. The blocked send itself ends when the
+     * container's write timeout expires; until then the client only holds the thread running it.
+     */
+    private void stall() {
+        synchronized (this) {
+            if (!sending || closed) return;
+            stalled = true;
+        }
+        close();
+    }
+
+    private void close() {
+        List<Runnable> handlers;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            queue.clear();
+            handlers = new ArrayList<>(closeHandlers);
+            closeHandlers.clear();
+        }
+        handlers.forEach(Runnable::run);
+    }
+}
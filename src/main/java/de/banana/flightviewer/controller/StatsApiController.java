@@ -0,0 +1,87 @@
+package de.banana.flightviewer.controller;
+
+import de.banana.flightviewer.service.FlightStatsService;
+import de.banana.flightviewer.service.LiveFlightService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST controller for fleet statistics.
+ * <ul>
+ *     <li><b>GET /api/stats?by=&amp;aircraft=&amp;from=&amp;to=</b>: Flight count, flight hours, distance,
+ *     maximum altitude and battery cycles, grouped {@code by} {@code aircraft}, {@code month} (the default is
+ *     both) or {@code total} for the whole fleet. {@code from} and {@code to} are inclusive months like
+ *     {@code 2025-07}. Flights without an aircraft serial are grouped under the empty serial.</li>
+ *     <li><b>POST /api/stats/rebuild</b>: Rebuilds the rollups from the flight table.</li>
+ * </ul>
+ * Answers are read from rollup rows maintained at import time, see {@link FlightStatsService}.
+ */
+@RestController
+@RequestMapping("/api/stats")
+public class StatsApiController {
+
+    private final FlightStatsService stats;
+    private final LiveFlightService live;
+
+    /**
+     * Constructs a new StatsApiController.
+     *
+     * @param stats the fleet statistics
+     * @param live  the live flights, left out of rebuilds until they are finished
+     */
+    public StatsApiController(FlightStatsService stats, LiveFlightService live) {
+        this.stats = stats;
+        this.live = live;
+    }
+
+    /**
+     * Reads fleet statistics.
+     *
+     * @param by       {@code aircraft}, {@code month}, both, or {@code total}
+     * @param aircraft only this aircraft serial
+     * @param from     only months from this one
+     * @param to       only months up to this one
+     * @return the groups ordered by aircraft and month
+     */
+    @GetMapping
+    public List<FlightStatsService.Stats> stats(@RequestParam(defaultValue = "aircraft,month") List<String> by,
+                                                @RequestParam(required = false) String aircraft,
+                                                @RequestParam(required = false) YearMonth from,
+                                                @RequestParam(required = false) YearMonth to) {
+        boolean byAircraft = false, byMonth = false;
+        for (String b : by) {
+            switch (b.trim().toLowerCase()) {
+                case "aircraft" -> byAircraft = true;
+                case "month" -> byMonth = true;
+                case "total" -> { }
+                default -> throw new IllegalArgumentException("Unknown grouping: " + b);
+            }
+        }
+        return stats.stats(byAircraft, byMonth, aircraft == null || aircraft.isBlank() ? null : aircraft, from, to);
+    }
+
+    /**
+     * Rebuilds the rollups from the flight table, leaving out live flights.
+     *
+     * @return the number of flights in the rebuilt rollups
+     */
+    @PostMapping("/rebuild")
+    public Map<String, Long> rebuild() {
+        return Map.of("flights", stats.rebuild(live::isLive));
+    }
+
+    /**
+     * Translates unknown groupings into 400 Bad Request.
+     *
+     * @param e the exception
+     * @return the error response
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+    }
+}
@@ -0,0 +1,66 @@
+package de.banana.flightviewer.controller;
+
+import de.banana.flightviewer.service.CoverageTileService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * REST controller serving map tiles for Leaflet overlays.
+ * <ul>
+ *     <li><b>GET /tiles/coverage/{z}/{x}/{y}.png</b>: Sample density of all flights as a 256 x 256 PNG.</li>
+ * </ul>
+ * Tiles change when an import touches them, so browsers may reuse them for a minute and then revalidate
+ * with the tile's ETag.
+ */
+@RestController
+public class TileController {
+
+    private static final CacheControl REVALIDATE = CacheControl.maxAge(Duration.ofMinutes(1)).cachePublic();
+
+    private final CoverageTileService coverage;
+
+    /**
+     * Constructs a new TileController.
+     *
+     * @param coverage the coverage tile pyramid
+     */
+    public TileController(CoverageTileService coverage) {
+        this.coverage = coverage;
+    }
+
+    /**
+     * Returns a coverage tile.
+     *
+     * @param z       zoom level, at most {@link CoverageTileService#getMaxZoom()}
+     * @param x       tile column
+     * @param y       tile row
+     * @param request the request, for {@code If-None-Match}
+     * @return the PNG, 304 if unchanged, or 404 outside the pyramid
+     * @throws IOException if the tile cannot be read or rendered
+     */
+    @GetMapping("/tiles/coverage/{z}/{x}/{y}.png")
+    public ResponseEntity<byte[]> coverage(@PathVariable int z, @PathVariable int x, @PathVariable int y,
+                                           WebRequest request) throws IOException {
+        CoverageTileService.Tile tile = coverage.tile(z, x, y);
+        if (tile == null) {
+            return ResponseEntity.notFound().build();
+        }
+        String etag = "\"" + z + "-" + x + "-" + y + "-" + tile.version() + "\"";
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_PNG)
+                .cacheControl(REVALIDATE)
+                .eTag(etag)
+                .body(tile.png());
+    }
+}
@@ -0,0 +1,158 @@
+package de.banana.flightviewer.controller;
+
+import de.banana.flightviewer.service.ChunkedUploadService;
+import de.banana.flightviewer.service.ChunkedUploadService.UploadConflictException;
+import de.banana.flightviewer.service.UploadSession;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * REST controller for chunked, resumable uploads of large CSV logs (see {@link ChunkedUploadService}).
+ * <ul>
+ *     <li><b>POST /api/uploads?name=...&amp;size=...</b>: Starts an upload; {@code size} is optional.</li>
+ *     <li><b>PUT /api/uploads/{id}?offset=...</b>: Appends the request body as the next chunk; the
+ *     {@code X-Chunk-Sha256} header carries its SHA-256 as hex. The import starts with the first chunk.</li>
+ *     <li><b>GET /api/uploads/{id}</b>: Returns the offset to resume from and the import job.</li>
+ *     <li><b>POST /api/uploads/{id}/complete</b>: Ends an upload without announced size.</li>
+ *     <li><b>DELETE /api/uploads/{id}</b>: Aborts an upload.</li>
+ * </ul>
+ * A bad checksum answers 400 and the chunk must be sent again; a chunk at the wrong offset answers 409 with
+ * the expected {@code offset}. Chunks are sent as {@code application/octet-stream}, never as form data.
+ */
+@RestController
+@RequestMapping("/api/uploads")
+public class UploadApiController {
+
+    /**
+     * Header carrying the SHA-256 of a chunk.
+     */
+    public static final String CHECKSUM_HEADER = "X-Chunk-Sha256";
+
+    private final ChunkedUploadService uploads;
+
+    /**
+     * Constructs a new UploadApiController.
+     *
+     * @param uploads the service managing chunked uploads
+     */
+    public UploadApiController(ChunkedUploadService uploads) {
+        this.uploads = uploads;
+    }
+
+    /**
+     * Starts an upload.
+     *
+     * @param name the original file name
+     * @param size the total size in bytes, if known
+     * @return the upload, with its URL as {@code Location}
+     * @throws IOException if the spool files cannot be created
+     */
+    @PostMapping
+    public ResponseEntity<UploadSession> create(@RequestParam String name,
+                                                @RequestParam(required = false) Long size) throws IOException {
+        UploadSession upload = uploads.create(name, size);
+        return ResponseEntity.created(URI.create("/api/uploads/" + upload.getId())).body(upload);
+    }
+
+    /**
+     * Appends a chunk.
+     *
+     * @param id     the upload ID
+     * @param offset the position of the chunk in the file
+     * @param sha256 the SHA-256 of the chunk as hex
+     * @param body   the chunk
+     * @return the upload with its new offset, or 404 if unknown
+     * @throws IOException if the chunk cannot be read or written
+     */
+    @PutMapping(path = "/{id}", consumes = {MediaType.APPLICATION_OCTET_STREAM_VALUE, "text/csv", MediaType.TEXT_PLAIN_VALUE})
+    public ResponseEntity<UploadSession> append(@PathVariable String id, @RequestParam long offset,
+                                                @RequestHeader(name = CHECKSUM_HEADER, required = false) String sha256,
+                                                InputStream body) throws IOException {
+        return found(uploads.append(id, offset, sha256, body));
+    }
+
+    /**
+     * Returns the status of an upload.
+     *
+     * @param id the upload ID
+     * @return the upload, or 404 if unknown
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<UploadSession> status(@PathVariable String id) {
+        return found(uploads.get(id));
+    }
+
+    /**
+     * Ends an upload; the import finishes with the bytes received.
+     *
+     * @param id the upload ID
+     * @return the upload and its import job, or 404 if unknown
+     * @throws IOException if the upload state cannot be saved
+     */
+    @PostMapping("/{id}/complete")
+    public ResponseEntity<UploadSession> complete(@PathVariable String id) throws IOException {
+        UploadSession upload = uploads.complete(id);
+        return upload != null ? ResponseEntity.accepted().body(upload) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Aborts an upload and deletes its data.
+     *
+     * @param id the upload ID
+     * @return 204, or 404 if unknown
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> abort(@PathVariable String id) {
+        return uploads.abort(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Translates a chunk that does not fit the upload into 409 Conflict with the offset to resume from.
+     *
+     * @param e the conflict
+     * @return the error response
+     */
+    @ExceptionHandler(UploadConflictException.class)
+    public ResponseEntity<Map<String, Object>> conflict(UploadConflictException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage(), "offset", e.getOffset()));
+    }
+
+    /**
+     * Translates invalid requests and checksum mismatches into 400 Bad Request.
+     *
+     * @param e the exception
+     * @return the error response
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+    }
+
+    /**
+     * Translates a full import queue into 503 Service Unavailable.
+     *
+     * @param e the rejection
+     * @return the error response
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, String>> rejected(RejectedExecutionException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "10")
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    /* ---------- Helpers ---------- */
+
+    private static ResponseEntity<UploadSession> found(UploadSession upload) {
+        return upload != null ? ResponseEntity.ok(upload) : ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,91 @@
+package de.banana.flightviewer.csv;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Fallback reader for CSV dialects the projecting tokenizer does not handle.
+ * <p>
+ * Uses Commons CSV with the original import settings (first record as header, case-insensitive header,
+ * trimmed values). Column indexes are still resolved once, so rows are read by position instead of by a
+ * header-map lookup per cell.
+ * </p>
+ */
+final class CommonsDjiCsvReader extends DjiCsvReader {
+
+    private final CSVParser parser;
+    private final Iterator<CSVRecord> records;
+    /**
+     * Header column index per slot.
+     */
+    private int[] columnOfSlot = new int[0];
+    private CSVRecord current;
+
+    private CommonsDjiCsvReader(CSVParser parser) {
+        super(parser.getHeaderNames());
+        this.parser = parser;
+        this.records = parser.iterator();
+    }
+
+    static CommonsDjiCsvReader open(Reader in, String delimiter) throws IOException {
+        CSVParser parser = CSVFormat.DEFAULT.builder()
+                .setDelimiter(delimiter)
+                .setHeader()
+                .setSkipHeaderRecord(true)
+                .setIgnoreHeaderCase(true)
+                .setTrim(true)
+                .build()
+                .parse(in);
+        return new CommonsDjiCsvReader(parser);
+    }
+
+    @Override
+    protected int select(int columnIndex) {
+        for (int slot = 0; slot < columnOfSlot.length; slot++) {
+            if (columnOfSlot[slot] == columnIndex) return slot;
+        }
+        columnOfSlot = Arrays.copyOf(columnOfSlot, columnOfSlot.length + 1);
+        columnOfSlot[columnOfSlot.length - 1] = columnIndex;
+        return columnOfSlot.length - 1;
+    }
+
+    @Override
+    protected boolean advance() {
+        current = records.hasNext() ? records.next() : null;
+        return current != null;
+    }
+
+    @Override
+    public boolean isBlank(int slot) {
+        return getString(slot).isBlank();
+    }
+
+    @Override
+    public String getString(int slot) {
+        int column = columnOfSlot[slot];
+        return column < current.size() ? current.get(column) : "";
+    }
+
+    @Override
+    public double getDouble(int slot) {
+        String val = getString(slot);
+        return val.isBlank() ? 0.0 : Double.parseDouble(val);
+    }
+
+    @Override
+    public int getInt(int slot) {
+        String val = getString(slot);
+        return val.isBlank() ? 0 : Integer.parseInt(val);
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
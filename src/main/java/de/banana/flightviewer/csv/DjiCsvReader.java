@@ -0,0 +1,188 @@
+package de.banana.flightviewer.csv;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * Forward-only reader for DJI flight logs that have been converted to CSV.
+ * <p>
+ * Callers first select the columns they need by name, then iterate the rows with {@link #next()} and read
+ * the selected values by slot. Only selected columns are ever materialized; everything else is skipped.
+ * </p>
+ * <p>
+ * {@link #open(Reader)} handles the optional {@code sep=} preamble written by some converters and picks an
+ * implementation:
+ * <ul>
+ *     <li>a projecting tokenizer that parses numbers straight from its char buffer (regular DJI exports)</li>
+ *     <li>a Commons-CSV based reader for unusual dialects (quoted headers, multi-character separators)</li>
+ * </ul>
+ * Blank cells read as {@code 0} in both implementations, malformed numbers throw
+ * {@link NumberFormatException}.
+ * </p>
+ */
+public abstract class DjiCsvReader implements Closeable {
+
+    /**
+     * Upper bound for the header line when peeking at the dialect.
+     */
+    private static final int HEADER_PEEK_LIMIT = 1 << 20;
+
+    /**
+     * Column names from the header line, in file order.
+     */
+    protected final List<String> header;
+
+    /**
+     * Whether {@link #next()} has been called, after which no more columns may be selected.
+     */
+    private boolean started;
+
+    protected DjiCsvReader(List<String> header) {
+        this.header = List.copyOf(header);
+    }
+
+    /**
+     * Opens a reader on the given CSV content, consuming the preamble and the header line.
+     *
+     * @param in the CSV content; closed together with the returned reader
+     * @return a reader positioned before the first data row
+     * @throws IOException if reading the header fails
+     * @throws IllegalArgumentException if the content is empty
+     */
+    public static DjiCsvReader open(Reader in) throws IOException {
+        BufferedReader br = in instanceof BufferedReader b ? b : new BufferedReader(in, 1 << 16);
+
+        /* Skip optional first line like "sep=," produced by some converters */
+        br.mark(HEADER_PEEK_LIMIT);
+        String first = br.readLine();
+        if (first == null) {
+            throw new IllegalArgumentException("Empty CSV");
+        }
+        String separator = ",";
+        if (stripBom(first).startsWith("sep=")) {
+            separator = stripBom(first).substring(4);
+            br.mark(HEADER_PEEK_LIMIT);
+            first = br.readLine();
+            if (first == null) {
+                throw new IllegalArgumentException("Empty CSV");
+            }
+        }
+        String headerLine = stripBom(first);
+
+        if (separator.length() != 1 || headerLine.indexOf('"') >= 0) {
+            br.reset();
+            return CommonsDjiCsvReader.open(br, separator.isEmpty() ? "," : separator);
+        }
+        return new FastDjiCsvReader(br, separator.charAt(0), headerLine);
+    }
+
+    private static String stripBom(String s) {
+        return !s.isEmpty() && s.charAt(0) == '\uFEFF' ? s.substring(1) : s;
+    }
+
+    /**
+     * Gets the column names of the header line.
+     * @return the header names in file order
+     */
+    public List<String> getHeader() { return header; }
+
+    /**
+     * Selects a column by name (exact match first, then case-insensitive).
+     *
+     * @param name the header name
+     * @return the slot to pass to the getters, or {@code -1} if the column does not exist
+     * @throws IllegalStateException if rows have already been read
+     */
+    public int column(String name) {
+        if (started) {
+            throw new IllegalStateException("Columns must be selected before the first row is read");
+        }
+        int index = header.indexOf(name);
+        if (index < 0) {
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).trim().equalsIgnoreCase(name)) {
+                    index = i;
+                    break;
+                }
+            }
+        }
+        return index < 0 ? -1 : select(index);
+    }
+
+    /**
+     * Selects a column that must be present.
+     *
+     * @param name the header name
+     * @return the slot to pass to the getters
+     * @throws IllegalArgumentException if the column does not exist
+     */
+    public int requireColumn(String name) {
+        int slot = column(name);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Missing required column '" + name + "'");
+        }
+        return slot;
+    }
+
+    /**
+     * Advances to the next data row. Empty lines are skipped.
+     *
+     * @return {@code false} at the end of the input
+     * @throws IOException if reading fails
+     */
+    public final boolean next() throws IOException {
+        started = true;
+        return advance();
+    }
+
+    /**
+     * Reads a selected cell as double; blank cells read as {@code 0.0}.
+     *
+     * @param slot the slot returned by {@link #column(String)}
+     * @return the parsed value
+     */
+    public abstract double getDouble(int slot);
+
+    /**
+     * Reads a selected cell as int; blank cells read as {@code 0}.
+     *
+     * @param slot the slot returned by {@link #column(String)}
+     * @return the parsed value
+     */
+    public abstract int getInt(int slot);
+
+    /**
+     * Reads a selected cell as trimmed string; missing cells read as the empty string.
+     *
+     * @param slot the slot returned by {@link #column(String)}
+     * @return the cell value
+     */
+    public abstract String getString(int slot);
+
+    /**
+     * Checks whether a selected cell is blank in the current row.
+     *
+     * @param slot the slot returned by {@link #column(String)}
+     * @return {@code true} if the cell is missing or contains only whitespace
+     */
+    public abstract boolean isBlank(int slot);
+
+    /**
+     * Registers a header column as selected.
+     *
+     * @param columnIndex index of the column in the header
+     * @return the slot for that column
+     */
+    protected abstract int select(int columnIndex);
+
+    /**
+     * Reads the next non-empty row.
+     *
+     * @return {@code false} at the end of the input
+     * @throws IOException if reading fails
+     */
+    protected abstract boolean advance() throws IOException;
+}
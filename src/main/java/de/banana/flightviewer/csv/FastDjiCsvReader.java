@@ -0,0 +1,358 @@
+package de.banana.flightviewer.csv;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Projecting CSV tokenizer for regular DJI exports.
+ * <p>
+ * The input is read in large blocks into a single char buffer. While scanning a row, only the start and end
+ * offsets of selected columns are recorded; all other fields are skipped without creating objects. Numbers
+ * are parsed directly from the buffer. Quoted fields (RFC 4180, including doubled quotes and line breaks)
+ * are supported in data rows.
+ * </p>
+ */
+final class FastDjiCsvReader extends DjiCsvReader {
+
+    private static final int INITIAL_BUFFER = 1 << 16;
+
+    /**
+     * Exactly representable powers of ten, used for correctly rounded fast-path conversion.
+     */
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final Reader in;
+    private final char separator;
+
+    /**
+     * Slot per header column, or {@code -1} for columns that are skipped.
+     */
+    private int[] slotOfColumn;
+    /**
+     * Number of selected columns.
+     */
+    private int slots;
+    /**
+     * Field boundaries of the selected columns in the current row ({@code start < 0} means missing).
+     */
+    private int[] starts = new int[0];
+    private int[] ends = new int[0];
+    /**
+     * Whether a selected field of the current row contains doubled quotes that need unescaping.
+     */
+    private boolean[] escaped = new boolean[0];
+
+    private char[] buf = new char[INITIAL_BUFFER];
+    private int pos;
+    private int limit;
+    private int rowStart;
+    private boolean eof;
+
+    FastDjiCsvReader(Reader in, char separator, String headerLine) {
+        super(splitHeader(headerLine, separator));
+        this.in = in;
+        this.separator = separator;
+        this.slotOfColumn = new int[header.size()];
+        Arrays.fill(slotOfColumn, -1);
+    }
+
+    private static List<String> splitHeader(String line, char separator) {
+        List<String> names = new ArrayList<>();
+        int from = 0;
+        for (int i = 0; i <= line.length(); i++) {
+            if (i == line.length() || line.charAt(i) == separator) {
+                names.add(line.substring(from, i).trim());
+                from = i + 1;
+            }
+        }
+        return names;
+    }
+
+    @Override
+    protected int select(int columnIndex) {
+        if (slotOfColumn[columnIndex] < 0) {
+            slotOfColumn[columnIndex] = slots++;
+            starts = Arrays.copyOf(starts, slots);
+            ends = Arrays.copyOf(ends, slots);
+            escaped = Arrays.copyOf(escaped, slots);
+        }
+        return slotOfColumn[columnIndex];
+    }
+
+    /* ---------- Tokenizer ---------- */
+
+    @Override
+    protected boolean advance() throws IOException {
+        Arrays.fill(starts, -1);
+        Arrays.fill(escaped, false);
+
+        // skip empty lines
+        while (true) {
+            if (pos == limit && !fill(pos)) return false;
+            char c = buf[pos];
+            if (c != '\n' && c != '\r') break;
+            pos++;
+        }
+
+        rowStart = pos;
+        int column = 0;
+        while (true) {
+            // offsets are kept relative to the row start, which moves when the buffer is refilled
+            int fieldStart = pos - rowStart;
+            int fieldEnd;
+            boolean hasEscapes = false;
+
+            if (peek() == '"') {
+                pos++;
+                fieldStart = pos - rowStart;
+                while (true) {
+                    int c = peek();
+                    if (c < 0) throw new IOException("Unterminated quoted field");
+                    pos++;
+                    if (c == '"') {
+                        if (peek() == '"') {
+                            hasEscapes = true;
+                            pos++;
+                            continue;
+                        }
+                        fieldEnd = pos - 1 - rowStart;
+                        break;
+                    }
+                }
+                skipField();
+            } else {
+                skipField();
+                fieldEnd = pos - rowStart;
+            }
+            endField(column, rowStart + fieldStart, rowStart + fieldEnd, hasEscapes);
+
+            int c = peek();
+            if (c == separator) {
+                pos++;
+                column++;
+                continue;
+            }
+            if (c == '\r') {
+                pos++;
+                if (peek() == '\n') pos++;
+            } else if (c == '\n') {
+                pos++;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Returns the char at the current position without consuming it, or {@code -1} at the end of the input.
+     */
+    private int peek() throws IOException {
+        if (pos == limit && !fill(rowStart)) return -1;
+        return buf[pos];
+    }
+
+    /**
+     * Advances to the next separator, line break or the end of the input.
+     */
+    private void skipField() throws IOException {
+        final char sep = separator;
+        while (true) {
+            final char[] b = buf;
+            final int l = limit;
+            int p = pos;
+            while (p < l) {
+                char c = b[p];
+                if (c == sep || c == '\n' || c == '\r') {
+                    pos = p;
+                    return;
+                }
+                p++;
+            }
+            pos = p;
+            if (!fill(rowStart)) return;
+        }
+    }
+
+    private void endField(int column, int start, int end, boolean hasEscapes) {
+        if (column >= slotOfColumn.length) return;
+        int slot = slotOfColumn[column];
+        if (slot < 0) return;
+        starts[slot] = start;
+        ends[slot] = end;
+        escaped[slot] = hasEscapes;
+    }
+
+    /**
+     * Refills the buffer, keeping everything from {@code keepFrom} on. Offsets of the current row are shifted
+     * to the start of the buffer; the buffer grows if a single row does not fit.
+     *
+     * @return {@code false} if the input is exhausted
+     */
+    private boolean fill(int keepFrom) throws IOException {
+        if (eof) return false;
+        int kept = limit - keepFrom;
+        if (keepFrom > 0) {
+            System.arraycopy(buf, keepFrom, buf, 0, kept);
+            for (int i = 0; i < slots; i++) {
+                if (starts[i] >= 0) {
+                    starts[i] -= keepFrom;
+                    ends[i] -= keepFrom;
+                }
+            }
+        } else if (kept == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length * 2);
+        }
+        pos -= keepFrom;
+        rowStart -= keepFrom;
+        limit = kept;
+        int n;
+        do {
+            n = in.read(buf, limit, buf.length - limit);
+        } while (n == 0);
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+
+    /* ---------- Accessors ---------- */
+
+    @Override
+    public boolean isBlank(int slot) {
+        int s = starts[slot];
+        if (s < 0) return true;
+        for (int i = s; i < ends[slot]; i++) {
+            if (!Character.isWhitespace(buf[i])) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String getString(int slot) {
+        int s = starts[slot];
+        if (s < 0) return "";
+        String value = new String(buf, s, ends[slot] - s).trim();
+        return escaped[slot] ? value.replace("\"\"", "\"") : value;
+    }
+
+    @Override
+    public double getDouble(int slot) {
+        int s = starts[slot];
+        if (s < 0) return 0.0;
+        int e = ends[slot];
+        while (s < e && Character.isWhitespace(buf[s])) s++;
+        while (e > s && Character.isWhitespace(buf[e - 1])) e--;
+        return s == e ? 0.0 : parseDouble(buf, s, e);
+    }
+
+    @Override
+    public int getInt(int slot) {
+        int s = starts[slot];
+        if (s < 0) return 0;
+        int e = ends[slot];
+        while (s < e && Character.isWhitespace(buf[s])) s++;
+        while (e > s && Character.isWhitespace(buf[e - 1])) e--;
+        return s == e ? 0 : parseInt(buf, s, e);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /* ---------- Number parsing ---------- */
+
+    /**
+     * Parses a decimal number from {@code b[from, to)}.
+     * <p>
+     * Plain decimals with up to 18 significant digits and a small exponent are converted exactly with one
+     * multiplication or division by a power of ten; anything else is delegated to {@link Double#parseDouble}.
+     * </p>
+     */
+    static double parseDouble(char[] b, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (b[i] == '-' || b[i] == '+') {
+            negative = b[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean seenDigit = false;
+        boolean seenDot = false;
+        for (; i < to; i++) {
+            char c = b[i];
+            if (c >= '0' && c <= '9') {
+                seenDigit = true;
+                if (mantissa == 0 && c == '0') {
+                    if (seenDot) exponent--;
+                    continue;
+                }
+                if (digits == 18) return slowDouble(b, from, to);
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (seenDot) exponent--;
+            } else if (c == '.' && !seenDot) {
+                seenDot = true;
+            } else if ((c == 'e' || c == 'E') && seenDigit) {
+                int exp;
+                try {
+                    exp = parseInt(b, i + 1, to);
+                } catch (NumberFormatException ex) {
+                    return slowDouble(b, from, to);
+                }
+                exponent += exp;
+                i = to;
+                break;
+            } else {
+                return slowDouble(b, from, to);
+            }
+        }
+        if (!seenDigit) return slowDouble(b, from, to);
+        double value;
+        if (mantissa == 0) {
+            value = 0.0;
+        } else if (exponent >= 0 && exponent < POW10.length && mantissa < (1L << 53)) {
+            value = mantissa * POW10[exponent];
+            if (exponent > 0 && value >= (double) (1L << 53)) return slowDouble(b, from, to);
+        } else if (exponent < 0 && -exponent < POW10.length && mantissa < (1L << 53)) {
+            value = mantissa / POW10[-exponent];
+        } else {
+            return slowDouble(b, from, to);
+        }
+        return negative ? -value : value;
+    }
+
+    private static double slowDouble(char[] b, int from, int to) {
+        return Double.parseDouble(new String(b, from, to - from));
+    }
+
+    /**
+     * Parses a decimal integer from {@code b[from, to)}, with the same error behaviour as
+     * {@link Integer#parseInt(String)}.
+     */
+    static int parseInt(char[] b, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (b[i] == '-' || b[i] == '+')) {
+            negative = b[i] == '-';
+            i++;
+        }
+        if (i == to || to - i > 9) return Integer.parseInt(new String(b, from, to - from));
+        int value = 0;
+        for (; i < to; i++) {
+            char c = b[i];
+            if (c < '0' || c > '9') return Integer.parseInt(new String(b, from, to - from));
+            value = value * 10 + (c - '0');
+        }
+        return negative ? -value : value;
+    }
+}
@@ -8,8 +8,25 @@ import java.time.Instant;
  * <p>
  * Stores metadata about a flight, including start/end times, distance, altitude, battery, and source file.
  * </p>
+ * <p>
+ * The content hash and the fingerprint identify a log independently of its file name; both carry unique
+ * indexes so that the same log cannot be imported twice. Flights imported before they existed have neither.
+ * The summary columns the flight list sorts by are indexed together with the ID for keyset pagination.
+ * </p>
+ * <p>
+ * The bounding box of the track is recorded alongside the geohash cells of {@link FlightCell} for spatial
+ * search, its notable moments as {@link FlightEvent}s.
+ * </p>
  */
 @Entity
+@Table(indexes = {
+        @Index(name = "ux_flight_content_hash", columnList = "contentHash", unique = true),
+        @Index(name = "ux_flight_fingerprint", columnList = "fingerprint", unique = true),
+        @Index(name = "ix_flight_start_time", columnList = "startTime, id"),
+        @Index(name = "ix_flight_distance", columnList = "distanceMeters, id"),
+        @Index(name = "ix_flight_max_altitude", columnList = "maxAltitudeMeters, id"),
+        @Index(name = "ix_flight_min_battery", columnList = "minBatteryPercent, id")
+})
 public class Flight {
 
     /**
@@ -39,10 +56,61 @@ public class Flight {
      * Minimum battery percentage recorded during the flight.
      */
     private int minBatteryPercent;
+    /**
+     * Battery percentage used during the flight (first minus last reading); {@code null} for flights imported
+     * before it was recorded.
+     */
+    private Integer batteryUsedPercent;
+    /**
+     * Serial number of the aircraft from the log's details; {@code null} if the log has none.
+     */
+    @Column(length = 64)
+    private String aircraftSerial;
     /**
      * Name of the source file from which this flight was imported.
      */
     private String sourceFileName;
+    /**
+     * SHA-256 of the source file content (hex).
+     */
+    @Column(length = 64)
+    private String contentHash;
+    /**
+     * SHA-256 (hex) of aircraft serial, local log start time and first logged position; {@code null} if the
+     * log has no aircraft serial.
+     */
+    @Column(length = 64)
+    private String fingerprint;
+    /**
+     * Bounding box of the track in decimal degrees; {@code null} until the flight is spatially indexed.
+     */
+    private Double minLatitude;
+    private Double minLongitude;
+    private Double maxLatitude;
+    private Double maxLongitude;
+    /**
+     * Number of {@link FlightEvent}s of the flight; {@code null} until its events have been detected.
+     */
+    private Integer eventCount;
+    /**
+     * When the samples were last read; drives the archival policy. Like {@link #archivedAt} only written
+     * by the sample archive, never by saving the entity, so that flights loaded earlier cannot reset it.
+     */
+    @Column(updatable = false)
+    private Instant lastAccessedAt;
+    /**
+     * When the samples were moved to the sample archive; {@code null} while they are in hot storage.
+     */
+    @Column(insertable = false, updatable = false)
+    private Instant archivedAt;
+
+    /**
+     * Counts creating a flight as an access, so that newly imported old flights are not archived at once.
+     */
+    @PrePersist
+    void initLastAccessedAt() {
+        if (lastAccessedAt == null) lastAccessedAt = Instant.now();
+    }
 
     /* ---------- getters & setters ---------- */
 
@@ -112,6 +180,28 @@ public class Flight {
      */
     public void setMinBatteryPercent(int minBatteryPercent) { this.minBatteryPercent = minBatteryPercent; }
 
+    /**
+     * Gets the battery percentage used during the flight.
+     * @return the used percentage, or {@code null} if unknown
+     */
+    public Integer getBatteryUsedPercent() { return batteryUsedPercent; }
+    /**
+     * Sets the battery percentage used during the flight.
+     * @param batteryUsedPercent the used percentage
+     */
+    public void setBatteryUsedPercent(Integer batteryUsedPercent) { this.batteryUsedPercent = batteryUsedPercent; }
+
+    /**
+     * Gets the serial number of the aircraft.
+     * @return the aircraft serial, or {@code null} if unknown
+     */
+    public String getAircraftSerial() { return aircraftSerial; }
+    /**
+     * Sets the serial number of the aircraft.
+     * @param aircraftSerial the aircraft serial
+     */
+    public void setAircraftSerial(String aircraftSerial) { this.aircraftSerial = aircraftSerial; }
+
     /**
      * Gets the name of the source file from which this flight was imported.
      * @return the source file name
@@ -122,4 +212,103 @@ public class Flight {
      * @param sourceFileName the source file name
      */
     public void setSourceFileName(String sourceFileName) { this.sourceFileName = sourceFileName; }
+
+    /**
+     * Gets the SHA-256 of the source file content.
+     * @return the content hash (hex), or {@code null} for flights imported without one
+     */
+    public String getContentHash() { return contentHash; }
+    /**
+     * Sets the SHA-256 of the source file content.
+     * @param contentHash the content hash (hex)
+     */
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+
+    /**
+     * Gets the canonical fingerprint of the logged flight.
+     * @return the fingerprint (hex), or {@code null} if unknown
+     */
+    public String getFingerprint() { return fingerprint; }
+    /**
+     * Sets the canonical fingerprint of the logged flight.
+     * @param fingerprint the fingerprint (hex)
+     */
+    public void setFingerprint(String fingerprint) { this.fingerprint = fingerprint; }
+
+    /**
+     * Gets the southern bound of the track.
+     * @return the minimum latitude, or {@code null} if not indexed
+     */
+    public Double getMinLatitude() { return minLatitude; }
+    /**
+     * Sets the southern bound of the track.
+     * @param minLatitude the minimum latitude
+     */
+    public void setMinLatitude(Double minLatitude) { this.minLatitude = minLatitude; }
+
+    /**
+     * Gets the western bound of the track.
+     * @return the minimum longitude, or {@code null} if not indexed
+     */
+    public Double getMinLongitude() { return minLongitude; }
+    /**
+     * Sets the western bound of the track.
+     * @param minLongitude the minimum longitude
+     */
+    public void setMinLongitude(Double minLongitude) { this.minLongitude = minLongitude; }
+
+    /**
+     * Gets the northern bound of the track.
+     * @return the maximum latitude, or {@code null} if not indexed
+     */
+    public Double getMaxLatitude() { return maxLatitude; }
+    /**
+     * Sets the northern bound of the track.
+     * @param maxLatitude the maximum latitude
+     */
+    public void setMaxLatitude(Double maxLatitude) { this.maxLatitude = maxLatitude; }
+
+    /**
+     * Gets the eastern bound of the track.
+     * @return the maximum longitude, or {@code null} if not indexed
+     */
+    public Double getMaxLongitude() { return maxLongitude; }
+    /**
+     * Sets the eastern bound of the track.
+     * @param maxLongitude the maximum longitude
+     */
+    public void setMaxLongitude(Double maxLongitude) { this.maxLongitude = maxLongitude; }
+
+    /**
+     * Gets the number of events of the flight.
+     * @return the event count, or {@code null} if events have not been detected yet
+     */
+    public Integer getEventCount() { return eventCount; }
+    /**
+     * Sets the number of events of the flight.
+     * @param eventCount the event count
+     */
+    public void setEventCount(Integer eventCount) { this.eventCount = eventCount; }
+
+    /**
+     * Gets the time the samples were last read.
+     * @return the last access, at a resolution of about an hour
+     */
+    public Instant getLastAccessedAt() { return lastAccessedAt; }
+    /**
+     * Sets the time the samples were last read.
+     * @param lastAccessedAt the last access
+     */
+    public void setLastAccessedAt(Instant lastAccessedAt) { this.lastAccessedAt = lastAccessedAt; }
+
+    /**
+     * Gets the time the samples were archived.
+     * @return the archival time, or {@code null} if the samples are in hot storage
+     */
+    public Instant getArchivedAt() { return archivedAt; }
+    /**
+     * Sets the time the samples were archived.
+     * @param archivedAt the archival time, or {@code null}
+     */
+    public void setArchivedAt(Instant archivedAt) { this.archivedAt = archivedAt; }
 }
@@ -0,0 +1,101 @@
+package de.banana.flightviewer.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Entity recording one visit of a flight to a geohash cell, for spatial search.
+ * <p>
+ * Written at import time from the flight's track: each row says the flight was inside {@code cell} between
+ * {@code enterMillis} and {@code exitMillis}. Rows are indexed by cell, so the flights that passed through an
+ * area are found by index range scans over the cells covering it.
+ * </p>
+ */
+@Entity
+@Table(indexes = {
+        @Index(name = "ix_flight_cell_cell", columnList = "cell, flightId"),
+        @Index(name = "ix_flight_cell_flight", columnList = "flightId")
+})
+public class FlightCell {
+
+    /**
+     * Unique identifier for the visit (primary key).
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * ID of the flight.
+     */
+    private long flightId;
+    /**
+     * Geohash of the cell.
+     */
+    @Column(length = 12, nullable = false)
+    private String cell;
+    /**
+     * First time inside the cell, in epoch milliseconds.
+     */
+    private long enterMillis;
+    /**
+     * Last time inside the cell, in epoch milliseconds.
+     */
+    private long exitMillis;
+
+    /* ---------- getters & setters ---------- */
+
+    /**
+     * Gets the unique identifier of the visit.
+     * @return the visit ID
+     */
+    public Long getId() { return id; }
+    /**
+     * Sets the unique identifier of the visit.
+     * @param id the visit ID
+     */
+    public void setId(Long id) { this.id = id; }
+
+    /**
+     * Gets the ID of the flight.
+     * @return the flight ID
+     */
+    public long getFlightId() { return flightId; }
+    /**
+     * Sets the ID of the flight.
+     * @param flightId the flight ID
+     */
+    public void setFlightId(long flightId) { this.flightId = flightId; }
+
+    /**
+     * Gets the geohash of the cell.
+     * @return the geohash
+     */
+    public String getCell() { return cell; }
+    /**
+     * Sets the geohash of the cell.
+     * @param cell the geohash
+     */
+    public void setCell(String cell) { this.cell = cell; }
+
+    /**
+     * Gets the first time inside the cell.
+     * @return epoch milliseconds
+     */
+    public long getEnterMillis() { return enterMillis; }
+    /**
+     * Sets the first time inside the cell.
+     * @param enterMillis epoch milliseconds
+     */
+    public void setEnterMillis(long enterMillis) { this.enterMillis = enterMillis; }
+
+    /**
+     * Gets the last time inside the cell.
+     * @return epoch milliseconds
+     */
+    public long getExitMillis() { return exitMillis; }
+    /**
+     * Sets the last time inside the cell.
+     * @param exitMillis epoch milliseconds
+     */
+    public void setExitMillis(long exitMillis) { this.exitMillis = exitMillis; }
+}
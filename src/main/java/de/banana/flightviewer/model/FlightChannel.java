@@ -0,0 +1,115 @@
+package de.banana.flightviewer.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Entity holding one extra telemetry column of a flight (gimbal angle, RC stick, satellite count, ...) as a
+ * compressed channel.
+ * <p>
+ * Written only by full-telemetry imports. Each channel is one row with the {@code ChannelCodec} encoding of
+ * the column's cells in log row order, deflate-compressed, so the archive can hold every logged column
+ * while {@link Sample} rows and sample blocks keep only the six columns the map and charts read.
+ * </p>
+ */
+@Entity
+@Table(indexes = @Index(name = "ux_flight_channel_name", columnList = "flightId, name", unique = true))
+public class FlightChannel {
+
+    /**
+     * Unique identifier for the channel (primary key).
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * ID of the flight.
+     */
+    private long flightId;
+    /**
+     * Column name from the CSV header, e.g. {@code GIMBAL.pitch}.
+     */
+    @Column(nullable = false)
+    private String name;
+    /**
+     * Number of cells in the channel.
+     */
+    private int valueCount;
+    /**
+     * Size of the encoded channel before compression, in bytes.
+     */
+    private int encodedSize;
+    /**
+     * Deflate-compressed encoded cells.
+     */
+    @Lob
+    private byte[] data;
+
+    /* ---------- getters & setters ---------- */
+
+    /**
+     * Gets the unique identifier of the channel.
+     * @return the channel ID
+     */
+    public Long getId() { return id; }
+    /**
+     * Sets the unique identifier of the channel.
+     * @param id the channel ID
+     */
+    public void setId(Long id) { this.id = id; }
+
+    /**
+     * Gets the ID of the flight.
+     * @return the flight ID
+     */
+    public long getFlightId() { return flightId; }
+    /**
+     * Sets the ID of the flight.
+     * @param flightId the flight ID
+     */
+    public void setFlightId(long flightId) { this.flightId = flightId; }
+
+    /**
+     * Gets the column name.
+     * @return the name from the CSV header
+     */
+    public String getName() { return name; }
+    /**
+     * Sets the column name.
+     * @param name the name from the CSV header
+     */
+    public void setName(String name) { this.name = name; }
+
+    /**
+     * Gets the number of cells in the channel.
+     * @return the cell count
+     */
+    public int getValueCount() { return valueCount; }
+    /**
+     * Sets the number of cells in the channel.
+     * @param valueCount the cell count
+     */
+    public void setValueCount(int valueCount) { this.valueCount = valueCount; }
+
+    /**
+     * Gets the size of the encoded channel before compression.
+     * @return the size in bytes
+     */
+    public int getEncodedSize() { return encodedSize; }
+    /**
+     * Sets the size of the encoded channel before compression.
+     * @param encodedSize the size in bytes
+     */
+    public void setEncodedSize(int encodedSize) { this.encodedSize = encodedSize; }
+
+    /**
+     * Gets the compressed payload.
+     * @return the deflate-compressed encoded cells
+     */
+    public byte[] getData() { return data; }
+    /**
+     * Sets the compressed payload.
+     * @param data the deflate-compressed encoded cells
+     */
+    public void setData(byte[] data) { this.data = data; }
+}
@@ -0,0 +1,197 @@
+package de.banana.flightviewer.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Entity recording a notable moment of a flight: battery thresholds, GPS loss, satellite count drops, flight
+ * mode changes and aircraft warnings.
+ * <p>
+ * Events are detected at import time in the same pass that computes the flight's stats, so investigators can
+ * find e.g. every place a battery fell below 20% with an index lookup instead of reading every sample of the
+ * archive. Events are indexed by type and time for cross-flight queries and by flight for the events of one
+ * flight.
+ * </p>
+ */
+@Entity
+@Table(indexes = {
+        @Index(name = "ix_flight_event_type_time", columnList = "type, timestampMillis"),
+        @Index(name = "ix_flight_event_time", columnList = "timestampMillis"),
+        @Index(name = "ix_flight_event_flight", columnList = "flightId, timestampMillis")
+})
+public class FlightEvent {
+
+    /**
+     * Kinds of events.
+     */
+    public enum Type {
+        /** Battery fell below 20%; {@code reading} is the percentage. */
+        LOW_BATTERY,
+        /** Battery fell below 10%; {@code reading} is the percentage. */
+        CRITICAL_BATTERY,
+        /** Position lost after a fix; the event carries the last fixed position. */
+        GPS_LOST,
+        /** Position fixed again after {@link #GPS_LOST}. */
+        GPS_RECOVERED,
+        /** Number of GPS satellites fell below 8; {@code reading} is the count. */
+        SATELLITES_LOW,
+        /** Flight mode changed; {@code detail} is the new mode, e.g. {@code P-GPS}. */
+        MODE_CHANGE,
+        /** The aircraft logged a new warning; {@code detail} is its text. */
+        WARNING;
+
+        /**
+         * Parses a type name as used in the {@code type} request parameter.
+         *
+         * @param name the type name, case-insensitive
+         * @return the type
+         * @throws IllegalArgumentException for unknown names
+         */
+        public static Type parse(String name) {
+            for (Type t : values()) {
+                if (t.name().equalsIgnoreCase(name)) return t;
+            }
+            throw new IllegalArgumentException("Unknown event type: " + name);
+        }
+    }
+
+    /**
+     * Unique identifier for the event (primary key).
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * ID of the flight.
+     */
+    private long flightId;
+    /**
+     * Kind of the event.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20, nullable = false)
+    private Type type;
+    /**
+     * Time of the event in epoch milliseconds.
+     */
+    private long timestampMillis;
+    /**
+     * Position of the aircraft in decimal degrees; {@code null} without a GPS fix.
+     */
+    private Double latitude;
+    private Double longitude;
+    /**
+     * Altitude of the aircraft in meters.
+     */
+    private double altitude;
+    /**
+     * Numeric reading of the event (battery percentage, satellite count), if any.
+     */
+    private Double reading;
+    /**
+     * Text of the event (flight mode, warning), if any.
+     */
+    @Column(length = 255)
+    private String detail;
+
+    /* ---------- getters & setters ---------- */
+
+    /**
+     * Gets the unique identifier of the event.
+     * @return the event ID
+     */
+    public Long getId() { return id; }
+    /**
+     * Sets the unique identifier of the event.
+     * @param id the event ID
+     */
+    public void setId(Long id) { this.id = id; }
+
+    /**
+     * Gets the ID of the flight.
+     * @return the flight ID
+     */
+    public long getFlightId() { return flightId; }
+    /**
+     * Sets the ID of the flight.
+     * @param flightId the flight ID
+     */
+    public void setFlightId(long flightId) { this.flightId = flightId; }
+
+    /**
+     * Gets the kind of the event.
+     * @return the type
+     */
+    public Type getType() { return type; }
+    /**
+     * Sets the kind of the event.
+     * @param type the type
+     */
+    public void setType(Type type) { this.type = type; }
+
+    /**
+     * Gets the time of the event.
+     * @return epoch milliseconds
+     */
+    public long getTimestampMillis() { return timestampMillis; }
+    /**
+     * Sets the time of the event.
+     * @param timestampMillis epoch milliseconds
+     */
+    public void setTimestampMillis(long timestampMillis) { this.timestampMillis = timestampMillis; }
+
+    /**
+     * Gets the latitude of the aircraft.
+     * @return the latitude, or {@code null} without a fix
+     */
+    public Double getLatitude() { return latitude; }
+    /**
+     * Sets the latitude of the aircraft.
+     * @param latitude the latitude
+     */
+    public void setLatitude(Double latitude) { this.latitude = latitude; }
+
+    /**
+     * Gets the longitude of the aircraft.
+     * @return the longitude, or {@code null} without a fix
+     */
+    public Double getLongitude() { return longitude; }
+    /**
+     * Sets the longitude of the aircraft.
+     * @param longitude the longitude
+     */
+    public void setLongitude(Double longitude) { this.longitude = longitude; }
+
+    /**
+     * Gets the altitude of the aircraft.
+     * @return the altitude in meters
+     */
+    public double getAltitude() { return altitude; }
+    /**
+     * Sets the altitude of the aircraft.
+     * @param altitude the altitude in meters
+     */
+    public void setAltitude(double altitude) { this.altitude = altitude; }
+
+    /**
+     * Gets the numeric reading of the event.
+     * @return the reading, or {@code null}
+     */
+    public Double getReading() { return reading; }
+    /**
+     * Sets the numeric reading of the event.
+     * @param reading the reading
+     */
+    public void setReading(Double reading) { this.reading = reading; }
+
+    /**
+     * Gets the text of the event.
+     * @return the text, or {@code null}
+     */
+    public String getDetail() { return detail; }
+    /**
+     * Sets the text of the event.
+     * @param detail the text
+     */
+    public void setDetail(String detail) { this.detail = detail; }
+}
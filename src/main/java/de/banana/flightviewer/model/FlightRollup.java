@@ -0,0 +1,144 @@
+package de.banana.flightviewer.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Entity holding the running totals of the flights of one aircraft in one calendar month (UTC).
+ * <p>
+ * Updated in the transaction that completes a flight, so fleet statistics are read from a few rows per
+ * aircraft and month instead of being summed over every {@link Flight}. Flights without an aircraft serial
+ * are totalled under the empty serial.
+ * </p>
+ */
+@Entity
+@Table(indexes = @Index(name = "ux_flight_rollup_key", columnList = "aircraftSerial, yearMonth", unique = true))
+public class FlightRollup {
+
+    /**
+     * Unique identifier for the rollup (primary key).
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Serial number of the aircraft; empty if unknown.
+     */
+    @Column(length = 64, nullable = false)
+    private String aircraftSerial;
+    /**
+     * Month of the flights' start, e.g. {@code 2025-07}.
+     */
+    @Column(length = 7, nullable = false)
+    private String yearMonth;
+    /**
+     * Number of flights.
+     */
+    private long flightCount;
+    /**
+     * Total flight time in seconds.
+     */
+    private double flightSeconds;
+    /**
+     * Total distance in meters.
+     */
+    private double distanceMeters;
+    /**
+     * Highest altitude of any of the flights, in meters.
+     */
+    private double maxAltitudeMeters;
+    /**
+     * Total battery percentage used; 100 points make one full battery cycle.
+     */
+    private long batteryUsedPercent;
+
+    /* ---------- getters & setters ---------- */
+
+    /**
+     * Gets the unique identifier of the rollup.
+     * @return the rollup ID
+     */
+    public Long getId() { return id; }
+    /**
+     * Sets the unique identifier of the rollup.
+     * @param id the rollup ID
+     */
+    public void setId(Long id) { this.id = id; }
+
+    /**
+     * Gets the serial number of the aircraft.
+     * @return the aircraft serial; empty if unknown
+     */
+    public String getAircraftSerial() { return aircraftSerial; }
+    /**
+     * Sets the serial number of the aircraft.
+     * @param aircraftSerial the aircraft serial
+     */
+    public void setAircraftSerial(String aircraftSerial) { this.aircraftSerial = aircraftSerial; }
+
+    /**
+     * Gets the month.
+     * @return the month, e.g. {@code 2025-07}
+     */
+    public String getYearMonth() { return yearMonth; }
+    /**
+     * Sets the month.
+     * @param yearMonth the month
+     */
+    public void setYearMonth(String yearMonth) { this.yearMonth = yearMonth; }
+
+    /**
+     * Gets the number of flights.
+     * @return the flight count
+     */
+    public long getFlightCount() { return flightCount; }
+    /**
+     * Sets the number of flights.
+     * @param flightCount the flight count
+     */
+    public void setFlightCount(long flightCount) { this.flightCount = flightCount; }
+
+    /**
+     * Gets the total flight time.
+     * @return seconds
+     */
+    public double getFlightSeconds() { return flightSeconds; }
+    /**
+     * Sets the total flight time.
+     * @param flightSeconds seconds
+     */
+    public void setFlightSeconds(double flightSeconds) { this.flightSeconds = flightSeconds; }
+
+    /**
+     * Gets the total distance.
+     * @return meters
+     */
+    public double getDistanceMeters() { return distanceMeters; }
+    /**
+     * Sets the total distance.
+     * @param distanceMeters meters
+     */
+    public void setDistanceMeters(double distanceMeters) { this.distanceMeters = distanceMeters; }
+
+    /**
+     * Gets the highest altitude.
+     * @return meters
+     */
+    public double getMaxAltitudeMeters() { return maxAltitudeMeters; }
+    /**
+     * Sets the highest altitude.
+     * @param maxAltitudeMeters meters
+     */
+    public void setMaxAltitudeMeters(double maxAltitudeMeters) { this.maxAltitudeMeters = maxAltitudeMeters; }
+
+    /**
+     * Gets the total battery percentage used.
+     * @return percentage points
+     */
+    public long getBatteryUsedPercent() { return batteryUsedPercent; }
+    /**
+     * Sets the total battery percentage used.
+     * @param batteryUsedPercent percentage points
+     */
+    public void setBatteryUsedPercent(long batteryUsedPercent) { this.batteryUsedPercent = batteryUsedPercent; }
+}
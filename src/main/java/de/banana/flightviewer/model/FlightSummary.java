@@ -0,0 +1,97 @@
+package de.banana.flightviewer.model;
+
+import java.time.Instant;
+
+/**
+ * Summary columns of a {@link Flight} for listings.
+ * <p>
+ * Read-only projection; carries only what the flight list shows, so listings do not load the dedup hashes
+ * or any sample data.
+ * </p>
+ */
+public class FlightSummary {
+
+    private final long id;
+    private final Instant startTime;
+    private final Instant endTime;
+    private final double distanceMeters;
+    private final double maxAltitudeMeters;
+    private final int minBatteryPercent;
+    private final String sourceFileName;
+
+    /**
+     * Constructs a FlightSummary.
+     *
+     * @param id                the flight ID
+     * @param startTime         start of the flight
+     * @param endTime           end of the flight
+     * @param distanceMeters    distance flown in meters
+     * @param maxAltitudeMeters maximum altitude in meters
+     * @param minBatteryPercent minimum battery percentage
+     * @param sourceFileName    name of the imported file
+     */
+    public FlightSummary(long id, Instant startTime, Instant endTime, double distanceMeters,
+                         double maxAltitudeMeters, int minBatteryPercent, String sourceFileName) {
+        this.id = id;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.distanceMeters = distanceMeters;
+        this.maxAltitudeMeters = maxAltitudeMeters;
+        this.minBatteryPercent = minBatteryPercent;
+        this.sourceFileName = sourceFileName;
+    }
+
+    /**
+     * Creates the summary of a flight entity.
+     *
+     * @param flight the persisted flight
+     * @return its summary
+     */
+    public static FlightSummary of(Flight flight) {
+        return new FlightSummary(flight.getId(), flight.getStartTime(), flight.getEndTime(),
+                flight.getDistanceMeters(), flight.getMaxAltitudeMeters(), flight.getMinBatteryPercent(),
+                flight.getSourceFileName());
+    }
+
+    /**
+     * Gets the flight ID.
+     * @return the flight ID
+     */
+    public long getId() { return id; }
+
+    /**
+     * Gets the timestamp when the flight started.
+     * @return the start time
+     */
+    public Instant getStartTime() { return startTime; }
+
+    /**
+     * Gets the timestamp when the flight ended.
+     * @return the end time
+     */
+    public Instant getEndTime() { return endTime; }
+
+    /**
+     * Gets the total distance flown in meters.
+     * @return the distance in meters
+     */
+    public double getDistanceMeters() { return distanceMeters; }
+
+    /**
+     * Gets the maximum altitude reached during the flight, in meters.
+     * @return the maximum altitude in meters
+     */
+    public double getMaxAltitudeMeters() { return maxAltitudeMeters; }
+
+    /**
+     * Gets the minimum battery percentage recorded during the flight.
+     * @return the minimum battery percentage
+     */
+    public int getMinBatteryPercent() { return minBatteryPercent; }
+
+    /**
+     * Gets the name of the source file from which this flight was imported.
+     * @return the source file name
+     */
+    public String getSourceFileName() { return sourceFileName; }
+}
@@ -7,9 +7,12 @@ import java.time.Instant;
  * Entity representing a single data sample (telemetry point) from a drone flight.
  * <p>
  * Each sample is associated with a flight and contains timestamp, position, altitude, speed, and battery data.
+ * Samples are indexed by {@code (flight_id, timestamp)}, so reading a flight in time order, or a time range of
+ * it, is an index range scan instead of a sort.
  * </p>
  */
 @Entity
+@Table(indexes = @Index(name = "ix_sample_flight_time", columnList = "flight_id, timestamp"))
 public class Sample {
 
     /**
@@ -0,0 +1,80 @@
+package de.banana.flightviewer.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Entity holding all samples of one flight as a single compressed columnar block.
+ * <p>
+ * Used by the columnar sample store instead of one {@link Sample} row per telemetry point. The payload is
+ * the {@code SampleCodec} encoding, deflate-compressed; it is written once and read in one sequential read.
+ * </p>
+ */
+@Entity
+public class SampleBlock {
+
+    /**
+     * ID of the flight the samples belong to (primary key).
+     */
+    @Id
+    private Long flightId;
+
+    /**
+     * Number of samples in the block.
+     */
+    private int sampleCount;
+    /**
+     * Size of the encoded block before compression, in bytes.
+     */
+    private int encodedSize;
+    /**
+     * Deflate-compressed encoded samples.
+     */
+    @Lob
+    private byte[] data;
+
+    /* ---------- getters & setters ---------- */
+
+    /**
+     * Gets the ID of the flight the samples belong to.
+     * @return the flight ID
+     */
+    public Long getFlightId() { return flightId; }
+    /**
+     * Sets the ID of the flight the samples belong to.
+     * @param flightId the flight ID
+     */
+    public void setFlightId(Long flightId) { this.flightId = flightId; }
+
+    /**
+     * Gets the number of samples in the block.
+     * @return the sample count
+     */
+    public int getSampleCount() { return sampleCount; }
+    /**
+     * Sets the number of samples in the block.
+     * @param sampleCount the sample count
+     */
+    public void setSampleCount(int sampleCount) { this.sampleCount = sampleCount; }
+
+    /**
+     * Gets the size of the encoded block before compression.
+     * @return the size in bytes
+     */
+    public int getEncodedSize() { return encodedSize; }
+    /**
+     * Sets the size of the encoded block before compression.
+     * @param encodedSize the size in bytes
+     */
+    public void setEncodedSize(int encodedSize) { this.encodedSize = encodedSize; }
+
+    /**
+     * Gets the compressed payload.
+     * @return the deflate-compressed encoded samples
+     */
+    public byte[] getData() { return data; }
+    /**
+     * Sets the compressed payload.
+     * @param data the deflate-compressed encoded samples
+     */
+    public void setData(byte[] data) { this.data = data; }
+}
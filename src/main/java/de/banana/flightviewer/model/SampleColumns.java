@@ -0,0 +1,144 @@
+package de.banana.flightviewer.model;
+
+import java.util.Arrays;
+
+/**
+ * Column-oriented, read-mostly view of the samples of one flight.
+ * <p>
+ * Holds one primitive array per telemetry value instead of one object per point, which keeps whole flights
+ * compact in memory (about 44 bytes per sample) for bulk computations such as track simplification.
+ * Values use the same units as {@link Sample}; timestamps are epoch milliseconds.
+ * </p>
+ */
+public final class SampleColumns {
+
+    private long[] timestamps;
+    private double[] latitudes;
+    private double[] longitudes;
+    private double[] altitudes;
+    private double[] speeds;
+    private int[] batteries;
+    private int size;
+
+    /**
+     * Creates an empty instance.
+     *
+     * @param capacity initial number of samples to reserve room for
+     */
+    public SampleColumns(int capacity) {
+        int c = Math.max(capacity, 16);
+        timestamps = new long[c];
+        latitudes = new double[c];
+        longitudes = new double[c];
+        altitudes = new double[c];
+        speeds = new double[c];
+        batteries = new int[c];
+    }
+
+    /**
+     * Appends one sample, growing the arrays as needed.
+     *
+     * @param timestamp epoch milliseconds
+     * @param latitude  latitude in decimal degrees
+     * @param longitude longitude in decimal degrees
+     * @param altitude  altitude in meters
+     * @param speed     horizontal speed in m/s
+     * @param battery   battery percentage
+     */
+    public void add(long timestamp, double latitude, double longitude, double altitude, double speed, int battery) {
+        if (size == timestamps.length) {
+            int c = size + (size >> 1);
+            timestamps = Arrays.copyOf(timestamps, c);
+            latitudes = Arrays.copyOf(latitudes, c);
+            longitudes = Arrays.copyOf(longitudes, c);
+            altitudes = Arrays.copyOf(altitudes, c);
+            speeds = Arrays.copyOf(speeds, c);
+            batteries = Arrays.copyOf(batteries, c);
+        }
+        timestamps[size] = timestamp;
+        latitudes[size] = latitude;
+        longitudes[size] = longitude;
+        altitudes[size] = altitude;
+        speeds[size] = speed;
+        batteries[size] = battery;
+        size++;
+    }
+
+    /**
+     * Copies the samples at the given positions into a new instance.
+     *
+     * @param indices ascending sample positions
+     * @return the selected samples
+     */
+    public SampleColumns select(int[] indices) {
+        SampleColumns out = new SampleColumns(indices.length);
+        for (int i : indices) {
+            out.add(timestamps[i], latitudes[i], longitudes[i], altitudes[i], speeds[i], batteries[i]);
+        }
+        return out;
+    }
+
+    /**
+     * Gets the number of samples.
+     * @return the sample count
+     */
+    public int size() { return size; }
+
+    /**
+     * Gets the timestamp of a sample.
+     * @param i sample position
+     * @return epoch milliseconds
+     */
+    public long timestamp(int i) { return timestamps[i]; }
+    /**
+     * Gets the latitude of a sample.
+     * @param i sample position
+     * @return latitude in decimal degrees
+     */
+    public double latitude(int i) { return latitudes[i]; }
+    /**
+     * Gets the longitude of a sample.
+     * @param i sample position
+     * @return longitude in decimal degrees
+     */
+    public double longitude(int i) { return longitudes[i]; }
+    /**
+     * Gets the altitude of a sample.
+     * @param i sample position
+     * @return altitude in meters
+     */
+    public double altitude(int i) { return altitudes[i]; }
+    /**
+     * Gets the speed of a sample.
+     * @param i sample position
+     * @return horizontal speed in m/s
+     */
+    public double speed(int i) { return speeds[i]; }
+    /**
+     * Gets the battery percentage of a sample.
+     * @param i sample position
+     * @return battery percentage
+     */
+    public int battery(int i) { return batteries[i]; }
+
+    /**
+     * Gets the backing latitude array; only the first {@link #size()} entries are valid. Do not modify.
+     * @return latitudes in decimal degrees
+     */
+    public double[] latitudes() { return latitudes; }
+    /**
+     * Gets the backing longitude array; only the first {@link #size()} entries are valid. Do not modify.
+     * @return longitudes in decimal degrees
+     */
+    public double[] longitudes() { return longitudes; }
+    /**
+     * Gets the backing altitude array; only the first {@link #size()} entries are valid. Do not modify.
+     * @return altitudes in meters
+     */
+    public double[] altitudes() { return altitudes; }
+    /**
+     * Gets the backing timestamp array; only the first {@link #size()} entries are valid. Do not modify.
+     * @return epoch milliseconds
+     */
+    public long[] timestamps() { return timestamps; }
+}
@@ -0,0 +1,164 @@
+package de.banana.flightviewer.repository;
+
+import de.banana.flightviewer.codec.SampleCodec;
+import de.banana.flightviewer.model.SampleBlock;
+import de.banana.flightviewer.model.SampleColumns;
+import org.springframework.stereotype.Repository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * {@link SampleStore} backend that keeps each flight's samples as one compressed {@link SampleBlock}.
+ * <p>
+ * Samples are encoded column by column with {@link SampleCodec} while they are appended and deflated once on
+ * close. Compared to one row per sample this needs no surrogate key, foreign key or index entry per point,
+ * and a full-flight read is a single primary-key lookup followed by a sequential decode. Positions are
+ * stored with 1e-7 degree and altitude/speed with centimeter resolution.
+ * </p>
+ */
+@Repository
+public class ColumnarSampleStore implements SampleStore {
+
+    private final SampleBlockRepository blocks;
+
+    /**
+     * Constructs a ColumnarSampleStore.
+     *
+     * @param blocks the repository for sample blocks
+     */
+    public ColumnarSampleStore(SampleBlockRepository blocks) {
+        this.blocks = blocks;
+    }
+
+    /**
+     * Streams a flight's samples if they are stored in this backend.
+     *
+     * @param flightId the ID of the flight
+     * @param handler  receives each sample
+     * @return {@code false} if there is no block for the flight
+     * @throws IOException if the handler fails
+     */
+    public boolean tryStream(long flightId, SampleRowHandler handler) throws IOException {
+        byte[] encoded = read(flightId);
+        if (encoded == null) return false;
+        SampleCodec.decode(encoded, handler);
+        return true;
+    }
+
+    /**
+     * Loads a flight's samples if they are stored in this backend.
+     *
+     * @param flightId the ID of the flight
+     * @return the samples, or {@code null} if there is no block for the flight
+     */
+    public SampleColumns tryLoad(long flightId) {
+        byte[] encoded = read(flightId);
+        return encoded == null ? null : SampleCodec.decode(encoded);
+    }
+
+    @Override
+    public SampleWriter openWriter(long flightId) {
+        return new BlockWriter(flightId);
+    }
+
+    @Override
+    public void stream(long flightId, SampleRowHandler handler) throws IOException {
+        tryStream(flightId, handler);
+    }
+
+    @Override
+    public SampleColumns load(long flightId) {
+        SampleColumns samples = tryLoad(flightId);
+        return samples == null ? new SampleColumns(0) : samples;
+    }
+
+    /**
+     * Stores a complete set of samples for a flight in one step.
+     *
+     * @param flightId the ID of the flight
+     * @param samples  the samples in time order
+     * @return the stored block
+     */
+    public SampleBlock write(long flightId, SampleColumns samples) {
+        return save(flightId, SampleCodec.encode(samples), samples.size());
+    }
+
+    private byte[] read(long flightId) {
+        SampleBlock block = blocks.findById(flightId).orElse(null);
+        if (block == null) return null;
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(block.getData());
+            byte[] out = new byte[block.getEncodedSize()];
+            int n = 0;
+            while (n < out.length && !inflater.finished()) {
+                int read = inflater.inflate(out, n, out.length - n);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                n += read;
+            }
+            if (n < out.length) throw new IllegalStateException("Truncated sample block for flight " + flightId);
+            return out;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt sample block for flight " + flightId, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private SampleBlock save(long flightId, byte[] encoded, int count) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(encoded.length / 2 + 64);
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(compressed, deflater)) {
+            out.write(encoded);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // in-memory target does not throw
+        } finally {
+            deflater.end();
+        }
+        SampleBlock block = new SampleBlock();
+        block.setFlightId(flightId);
+        block.setSampleCount(count);
+        block.setEncodedSize(encoded.length);
+        block.setData(compressed.toByteArray());
+        return blocks.save(block);
+    }
+
+    /**
+     * Encodes samples as they are appended; the block is compressed and saved on close.
+     */
+    private final class BlockWriter implements SampleWriter {
+
+        private final long flightId;
+        private final SampleCodec.Encoder encoder = new SampleCodec.Encoder();
+        private int count;
+        private long written;
+
+        BlockWriter(long flightId) {
+            this.flightId = flightId;
+        }
+
+        @Override
+        public void append(long timestampMillis, double latitude, double longitude,
+                           double altitude, double speed, int battery) {
+            encoder.add(timestampMillis, latitude, longitude, altitude, speed, battery);
+            count++;
+        }
+
+        @Override
+        public long getWritten() {
+            return written;
+        }
+
+        @Override
+        public void close() {
+            save(flightId, encoder.toByteArray(), count);
+            written = count;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package de.banana.flightviewer.repository;
+
+import de.banana.flightviewer.model.FlightCell;
+import de.banana.flightviewer.util.GeoMath;
+import de.banana.flightviewer.util.Geohash;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plain JDBC access to the {@link FlightCell} visits of the spatial flight index.
+ * <p>
+ * Tracks are indexed at geohash precision {@value #PRECISION} (cells of roughly 150 x 150 m). A
+ * {@link CellWriter} turns a flight's samples into one visit per contiguous stay in a cell; when consecutive
+ * samples are further apart than half a cell, the segment between them is walked so that no crossed cell is
+ * skipped. Re-entering a cell within {@value #MERGE_GAP_MILLIS} ms extends the previous visit, so hovering on a
+ * cell boundary does not produce a row per sample.
+ * </p>
+ */
+@Repository
+public class FlightCellRepository {
+
+    /**
+     * Geohash precision of the indexed cells.
+     */
+    public static final int PRECISION = 7;
+    /**
+     * Gap below which a re-entry into a cell extends the previous visit.
+     */
+    public static final long MERGE_GAP_MILLIS = 30_000;
+
+    private static final String INSERT_SQL =
+            "insert into flight_cell (flight_id, cell, enter_millis, exit_millis) values (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbc;
+
+    /**
+     * Constructs a FlightCellRepository.
+     *
+     * @param jdbc the JDBC template
+     */
+    public FlightCellRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * One stored visit.
+     *
+     * @param flightId    the flight
+     * @param cell        the geohash of the cell
+     * @param enterMillis first time inside the cell
+     * @param exitMillis  last time inside the cell
+     */
+    public record Visit(long flightId, String cell, long enterMillis, long exitMillis) { }
+
+    /**
+     * Finds all visits to cells within a coarser cell, by an index range scan.
+     *
+     * @param prefix geohash of at most {@value #PRECISION} characters
+     * @return the visits
+     */
+    public List<Visit> findWithin(String prefix) {
+        return jdbc.query("select flight_id, cell, enter_millis, exit_millis from flight_cell where cell >= ? and cell < ?",
+                (rs, row) -> new Visit(rs.getLong(1), rs.getString(2), rs.getLong(3), rs.getLong(4)),
+                prefix, prefix + "~");
+    }
+
+    /**
+     * Removes the visits of a flight.
+     *
+     * @param flightId the flight
+     */
+    public void deleteByFlight(long flightId) {
+        jdbc.update("delete from flight_cell where flight_id = ?", flightId);
+    }
+
+    /**
+     * Opens a writer indexing the samples of one flight.
+     *
+     * @param flightId the ID of the (already persisted) flight
+     * @return a new writer; the visits are inserted on {@link CellWriter#close()}
+     */
+    public CellWriter openWriter(long flightId) {
+        return new CellWriter(flightId);
+    }
+
+    /**
+     * Collects the cell visits and the bounding box of a track. Samples without a GPS fix are skipped.
+     * Not thread-safe.
+     */
+    public final class CellWriter implements SampleWriter {
+
+        private final long flightId;
+        private final double cellHeight = Geohash.cellHeight(PRECISION);
+        private final double cellWidth = Geohash.cellWidth(PRECISION);
+        private final List<String> cells = new ArrayList<>();
+        /**
+         * {enter, exit} per entry of {@link #cells}.
+         */
+        private final List<long[]> times = new ArrayList<>();
+        /**
+         * Latest visit per cell, for merging re-entries.
+         */
+        private final Map<String, long[]> latest = new HashMap<>();
+        private String current;
+        private long[] currentTimes;
+        private boolean hasFix;
+        private long prevTs;
+        private double prevLat, prevLon;
+        private double minLat = Double.POSITIVE_INFINITY, minLon = Double.POSITIVE_INFINITY;
+        private double maxLat = Double.NEGATIVE_INFINITY, maxLon = Double.NEGATIVE_INFINITY;
+        private long appended;
+        private long written;
+
+        private CellWriter(long flightId) {
+            this.flightId = flightId;
+        }
+
+        @Override
+        public void append(long timestampMillis, double latitude, double longitude,
+                           double altitude, double speed, int battery) {
+            appended++;
+            if (!GeoMath.hasFix(latitude, longitude)) return;
+            minLat = Math.min(minLat, latitude);
+            minLon = Math.min(minLon, longitude);
+            maxLat = Math.max(maxLat, latitude);
+            maxLon = Math.max(maxLon, longitude);
+            if (hasFix) {
+                // walk long segments in half-cell steps so that every crossed cell is visited
+                int steps = (int) Math.ceil(2 * Math.max(Math.abs(latitude - prevLat) / cellHeight,
+                        Math.abs(longitude - prevLon) / cellWidth));
+                for (int k = 1; k < steps; k++) {
+                    double f = (double) k / steps;
+                    visit(prevLat + f * (latitude - prevLat), prevLon + f * (longitude - prevLon),
+                            prevTs + Math.round(f * (timestampMillis - prevTs)));
+                }
+            }
+            visit(latitude, longitude, timestampMillis);
+            hasFix = true;
+            prevTs = timestampMillis;
+            prevLat = latitude;
+            prevLon = longitude;
+        }
+
+        /**
+         * Gets the bounding box of the samples with a GPS fix.
+         *
+         * @return {@code {minLat, minLon, maxLat, maxLon}}, or {@code null} if no sample had a fix
+         */
+        public double[] getBounds() {
+            return hasFix ? new double[]{minLat, minLon, maxLat, maxLon} : null;
+        }
+
+        @Override
+        public long getWritten() {
+            return written;
+        }
+
+        /**
+         * Inserts the collected visits in one JDBC batch.
+         */
+        @Override
+        public void close() {
+            List<Object[]> rows = new ArrayList<>(cells.size());
+            for (int i = 0; i < cells.size(); i++) {
+                rows.add(new Object[]{flightId, cells.get(i), times.get(i)[0], times.get(i)[1]});
+            }
+            if (!rows.isEmpty()) jdbc.batchUpdate(INSERT_SQL, rows);
+            written = appended;
+        }
+
+        private void visit(double latitude, double longitude, long ts) {
+            String cell = Geohash.encode(latitude, longitude, PRECISION);
+            if (cell.equals(current)) {
+                currentTimes[1] = ts;
+                return;
+            }
+            long[] last = latest.get(cell);
+            if (last != null && ts - last[1] <= MERGE_GAP_MILLIS) {
+                last[1] = ts;
+            } else {
+                last = new long[]{ts, ts};
+                cells.add(cell);
+                times.add(last);
+                latest.put(cell, last);
+            }
+            current = cell;
+            currentTimes = last;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package de.banana.flightviewer.repository;
+
+import de.banana.flightviewer.codec.ChannelCodec;
+import de.banana.flightviewer.model.FlightChannel;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Plain JDBC access to the {@link FlightChannel} telemetry channels.
+ * <p>
+ * Channels are only ever read one at a time and on request; listing them reads the names and sizes but
+ * not the payloads.
+ * </p>
+ */
+@Repository
+public class FlightChannelRepository {
+
+    private static final String INSERT_SQL =
+            "insert into flight_channel (flight_id, name, value_count, encoded_size, data) values (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbc;
+
+    /**
+     * Constructs a FlightChannelRepository.
+     *
+     * @param jdbc the JDBC template
+     */
+    public FlightChannelRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Summary of a stored channel.
+     *
+     * @param name        the column name
+     * @param valueCount  number of cells
+     * @param storedBytes compressed size
+     */
+    public record Info(String name, int valueCount, int storedBytes) { }
+
+    /**
+     * Lists the channels of a flight.
+     *
+     * @param flightId the flight
+     * @return the channels ordered by name; empty if the flight was not imported with full telemetry
+     */
+    public List<Info> list(long flightId) {
+        return jdbc.query("select name, value_count, length(data) from flight_channel where flight_id = ? order by name",
+                (rs, row) -> new Info(rs.getString(1), rs.getInt(2), rs.getInt(3)), flightId);
+    }
+
+    /**
+     * Loads one channel.
+     *
+     * @param flightId the flight
+     * @param name     the column name
+     * @return the encoded channel ({@link ChannelCodec}), or {@code null} if there is no such channel
+     */
+    public byte[] load(long flightId, String name) {
+        List<byte[]> found = jdbc.query("select encoded_size, data from flight_channel where flight_id = ? and name = ?",
+                (rs, row) -> inflate(rs.getBytes(2), rs.getInt(1)), flightId, name);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    /**
+     * Stores one channel of a flight, compressing it while it is read, so that neither the encoded nor the
+     * compressed channel is held in memory.
+     *
+     * @param flightId    the flight
+     * @param name        the column name
+     * @param valueCount  number of cells
+     * @param encodedSize length of {@code encoded}
+     * @param encoded     the {@link ChannelCodec} encoding of the cells; not closed by this method
+     */
+    public void save(long flightId, String name, int valueCount, int encodedSize, InputStream encoded) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            InputStream compressed = new DeflaterInputStream(encoded, deflater, 64 * 1024);
+            jdbc.update(INSERT_SQL, ps -> {
+                ps.setLong(1, flightId);
+                ps.setString(2, name);
+                ps.setInt(3, valueCount);
+                ps.setInt(4, encodedSize);
+                ps.setBinaryStream(5, compressed);
+            });
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /* ---------- Helpers ---------- */
+
+    static byte[] inflate(byte[] compressed, int encodedSize) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] out = new byte[encodedSize];
+            int n = 0;
+            while (n < out.length && !inflater.finished()) {
+                int read = inflater.inflate(out, n, out.length - n);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                n += read;
+            }
+            if (n < out.length) throw new IllegalStateException("Truncated telemetry channel");
+            return out;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt telemetry channel", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package de.banana.flightviewer.repository;
+
+import de.banana.flightviewer.model.FlightEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Plain JDBC access to the {@link FlightEvent} index.
+ * <p>
+ * Queries filter by type, flight and time range and are answered from the indexes on {@code (type, time)},
+ * {@code (flight, time)} and {@code time}; results are ordered by time.
+ * </p>
+ */
+@Repository
+public class FlightEventRepository {
+
+    /**
+     * Maximum number of events returned by one query.
+     */
+    public static final int MAX_LIMIT = 1000;
+
+    private static final String INSERT_SQL = "insert into flight_event (flight_id, type, timestamp_millis, latitude,"
+            + " longitude, altitude, reading, detail) values (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_SQL = "select id, flight_id, type, timestamp_millis, latitude, longitude,"
+            + " altitude, reading, detail from flight_event";
+
+    private final JdbcTemplate jdbc;
+
+    /**
+     * Constructs a FlightEventRepository.
+     *
+     * @param jdbc the JDBC template
+     */
+    public FlightEventRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * One event.
+     *
+     * @param id        the event ID; {@code null} before it is stored
+     * @param flightId  the flight
+     * @param type      the kind of event
+     * @param timestamp time in epoch milliseconds
+     * @param latitude  latitude of the aircraft, or {@code null} without a GPS fix
+     * @param longitude longitude of the aircraft, or {@code null} without a GPS fix
+     * @param altitude  altitude of the aircraft in meters
+     * @param reading   battery percentage or satellite count, if any
+     * @param detail    flight mode or warning text, if any
+     */
+    public record Event(Long id, long flightId, FlightEvent.Type type, long timestamp, Double latitude,
+                       Double longitude, double altitude, Double reading, String detail) { }
+
+    /**
+     * Finds events, ordered by time.
+     *
+     * @param types    the kinds of events; all kinds if empty
+     * @param flightId the flight, or {@code null} for all flights
+     * @param since    earliest time (inclusive) in epoch milliseconds, or {@code null}
+     * @param until    latest time (exclusive) in epoch milliseconds, or {@code null}
+     * @param limit    maximum number of events, capped at {@value #MAX_LIMIT}
+     * @return the events
+     */
+    public List<Event> find(Collection<FlightEvent.Type> types, Long flightId, Long since, Long until, int limit) {
+        StringBuilder sql = new StringBuilder(SELECT_SQL).append(" where 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (!types.isEmpty()) {
+            sql.append(" and type in (").append("?, ".repeat(types.size() - 1)).append("?)");
+            for (FlightEvent.Type t : types) args.add(t.name());
+        }
+        if (flightId != null) {
+            sql.append(" and flight_id = ?");
+            args.add(flightId);
+        }
+        if (since != null) {
+            sql.append(" and timestamp_millis >= ?");
+            args.add(since);
+        }
+        if (until != null) {
+            sql.append(" and timestamp_millis < ?");
+            args.add(until);
+        }
+        sql.append(" order by timestamp_millis, id limit ?");
+        args.add(Math.max(1, Math.min(limit, MAX_LIMIT)));
+        return jdbc.query(sql.toString(), (rs, row) -> new Event(rs.getLong(1), rs.getLong(2),
+                FlightEvent.Type.valueOf(rs.getString(3)), rs.getLong(4), rs.getObject(5, Double.class),
+                rs.getObject(6, Double.class), rs.getDouble(7), rs.getObject(8, Double.class), rs.getString(9)),
+                args.toArray());
+    }
+
+    /**
+     * Stores events in one JDBC batch.
+     *
+     * @param events the events
+     */
+    public void saveAll(List<Event> events) {
+        List<Object[]> rows = new ArrayList<>(events.size());
+        for (Event e : events) {
+            rows.add(new Object[]{e.flightId(), e.type().name(), e.timestamp(), e.latitude(), e.longitude(),
+                    e.altitude(), e.reading(), e.detail()});
+        }
+        if (!rows.isEmpty()) jdbc.batchUpdate(INSERT_SQL, rows);
+    }
+
+    /**
+     * Removes the events of a flight.
+     *
+     * @param flightId the flight
+     */
+    public void deleteByFlight(long flightId) {
+        jdbc.update("delete from flight_event where flight_id = ?", flightId);
+    }
+}
@@ -0,0 +1,221 @@
+package de.banana.flightviewer.repository;
+
+import de.banana.flightviewer.model.FlightSummary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Keyset-paginated listing of flight summaries.
+ * <p>
+ * Pages are addressed by a cursor holding the sort value and ID of the last row of the previous page,
+ * so a page is an index range scan ({@code sortColumn, id}) of at most {@code limit + 1} rows, no matter
+ * how deep into the listing it is. Only the summary columns are selected.
+ * </p>
+ */
+@Repository
+public class FlightListRepository {
+
+    /**
+     * Largest page size handed out.
+     */
+    public static final int MAX_LIMIT = 500;
+
+    /**
+     * Sort orders of the listing; each is backed by an index on {@code (column, id)}.
+     */
+    public enum Sort {
+        START("start_time"),
+        DISTANCE("distance_meters"),
+        ALTITUDE("max_altitude_meters"),
+        BATTERY("min_battery_percent");
+
+        private final String column;
+
+        Sort(String column) {
+            this.column = column;
+        }
+
+        /**
+         * Parses a sort name case-insensitively.
+         *
+         * @param name the name, e.g. {@code "distance"}
+         * @return the sort
+         * @throws IllegalArgumentException if the name is unknown
+         */
+        public static Sort parse(String name) {
+            for (Sort s : values()) {
+                if (s.name().equalsIgnoreCase(name)) return s;
+            }
+            throw new IllegalArgumentException("Unknown sort: " + name);
+        }
+    }
+
+    /**
+     * One page of the listing.
+     *
+     * @param items the flights on this page
+     * @param next  cursor of the following page, or {@code null} on the last page
+     */
+    public record Page(List<FlightSummary> items, String next) { }
+
+    /**
+     * Decoded position of a page: the sort value and ID of the last row of the previous page.
+     * <p>
+     * Cursors are decoded by the caller, outside the repository proxy, so that a malformed one surfaces as a
+     * plain {@link IllegalArgumentException} rather than a data access exception.
+     * </p>
+     *
+     * @param sort  the sort the cursor belongs to
+     * @param value the sort value of the last row
+     * @param id    the ID of the last row
+     */
+    public record Cursor(Sort sort, Object value, long id) {
+
+        /**
+         * Decodes a cursor handed out as {@link Page#next()}.
+         *
+         * @param sort   the sort of the requested page
+         * @param cursor the encoded cursor, or {@code null} for the first page
+         * @return the cursor, or {@code null} for the first page
+         * @throws IllegalArgumentException if the cursor is malformed or belongs to another sort
+         */
+        public static Cursor parse(Sort sort, String cursor) {
+            return cursor != null ? decode(sort, cursor) : null;
+        }
+    }
+
+    private static final String COLUMNS =
+            "id, start_time, end_time, distance_meters, max_altitude_meters, min_battery_percent, source_file_name";
+
+    private final JdbcTemplate jdbc;
+
+    /**
+     * Constructs a FlightListRepository.
+     *
+     * @param jdbc the JDBC template
+     */
+    public FlightListRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Reads one page of flights.
+     *
+     * @param sort      the sort column; ties are broken by ID in the same direction
+     * @param ascending sort direction
+     * @param from      only flights starting at or after this instant, or {@code null}
+     * @param to        only flights starting before this instant, or {@code null}
+     * @param after     position after the previous page with the same sort (see {@link Cursor#parse}), or
+     *                  {@code null} for the first page
+     * @param limit     page size, capped at {@value #MAX_LIMIT}
+     * @return the page
+     */
+    public Page page(Sort sort, boolean ascending, Instant from, Instant to, Cursor after, int limit) {
+        if (after != null && after.sort() != sort) {
+            throw new IllegalStateException("Cursor of sort " + after.sort() + " used with sort " + sort);
+        }
+        int n = Math.max(1, Math.min(limit, MAX_LIMIT));
+        String col = sort.column;
+        StringBuilder sql = new StringBuilder("select ").append(COLUMNS).append(" from flight where 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (from != null) {
+            sql.append(" and start_time >= ?");
+            args.add(timestamp(from));
+        }
+        if (to != null) {
+            sql.append(" and start_time < ?");
+            args.add(timestamp(to));
+        }
+        if (after != null) {
+            // equivalent to (col, id) > (?, ?) but lets the index range-scan on col
+            String cmp = ascending ? ">" : "<";
+            sql.append(" and ").append(col).append(cmp).append("= ?")
+                    .append(" and (").append(col).append(' ').append(cmp).append(" ? or id ").append(cmp).append(" ?)");
+            args.add(after.value());
+            args.add(after.value());
+            args.add(after.id());
+        }
+        String dir = ascending ? " asc" : " desc";
+        sql.append(" order by ").append(col).append(dir).append(", id").append(dir).append(" limit ?");
+        args.add(n + 1);
+
+        List<FlightSummary> rows = jdbc.query(sql.toString(), FlightListRepository::summary, args.toArray());
+        String next = null;
+        if (rows.size() > n) {
+            rows = rows.subList(0, n);
+            next = encode(sort, rows.get(n - 1));
+        }
+        return new Page(List.copyOf(rows), next);
+    }
+
+    /* ---------- Helpers ---------- */
+
+    private static FlightSummary summary(ResultSet rs, int row) throws SQLException {
+        return new FlightSummary(
+                rs.getLong(1),
+                instant(rs.getObject(2, OffsetDateTime.class)),
+                instant(rs.getObject(3, OffsetDateTime.class)),
+                rs.getDouble(4),
+                rs.getDouble(5),
+                rs.getInt(6),
+                rs.getString(7));
+    }
+
+    private static Instant instant(OffsetDateTime t) {
+        return t != null ? t.toInstant() : null;
+    }
+
+    private static OffsetDateTime timestamp(Instant t) {
+        return OffsetDateTime.ofInstant(t, ZoneOffset.UTC);
+    }
+
+    /**
+     * Cursor: {@code sort|value|id}, base64url-encoded.
+     */
+    private static String encode(Sort sort, FlightSummary last) {
+        Object value = switch (sort) {
+            case START -> last.getStartTime();
+            case DISTANCE -> last.getDistanceMeters();
+            case ALTITUDE -> last.getMaxAltitudeMeters();
+            case BATTERY -> last.getMinBatteryPercent();
+        };
+        String raw = sort.name() + "|" + value + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Cursor decode(Sort sort, String cursor) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        if (!parts[0].equals(sort.name())) {
+            throw new IllegalArgumentException("Cursor does not belong to sort " + sort.name().toLowerCase(Locale.ROOT));
+        }
+        try {
+            Object value = switch (sort) {
+                case START -> timestamp(Instant.parse(parts[1]));
+                case DISTANCE, ALTITUDE -> Double.parseDouble(parts[1]);
+                case BATTERY -> Integer.parseInt(parts[1]);
+            };
+            return new Cursor(sort, value, Long.parseLong(parts[2]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+}
@@ -2,6 +2,10 @@ package de.banana.flightviewer.repository;
 
 import de.banana.flightviewer.model.Flight;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository interface for accessing and managing Flight entities.
@@ -9,5 +13,53 @@ import org.springframework.data.jpa.repository.JpaRepository;
  * Extends JpaRepository to provide CRUD operations and query methods for Flight.
  * </p>
  */
-public interface FlightRepository extends JpaRepository<Flight, Long> {}
+public interface FlightRepository extends JpaRepository<Flight, Long> {
+
+    /**
+     * Finds the flight imported from a file with the given content.
+     *
+     * @param contentHash SHA-256 of the file content (hex)
+     * @return the flight, if any
+     */
+    Optional<Flight> findByContentHash(String contentHash);
+
+    /**
+     * Finds the flight with the given canonical fingerprint.
+     *
+     * @param fingerprint the fingerprint (hex)
+     * @return the flight, if any
+     */
+    Optional<Flight> findByFingerprint(String fingerprint);
+
+    /**
+     * Finds the flights without a bounding box, i.e. not (yet) spatially indexed or without any GPS fix.
+     *
+     * @return the flight IDs
+     */
+    @Query("select f.id from Flight f where f.minLatitude is null order by f.id")
+    List<Long> findIdsWithoutBounds();
+
+    /**
+     * Finds the flights whose events have not been detected yet, i.e. imported before the event index existed.
+     *
+     * @return the flight IDs
+     */
+    @Query("select f.id from Flight f where f.eventCount is null order by f.id")
+    List<Long> findIdsWithoutEvents();
+
+    /**
+     * Gets the highest flight ID.
+     *
+     * @return the ID, or {@code null} if there are no flights
+     */
+    @Query("select max(f.id) from Flight f")
+    Long findMaxId();
 
+    /**
+     * Lists the IDs of all flights.
+     *
+     * @return the flight IDs in ascending order
+     */
+    @Query("select f.id from Flight f order by f.id")
+    List<Long> findAllIds();
+}
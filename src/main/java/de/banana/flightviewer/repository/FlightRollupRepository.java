@@ -0,0 +1,204 @@
+package de.banana.flightviewer.repository;
+
+import de.banana.flightviewer.model.Flight;
+import de.banana.flightviewer.model.FlightRollup;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+/**
+ * Plain JDBC access to the {@link FlightRollup} totals per aircraft and month.
+ * <p>
+ * A flight is added with one {@code update}, or one {@code insert} for the first flight of an aircraft in a
+ * month, inside the caller's transaction. Queries group the rollup rows, of which there are only a few per
+ * aircraft and month, so their cost does not depend on the number of flights.
+ * </p>
+ */
+@Repository
+public class FlightRollupRepository {
+
+    private static final String UPDATE_SQL = "update flight_rollup set flight_count = flight_count + ?,"
+            + " flight_seconds = flight_seconds + ?, distance_meters = distance_meters + ?,"
+            + " max_altitude_meters = greatest(max_altitude_meters, ?),"
+            + " battery_used_percent = battery_used_percent + ? where aircraft_serial = ? and year_month = ?";
+    private static final String INSERT_SQL = "insert into flight_rollup (flight_count, flight_seconds, distance_meters,"
+            + " max_altitude_meters, battery_used_percent, aircraft_serial, year_month) values (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbc;
+
+    /**
+     * Constructs a FlightRollupRepository.
+     *
+     * @param jdbc the JDBC template
+     */
+    public FlightRollupRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Totals of a group of flights.
+     *
+     * @param aircraftSerial     the aircraft; empty if unknown, {@code null} if not grouped by aircraft
+     * @param yearMonth          the month, e.g. {@code 2025-07}; {@code null} if not grouped by month
+     * @param flights            number of flights
+     * @param flightSeconds      total flight time in seconds
+     * @param distanceMeters     total distance in meters
+     * @param maxAltitudeMeters  highest altitude
+     * @param batteryUsedPercent total battery percentage used
+     */
+    public record Totals(String aircraftSerial, String yearMonth, long flights, double flightSeconds,
+                         double distanceMeters, double maxAltitudeMeters, long batteryUsedPercent) {
+
+        /**
+         * Gets the totals of a single flight, keyed by its aircraft and the UTC month of its start.
+         *
+         * @param flight the flight
+         * @return the totals
+         */
+        public static Totals of(Flight flight) {
+            Instant start = flight.getStartTime(), end = flight.getEndTime();
+            double seconds = start != null && end != null ? (end.toEpochMilli() - start.toEpochMilli()) / 1000.0 : 0;
+            Integer used = flight.getBatteryUsedPercent();
+            return new Totals(flight.getAircraftSerial() != null ? flight.getAircraftSerial() : "",
+                    start != null ? YearMonth.from(start.atOffset(ZoneOffset.UTC)).toString() : "",
+                    1, seconds, flight.getDistanceMeters(), flight.getMaxAltitudeMeters(), used != null ? used : 0);
+        }
+
+        /**
+         * Combines two totals of the same group.
+         *
+         * @param o the other totals
+         * @return the sum
+         */
+        public Totals plus(Totals o) {
+            return new Totals(aircraftSerial, yearMonth, flights + o.flights, flightSeconds + o.flightSeconds,
+                    distanceMeters + o.distanceMeters, Math.max(maxAltitudeMeters, o.maxAltitudeMeters),
+                    batteryUsedPercent + o.batteryUsedPercent);
+        }
+    }
+
+    /**
+     * Adds totals to their rollup row, creating it if needed.
+     *
+     * @param t totals keyed by aircraft and month
+     */
+    public void add(Totals t) {
+        Object[] args = {t.flights(), t.flightSeconds(), t.distanceMeters(), t.maxAltitudeMeters(),
+                t.batteryUsedPercent(), t.aircraftSerial(), t.yearMonth()};
+        if (jdbc.update(UPDATE_SQL, args) > 0) return;
+        try {
+            jdbc.update(INSERT_SQL, args);
+        } catch (DuplicateKeyException e) {
+            jdbc.update(UPDATE_SQL, args); // created by a concurrent transaction in the meantime
+        }
+    }
+
+    /**
+     * Replaces all rollup rows.
+     *
+     * @param totals totals keyed by aircraft and month
+     */
+    public void replaceAll(Collection<Totals> totals) {
+        jdbc.update("delete from flight_rollup");
+        List<Object[]> rows = new ArrayList<>(totals.size());
+        for (Totals t : totals) {
+            rows.add(new Object[]{t.flights(), t.flightSeconds(), t.distanceMeters(), t.maxAltitudeMeters(),
+                    t.batteryUsedPercent(), t.aircraftSerial(), t.yearMonth()});
+        }
+        if (!rows.isEmpty()) jdbc.batchUpdate(INSERT_SQL, rows);
+    }
+
+    /**
+     * Sums the rollup rows.
+     *
+     * @param byAircraft group by aircraft
+     * @param byMonth    group by month
+     * @param aircraft   only this aircraft, or {@code null}
+     * @param from       only months from this one (inclusive), or {@code null}
+     * @param to         only months up to this one (inclusive), or {@code null}
+     * @return the groups ordered by aircraft and month; a single row of fleet totals if not grouped
+     */
+    public List<Totals> query(boolean byAircraft, boolean byMonth, String aircraft, YearMonth from, YearMonth to) {
+        StringBuilder sql = new StringBuilder("select ")
+                .append(byAircraft ? "aircraft_serial" : "null").append(", ")
+                .append(byMonth ? "year_month" : "null")
+                .append(", coalesce(sum(flight_count), 0), coalesce(sum(flight_seconds), 0),"
+                        + " coalesce(sum(distance_meters), 0), coalesce(max(max_altitude_meters), 0),"
+                        + " coalesce(sum(battery_used_percent), 0) from flight_rollup where 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (aircraft != null) {
+            sql.append(" and aircraft_serial = ?");
+            args.add(aircraft);
+        }
+        if (from != null) {
+            sql.append(" and year_month >= ?");
+            args.add(from.toString());
+        }
+        if (to != null) {
+            sql.append(" and year_month <= ?");
+            args.add(to.toString());
+        }
+        List<String> groups = new ArrayList<>();
+        if (byAircraft) groups.add("aircraft_serial");
+        if (byMonth) groups.add("year_month");
+        if (!groups.isEmpty()) {
+            String cols = String.join(", ", groups);
+            sql.append(" group by ").append(cols).append(" order by ").append(cols);
+        }
+        return jdbc.query(sql.toString(), (rs, row) -> new Totals(rs.getString(1), rs.getString(2), rs.getLong(3),
+                rs.getDouble(4), rs.getDouble(5), rs.getDouble(6), rs.getLong(7)), args.toArray());
+    }
+
+    /**
+     * Counts the flights in the rollups.
+     *
+     * @return the total flight count
+     */
+    public long countFlights() {
+        Long n = jdbc.queryForObject("select coalesce(sum(flight_count), 0) from flight_rollup", Long.class);
+        return n != null ? n : 0;
+    }
+
+    /**
+     * Sums the flights in an ID range, reading the flight table directly.
+     *
+     * @param fromId  first flight ID (inclusive)
+     * @param toId    last flight ID (exclusive)
+     * @param exclude flights to leave out
+     * @return totals by aircraft serial and month, joined with {@code |}
+     */
+    public Map<String, Totals> sumFlights(long fromId, long toId, LongPredicate exclude) {
+        Map<String, Totals> totals = new HashMap<>();
+        jdbc.query("select id, aircraft_serial, start_time, end_time, distance_meters, max_altitude_meters,"
+                + " battery_used_percent from flight where id >= ? and id < ?", rs -> {
+            if (exclude.test(rs.getLong(1))) return;
+            Flight f = new Flight();
+            f.setAircraftSerial(rs.getString(2));
+            f.setStartTime(instant(rs.getObject(3, OffsetDateTime.class)));
+            f.setEndTime(instant(rs.getObject(4, OffsetDateTime.class)));
+            f.setDistanceMeters(rs.getDouble(5));
+            f.setMaxAltitudeMeters(rs.getDouble(6));
+            f.setBatteryUsedPercent(rs.getObject(7, Integer.class));
+            Totals t = Totals.of(f);
+            totals.merge(t.aircraftSerial() + "|" + t.yearMonth(), t, Totals::plus);
+        }, fromId, toId);
+        return totals;
+    }
+
+    /* ---------- Helpers ---------- */
+
+    private static Instant instant(OffsetDateTime t) {
+        return t != null ? t.toInstant() : null;
+    }
+}
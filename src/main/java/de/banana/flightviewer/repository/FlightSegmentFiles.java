@@ -0,0 +1,226 @@
+package de.banana.flightviewer.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Per-flight segment files for replay and export reads that bypass JPA.
+ * <p>
+ * File layout ({@code <dir>/<flightId>.seg}, little-endian):
+ * <ul>
+ *     <li>header ({@value #HEADER_SIZE} bytes): magic {@code "FVSG"}, int32 version, int64 record count</li>
+ *     <li>records ({@value #RECORD_SIZE} bytes each, ordered by time): int64 epoch millis, float64 latitude,
+ *     float64 longitude, float32 altitude [m], float32 speed [m/s], int32 battery [%]</li>
+ * </ul>
+ * Files are written once during import and read through {@link FileChannel#map}, so a time-range read is a
+ * binary search on the mapped timestamps followed by handing out a slice of the mapping. The database stays
+ * the source of truth for flight metadata.
+ * </p>
+ */
+@Repository
+public class FlightSegmentFiles {
+
+    /**
+     * Size of the file header in bytes.
+     */
+    public static final int HEADER_SIZE = 16;
+    /**
+     * Size of one record in bytes.
+     */
+    public static final int RECORD_SIZE = 36;
+
+    private static final int MAGIC = 'F' | 'V' << 8 | 'S' << 16 | 'G' << 24;
+    private static final int VERSION = 1;
+
+    private final Path dir;
+    private final boolean enabled;
+
+    /**
+     * Constructs a FlightSegmentFiles repository.
+     *
+     * @param dir     directory holding the segment files
+     * @param enabled whether segment files are written during import
+     */
+    public FlightSegmentFiles(@Value("${flightviewer.segments.dir:./data/segments}") Path dir,
+                              @Value("${flightviewer.segments.enabled:true}") boolean enabled) {
+        this.dir = dir;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Checks whether segment files are written during import.
+     * @return {@code true} if enabled
+     */
+    public boolean isEnabled() { return enabled; }
+
+    /**
+     * Opens a writer for a flight's segment file.
+     * <p>
+     * Records go to a temporary file. On close the file is published under its final name; inside a
+     * transaction this happens only after commit, and the temporary file is removed on rollback.
+     * </p>
+     *
+     * @param flightId the ID of the flight
+     * @return a new writer
+     */
+    public SampleWriter openWriter(long flightId) {
+        try {
+            Files.createDirectories(dir);
+            return new SegmentWriter(flightId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Maps the records of a flight that fall into a time range.
+     *
+     * @param flightId   the ID of the flight
+     * @param fromMillis inclusive lower bound (epoch millis), or {@code null} for the start of the flight
+     * @param toMillis   inclusive upper bound (epoch millis), or {@code null} for the end of the flight
+     * @return a little-endian, read-only view of the matching records, or {@code null} if the flight has no
+     *         segment file
+     * @throws IOException if the file cannot be read or is not a segment file
+     */
+    public ByteBuffer slice(long flightId, Long fromMillis, Long toMillis) throws IOException {
+        MappedByteBuffer map;
+        try (FileChannel ch = FileChannel.open(file(flightId), StandardOpenOption.READ)) {
+            map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        map.order(ByteOrder.LITTLE_ENDIAN);
+        if (map.limit() < HEADER_SIZE || map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+            throw new IOException("Not a segment file: " + file(flightId));
+        }
+        int count = (int) map.getLong(8);
+        int from = fromMillis == null ? 0 : lowerBound(map, count, fromMillis);
+        int to = toMillis == null ? count : lowerBound(map, count, toMillis + 1);
+        if (to < from) to = from;
+        return map.slice(HEADER_SIZE + from * RECORD_SIZE, (to - from) * RECORD_SIZE)
+                .asReadOnlyBuffer()
+                .order(ByteOrder.LITTLE_ENDIAN); // views start out big-endian
+    }
+
+    /**
+     * First record position whose timestamp is {@code >= millis}.
+     */
+    private static int lowerBound(ByteBuffer map, int count, long millis) {
+        int lo = 0, hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (map.getLong(HEADER_SIZE + mid * RECORD_SIZE) < millis) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private Path file(long flightId) {
+        return dir.resolve(flightId + ".seg");
+    }
+
+    /**
+     * Appends records through a direct buffer and publishes the file on close.
+     */
+    private final class SegmentWriter implements SampleWriter {
+
+        private final Path target;
+        private final Path tmp;
+        private final FileChannel ch;
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(RECORD_SIZE * 2048).order(ByteOrder.LITTLE_ENDIAN);
+        private long count;
+        private long written;
+
+        SegmentWriter(long flightId) throws IOException {
+            this.target = file(flightId);
+            this.tmp = dir.resolve(flightId + ".seg.tmp");
+            this.ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+            ch.position(HEADER_SIZE);
+        }
+
+        @Override
+        public void append(long timestampMillis, double latitude, double longitude,
+                           double altitude, double speed, int battery) {
+            if (buf.remaining() < RECORD_SIZE) drain();
+            buf.putLong(timestampMillis)
+                    .putDouble(latitude)
+                    .putDouble(longitude)
+                    .putFloat((float) altitude)
+                    .putFloat((float) speed)
+                    .putInt(battery);
+            count++;
+        }
+
+        private void drain() {
+            try {
+                buf.flip();
+                while (buf.hasRemaining()) ch.write(buf);
+                buf.clear();
+                written = count;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public long getWritten() {
+            return written;
+        }
+
+        @Override
+        public void close() {
+            try {
+                drain();
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).putLong(count).flip();
+                ch.write(header, 0);
+                ch.force(false);
+                ch.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        if (status == STATUS_COMMITTED) publish();
+                        else discard();
+                    }
+                });
+            } else {
+                publish();
+            }
+        }
+
+        private void publish() {
+            try {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void discard() {
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
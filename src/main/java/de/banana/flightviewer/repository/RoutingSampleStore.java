@@ -0,0 +1,84 @@
+package de.banana.flightviewer.repository;
+
+import de.banana.flightviewer.model.SampleColumns;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+
+/**
+ * The {@link SampleStore} used by the application.
+ * <p>
+ * New flights are written to the backend selected by {@code flightviewer.storage.samples}
+ * ({@code rows}, the default, or {@code columnar}). Reads go to the columnar store if it holds a block for the
+ * flight and to the row store otherwise, so flights imported under either setting stay readable.
+ * </p>
+ * <p>
+ * Every read pins the flight in the {@link SampleArchive}, so its samples cannot move between the tiers while
+ * they are read, and reads the samples of an archived flight from the archive file in place. Reads neither
+ * record an access nor rehydrate; that is up to client requests (see {@link SampleArchive#access}).
+ * </p>
+ */
+@Primary
+@Repository
+public class RoutingSampleStore implements SampleStore {
+
+    private final SampleJdbcRepository rows;
+    private final ColumnarSampleStore columnar;
+    private final SampleArchive archive;
+    private final boolean writeColumnar;
+
+    /**
+     * Constructs a RoutingSampleStore.
+     *
+     * @param rows     the row-per-sample backend
+     * @param columnar the block-per-flight backend
+     * @param archive  the cold tier of flights not read for a long time
+     * @param backend  backend for new flights: {@code rows} or {@code columnar}
+     */
+    public RoutingSampleStore(SampleJdbcRepository rows, ColumnarSampleStore columnar, SampleArchive archive,
+                              @Value("${flightviewer.storage.samples:rows}") String backend) {
+        this.rows = rows;
+        this.columnar = columnar;
+        this.archive = archive;
+        this.writeColumnar = switch (backend) {
+            case "rows" -> false;
+            case "columnar" -> true;
+            default -> throw new IllegalArgumentException("Unknown sample storage backend: " + backend);
+        };
+    }
+
+    @Override
+    public SampleWriter openWriter(long flightId) {
+        return writeColumnar ? columnar.openWriter(flightId) : rows.openWriter(flightId);
+    }
+
+    @Override
+    public void stream(long flightId, SampleRowHandler handler) throws IOException {
+        try (SampleArchive.Pin pin = archive.pin(flightId)) {
+            if (!pin.tryStream(handler) && !columnar.tryStream(flightId, handler)) {
+                rows.stream(flightId, handler);
+            }
+        }
+    }
+
+    @Override
+    public void stream(long flightId, long fromMillis, long toMillis, SampleRowHandler handler) throws IOException {
+        SampleRowHandler within = SampleRowHandler.within(fromMillis, toMillis, handler);
+        try (SampleArchive.Pin pin = archive.pin(flightId)) {
+            if (!pin.tryStream(within) && !columnar.tryStream(flightId, within)) {
+                rows.stream(flightId, fromMillis, toMillis, handler);
+            }
+        }
+    }
+
+    @Override
+    public SampleColumns load(long flightId) {
+        try (SampleArchive.Pin pin = archive.pin(flightId)) {
+            SampleColumns samples = pin.tryLoad();
+            if (samples == null) samples = columnar.tryLoad(flightId);
+            return samples != null ? samples : rows.load(flightId);
+        }
+    }
+}
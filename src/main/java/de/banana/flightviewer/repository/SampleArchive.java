@@ -0,0 +1,572 @@
+package de.banana.flightviewer.repository;
+
+import de.banana.flightviewer.codec.SampleCodec;
+import de.banana.flightviewer.model.SampleColumns;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cold tier for the samples of flights nobody looks at: one compressed file per flight outside the database.
+ * <p>
+ * {@link #archive} writes {@code <dir>/<flightId>.fvs.gz} and reads it back to verify it. The gzip-compressed
+ * file (with its CRC) starts with {@code "FVA1"} and the backend the samples came from: the
+ * {@link SampleCodec} encoding of a columnar block, or the exact values of a row flight, record by record. Both
+ * directions stream: the hot samples go straight into the file, and a read decodes the file while it hands
+ * the samples on, so neither holds a flight's samples in columns. Only then is
+ * {@code flight.archived_at} set and the flight's columnar block or rows deleted, the rows in batches of
+ * {@value #DELETE_BATCH}. The flight itself, its search cells, events, channels and rollups stay, so lists,
+ * search and statistics do not notice.
+ * </p>
+ * <p>
+ * Reads hold a {@link Pin} on the flight, a shared per-flight lock; moving samples between the tiers needs the
+ * exclusive one. {@link RoutingSampleStore} pins every read, so it decides where the samples are and reads
+ * them under the same lock: {@link #archive} skips a flight that is being read, and hot samples are deleted
+ * only once no reader can be routed to them. Internal readers such as search or export read an archived
+ * flight in place. Only requests for a flight's samples from a client call {@link #access}, which stamps
+ * {@code flight.last_accessed_at} (at most once an hour per flight) and rehydrates an archived flight into the
+ * backend it came from, so its bytes, and the ETags derived from them, do not change; the time it takes is
+ * the {@code flightviewer.archive.rehydration} timer. Samples never change after import, so the file is kept
+ * and archiving the flight again only deletes the hot copy.
+ * </p>
+ */
+@Repository
+public class SampleArchive {
+
+    private static final Logger log = LoggerFactory.getLogger(SampleArchive.class);
+    private static final String SUFFIX = ".fvs.gz";
+    private static final byte[] MAGIC = {'F', 'V', 'A', '1'};
+    private static final int ROWS = 0;
+    private static final int COLUMNAR = 1;
+    /**
+     * Minimum time between two writes of a flight's last access.
+     */
+    private static final long ACCESS_RESOLUTION_MILLIS = TimeUnit.HOURS.toMillis(1);
+    /**
+     * Sample rows deleted per transaction when a flight is archived.
+     */
+    private static final int DELETE_BATCH = 10_000;
+    /**
+     * Time a batch of deletes waits for the readers of the flight.
+     */
+    private static final long DELETE_WAIT_MILLIS = 100;
+
+    private final Path dir;
+    private final SampleJdbcRepository rows;
+    private final ColumnarSampleStore columnar;
+    private final SampleBlockRepository blocks;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final Timer rehydration;
+    /**
+     * IDs of the archived flights, loaded from the flight table on first use.
+     */
+    private volatile Set<Long> archived;
+    /**
+     * Locks of the flights being read or moved; an entry lives as long as someone uses it.
+     */
+    private final Map<Long, FlightLock> flightLocks = new ConcurrentHashMap<>();
+    /**
+     * Last access written per flight, in epoch milliseconds.
+     */
+    private final Map<Long, Long> accessWritten = new ConcurrentHashMap<>();
+    /**
+     * Total size of the archive files, computed on first use.
+     */
+    private final AtomicLong storedBytes = new AtomicLong(-1);
+
+    /**
+     * Constructs a SampleArchive.
+     *
+     * @param dir      directory holding the archive files
+     * @param rows     the row-per-sample backend
+     * @param columnar the block-per-flight backend
+     * @param blocks   the repository for sample blocks
+     * @param jdbc     the JDBC template
+     * @param tx       transaction template for moving samples between tiers
+     * @param metrics  registry for the archive meters
+     */
+    public SampleArchive(@Value("${flightviewer.archive.dir:./data/archive}") Path dir,
+                         SampleJdbcRepository rows, ColumnarSampleStore columnar, SampleBlockRepository blocks,
+                         JdbcTemplate jdbc, TransactionTemplate tx,
+                         MeterRegistry metrics) {
+        this.dir = dir;
+        this.rows = rows;
+        this.columnar = columnar;
+        this.blocks = blocks;
+        this.jdbc = jdbc;
+        this.tx = tx;
+        this.rehydration = Timer.builder("flightviewer.archive.rehydration")
+                .description("Time to move an archived flight's samples back into hot storage")
+                .register(metrics);
+        Gauge.builder("flightviewer.archive.flights", this, a -> a.archivedIds().size())
+                .description("Flights whose samples are archived").register(metrics);
+        Gauge.builder("flightviewer.archive.stored", this, SampleArchive::getStoredBytes).baseUnit("bytes")
+                .description("Size of the sample archive files").register(metrics);
+    }
+
+    /**
+     * Checks whether a flight's samples are archived.
+     *
+     * @param flightId the ID of the flight
+     * @return {@code true} if they are only in the archive
+     */
+    public boolean isArchived(long flightId) {
+        return archivedIds().contains(flightId);
+    }
+
+    /**
+     * Pins a flight while its samples are read, so that they do not move between the tiers meanwhile.
+     *
+     * @param flightId the ID of the flight
+     * @return the pin; close it once the samples are read
+     */
+    public Pin pin(long flightId) {
+        FlightLock lock = acquire(flightId);
+        lock.rw.readLock().lock();
+        return new Pin(flightId, lock);
+    }
+
+    /**
+     * Moves a flight's samples from hot storage into the archive.
+     *
+     * @param flightId the ID of the flight
+     * @return the number of samples archived, or -1 if the flight was archived already or is being read
+     * @throws IOException if the archive file cannot be written or does not read back
+     */
+    public long archive(long flightId) throws IOException {
+        if (isArchived(flightId)) return -1;
+        Path file = file(flightId);
+        long count;
+        if (Files.exists(file)) {
+            count = count(file);
+        } else {
+            count = write(file, flightId);
+            if (count(file) != count) throw new IOException("Archive file does not read back: " + file);
+        }
+        FlightLock lock = acquire(flightId);
+        try {
+            Lock write = lock.rw.writeLock();
+            if (!write.tryLock()) return -1; // being read; the next run tries again
+            try {
+                if (isArchived(flightId)) return -1;
+                tx.executeWithoutResult(status -> {
+                    if (blocks.existsById(flightId)) blocks.deleteById(flightId);
+                    jdbc.update("update flight set archived_at = ? where id = ?", Timestamp.from(Instant.now()), flightId);
+                });
+                archivedIds().add(flightId);
+            } finally {
+                write.unlock();
+            }
+            deleteRows(flightId, write);
+            return count;
+        } finally {
+            release(flightId);
+        }
+    }
+
+    /**
+     * Moves an archived flight's samples back into the backend they came from; does nothing for other flights
+     * or while the flight is being read, which reads it in place.
+     *
+     * @param flightId the ID of the flight
+     * @return {@code true} if the flight was rehydrated
+     * @throws UncheckedIOException if the archive file cannot be read
+     */
+    public boolean restore(long flightId) {
+        if (!isArchived(flightId)) return false;
+        FlightLock lock = acquire(flightId);
+        try {
+            Lock write = lock.rw.writeLock();
+            if (!write.tryLock()) return false;
+            try {
+                if (!isArchived(flightId)) return false;
+                long start = System.nanoTime();
+                Path file = file(flightId);
+                long count = tx.execute(status -> {
+                    try {
+                        SampleWriter writer;
+                        if (backend(file) == COLUMNAR) {
+                            writer = columnar.openWriter(flightId);
+                        } else {
+                            // rows left by an interrupted archival would otherwise be doubled
+                            int deleted;
+                            do {
+                                deleted = rows.deleteByFlight(flightId, DELETE_BATCH);
+                            } while (deleted > 0);
+                            writer = rows.openWriter(flightId);
+                        }
+                        try (SampleWriter w = writer) {
+                            read(file, w::append);
+                        }
+                        jdbc.update("update flight set archived_at = null, last_accessed_at = ? where id = ?",
+                                Timestamp.from(Instant.now()), flightId);
+                        return writer.getWritten();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Cannot read the archived samples of flight " + flightId, e);
+                    }
+                });
+                archivedIds().remove(flightId);
+                accessWritten.put(flightId, System.currentTimeMillis());
+                rehydration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                log.info("Rehydrated {} archived samples of flight {}", count, flightId);
+                return true;
+            } finally {
+                write.unlock();
+            }
+        } finally {
+            release(flightId);
+        }
+    }
+
+    /**
+     * Handles a client's request for a flight's samples: records the access and rehydrates the flight if it
+     * is archived. Call it only for flights that exist.
+     *
+     * @param flightId the ID of the flight
+     * @throws UncheckedIOException if the archive file cannot be read
+     */
+    public void access(long flightId) {
+        recordAccess(flightId);
+        restore(flightId);
+    }
+
+    /**
+     * Notes that a flight's samples were read, so that the archival policy sees it as in use.
+     *
+     * @param flightId the ID of the flight
+     */
+    public void recordAccess(long flightId) {
+        long now = System.currentTimeMillis();
+        Long written = accessWritten.get(flightId);
+        if (written != null && now - written < ACCESS_RESOLUTION_MILLIS) return;
+        accessWritten.put(flightId, now);
+        try {
+            if (jdbc.update("update flight set last_accessed_at = ? where id = ?", new Timestamp(now), flightId) == 0) {
+                accessWritten.remove(flightId); // no such flight
+            }
+        } catch (DataAccessException e) {
+            log.debug("Cannot record the access of flight {}", flightId, e);
+        }
+    }
+
+    /**
+     * Finds flights whose samples are in hot storage and that started and were last read before the given
+     * times, least recently read first.
+     *
+     * @param startedBefore  latest start time
+     * @param accessedBefore latest last access
+     * @param limit          maximum number of flights
+     * @return the flight IDs
+     */
+    public List<Long> findCold(Instant startedBefore, Instant accessedBefore, int limit) {
+        return jdbc.queryForList("select id from flight where archived_at is null and start_time < ? "
+                        + "and last_accessed_at < ? order by last_accessed_at, id limit ?", Long.class,
+                Timestamp.from(startedBefore), Timestamp.from(accessedBefore), limit);
+    }
+
+    /**
+     * Counts flights imported before access times were recorded as read now, so that they become cold only
+     * after the configured idle time.
+     *
+     * @return the number of flights stamped
+     */
+    public int initLastAccess() {
+        return jdbc.update("update flight set last_accessed_at = ? where last_accessed_at is null",
+                Timestamp.from(Instant.now()));
+    }
+
+    /**
+     * Measures the space the hot sample tables ({@code sample} and {@code sample_block}, with their indexes)
+     * take in the H2 database file.
+     *
+     * @return bytes, or -1 if the database cannot report it
+     */
+    public long measureHotBytes() {
+        try {
+            Long bytes = jdbc.queryForObject(
+                    "select disk_space_used('SAMPLE') + disk_space_used('SAMPLE_BLOCK')", Long.class);
+            return bytes != null ? bytes : -1;
+        } catch (DataAccessException e) {
+            log.debug("Cannot measure the sample tables", e);
+            return -1;
+        }
+    }
+
+    /**
+     * Gets the total size of the archive files.
+     * @return bytes on disk
+     */
+    public long getStoredBytes() {
+        long bytes = storedBytes.get();
+        if (bytes >= 0) return bytes;
+        bytes = 0;
+        if (Files.isDirectory(dir)) {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path f : files.filter(f -> f.getFileName().toString().endsWith(SUFFIX)).toList()) {
+                    bytes += Files.size(f);
+                }
+            } catch (IOException e) {
+                log.warn("Cannot list archive directory {}", dir, e);
+            }
+        }
+        storedBytes.compareAndSet(-1, bytes);
+        return storedBytes.get();
+    }
+
+    /* ---------- Helpers ---------- */
+
+    private Set<Long> archivedIds() {
+        Set<Long> ids = archived;
+        if (ids == null) {
+            synchronized (this) {
+                ids = archived;
+                if (ids == null) {
+                    ids = ConcurrentHashMap.newKeySet();
+                    ids.addAll(jdbc.queryForList("select id from flight where archived_at is not null", Long.class));
+                    archived = ids;
+                }
+            }
+        }
+        return ids;
+    }
+
+    private FlightLock acquire(long flightId) {
+        return flightLocks.compute(flightId, (id, lock) -> {
+            if (lock == null) lock = new FlightLock();
+            lock.users++;
+            return lock;
+        });
+    }
+
+    private void release(long flightId) {
+        flightLocks.computeIfPresent(flightId, (id, lock) -> --lock.users == 0 ? null : lock);
+    }
+
+    /**
+     * Deletes the rows of a freshly archived flight in short transactions, each once no reader holds the
+     * flight, and stops if the flight is rehydrated in between.
+     */
+    private void deleteRows(long flightId, Lock write) throws IOException {
+        while (true) {
+            try {
+                if (!write.tryLock(DELETE_WAIT_MILLIS, TimeUnit.MILLISECONDS)) continue;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while deleting the rows of flight " + flightId);
+            }
+            try {
+                if (!isArchived(flightId) || rows.deleteByFlight(flightId, DELETE_BATCH) == 0) return;
+            } finally {
+                write.unlock();
+            }
+        }
+    }
+
+    private Path file(long flightId) {
+        return dir.resolve(flightId + SUFFIX);
+    }
+
+    /**
+     * Writes an archive file from the flight's hot samples, through a temporary file, so that a file under the
+     * final name is complete. A columnar block keeps its {@link SampleCodec} encoding; rows are written one
+     * record each, with their exact values, each behind a {@code 1} and closed by a {@code 0}.
+     *
+     * @return the number of samples written
+     */
+    private long write(Path file, long flightId) throws IOException {
+        Files.createDirectories(dir);
+        getStoredBytes(); // count existing files before adding this one
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            long[] count = {0};
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(tmp), 64 * 1024), 64 * 1024))) {
+                out.write(MAGIC);
+                SampleCodec.Encoder encoder = new SampleCodec.Encoder();
+                if (blocks.existsById(flightId) && columnar.tryStream(flightId, (ts, lat, lon, alt, spd, batt) -> {
+                    encoder.add(ts, lat, lon, alt, spd, batt);
+                    count[0]++;
+                })) {
+                    out.writeByte(COLUMNAR);
+                    out.write(encoder.toByteArray());
+                } else {
+                    out.writeByte(ROWS);
+                    rows.stream(flightId, (ts, lat, lon, alt, spd, batt) -> {
+                        out.writeByte(1);
+                        out.writeLong(ts);
+                        out.writeDouble(lat);
+                        out.writeDouble(lon);
+                        out.writeDouble(alt);
+                        out.writeDouble(spd);
+                        out.writeInt(batt);
+                        count[0]++;
+                    });
+                    out.writeByte(0);
+                }
+            }
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ch.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            storedBytes.addAndGet(Files.size(file));
+            return count[0];
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Reads the backend an archive file came from, without reading its samples.
+     */
+    private static int backend(Path file) throws IOException {
+        try (DataInputStream in = open(file)) {
+            return header(in, file);
+        }
+    }
+
+    private static long count(Path file) throws IOException {
+        long[] count = {0};
+        read(file, (ts, lat, lon, alt, spd, batt) -> count[0]++);
+        return count[0];
+    }
+
+    /**
+     * Streams the samples of an archive file in time order. Rows are decoded record by record; a columnar
+     * block is decoded from its encoding, which is about as large as the hot block.
+     */
+    private static void read(Path file, SampleRowHandler handler) throws IOException {
+        try (DataInputStream in = open(file)) {
+            int backend = header(in, file);
+            if (backend == COLUMNAR) {
+                SampleCodec.decode(in.readAllBytes(), handler);
+            } else {
+                while (in.readUnsignedByte() != 0) {
+                    handler.sample(in.readLong(), in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(),
+                            in.readInt());
+                }
+            }
+        }
+    }
+
+    private static DataInputStream open(Path file) throws IOException {
+        try {
+            return new DataInputStream(new BufferedInputStream(
+                    new GZIPInputStream(Files.newInputStream(file), 64 * 1024), 64 * 1024));
+        } catch (NoSuchFileException e) {
+            throw new IOException("Archive file is missing: " + file, e);
+        }
+    }
+
+    /**
+     * Reads the magic and backend of an archive file.
+     *
+     * @return {@link #ROWS} or {@link #COLUMNAR}
+     */
+    private static int header(DataInputStream in, Path file) throws IOException {
+        byte[] magic = in.readNBytes(MAGIC.length);
+        if (!Arrays.equals(magic, MAGIC)) throw new IOException("Not a sample archive: " + file);
+        int backend = in.readUnsignedByte();
+        if (backend != ROWS && backend != COLUMNAR) {
+            throw new IOException("Unknown sample backend " + backend + " in " + file);
+        }
+        return backend;
+    }
+
+    /**
+     * A reader's hold on a flight; see {@link #pin}. While it is open, the samples stay in the tier they
+     * are in.
+     */
+    public final class Pin implements AutoCloseable {
+
+        private final long flightId;
+        private final FlightLock lock;
+
+        private Pin(long flightId, FlightLock lock) {
+            this.flightId = flightId;
+            this.lock = lock;
+        }
+
+        /**
+         * Streams the samples of the flight from the archive, if they are there.
+         *
+         * @param handler callback for each sample
+         * @return {@code false} if the samples are in hot storage
+         * @throws IOException if the archive file cannot be read or the handler fails
+         */
+        public boolean tryStream(SampleRowHandler handler) throws IOException {
+            if (!isArchived(flightId)) return false;
+            read(file(flightId), handler);
+            return true;
+        }
+
+        /**
+         * Loads the samples of the flight from the archive, if they are there.
+         *
+         * @return the samples, or {@code null} if they are in hot storage
+         * @throws UncheckedIOException if the archive file cannot be read
+         */
+        public SampleColumns tryLoad() {
+            if (!isArchived(flightId)) return null;
+            SampleColumns samples = new SampleColumns(1024);
+            try {
+                read(file(flightId), samples::add);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read the archived samples of flight " + flightId, e);
+            }
+            return samples;
+        }
+
+        @Override
+        public void close() {
+            lock.rw.readLock().unlock();
+            release(flightId);
+        }
+    }
+
+    /**
+     * Per-flight lock: shared while the samples are read, exclusive while they move between the tiers.
+     */
+    private static final class FlightLock {
+        final ReentrantReadWriteLock rw = new ReentrantReadWriteLock();
+        /**
+         * Pins and movers holding or waiting for the lock; changed only inside {@link Map#compute}.
+         */
+        int users;
+    }
+}
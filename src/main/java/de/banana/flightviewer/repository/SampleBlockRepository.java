@@ -0,0 +1,12 @@
+package de.banana.flightviewer.repository;
+
+import de.banana.flightviewer.model.SampleBlock;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * Repository interface for accessing and managing SampleBlock entities.
+ * <p>
+ * Extends JpaRepository to provide CRUD operations for the columnar sample blocks, keyed by flight ID.
+ * </p>
+ */
+public interface SampleBlockRepository extends JpaRepository<SampleBlock, Long> {}
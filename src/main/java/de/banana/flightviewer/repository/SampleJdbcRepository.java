@@ -0,0 +1,258 @@
+package de.banana.flightviewer.repository;
+
+import de.banana.flightviewer.model.SampleColumns;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Plain JDBC access to the {@code sample} table for the bulk paths that do not need managed entities.
+ * This is the row-per-sample {@link SampleStore} backend.
+ * <p>
+ * Bulk reads return {@link SampleColumns} instead of entities. Inserts go through {@link BatchWriter},
+ * which keeps one fixed-size chunk of primitive columns and sends it as a single JDBC batch. The identity
+ * column is filled by the database, so no generated keys have to be read back and the driver can execute
+ * the whole chunk in one round trip.
+ * </p>
+ */
+@Repository
+public class SampleJdbcRepository implements SampleStore {
+
+    private static final String INSERT_SQL =
+            "insert into sample (flight_id, timestamp, latitude, longitude, altitude, speed, battery_percent) "
+                    + "values (?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Rows fetched per round trip when streaming.
+     */
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    /**
+     * Bounds for open-ended range queries (years 0 and 9999).
+     */
+    private static final long MIN_TIMESTAMP = -62167219200000L;
+    private static final long MAX_TIMESTAMP = 253402300799999L;
+
+    private static final String SELECT_BY_FLIGHT_SQL =
+            "select timestamp, latitude, longitude, altitude, speed, battery_percent from sample "
+                    + "where flight_id = ? order by timestamp, id";
+
+    private static final String SELECT_RANGE_SQL =
+            "select timestamp, latitude, longitude, altitude, speed, battery_percent from sample "
+                    + "where flight_id = ? and timestamp between ? and ? order by timestamp, id";
+
+    /**
+     * JDBC template bound to the application data source (participates in the surrounding transaction).
+     */
+    private final JdbcTemplate jdbc;
+    /**
+     * Number of samples sent to the database per JDBC batch.
+     */
+    private final int batchSize;
+
+    /**
+     * Constructs a SampleJdbcRepository.
+     *
+     * @param jdbc      the JDBC template
+     * @param batchSize number of samples per JDBC batch
+     */
+    public SampleJdbcRepository(JdbcTemplate jdbc,
+                                @Value("${flightviewer.import.batch-size:1000}") int batchSize) {
+        this.jdbc = jdbc;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public SampleColumns load(long flightId) {
+        Integer count = jdbc.queryForObject("select count(*) from sample where flight_id = ?", Integer.class, flightId);
+        SampleColumns columns = new SampleColumns(count == null ? 0 : count);
+        jdbc.query(SELECT_BY_FLIGHT_SQL, rs -> {
+            columns.add(rs.getObject(1, OffsetDateTime.class).toInstant().toEpochMilli(),
+                    rs.getDouble(2), rs.getDouble(3), rs.getDouble(4), rs.getDouble(5), rs.getInt(6));
+        }, flightId);
+        return columns;
+    }
+
+    /**
+     * Streams all samples of a flight, ordered by timestamp, through a forward-only, read-only cursor.
+     * <p>
+     * Rows are handed to the callback as they are read; nothing is collected, so memory use is constant
+     * regardless of the number of samples.
+     * </p>
+     */
+    @Override
+    public void stream(long flightId, SampleRowHandler handler) throws IOException {
+        query(SELECT_BY_FLIGHT_SQL, handler, flightId);
+    }
+
+    /**
+     * Streams the samples of a flight within a time range through the {@code (flight_id, timestamp)} index.
+     */
+    @Override
+    public void stream(long flightId, long fromMillis, long toMillis, SampleRowHandler handler) throws IOException {
+        query(SELECT_RANGE_SQL, handler, flightId, timestamp(fromMillis), timestamp(toMillis));
+    }
+
+    /**
+     * Opens a writer that appends samples of one flight in batches of the configured size.
+     *
+     * @param flightId the ID of the (already persisted) flight
+     * @return a new batch writer; call {@link BatchWriter#close()} to send the last partial batch
+     */
+    @Override
+    public BatchWriter openWriter(long flightId) {
+        return openWriter(flightId, batchSize);
+    }
+
+    /**
+     * Opens a writer that appends samples of one flight in batches of {@code batchSize} rows.
+     *
+     * @param flightId  the ID of the (already persisted) flight
+     * @param batchSize number of rows per JDBC batch
+     * @return a new batch writer; call {@link BatchWriter#close()} to send the last partial batch
+     */
+    public BatchWriter openWriter(long flightId, int batchSize) {
+        return new BatchWriter(flightId, batchSize);
+    }
+
+    /**
+     * Deletes up to {@code limit} samples of a flight, e.g. once they are archived. Deleting a large flight
+     * in several short transactions keeps the undo log, and with it the growth of the database file, small.
+     *
+     * @param flightId the ID of the flight
+     * @param limit    maximum number of samples to delete
+     * @return the number of deleted samples; 0 once the flight has none left
+     */
+    public int deleteByFlight(long flightId, int limit) {
+        return jdbc.update("delete from sample where flight_id = ? fetch first ? rows only", flightId, limit);
+    }
+
+    /* ---------- Helpers ---------- */
+
+    private void query(String sql, SampleRowHandler handler, Object... args) throws IOException {
+        try {
+            jdbc.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(STREAM_FETCH_SIZE);
+                for (int i = 0; i < args.length; i++) ps.setObject(i + 1, args[i]);
+                return ps;
+            }, (RowCallbackHandler) rs -> {
+                try {
+                    handler.sample(rs.getObject(1, OffsetDateTime.class).toInstant().toEpochMilli(),
+                            rs.getDouble(2), rs.getDouble(3), rs.getDouble(4), rs.getDouble(5), rs.getInt(6));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Converts epoch milliseconds to a timestamp parameter, clamped to the range the database can store.
+     */
+    private static OffsetDateTime timestamp(long millis) {
+        long clamped = Math.max(MIN_TIMESTAMP, Math.min(MAX_TIMESTAMP, millis));
+        return OffsetDateTime.ofInstant(Instant.ofEpochMilli(clamped), ZoneOffset.UTC);
+    }
+
+    /**
+     * Buffers up to one batch of samples in primitive arrays and flushes it with a single JDBC batch.
+     * <p>
+     * Memory use is bounded by the batch size, independent of the length of the flight. Not thread-safe.
+     * </p>
+     */
+    public final class BatchWriter implements SampleWriter {
+
+        private final long flightId;
+        private final long[] timestamps;
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final double[] altitudes;
+        private final double[] speeds;
+        private final int[] batteries;
+        private int size;
+        private long written;
+
+        private BatchWriter(long flightId, int batchSize) {
+            if (batchSize <= 0) {
+                throw new IllegalArgumentException("batchSize must be positive");
+            }
+            this.flightId = flightId;
+            this.timestamps = new long[batchSize];
+            this.latitudes = new double[batchSize];
+            this.longitudes = new double[batchSize];
+            this.altitudes = new double[batchSize];
+            this.speeds = new double[batchSize];
+            this.batteries = new int[batchSize];
+        }
+
+        /**
+         * Appends one sample, flushing the current batch first if it is full.
+         */
+        @Override
+        public void append(long timestampMillis, double latitude, double longitude,
+                           double altitude, double speed, int battery) {
+            if (size == timestamps.length) {
+                flush();
+            }
+            timestamps[size] = timestampMillis;
+            latitudes[size] = latitude;
+            longitudes[size] = longitude;
+            altitudes[size] = altitude;
+            speeds[size] = speed;
+            batteries[size] = battery;
+            size++;
+        }
+
+        /**
+         * Sends all buffered samples as one JDBC batch.
+         */
+        public void flush() {
+            if (size == 0) return;
+            final int n = size;
+            jdbc.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    ps.setLong(1, flightId);
+                    ps.setObject(2, OffsetDateTime.ofInstant(Instant.ofEpochMilli(timestamps[i]), ZoneOffset.UTC));
+                    ps.setDouble(3, latitudes[i]);
+                    ps.setDouble(4, longitudes[i]);
+                    ps.setDouble(5, altitudes[i]);
+                    ps.setDouble(6, speeds[i]);
+                    ps.setInt(7, batteries[i]);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return n;
+                }
+            });
+            written += n;
+            size = 0;
+        }
+
+        @Override
+        public long getWritten() { return written; }
+
+        /**
+         * Flushes the last partial batch.
+         */
+        @Override
+        public void close() {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package de.banana.flightviewer.repository;
+
+import de.banana.flightviewer.model.Sample;
+
+import java.util.List;
+
+/**
+ * Sample queries that have to work for every {@link SampleStore} backend.
+ */
+public interface SampleRepositoryCustom {
+    /**
+     * Finds all samples for a given flight, ordered by timestamp.
+     *
+     * @param flightId the ID of the flight
+     * @return a list of samples ordered by timestamp
+     */
+    List<Sample> findByFlightIdOrderByTimestamp(Long flightId);
+}
@@ -0,0 +1,49 @@
+package de.banana.flightviewer.repository;
+
+import de.banana.flightviewer.model.Flight;
+import de.banana.flightviewer.model.Sample;
+import de.banana.flightviewer.model.SampleColumns;
+import jakarta.persistence.EntityManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adapter keeping {@link SampleRepository#findByFlightIdOrderByTimestamp(Long)} available for flights in any
+ * sample tier.
+ * <p>
+ * The samples are read through the application's {@link SampleStore}, so a flight stored as a columnar block
+ * or moved to the {@link SampleArchive} is read like a row flight, under the same pin as every other read.
+ * They are returned as detached {@link Sample} instances without IDs that reference the flight.
+ * </p>
+ */
+class SampleRepositoryImpl implements SampleRepositoryCustom {
+
+    private final EntityManager em;
+    private final SampleStore samples;
+
+    SampleRepositoryImpl(EntityManager em, SampleStore samples) {
+        this.em = em;
+        this.samples = samples;
+    }
+
+    @Override
+    public List<Sample> findByFlightIdOrderByTimestamp(Long flightId) {
+        SampleColumns cols = samples.load(flightId);
+        Flight flight = em.getReference(Flight.class, flightId);
+        List<Sample> out = new ArrayList<>(cols.size());
+        for (int i = 0; i < cols.size(); i++) {
+            Sample s = new Sample();
+            s.setFlight(flight);
+            s.setTimestamp(Instant.ofEpochMilli(cols.timestamp(i)));
+            s.setLatitude(cols.latitude(i));
+            s.setLongitude(cols.longitude(i));
+            s.setAltitude(cols.altitude(i));
+            s.setSpeed(cols.speed(i));
+            s.setBatteryPercent(cols.battery(i));
+            out.add(s);
+        }
+        return out;
+    }
+}
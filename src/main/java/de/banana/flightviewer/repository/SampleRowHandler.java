@@ -0,0 +1,38 @@
+package de.banana.flightviewer.repository;
+
+import java.io.IOException;
+
+/**
+ * Callback receiving samples one at a time as scalar values, without creating an object per sample.
+ */
+@FunctionalInterface
+public interface SampleRowHandler {
+
+    /**
+     * Handles one sample.
+     *
+     * @param timestamp epoch milliseconds
+     * @param latitude  latitude in decimal degrees
+     * @param longitude longitude in decimal degrees
+     * @param altitude  altitude in meters
+     * @param speed     horizontal speed in m/s
+     * @param battery   battery percentage
+     * @throws IOException if writing the sample somewhere fails
+     */
+    void sample(long timestamp, double latitude, double longitude, double altitude, double speed, int battery)
+            throws IOException;
+
+    /**
+     * Wraps a handler so that it only receives samples within a time range.
+     *
+     * @param fromMillis inclusive lower bound in epoch milliseconds
+     * @param toMillis   inclusive upper bound in epoch milliseconds
+     * @param handler    the handler receiving the samples in range
+     * @return the filtering handler
+     */
+    static SampleRowHandler within(long fromMillis, long toMillis, SampleRowHandler handler) {
+        return (ts, lat, lon, alt, spd, batt) -> {
+            if (ts >= fromMillis && ts <= toMillis) handler.sample(ts, lat, lon, alt, spd, batt);
+        };
+    }
+}
@@ -0,0 +1,57 @@
+package de.banana.flightviewer.repository;
+
+import de.banana.flightviewer.model.SampleColumns;
+
+import java.io.IOException;
+
+/**
+ * Storage backend for the telemetry samples of imported flights.
+ * <p>
+ * Samples are written once per flight through a {@link SampleWriter} and read back either as a stream of
+ * scalar values or as {@link SampleColumns}, always ordered by timestamp.
+ * </p>
+ */
+public interface SampleStore {
+
+    /**
+     * Opens a writer for the samples of an already persisted flight.
+     *
+     * @param flightId the ID of the flight
+     * @return a new writer
+     */
+    SampleWriter openWriter(long flightId);
+
+    /**
+     * Streams all samples of a flight, ordered by timestamp.
+     *
+     * @param flightId the ID of the flight
+     * @param handler  receives each sample
+     * @throws IOException if the handler fails
+     */
+    void stream(long flightId, SampleRowHandler handler) throws IOException;
+
+    /**
+     * Streams the samples of a flight within a time range, ordered by timestamp.
+     * <p>
+     * The default filters a full {@link #stream(long, SampleRowHandler)}; backends that can seek by time
+     * override it.
+     * </p>
+     *
+     * @param flightId   the ID of the flight
+     * @param fromMillis inclusive lower bound in epoch milliseconds
+     * @param toMillis   inclusive upper bound in epoch milliseconds
+     * @param handler    receives each sample in range
+     * @throws IOException if the handler fails
+     */
+    default void stream(long flightId, long fromMillis, long toMillis, SampleRowHandler handler) throws IOException {
+        stream(flightId, SampleRowHandler.within(fromMillis, toMillis, handler));
+    }
+
+    /**
+     * Loads all samples of a flight, ordered by timestamp.
+     *
+     * @param flightId the ID of the flight
+     * @return the samples; empty if the flight has none
+     */
+    SampleColumns load(long flightId);
+}
@@ -0,0 +1,67 @@
+package de.banana.flightviewer.repository;
+
+/**
+ * Append-only sink for the samples of one flight, obtained from {@link SampleStore#openWriter(long)}.
+ * <p>
+ * Samples must be appended in time order. Nothing is guaranteed to be stored before {@link #close()}.
+ * Not thread-safe.
+ * </p>
+ */
+public interface SampleWriter extends AutoCloseable {
+
+    /**
+     * Appends one sample.
+     *
+     * @param timestampMillis sample time in epoch milliseconds
+     * @param latitude        latitude in decimal degrees
+     * @param longitude       longitude in decimal degrees
+     * @param altitude        altitude in meters
+     * @param speed           horizontal speed in m/s
+     * @param battery         battery percentage
+     */
+    void append(long timestampMillis, double latitude, double longitude, double altitude, double speed, int battery);
+
+    /**
+     * Gets the number of samples already written to storage.
+     * @return samples persisted so far
+     */
+    long getWritten();
+
+    /**
+     * Writes everything that is still buffered.
+     */
+    @Override
+    void close();
+
+    /**
+     * Combines two writers so that every sample goes to both.
+     *
+     * @param primary   the writer whose progress {@link #getWritten()} reports
+     * @param secondary the additional writer
+     * @return a writer appending to both
+     */
+    static SampleWriter tee(SampleWriter primary, SampleWriter secondary) {
+        return new SampleWriter() {
+            @Override
+            public void append(long timestampMillis, double latitude, double longitude,
+                               double altitude, double speed, int battery) {
+                primary.append(timestampMillis, latitude, longitude, altitude, speed, battery);
+                secondary.append(timestampMillis, latitude, longitude, altitude, speed, battery);
+            }
+
+            @Override
+            public long getWritten() {
+                return primary.getWritten();
+            }
+
+            @Override
+            public void close() {
+                try {
+                    primary.close();
+                } finally {
+                    secondary.close();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,195 @@
+package de.banana.flightviewer.service;
+
+import de.banana.flightviewer.codec.ChannelCodec;
+import de.banana.flightviewer.repository.FlightChannelRepository;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The telemetry channels of one full-telemetry import, spooled to a temporary file while the log is parsed.
+ * <p>
+ * Each column is encoded by its own {@link ChannelCodec.Encoder}. Once an encoder holds
+ * {@value #FLUSH_BYTES} bytes, {@link #spill()} appends them to the spool file as a segment of that channel,
+ * so heap use is bounded by the number of columns, not by the length of the log. {@link #save} streams each
+ * channel's segments, in order, through compression into the database.
+ * </p>
+ * <p>
+ * Written by one thread and then, after a hand-off that orders the two, saved by another. Not thread-safe.
+ * </p>
+ */
+final class ChannelSpool implements AutoCloseable {
+
+    /**
+     * Encoded bytes an encoder may buffer before they go to the spool file.
+     */
+    static final int FLUSH_BYTES = 64 * 1024;
+
+    private final List<String> names;
+    private final ChannelCodec.Encoder[] encoders;
+    /**
+     * Per channel: file offset and length of each segment, alternating.
+     */
+    private final long[][] segments;
+    private final int[] segmentCounts;
+    private final int[] encodedSizes;
+    private final int flushBytes;
+    private Path file;
+    private OutputStream out;
+    private long position;
+
+    /**
+     * Creates a spool; the file is created on the first spill.
+     *
+     * @param names the column names, in header order
+     */
+    ChannelSpool(List<String> names) {
+        this(names, FLUSH_BYTES);
+    }
+
+    ChannelSpool(List<String> names, int flushBytes) {
+        this.names = List.copyOf(names);
+        this.encoders = new ChannelCodec.Encoder[names.size()];
+        for (int c = 0; c < encoders.length; c++) encoders[c] = new ChannelCodec.Encoder();
+        this.segments = new long[names.size()][8];
+        this.segmentCounts = new int[names.size()];
+        this.encodedSizes = new int[names.size()];
+        this.flushBytes = flushBytes;
+    }
+
+    /**
+     * Gets the column names, in header order.
+     * @return the names; empty unless full telemetry was requested
+     */
+    List<String> getNames() {
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * Gets the spool file.
+     * @return the file, or {@code null} before the first spill
+     */
+    Path getFile() {
+        return file;
+    }
+
+    /**
+     * Appends the next cell of a channel.
+     *
+     * @param channel the channel's position in {@link #getNames()}
+     * @param cell    the trimmed cell text
+     */
+    void add(int channel, String cell) {
+        encoders[channel].add(cell);
+    }
+
+    /**
+     * Moves the channels that buffer at least {@value #FLUSH_BYTES} bytes to the spool file.
+     *
+     * @throws IOException if the spool file cannot be written
+     */
+    void spill() throws IOException {
+        spill(flushBytes);
+    }
+
+    /**
+     * Stores all channels of a flight. Call it once all rows were added.
+     *
+     * @param channels the channel repository
+     * @param flightId the flight
+     * @throws IOException if the spool file cannot be read
+     */
+    void save(FlightChannelRepository channels, long flightId) throws IOException {
+        if (encoders.length == 0) return;
+        spill(1);
+        if (out != null) out.flush();
+        try (FileChannel ch = file != null ? FileChannel.open(file, StandardOpenOption.READ) : null) {
+            for (int c = 0; c < encoders.length; c++) {
+                try (InputStream in = new BufferedInputStream(new Segments(ch, segments[c], segmentCounts[c]), 64 * 1024)) {
+                    channels.save(flightId, names.get(c), encoders[c].getCount(), encodedSizes[c], in);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the spool file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (out != null) out.close();
+        } finally {
+            if (file != null) Files.deleteIfExists(file);
+        }
+    }
+
+    /* ---------- Helpers ---------- */
+
+    private void spill(int minBytes) throws IOException {
+        for (int c = 0; c < encoders.length; c++) {
+            if (encoders[c].getBufferedSize() < minBytes) continue;
+            if (out == null) {
+                file = Files.createTempFile("flightviewer-channels-", ".spool");
+                out = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024);
+            }
+            int n = encoders[c].drainTo(out);
+            int i = segmentCounts[c]++ * 2;
+            if (i == segments[c].length) segments[c] = Arrays.copyOf(segments[c], i * 2);
+            segments[c][i] = position;
+            segments[c][i + 1] = n;
+            position += n;
+            encodedSizes[c] = Math.addExact(encodedSizes[c], n);
+        }
+    }
+
+    /**
+     * Reads the segments of one channel back to back.
+     */
+    private static final class Segments extends InputStream {
+
+        private final FileChannel ch;
+        private final long[] segments;
+        private final int count;
+        private int segment;
+        private long offset;
+
+        Segments(FileChannel ch, long[] segments, int count) {
+            this.ch = ch;
+            this.segments = segments;
+            this.count = count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            while (segment < count && offset == segments[segment * 2 + 1]) {
+                segment++;
+                offset = 0;
+            }
+            if (segment == count) return -1;
+            int n = (int) Math.min(len, segments[segment * 2 + 1] - offset);
+            int read = ch.read(ByteBuffer.wrap(b, off, n), segments[segment * 2] + offset);
+            if (read < 0) throw new IOException("Channel spool file is truncated");
+            offset += read;
+            return read;
+        }
+    }
+}
@@ -0,0 +1,468 @@
+package de.banana.flightviewer.service;
+
+import de.banana.flightviewer.util.Sha256;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Resumable uploads of CSV logs of any size, sent as a series of checksummed chunks.
+ * <p>
+ * A client creates an upload, then appends chunks at the offset the server reports, each with its SHA-256.
+ * Chunks go straight to a spool file below {@code flightviewer.upload.dir} through a small buffer; a chunk
+ * whose checksum does not match is cut off again, so heap use does not depend on chunk or file size. After
+ * a dropped connection the client asks for the offset and continues from there. The offset and a few
+ * properties are kept in a sidecar file, so uploads also survive a restart of the application.
+ * </p>
+ * <p>
+ * The import starts with the first chunk: an {@link ImportJobService} job on the stream workers parses the
+ * spool file while it grows and waits for the next chunk at its end, so waiting uploads never hold the
+ * workers of file imports. If none arrives within {@code flightviewer.upload.stall-timeout-ms}, the job
+ * fails and rolls back, giving its worker to other uploads; the next chunk starts a new job that reads the
+ * spooled part again. The spool file is deleted once
+ * the flight is imported. Unfinished uploads without activity for {@code flightviewer.upload.expire-after-ms}
+ * are discarded.
+ * </p>
+ */
+@Service
+public class ChunkedUploadService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChunkedUploadService.class);
+    private static final String DATA_SUFFIX = ".part";
+    private static final String META_SUFFIX = ".properties";
+
+    private final ImportJobService jobs;
+    /**
+     * Directory of the spool and sidecar files.
+     */
+    private final Path dir;
+    private final long maxChunkBytes;
+    private final long stallTimeoutMillis;
+    private final long expireAfterMillis;
+    /**
+     * Known uploads by ID, including finished ones until they expire.
+     */
+    private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a ChunkedUploadService.
+     *
+     * @param jobs               the service running import jobs
+     * @param dir                the spool directory
+     * @param maxChunkBytes      the largest chunk accepted
+     * @param stallTimeoutMillis how long an import waits for the next chunk
+     * @param expireAfterMillis  how long an idle upload is kept
+     */
+    public ChunkedUploadService(ImportJobService jobs,
+                                @Value("${flightviewer.upload.dir:./data/uploads}") String dir,
+                                @Value("${flightviewer.upload.max-chunk-bytes:67108864}") long maxChunkBytes,
+                                @Value("${flightviewer.upload.stall-timeout-ms:600000}") long stallTimeoutMillis,
+                                @Value("${flightviewer.upload.expire-after-ms:86400000}") long expireAfterMillis) {
+        this.jobs = jobs;
+        this.dir = Path.of(dir);
+        this.maxChunkBytes = maxChunkBytes;
+        this.stallTimeoutMillis = stallTimeoutMillis;
+        this.expireAfterMillis = expireAfterMillis;
+    }
+
+    /**
+     * Starts an upload.
+     *
+     * @param fileName the original file name, stored on the flight
+     * @param size     the total size in bytes if known; the upload then completes with its last byte
+     * @return the new upload
+     * @throws IOException              if the spool files cannot be created
+     * @throws IllegalArgumentException if the name is missing or the size negative
+     */
+    public UploadSession create(String fileName, Long size) throws IOException {
+        if (fileName == null || fileName.isBlank()) throw new IllegalArgumentException("name is required");
+        if (size != null && size < 0) throw new IllegalArgumentException("size must not be negative");
+        if (fileName.toLowerCase(Locale.ROOT).endsWith(".zip")) {
+            throw new IllegalArgumentException("Chunked uploads take a single CSV; use /api/imports/bulk for ZIP archives");
+        }
+        Files.createDirectories(dir);
+        Upload upload = new Upload(new UploadSession(UUID.randomUUID().toString(), fileName, size, Instant.now()));
+        Files.createFile(upload.data);
+        writeMeta(upload);
+        uploads.put(upload.session.getId(), upload);
+        return upload.session;
+    }
+
+    /**
+     * Looks up an upload.
+     *
+     * @param id the upload ID
+     * @return the upload, or {@code null} if unknown or expired
+     */
+    public UploadSession get(String id) {
+        Upload upload = uploads.get(id);
+        return upload != null ? upload.session : null;
+    }
+
+    /**
+     * Appends a chunk and starts the import if it is not running yet.
+     *
+     * @param id     the upload ID
+     * @param offset the position of the chunk; must equal the current offset
+     * @param sha256 the SHA-256 of the chunk as hex
+     * @param body   the chunk
+     * @return the upload, or {@code null} if unknown
+     * @throws IOException                if the chunk cannot be read or written
+     * @throws IllegalArgumentException   if the checksum does not match or the chunk is too large
+     * @throws UploadConflictException    if the offset is not the expected one or the upload is closed
+     * @throws RejectedExecutionException if the last chunk arrived but the import queue is full
+     */
+    public UploadSession append(String id, long offset, String sha256, InputStream body) throws IOException {
+        Upload upload = uploads.get(id);
+        if (upload == null) return null;
+        if (sha256 == null || !sha256.matches("[0-9a-fA-F]{64}")) {
+            throw new IllegalArgumentException("A SHA-256 checksum of the chunk (64 hex digits) is required");
+        }
+        if (!upload.lock.tryLock()) {
+            throw new UploadConflictException("Another chunk of this upload is being written", upload.session.getOffset());
+        }
+        try {
+            UploadSession session = upload.session;
+            checkOpen(session);
+            if (offset != session.getOffset()) {
+                throw new UploadConflictException("Chunk starts at " + offset + ", expected " + session.getOffset(),
+                        session.getOffset());
+            }
+            long end = write(upload, offset, sha256, body, session.getSize());
+            session.acknowledge(end);
+            writeMeta(upload);
+        } finally {
+            upload.lock.unlock();
+        }
+        startImport(upload);
+        return upload.session;
+    }
+
+    /**
+     * Marks an upload as complete, so that the import finishes with the data received so far. Repeating the
+     * call only restarts an import that could not be queued before.
+     *
+     * @param id the upload ID
+     * @return the upload, or {@code null} if unknown
+     * @throws IOException                if the sidecar file cannot be written
+     * @throws IllegalArgumentException   if fewer bytes than announced were received
+     * @throws UploadConflictException    if the upload was aborted or its import failed
+     * @throws RejectedExecutionException if the import queue is full
+     */
+    public UploadSession complete(String id) throws IOException {
+        Upload upload = uploads.get(id);
+        if (upload == null) return null;
+        UploadSession session = upload.session;
+        if (!upload.lock.tryLock()) {
+            throw new UploadConflictException("A chunk of this upload is being written", session.getOffset());
+        }
+        try {
+            if (!session.isComplete()) {
+                checkOpen(session);
+                if (session.getSize() != null && session.getOffset() != session.getSize()) {
+                    throw new IllegalArgumentException("Received " + session.getOffset() + " of " + session.getSize() + " bytes");
+                }
+                session.complete();
+                writeMeta(upload);
+            }
+        } finally {
+            upload.lock.unlock();
+        }
+        startImport(upload);
+        return session;
+    }
+
+    /**
+     * Aborts an upload: a running import fails and rolls back, and the spooled data is deleted.
+     *
+     * @param id the upload ID
+     * @return {@code false} if the upload is unknown
+     */
+    public boolean abort(String id) {
+        Upload upload = uploads.remove(id);
+        if (upload == null) return false;
+        upload.session.abort();
+        delete(upload);
+        return true;
+    }
+
+    /**
+     * Discards uploads without activity for longer than {@code flightviewer.upload.expire-after-ms}.
+     */
+    @Scheduled(fixedDelayString = "${flightviewer.upload.expire-check-ms:60000}")
+    public void expire() {
+        Instant cutoff = Instant.now().minusMillis(expireAfterMillis);
+        for (Upload upload : List.copyOf(uploads.values())) {
+            ImportJob job = upload.session.getJob();
+            boolean importing = job != null && (job.getState() == ImportJob.State.QUEUED
+                    || job.getState() == ImportJob.State.RUNNING);
+            if (!importing && upload.session.getUpdatedAt().isBefore(cutoff)) {
+                log.info("Discarding expired upload {} of {}", upload.session.getId(), upload.session.getFileName());
+                abort(upload.session.getId());
+            }
+        }
+    }
+
+    /**
+     * Restores the uploads of the spool directory after a restart; complete ones are imported again.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        if (!Files.isDirectory(dir)) return;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path meta : files.filter(f -> f.getFileName().toString().endsWith(META_SUFFIX)).toList()) {
+                try {
+                    Upload upload = readMeta(meta);
+                    uploads.put(upload.session.getId(), upload);
+                    if (upload.session.isComplete()) startImport(upload);
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Cannot restore upload {}", meta, e);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Cannot list upload directory {}", dir, e);
+        }
+        if (!uploads.isEmpty()) log.info("Restored {} unfinished upload(s) from {}", uploads.size(), dir);
+    }
+
+    /**
+     * Thrown when a chunk does not fit the state of the upload; the client should resume from
+     * {@link #getOffset()}.
+     */
+    public static class UploadConflictException extends IllegalStateException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long offset;
+
+        UploadConflictException(String message, long offset) {
+            super(message);
+            this.offset = offset;
+        }
+
+        /**
+         * Gets the offset the next chunk must start at.
+         * @return the offset
+         */
+        public long getOffset() { return offset; }
+    }
+
+    /* ---------- Helpers ---------- */
+
+    /**
+     * An upload with its files and the lock serializing its chunks.
+     */
+    private final class Upload {
+        final UploadSession session;
+        final Path data;
+        final Path meta;
+        final ReentrantLock lock = new ReentrantLock();
+
+        Upload(UploadSession session) {
+            this.session = session;
+            this.data = dir.resolve(session.getId() + DATA_SUFFIX);
+            this.meta = dir.resolve(session.getId() + META_SUFFIX);
+        }
+    }
+
+    private static void checkOpen(UploadSession session) {
+        if (session.isAborted()) throw new UploadConflictException("Upload was aborted", session.getOffset());
+        if (session.isComplete()) throw new UploadConflictException("Upload is complete", session.getOffset());
+        ImportJob job = session.getJob();
+        if (job != null && job.getState() == ImportJob.State.FAILED && !session.isStalled()) {
+            throw new UploadConflictException("Import failed: " + job.getError(), session.getOffset());
+        }
+    }
+
+    /**
+     * Writes a chunk at the offset and verifies it; a bad chunk is truncated again.
+     *
+     * @return the new end of the data
+     */
+    private long write(Upload upload, long offset, String sha256, InputStream body, Long size) throws IOException {
+        MessageDigest digest = Sha256.newDigest();
+        long end = offset;
+        try (FileChannel out = FileChannel.open(upload.data, StandardOpenOption.WRITE)) {
+            out.truncate(offset);
+            out.position(offset);
+            byte[] buf = new byte[64 * 1024];
+            ByteBuffer wrapped = ByteBuffer.wrap(buf);
+            try {
+                for (int n; (n = body.read(buf)) > 0; ) {
+                    end += n;
+                    if (end - offset > maxChunkBytes) {
+                        throw new IllegalArgumentException("Chunk exceeds " + maxChunkBytes + " bytes");
+                    }
+                    if (size != null && end > size) {
+                        throw new IllegalArgumentException("Chunk ends beyond the announced size of " + size + " bytes");
+                    }
+                    digest.update(buf, 0, n);
+                    wrapped.clear().limit(n);
+                    while (wrapped.hasRemaining()) out.write(wrapped);
+                }
+                String actual = Sha256.hex(digest);
+                if (!actual.equalsIgnoreCase(sha256)) {
+                    throw new IllegalArgumentException("Chunk checksum mismatch: expected " + sha256.toLowerCase(Locale.ROOT)
+                            + ", received " + actual);
+                }
+                out.force(false);
+            } catch (IOException | RuntimeException e) {
+                out.truncate(offset);
+                throw e;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Queues a job reading the spool file unless one is queued, running or done. A full queue is only an
+     * error once the upload is complete; otherwise the next chunk tries again.
+     */
+    private void startImport(Upload upload) throws IOException {
+        UploadSession session = upload.session;
+        synchronized (session) {
+            ImportJob job = session.getJob();
+            if (session.isAborted() || job != null && (job.getState() != ImportJob.State.FAILED || !session.isStalled())) {
+                return;
+            }
+            InputStream in = new SpoolInputStream(session, FileChannel.open(upload.data, StandardOpenOption.READ));
+            try {
+                session.setJob(jobs.submit(in, session.getFileName(), finished -> finished(upload, finished)));
+            } catch (RejectedExecutionException e) {
+                in.close();
+                if (session.isComplete()) throw e;
+            }
+        }
+    }
+
+    /**
+     * Deletes the spooled data of an imported or failed upload. A duplicate log may be recognized before all
+     * chunks arrived; the upload is then closed early. A stalled job keeps the data; if the last chunk arrived
+     * just as the job gave up, the import is restarted right away.
+     */
+    private void finished(Upload upload, ImportJob job) {
+        if (job.getState() == ImportJob.State.DONE) upload.session.complete();
+        if (job.getState() != ImportJob.State.FAILED || !upload.session.isStalled()) {
+            delete(upload);
+            return;
+        }
+        log.info("Import of upload {} paused until it resumes", upload.session.getId());
+        if (upload.session.isComplete()) {
+            try {
+                startImport(upload);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Cannot restart the import of upload {}", upload.session.getId(), e);
+            }
+        }
+    }
+
+    private static void delete(Upload upload) {
+        try {
+            Files.deleteIfExists(upload.meta);
+            Files.deleteIfExists(upload.data);
+        } catch (IOException e) {
+            log.warn("Could not delete spooled upload {}", upload.data, e);
+        }
+    }
+
+    private static void writeMeta(Upload upload) throws IOException {
+        UploadSession session = upload.session;
+        Properties p = new Properties();
+        p.setProperty("fileName", session.getFileName());
+        if (session.getSize() != null) p.setProperty("size", String.valueOf(session.getSize()));
+        p.setProperty("offset", String.valueOf(session.getOffset()));
+        p.setProperty("complete", String.valueOf(session.isComplete()));
+        p.setProperty("createdAt", session.getCreatedAt().toString());
+        Path tmp = upload.meta.resolveSibling(upload.meta.getFileName() + ".tmp");
+        try (Writer w = Files.newBufferedWriter(tmp)) {
+            p.store(w, null);
+        }
+        Files.move(tmp, upload.meta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a sidecar file and cuts the spool file back to the acknowledged offset, dropping a chunk that was
+     * being written when the application stopped.
+     */
+    private Upload readMeta(Path meta) throws IOException {
+        Properties p = new Properties();
+        try (Reader r = Files.newBufferedReader(meta)) {
+            p.load(r);
+        }
+        String name = meta.getFileName().toString();
+        String size = p.getProperty("size");
+        Upload upload = new Upload(new UploadSession(name.substring(0, name.length() - META_SUFFIX.length()),
+                p.getProperty("fileName"), size != null ? Long.valueOf(size) : null,
+                Instant.parse(p.getProperty("createdAt"))));
+        long offset = Long.parseLong(p.getProperty("offset"));
+        try (FileChannel data = FileChannel.open(upload.data, StandardOpenOption.WRITE)) {
+            if (data.size() < offset) throw new IOException("Spool file is shorter than the acknowledged " + offset + " bytes");
+            data.truncate(offset);
+        }
+        upload.session.acknowledge(offset);
+        if (Boolean.parseBoolean(p.getProperty("complete"))) upload.session.complete();
+        return upload;
+    }
+
+    /**
+     * Reads the acknowledged part of a spool file, waiting at its end for the next chunk.
+     */
+    private final class SpoolInputStream extends InputStream {
+        private final UploadSession session;
+        private final FileChannel channel;
+        private long position;
+
+        SpoolInputStream(UploadSession session, FileChannel channel) {
+            this.session = session;
+            this.channel = channel;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            long available = session.awaitData(position, stallTimeoutMillis);
+            if (available < 0) return -1;
+            int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, available)), position);
+            if (n < 0) throw new IOException("Spool file ends before the acknowledged offset");
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package de.banana.flightviewer.service;
+
+import de.banana.flightviewer.model.SampleColumns;
+import de.banana.flightviewer.repository.FlightRepository;
+import de.banana.flightviewer.repository.SampleStore;
+import de.banana.flightviewer.util.GeoMath;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Pyramid of coverage tiles showing the sample density of all flights.
+ * <p>
+ * For every zoom level up to {@code flightviewer.tiles.max-zoom}, each 256 x 256 Web-Mercator tile touched by a
+ * flight has a count grid on disk ({@code <dir>/coverage/z/x/y.cnt}, deflated int32 per pixel). When a flight
+ * is imported its samples are added to the grids of the tiles it touches, and only those tiles' rendered PNGs
+ * are deleted. A PNG is rendered from its grid on the first request and then served from disk until the next
+ * flight touches the tile. Tiles no flight touches are one shared transparent PNG.
+ * </p>
+ * <p>
+ * The IDs of the flights already counted are kept in {@code <dir>/coverage/flights.txt}; flights missing
+ * from it, e.g. imported before tiles existed or with the tile directory deleted, are added at startup.
+ * </p>
+ */
+@Service
+public class CoverageTileService {
+
+    private static final Logger log = LoggerFactory.getLogger(CoverageTileService.class);
+
+    /**
+     * Tile edge in pixels.
+     */
+    private static final int TILE_SIZE = 256;
+    /**
+     * Samples per pixel rendered with full color; the scale is logarithmic up to here.
+     */
+    private static final double SATURATION = 1000;
+    /**
+     * Number of lock stripes serializing updates and renders of the same tile.
+     */
+    private static final int STRIPES = 64;
+
+    private final SampleStore samples;
+    private final FlightRepository flights;
+    private final Path dir;
+    private final int maxZoom;
+    private final boolean enabled;
+    private final Object[] locks = new Object[STRIPES];
+    private final byte[] empty;
+    /**
+     * IDs of the flights counted in the grids; guarded by {@code this}.
+     */
+    private Set<Long> included;
+
+    /**
+     * Constructs a CoverageTileService.
+     *
+     * @param samples the store the samples are read from
+     * @param flights the flight repository, to find flights missing from the tiles
+     * @param dir     directory holding the tiles
+     * @param maxZoom highest zoom level rendered
+     * @param enabled whether imported flights are added to the tiles
+     */
+    public CoverageTileService(SampleStore samples, FlightRepository flights,
+                               @Value("${flightviewer.tiles.dir:./data/tiles}") Path dir,
+                               @Value("${flightviewer.tiles.max-zoom:16}") int maxZoom,
+                               @Value("${flightviewer.tiles.enabled:true}") boolean enabled) {
+        this.samples = samples;
+        this.flights = flights;
+        this.dir = dir.resolve("coverage");
+        this.maxZoom = maxZoom;
+        this.enabled = enabled;
+        for (int i = 0; i < STRIPES; i++) locks[i] = new Object();
+        this.empty = png(new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB));
+    }
+
+    /**
+     * Gets the highest zoom level rendered.
+     * @return the maximum zoom
+     */
+    public int getMaxZoom() { return maxZoom; }
+
+    /**
+     * Gets a rendered tile, from disk if it is up to date.
+     *
+     * @param z zoom level
+     * @param x tile column
+     * @param y tile row
+     * @return the PNG, or {@code null} if the tile does not exist at this zoom
+     * @throws IOException if the tile cannot be read or written
+     */
+    public Tile tile(int z, int x, int y) throws IOException {
+        if (z < 0 || z > maxZoom || x < 0 || y < 0 || x >= 1 << z || y >= 1 << z) return null;
+        Path png = path(z, x, y, ".png");
+        Tile cached = read(png);
+        if (cached != null) return cached;
+        synchronized (lock(z, x, y)) {
+            cached = read(png);
+            if (cached != null) return cached;
+            int[] counts = readCounts(path(z, x, y, ".cnt"));
+            if (counts == null) return new Tile(empty, 0);
+            writeAtomically(png, render(counts));
+            return read(png);
+        }
+    }
+
+    /**
+     * Adds a flight's samples to the tiles it touches and invalidates their PNGs. Flights already counted are
+     * skipped.
+     *
+     * @param flightId the ID of the (committed) flight
+     * @throws IOException if the tiles cannot be updated
+     */
+    public synchronized void addFlight(long flightId) throws IOException {
+        if (!enabled || included().contains(flightId)) return;
+        SampleColumns cols = samples.load(flightId);
+        for (int z = 0; z <= maxZoom; z++) {
+            Map<Long, int[]> grids = new HashMap<>();
+            for (int i = 0; i < cols.size(); i++) {
+                double lat = cols.latitude(i), lon = cols.longitude(i);
+                if (!GeoMath.hasFix(lat, lon)) continue;
+                long px = Math.min((long) GeoMath.mercatorX(lon, z), ((long) TILE_SIZE << z) - 1);
+                long py = Math.min((long) GeoMath.mercatorY(lat, z), ((long) TILE_SIZE << z) - 1);
+                long key = (px / TILE_SIZE) << 32 | (py / TILE_SIZE);
+                grids.computeIfAbsent(key, k -> new int[TILE_SIZE * TILE_SIZE])
+                        [(int) (py % TILE_SIZE) * TILE_SIZE + (int) (px % TILE_SIZE)]++;
+            }
+            for (Map.Entry<Long, int[]> e : grids.entrySet()) {
+                merge(z, (int) (e.getKey() >>> 32), (int) (long) e.getKey(), e.getValue());
+            }
+        }
+        Files.createDirectories(dir);
+        Files.writeString(dir.resolve("flights.txt"), flightId + "\n", StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        included.add(flightId);
+    }
+
+    /**
+     * Adds the flights missing from the tiles, e.g. after the tile directory was deleted.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void addMissing() {
+        if (!enabled) return;
+        List<Long> missing;
+        synchronized (this) {
+            missing = flights.findAllIds().stream().filter(id -> !included().contains(id)).toList();
+        }
+        if (missing.isEmpty()) return;
+        log.info("Adding {} flight(s) to the coverage tiles", missing.size());
+        for (long id : missing) {
+            try {
+                addFlight(id);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Cannot add flight {} to the coverage tiles", id, e);
+            }
+        }
+    }
+
+    /**
+     * A rendered tile.
+     *
+     * @param png     the PNG bytes
+     * @param version changes whenever the tile is re-rendered; 0 for the empty tile
+     */
+    public record Tile(byte[] png, long version) { }
+
+    /* ---------- Helpers ---------- */
+
+    private Object lock(int z, int x, int y) {
+        return locks[Math.floorMod((z * 31 + x) * 31 + y, STRIPES)];
+    }
+
+    private Path path(int z, int x, int y, String suffix) {
+        return dir.resolve(Integer.toString(z)).resolve(Integer.toString(x)).resolve(y + suffix);
+    }
+
+    private Set<Long> included() {
+        if (included == null) {
+            included = new HashSet<>();
+            try {
+                for (String line : Files.readAllLines(dir.resolve("flights.txt"), StandardCharsets.UTF_8)) {
+                    if (!line.isBlank()) included.add(Long.parseLong(line.trim()));
+                }
+            } catch (NoSuchFileException e) {
+                // no tiles yet
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return included;
+    }
+
+    private void merge(int z, int x, int y, int[] delta) throws IOException {
+        synchronized (lock(z, x, y)) {
+            Path cnt = path(z, x, y, ".cnt");
+            int[] counts = readCounts(cnt);
+            if (counts != null) {
+                for (int i = 0; i < delta.length; i++) delta[i] += counts[i];
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+                for (int v : delta) out.writeInt(v);
+            }
+            writeAtomically(cnt, bytes.toByteArray());
+            Files.deleteIfExists(path(z, x, y, ".png"));
+        }
+    }
+
+    private static int[] readCounts(Path cnt) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new InflaterInputStream(Files.newInputStream(cnt))))) {
+            int[] counts = new int[TILE_SIZE * TILE_SIZE];
+            for (int i = 0; i < counts.length; i++) counts[i] = in.readInt();
+            return counts;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private static Tile read(Path png) throws IOException {
+        try {
+            long version = Files.getLastModifiedTime(png).toMillis();
+            return new Tile(Files.readAllBytes(png), version);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private static void writeAtomically(Path file, byte[] content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, content);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Colors each pixel by its sample count on a logarithmic blue-to-red ramp; empty pixels stay transparent.
+     */
+    private static byte[] render(int[] counts) {
+        BufferedImage img = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+        double scale = Math.log1p(SATURATION);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) continue;
+            double t = Math.min(1, Math.log1p(counts[i]) / scale);
+            int rgb = Color.HSBtoRGB((float) (0.66 * (1 - t)), 1f, 1f) & 0xffffff;
+            int alpha = (int) (128 + 127 * t);
+            img.setRGB(i % TILE_SIZE, i / TILE_SIZE, alpha << 24 | rgb);
+        }
+        return png(img);
+    }
+
+    private static byte[] png(BufferedImage img) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        try {
+            ImageIO.write(img, "png", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // in-memory target does not throw
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,351 @@
+package de.banana.flightviewer.service;
+
+import de.banana.flightviewer.csv.DjiCsvReader;
+import de.banana.flightviewer.model.SampleColumns;
+import de.banana.flightviewer.util.GeoMath;
+import de.banana.flightviewer.util.Sha256;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses the DJI CSV rows on a parser thread and hands them to the importing thread in {@link Chunk}s.
+ * <p>
+ * The importing thread owns the transaction and does the storage writes while the next chunks are being
+ * parsed, so parsing and persistence overlap. The hand-off queue is small and bounded, so a slow writer
+ * throttles the parser instead of buffering the whole file. Rows are converted to the units of
+ * {@link de.banana.flightviewer.model.Sample} (meters, m/s, epoch milliseconds relative to a base time).
+ * Alongside the samples, each chunk carries the satellite count, flight mode and warning of every row for
+ * event detection.
+ * </p>
+ * <p>
+ * The rows up to the first one with a GPS fix are read on the calling thread, so that the flight's
+ * {@linkplain #getFingerprint() fingerprint} is known before anything is persisted. At most
+ * {@value #FIX_LOOKAHEAD_CHUNKS} chunks are read ahead like this; they are handed out first.
+ * </p>
+ * <p>
+ * In full-telemetry mode every other column of the log is also encoded into a {@link ChannelCodec} channel
+ * on the parser thread and spooled to disk after each chunk; see {@link #getChannels()}.
+ * </p>
+ * <p>
+ * {@link #close()} stops the parser and waits for it, so the caller may close the underlying stream
+ * afterwards.
+ * </p>
+ */
+final class CsvChunkParser implements AutoCloseable {
+
+    /**
+     * Marks the end of input in the queue.
+     */
+    private static final Chunk END = new Chunk(0);
+    private static final int QUEUED_CHUNKS = 4;
+    /**
+     * Chunks read on the calling thread at most while looking for the first GPS fix.
+     */
+    private static final int FIX_LOOKAHEAD_CHUNKS = 16;
+    /**
+     * Columns converted into samples, which are not stored again as channels.
+     */
+    private static final List<String> SAMPLE_COLUMNS = List.of("OSD.flyTime [s]", "OSD.latitude", "OSD.longitude",
+            "OSD.altitude [ft]", "OSD.hSpeed [MPH]", "BATTERY.chargeLevel");
+
+    /**
+     * Rows parsed together: the samples and, per row, the status columns used for event detection.
+     */
+    static final class Chunk {
+        /**
+         * The converted samples.
+         */
+        final SampleColumns samples;
+        /**
+         * Number of GPS satellites per row, {@code -1} if blank or not logged.
+         */
+        final int[] satellites;
+        /**
+         * Flight mode per row, {@code null} if not logged. Equal consecutive values share one instance.
+         */
+        final String[] modes;
+        /**
+         * Warning text per row, {@code null} if not logged. Equal consecutive values share one instance.
+         */
+        final String[] warnings;
+
+        private Chunk(int capacity) {
+            samples = new SampleColumns(capacity);
+            satellites = new int[capacity];
+            modes = new String[capacity];
+            warnings = new String[capacity];
+        }
+
+        /**
+         * Gets the number of rows.
+         * @return the row count
+         */
+        int size() {
+            return samples.size();
+        }
+    }
+
+    private final DjiCsvReader csv;
+    private final int colFlyTime, colLat, colLon, colAlt, colSpeed, colBatt;
+    private final int colSatellites, colMode, colWarning;
+    private final long baseMillis;
+    private final int chunkSize;
+    private final BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(QUEUED_CHUNKS);
+    private final String fingerprint;
+    private final String aircraftSerial;
+    private final ChannelSpool channels;
+    private final int[] channelSlots;
+    private final Future<?> task;
+    private double firstFlyTimeS = -1;
+    private String prevMode, prevWarning;
+    private volatile boolean closed;
+    private volatile long rowsParsed;
+    private volatile Throwable failure;
+
+    /**
+     * Resolves the required columns and starts parsing.
+     *
+     * @param csv        the reader, positioned after the header
+     * @param baseMillis epoch milliseconds of the first row
+     * @param chunkSize  rows per chunk
+     * @param parsers    executor running the parser
+     * @param telemetry  whether to encode all other columns as channels as well
+     * @throws IllegalArgumentException if a required column is missing
+     * @throws UncheckedIOException     if the first row cannot be read
+     */
+    CsvChunkParser(DjiCsvReader csv, long baseMillis, int chunkSize, ExecutorService parsers, boolean telemetry) {
+        this.csv = csv;
+        this.colFlyTime = csv.requireColumn(SAMPLE_COLUMNS.get(0));
+        this.colLat     = csv.requireColumn(SAMPLE_COLUMNS.get(1));
+        this.colLon     = csv.requireColumn(SAMPLE_COLUMNS.get(2));
+        this.colAlt     = csv.requireColumn(SAMPLE_COLUMNS.get(3));
+        this.colSpeed   = csv.requireColumn(SAMPLE_COLUMNS.get(4));
+        this.colBatt    = csv.requireColumn(SAMPLE_COLUMNS.get(5));
+        this.colSatellites = csv.column("OSD.gpsNum");
+        this.colMode       = csv.column("OSD.flycState");
+        this.colWarning    = csv.column("APP.warning");
+        this.baseMillis = baseMillis;
+        this.chunkSize = chunkSize;
+
+        int colSerial = csv.column("DETAILS.aircraftSerial");
+        if (colSerial < 0) colSerial = csv.column("RECOVER.aircraftSerial");
+        int colDate = csv.column("CUSTOM.date [local]");
+        int colTime = csv.column("CUSTOM.updateTime [local]");
+
+        List<String> names = new ArrayList<>();
+        if (telemetry) {
+            for (String name : csv.getHeader()) {
+                String key = name.trim();
+                if (key.isEmpty() || SAMPLE_COLUMNS.contains(key) || names.contains(key)) continue;
+                names.add(key);
+            }
+        }
+        this.channels = new ChannelSpool(names);
+        this.channelSlots = new int[names.size()];
+        for (int c = 0; c < channelSlots.length; c++) channelSlots[c] = csv.column(names.get(c));
+
+        List<Chunk> ahead = new ArrayList<>();
+        Chunk chunk = new Chunk(chunkSize);
+        String fp = null, serial = "";
+        try {
+            if (csv.next()) {
+                add(chunk);
+                rowsParsed = 1;
+                serial = colSerial >= 0 ? csv.getString(colSerial).trim() : "";
+                String start = (colDate >= 0 ? csv.getString(colDate) : "") + " "
+                        + (colTime >= 0 ? csv.getString(colTime) : "");
+                String position = firstFix(chunk);
+                while (!serial.isEmpty() && position == null && ahead.size() < FIX_LOOKAHEAD_CHUNKS - 1
+                        && csv.next()) {
+                    if (chunk.size() == chunkSize) {
+                        ahead.add(chunk);
+                        chunk = new Chunk(chunkSize);
+                        channels.spill();
+                    }
+                    add(chunk);
+                    rowsParsed++;
+                    position = firstFix(chunk);
+                }
+                if (!serial.isEmpty()) {
+                    fp = Sha256.of(serial + "|" + start.trim() + (position != null ? "|" + position : ""));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ahead.add(chunk);
+        this.fingerprint = fp;
+        this.aircraftSerial = serial.isEmpty() ? null : serial;
+        this.task = parsers.submit(() -> parse(ahead));
+    }
+
+    /**
+     * Gets the canonical fingerprint of the logged flight: aircraft serial, local log start time and position
+     * (1e-6 degrees) of the first sample with a GPS fix, hashed with SHA-256.
+     * <p>
+     * Independent of file name, converter and formatting, so re-exports of the same log match. The rows
+     * logged before the fix all sit at 0,0 and do not tell flights apart. Without a fix in the rows read
+     * ahead, the fingerprint is made of serial and start time only.
+     * </p>
+     *
+     * @return the fingerprint (hex), or {@code null} if the log has no aircraft serial or no rows
+     */
+    String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Gets the aircraft serial number from the first row.
+     *
+     * @return the serial, or {@code null} if the log has none
+     */
+    String getAircraftSerial() {
+        return aircraftSerial;
+    }
+
+    /**
+     * Gets the telemetry channels, in header order. Complete once {@link #next()} returned {@code null};
+     * the spool file is deleted by {@link #close()}.
+     *
+     * @return the spooled channels; without columns unless full telemetry was requested
+     */
+    ChannelSpool getChannels() {
+        return channels;
+    }
+
+    /**
+     * Waits for the next chunk.
+     *
+     * @return the next rows, or {@code null} at the end of the input
+     * @throws IOException if parsing failed
+     */
+    Chunk next() throws IOException {
+        Chunk chunk;
+        try {
+            chunk = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for parsed rows", e);
+        }
+        if (chunk != END) return chunk;
+        queue.offer(END); // stay at the end for repeated calls
+        Throwable e = failure;
+        if (e instanceof IOException io) throw io;
+        if (e instanceof RuntimeException re) throw re;
+        if (e instanceof Error error) throw error;
+        if (e != null) throw new IOException("Cannot parse CSV", e);
+        return null;
+    }
+
+    /**
+     * Gets the number of rows parsed so far, including rows not yet handed out.
+     * @return rows parsed
+     */
+    long getRowsParsed() {
+        return rowsParsed;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        queue.clear(); // unblocks a parser waiting for room
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // parse() reports its own failures through the queue
+        }
+        try {
+            channels.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete the channel spool", e);
+        }
+    }
+
+    /* ---------- Helpers ---------- */
+
+    /**
+     * Parses the remaining rows, after handing out the chunks read ahead; the last of them is still filled.
+     */
+    private void parse(List<Chunk> ahead) {
+        try {
+            for (Chunk full : ahead.subList(0, ahead.size() - 1)) put(full);
+            Chunk chunk = ahead.get(ahead.size() - 1);
+            long rows = rowsParsed;
+            while (!closed && csv.next()) {
+                if (chunk.size() == chunkSize) {
+                    put(chunk);
+                    chunk = new Chunk(chunkSize);
+                    channels.spill();
+                }
+                add(chunk);
+                rowsParsed = ++rows;
+            }
+            if (chunk.size() > 0) put(chunk);
+        } catch (Throwable e) {
+            failure = e; // includes errors such as OutOfMemoryError, so that no truncated flight is committed
+        } finally {
+            while (!closed && !offer(END)) { /* retry until consumed or closed */ }
+        }
+    }
+
+    /**
+     * Converts the current row and appends it to the chunk and the channels.
+     */
+    private void add(Chunk chunk) {
+        double flySec = csv.getDouble(colFlyTime);
+        if (firstFlyTimeS < 0) firstFlyTimeS = flySec;
+        long   tsMillis = baseMillis + (long) ((flySec - firstFlyTimeS) * 1000.0);
+
+        double altM  = csv.getDouble(colAlt) * 0.3048;     // ft → m
+        double spdMs = csv.getDouble(colSpeed) * 0.44704;  // mph → m/s
+
+        int row = chunk.size();
+        chunk.satellites[row] = colSatellites >= 0 && !csv.isBlank(colSatellites) ? csv.getInt(colSatellites) : -1;
+        if (colMode >= 0) chunk.modes[row] = prevMode = same(prevMode, csv.getString(colMode));
+        if (colWarning >= 0) chunk.warnings[row] = prevWarning = same(prevWarning, csv.getString(colWarning));
+        chunk.samples.add(tsMillis, csv.getDouble(colLat), csv.getDouble(colLon), altM, spdMs, csv.getInt(colBatt));
+        for (int c = 0; c < channelSlots.length; c++) {
+            channels.add(c, csv.getString(channelSlots[c]));
+        }
+    }
+
+    /**
+     * Formats the position of the chunk's last row if it is the first with a GPS fix.
+     *
+     * @return the position, or {@code null} if the row has no fix
+     */
+    private static String firstFix(Chunk chunk) {
+        int row = chunk.size() - 1;
+        double lat = chunk.samples.latitude(row), lon = chunk.samples.longitude(row);
+        return GeoMath.hasFix(lat, lon) ? Math.round(lat * 1e6) + "," + Math.round(lon * 1e6) : null;
+    }
+
+    private static String same(String prev, String cell) {
+        return cell.equals(prev) ? prev : cell;
+    }
+
+    private void put(Chunk chunk) {
+        while (!closed && !offer(chunk)) { /* retry until consumed or closed */ }
+    }
+
+    private boolean offer(Chunk chunk) {
+        try {
+            return queue.offer(chunk, 100, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            closed = true;
+            return false;
+        }
+    }
+}
@@ -1,22 +1,46 @@
 package de.banana.flightviewer.service;
 
+import de.banana.flightviewer.csv.DjiCsvReader;
 import de.banana.flightviewer.model.Flight;
-import de.banana.flightviewer.model.Sample;
+import de.banana.flightviewer.model.SampleColumns;
+import de.banana.flightviewer.repository.FlightChannelRepository;
+import de.banana.flightviewer.repository.FlightEventRepository;
 import de.banana.flightviewer.repository.FlightRepository;
-import de.banana.flightviewer.repository.SampleRepository;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
+import de.banana.flightviewer.repository.FlightSegmentFiles;
+import de.banana.flightviewer.repository.SampleStore;
+import de.banana.flightviewer.repository.SampleWriter;
+import de.banana.flightviewer.util.Sha256;
+import de.banana.flightviewer.util.TrackStats;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.BufferedReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.List;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Service for importing drone flight data from CSV files.
@@ -32,30 +56,144 @@ import java.util.List;
  *   <li>OSD.hSpeed [MPH]       (horizontal speed mph)</li>
  *   <li>BATTERY.chargeLevel    (int 0-100)</li>
  * </ul>
- * Any other columns are ignored.
+ * Any other columns are skipped by {@link DjiCsvReader} without being materialized, unless
+ * {@code flightviewer.import.full-telemetry} is set: then each of them is stored as a compressed
+ * {@link de.banana.flightviewer.model.FlightChannel} of the flight, read only through the channel endpoint.
+ * The channels are spooled to a temporary file while the log is parsed, so they do not grow the heap either.
+ * The optional columns OSD.gpsNum, OSD.flycState and APP.warning feed the {@link FlightEventDetector}, which
+ * runs in the same pass as the stats.
+ * </p>
+ * <p>
+ * Logs are imported at most once. A file whose SHA-256 content hash, or whose canonical fingerprint
+ * (aircraft serial, local log start time, first position with a GPS fix), matches an existing flight is not
+ * imported again; the existing flight is returned instead and {@link ImportProgress#duplicateOf} is called.
+ * Both values are stored in unique indexes on {@link Flight}, which also catches concurrent imports of the
+ * same log. The fingerprint is checked before any sample is written. The content hash of a file is checked
+ * first as well, but the hash of a stream is only known once it has been read: a stream import of a log
+ * without aircraft serial, and therefore without fingerprint, recognizes a duplicate only after all of its
+ * samples were written, and then rolls them back. Such streams are not spooled to hash them first, since
+ * that would keep them from being imported while they arrive.
+ * </p>
+ * <p>
+ * The completed flight, with the aircraft serial from the log, is added to the fleet rollups of
+ * {@link FlightStatsService} in the import transaction.
+ * </p>
+ * <p>
+ * Every import is observed as {@value #OBSERVATION} (duration by outcome, and a trace span when sampled),
+ * with its rows and bytes per second.
  * </p>
  */
 @Service
 public class CsvImportService {
 
+    private static final Logger log = LoggerFactory.getLogger(CsvImportService.class);
+
+    /**
+     * Number of rows between two {@link ImportProgress} updates.
+     */
+    public static final int PROGRESS_INTERVAL = 1024;
+    /**
+     * Name of the import observation, and of its timer.
+     */
+    public static final String OBSERVATION = "flightviewer.import";
+
     /**
      * Repository for storing Flight entities.
      */
     private final FlightRepository flightRepo;
     /**
-     * Repository for storing Sample entities.
+     * Storage for the samples of the imported flight.
+     */
+    private final SampleStore sampleStore;
+    /**
+     * Per-flight segment files written alongside the sample store.
+     */
+    private final FlightSegmentFiles segments;
+    /**
+     * Spatial index fed alongside the sample store.
+     */
+    private final FlightSearchService search;
+    /**
+     * Coverage tiles updated after each import.
+     */
+    private final CoverageTileService coverage;
+    /**
+     * Extra telemetry columns of full-telemetry imports.
+     */
+    private final FlightChannelRepository channels;
+    /**
+     * Events detected while the samples are written.
+     */
+    private final FlightEventRepository events;
+    /**
+     * Fleet rollups the completed flight is added to.
+     */
+    private final FlightStatsService stats;
+    /**
+     * Whether all other columns are stored as channels.
+     */
+    private final boolean fullTelemetry;
+    /**
+     * Transaction wrapping the flight and all of its samples.
      */
-    private final SampleRepository sampleRepo;
+    private final TransactionTemplate tx;
+    /**
+     * Threads parsing CSV rows ahead of the importing (writing) thread.
+     */
+    private final ExecutorService parsers;
+    /**
+     * Registry of the import throughput metrics.
+     */
+    private final MeterRegistry metrics;
+    /**
+     * Registry of the import observations (duration timer and, if sampled, a trace span).
+     */
+    private final ObservationRegistry observations;
 
     /**
      * Constructs a CsvImportService with the required repositories.
      *
-     * @param flightRepo repository for Flight entities
-     * @param sampleRepo repository for Sample entities
+     * @param flightRepo    repository for Flight entities
+     * @param sampleStore   storage for the samples
+     * @param segments      per-flight segment files for replay and export reads
+     * @param search        spatial index of the tracks
+     * @param coverage      coverage tiles of all flights
+     * @param channels      storage for the extra telemetry columns
+     * @param events        index of the flights' events
+     * @param stats         fleet statistics per aircraft and month
+     * @param tx            transaction template for the import
+     * @param metrics       registry the import throughput is published to
+     * @param observations  registry the imports are observed by
+     * @param parserThreads number of CSV parser threads; 0 for one per available processor
+     * @param fullTelemetry whether to store all other columns as channels
      */
-    public CsvImportService(FlightRepository flightRepo, SampleRepository sampleRepo) {
+    public CsvImportService(FlightRepository flightRepo,
+                            SampleStore sampleStore,
+                            FlightSegmentFiles segments,
+                            FlightSearchService search,
+                            CoverageTileService coverage,
+                            FlightChannelRepository channels,
+                            FlightEventRepository events,
+                            FlightStatsService stats,
+                            TransactionTemplate tx,
+                            MeterRegistry metrics,
+                            ObservationRegistry observations,
+                            @Value("${flightviewer.import.parser-threads:0}") int parserThreads,
+                            @Value("${flightviewer.import.full-telemetry:false}") boolean fullTelemetry) {
         this.flightRepo = flightRepo;
-        this.sampleRepo = sampleRepo;
+        this.sampleStore = sampleStore;
+        this.segments = segments;
+        this.search = search;
+        this.coverage = coverage;
+        this.channels = channels;
+        this.events = events;
+        this.stats = stats;
+        this.fullTelemetry = fullTelemetry;
+        this.tx = tx;
+        this.metrics = metrics;
+        this.observations = observations;
+        int threads = parserThreads > 0 ? parserThreads : Runtime.getRuntime().availableProcessors();
+        this.parsers = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("csv-parser-"));
     }
 
     /**
@@ -66,110 +204,319 @@ public class CsvImportService {
      * @throws IOException if an I/O error occurs during import
      */
     public Flight importCsv(MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return importCsv(in, file.getOriginalFilename());
+        }
+    }
 
-        List<Sample> samples = new ArrayList<>();
-
-        // Stats we compute on-the-fly
-        double maxAlt = Double.NEGATIVE_INFINITY;
-        int    minBatt = 100;
-        double distanceMeters = 0.0;
-
-        Instant baseInstant = Instant.now(); // relative timestamps anchor here
-        double  firstFlyTimeS = -1;          // will hold flyTime at first row
-
-        Sample prev = null;
+    /**
+     * Imports flight data from a CSV stream and stores it in the database.
+     * <p>
+     * Rows are parsed on a parser thread and handed over in chunks to the calling thread, which streams them
+     * into the {@link SampleStore} writer (fixed-size JDBC batches for the row store) while the next chunk is
+     * parsed. Heap use does not grow with the length of the log. The flight and all its samples are written in one transaction.
+     * If enabled, the samples are also teed into the flight's segment file ({@link FlightSegmentFiles}),
+     * which is published only once the transaction commits.
+     * </p>
+     *
+     * @param in       the CSV content; not closed by this method
+     * @param fileName the original file name, stored on the flight
+     * @return the imported Flight entity
+     * @throws IOException if an I/O error occurs during import
+     */
+    public Flight importCsv(InputStream in, String fileName) throws IOException {
+        return importCsv(in, fileName, ImportProgress.NONE);
+    }
 
-        try (BufferedReader br = new BufferedReader(
-                new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+    /**
+     * Imports flight data from a CSV stream and reports progress while doing so.
+     * <p>
+     * The content hash is computed while the stream is read, so a duplicate log without fingerprint is only
+     * recognized at the end of the import (see the class description).
+     * </p>
+     *
+     * @param in       the CSV content; not closed by this method
+     * @param fileName the original file name, stored on the flight
+     * @param progress receives row counts during the import
+     * @return the imported Flight entity
+     * @throws IOException if an I/O error occurs during import
+     * @see #importCsv(InputStream, String)
+     */
+    public Flight importCsv(InputStream in, String fileName, ImportProgress progress) throws IOException {
+        return observe(progress, meter -> importInTx(meter.count(in), fileName, meter, null));
+    }
 
-            /* Skip optional first line like "sep=," produced by some converters */
-            br.mark(50);
-            String maybeSep = br.readLine();
-            if (maybeSep == null) {
-                throw new IllegalArgumentException("Empty CSV");
+    /**
+     * Imports flight data from a local CSV file and reports progress while doing so.
+     * <p>
+     * The file is hashed before parsing, so re-imports of an identical file are detected without parsing
+     * or persisting anything.
+     * </p>
+     *
+     * @param file     the CSV file
+     * @param fileName the original file name, stored on the flight
+     * @param progress receives row counts during the import
+     * @return the imported Flight entity, or the existing one if the file was imported before
+     * @throws IOException if an I/O error occurs during import
+     */
+    public Flight importFile(Path file, String fileName, ImportProgress progress) throws IOException {
+        return observe(progress, meter -> {
+            String contentHash = Sha256.of(file);
+            Optional<Flight> existing = flightRepo.findByContentHash(contentHash);
+            if (existing.isPresent()) {
+                meter.duplicateOf(existing.get());
+                return existing.get();
             }
-            if (!maybeSep.startsWith("sep=")) {
-                br.reset();        // not a sep line → rewind
+            try (InputStream in = meter.count(Files.newInputStream(file))) {
+                return importInTx(in, fileName, meter, contentHash);
             }
+        });
+    }
 
-            CSVParser parser = CSVFormat.DEFAULT
-                    .withFirstRecordAsHeader()
-                    .withIgnoreHeaderCase()
-                    .withTrim()
-                    .parse(br);
-
-            for (CSVRecord r : parser) {
-                double flySec = parseDoubleSafe(r, "OSD.flyTime [s]");
-                if (firstFlyTimeS < 0) firstFlyTimeS = flySec;
-                long   tsMillis = (long) ((flySec - firstFlyTimeS) * 1000.0);
-                Instant ts = baseInstant.plusMillis(tsMillis);
-
-                double lat  = parseDoubleSafe(r, "OSD.latitude");
-                double lon  = parseDoubleSafe(r, "OSD.longitude");
-
-                double altFt = parseDoubleSafe(r, "OSD.altitude [ft]");
-                double altM  = altFt * 0.3048;                 // ft → m
-
-                double spdMph = parseDoubleSafe(r, "OSD.hSpeed [MPH]");
-                double spdMs  = spdMph * 0.44704;              // mph → m/s
-
-                int batt = parseIntSafe(r, "BATTERY.chargeLevel");
-
-                Sample s = new Sample();
-                s.setTimestamp(ts);
-                s.setLatitude(lat);
-                s.setLongitude(lon);
-                s.setAltitude(altM);
-                s.setSpeed(spdMs);
-                s.setBatteryPercent(batt);
-                samples.add(s);
-
-                if (altM > maxAlt) maxAlt = altM;
-                if (batt < minBatt) minBatt = batt;
-                if (prev != null) {
-                    distanceMeters += haversine(prev.getLatitude(), prev.getLongitude(), lat, lon);
+    /**
+     * Runs an import as the {@value #OBSERVATION} observation, tagged with its {@code outcome}
+     * ({@code imported}, {@code duplicate} or {@code failed}): a duration timer and, if tracing samples it, a
+     * span. Rows and bytes per second are recorded as {@code flightviewer.import.rows.per.second} and
+     * {@code flightviewer.import.bytes.per.second} with the same tag.
+     */
+    private Flight observe(ImportProgress progress, Import call) throws IOException {
+        ImportMeter meter = new ImportMeter(progress);
+        Observation observation = Observation.start(OBSERVATION, observations);
+        String outcome = "failed";
+        try (Observation.Scope ignored = observation.openScope()) {
+            Flight flight = call.run(meter);
+            outcome = meter.duplicate ? "duplicate" : "imported";
+            return flight;
+        } catch (IOException | RuntimeException e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.lowCardinalityKeyValue("outcome", outcome).stop();
+            double seconds = Math.max(System.nanoTime() - meter.start, 1) / 1e9;
+            DistributionSummary.builder("flightviewer.import.rows.per.second").tag("outcome", outcome)
+                    .description("Rows imported per second").register(metrics).record(meter.rows / seconds);
+            DistributionSummary.builder("flightviewer.import.bytes.per.second").tag("outcome", outcome)
+                    .description("CSV bytes read per second").register(metrics).record(meter.bytes / seconds);
+        }
+    }
+
+    /**
+     * Runs {@link #doImport} in a transaction and resolves unique index violations from a concurrent import
+     * of the same log to the flight that won. Newly imported flights are added to the coverage tiles after
+     * commit.
+     */
+    private Flight importInTx(InputStream in, String fileName, ImportProgress progress, String contentHash)
+            throws IOException {
+        Dedup dedup = new Dedup(contentHash);
+        Flight flight;
+        try {
+            flight = tx.execute(status -> {
+                try {
+                    Flight imported = doImport(in, fileName, progress, dedup);
+                    Flight existing = dedup.existing();
+                    if (existing == null) return imported;
+                    status.setRollbackOnly();
+                    progress.duplicateOf(existing);
+                    return existing;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
-                prev = s;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (DataIntegrityViolationException e) {
+            Flight existing = dedup.existing();
+            if (existing == null) throw e;
+            progress.duplicateOf(existing);
+            return existing;
+        }
+        if (flight != null && flight.getId().equals(dedup.self)) {
+            try {
+                coverage.addFlight(flight.getId());
+            } catch (IOException | RuntimeException e) {
+                log.warn("Cannot add flight {} to the coverage tiles", flight.getId(), e); // added again at startup
             }
         }
+        return flight;
+    }
 
-        /* Persist Flight summary */
-        Flight flight = new Flight();
-        flight.setStartTime(samples.isEmpty() ? baseInstant : samples.get(0).getTimestamp());
-        flight.setEndTime(samples.isEmpty() ? baseInstant : samples.get(samples.size()-1).getTimestamp());
-        flight.setMaxAltitudeMeters(maxAlt);
-        flight.setMinBatteryPercent(minBatt);
-        flight.setDistanceMeters(distanceMeters);
-        flight.setSourceFileName(file.getOriginalFilename());
-        flightRepo.save(flight);
+    private Flight doImport(InputStream in, String fileName, ImportProgress progress, Dedup dedup) throws IOException {
 
-        /* Link & save samples */
-        for (Sample s : samples) s.setFlight(flight);
-        sampleRepo.saveAll(samples);
+        Instant baseInstant = Instant.now().truncatedTo(ChronoUnit.MILLIS); // relative timestamps anchor here
 
-        return flight;
+        TrackStats track = new TrackStats(); // stats we compute on-the-fly
+        long rows = 0;
+
+        /* Without a known content hash, hash the bytes while they are parsed; checked once all are written */
+        MessageDigest digest = dedup.contentHash == null ? Sha256.newDigest() : null;
+        if (digest != null) in = new DigestInputStream(in, digest);
+
+        DjiCsvReader csv = DjiCsvReader.open(new InputStreamReader(in, StandardCharsets.UTF_8));
+        try (CsvChunkParser parser = new CsvChunkParser(csv, baseInstant.toEpochMilli(), PROGRESS_INTERVAL, parsers,
+                fullTelemetry)) {
+
+            /* Same log imported before: stop before any sample is persisted */
+            dedup.fingerprint = parser.getFingerprint();
+            if (dedup.existing() != null) return null;
+
+            /* Persist the Flight first so samples can reference it; stats and bounds are filled in at the end */
+            Flight flight = new Flight();
+            flight.setStartTime(baseInstant);
+            flight.setEndTime(baseInstant);
+            flight.setSourceFileName(fileName);
+            flight.setContentHash(dedup.contentHash);
+            flight.setFingerprint(dedup.fingerprint);
+            flight.setAircraftSerial(parser.getAircraftSerial());
+            flightRepo.save(flight);
+            dedup.self = flight.getId();
+
+            FlightEventDetector detector = new FlightEventDetector(flight.getId());
+            try (SampleWriter writer = openWriter(flight)) {
+                CsvChunkParser.Chunk chunk;
+                while ((chunk = parser.next()) != null) {
+                    SampleColumns s = chunk.samples;
+                    for (int i = 0; i < s.size(); i++) {
+                        long   tsMillis = s.timestamp(i);
+                        double lat = s.latitude(i);
+                        double lon = s.longitude(i);
+                        double altM = s.altitude(i);
+                        int    batt = s.battery(i);
+
+                        writer.append(tsMillis, lat, lon, altM, s.speed(i), batt);
+                        detector.sample(tsMillis, lat, lon, altM, batt,
+                                chunk.satellites[i], chunk.modes[i], chunk.warnings[i]);
+                        track.add(tsMillis, lat, lon, altM, batt);
+                    }
+                    rows += chunk.size();
+                    progress.update(parser.getRowsParsed(), writer.getWritten());
+                }
+            }
+            progress.update(rows, rows);
+            parser.getChannels().save(channels, flight.getId());
+            events.saveAll(detector.drain());
+
+            if (digest != null) {
+                in.transferTo(OutputStream.nullOutputStream()); // hash whatever the parser did not read
+                dedup.contentHash = Sha256.hex(digest);
+                if (dedup.existing() != null) return null;
+                flight.setContentHash(dedup.contentHash);
+            }
+
+            /* Complete Flight summary */
+            if (track.getCount() > 0) {
+                flight.setStartTime(Instant.ofEpochMilli(track.getFirstTimestamp()));
+                flight.setEndTime(Instant.ofEpochMilli(track.getLastTimestamp()));
+            }
+            flight.setMaxAltitudeMeters(track.getMaxAltitude());
+            flight.setMinBatteryPercent(track.getMinBattery());
+            flight.setDistanceMeters(track.getDistanceMeters());
+            flight.setBatteryUsedPercent(track.getBatteryUsedPercent());
+            flight.setEventCount(detector.getCount());
+            flightRepo.save(flight);
+            stats.record(flight);
+            return flight;
+        }
+    }
+
+    /**
+     * Stops the parser threads.
+     */
+    @PreDestroy
+    public void shutdown() {
+        parsers.shutdown();
     }
 
     /* ---------- Helpers ---------- */
 
-    private static double parseDoubleSafe(CSVRecord r, String column) {
-        String val = r.get(column);
-        return val == null || val.isBlank() ? 0.0 : Double.parseDouble(val);
+    /**
+     * Identity of the log being imported, filled in as it becomes known.
+     */
+    private final class Dedup {
+        String contentHash;
+        String fingerprint;
+        /**
+         * ID of the flight being imported, once persisted.
+         */
+        Long self;
+
+        Dedup(String contentHash) {
+            this.contentHash = contentHash;
+        }
+
+        /**
+         * Looks up another flight with the same content hash or fingerprint.
+         */
+        Flight existing() {
+            Optional<Flight> found = contentHash != null ? flightRepo.findByContentHash(contentHash) : Optional.empty();
+            if (isSelf(found) && fingerprint != null) found = flightRepo.findByFingerprint(fingerprint);
+            return isSelf(found) ? null : found.get();
+        }
+
+        private boolean isSelf(Optional<Flight> found) {
+            return found.isEmpty() || found.get().getId().equals(self);
+        }
+    }
+
+    /**
+     * An import run by {@link #observe}.
+     */
+    @FunctionalInterface
+    private interface Import {
+        Flight run(ImportMeter meter) throws IOException;
     }
 
-    private static int parseIntSafe(CSVRecord r, String column) {
-        String val = r.get(column);
-        return val == null || val.isBlank() ? 0 : Integer.parseInt(val);
+    /**
+     * Progress passed on to the caller's, noting what the import metrics need: rows, bytes read and whether
+     * the log was a duplicate.
+     */
+    private static final class ImportMeter implements ImportProgress {
+        final ImportProgress delegate;
+        final long start = System.nanoTime();
+        long rows;
+        long bytes;
+        boolean duplicate;
+
+        ImportMeter(ImportProgress delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void update(long rowsParsed, long rowsPersisted) {
+            rows = rowsPersisted;
+            delegate.update(rowsParsed, rowsPersisted);
+        }
+
+        @Override
+        public void duplicateOf(Flight existing) {
+            duplicate = true;
+            delegate.duplicateOf(existing);
+        }
+
+        /**
+         * Counts the bytes read from a stream.
+         */
+        InputStream count(InputStream in) {
+            return new FilterInputStream(in) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b >= 0) bytes++;
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, len);
+                    if (n > 0) bytes += n;
+                    return n;
+                }
+            };
+        }
     }
 
-    /** Great-circle distance in metres (Haversine). */
-    private static double haversine(double lat1, double lon1, double lat2, double lon2) {
-        double R = 6371000; // earth radius (m)
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
-                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
-                        Math.sin(dLon / 2) * Math.sin(dLon / 2);
-        return 2 * R * Math.asin(Math.sqrt(a));
+    private SampleWriter openWriter(Flight flight) {
+        long flightId = flight.getId();
+        SampleWriter writer = SampleWriter.tee(sampleStore.openWriter(flightId), search.openWriter(flight));
+        return segments.isEnabled() ? SampleWriter.tee(writer, segments.openWriter(flightId)) : writer;
     }
 }
@@ -0,0 +1,137 @@
+package de.banana.flightviewer.service;
+
+import de.banana.flightviewer.repository.SampleArchive;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background compaction that moves the samples of cold flights from the database into the
+ * {@link SampleArchive}, so that the H2 file holds only the working set.
+ * <p>
+ * A flight is cold once it started more than {@code flightviewer.archive.min-age-days} ago and its samples
+ * have not been read for {@code flightviewer.archive.idle-days}. Every
+ * {@code flightviewer.archive.interval-ms} up to {@code flightviewer.archive.max-flights-per-run} of them,
+ * least recently read first, are archived one by one; a flight being read is skipped until the next run.
+ * Flights stay listed and searchable; internal readers such as search and export read their samples in
+ * place, and the first client request for them rehydrates them (see {@link SampleArchive#access}).
+ * </p>
+ * <p>
+ * The space the sample tables use is measured before and after each run. The difference is counted as
+ * {@code flightviewer.archive.reclaimed} and the current size published as {@code flightviewer.archive.hot};
+ * both are approximate while imports run at the same time. H2 reuses the freed pages for new data right
+ * away; the file itself shrinks when the database is compacted on shutdown.
+ * </p>
+ */
+@Service
+public class FlightArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightArchiveService.class);
+
+    private final SampleArchive archive;
+    private final boolean enabled;
+    private final Duration minAge;
+    private final Duration idle;
+    private final int maxFlightsPerRun;
+    private final Counter archivedFlights;
+    private final Counter archivedSamples;
+    private final Counter reclaimed;
+    /**
+     * Size of the hot sample tables at the end of the last run; -1 before the first one.
+     */
+    private final AtomicLong hotBytes = new AtomicLong(-1);
+
+    /**
+     * Constructs a FlightArchiveService.
+     *
+     * @param archive          the cold tier
+     * @param metrics          registry for the compaction meters
+     * @param enabled          whether cold flights are archived
+     * @param minAgeDays       minimum age of an archived flight, by its start time
+     * @param idleDays         minimum time since the samples of an archived flight were last read
+     * @param maxFlightsPerRun flights archived per run at most
+     */
+    public FlightArchiveService(SampleArchive archive, MeterRegistry metrics,
+                                @Value("${flightviewer.archive.enabled:true}") boolean enabled,
+                                @Value("${flightviewer.archive.min-age-days:365}") int minAgeDays,
+                                @Value("${flightviewer.archive.idle-days:180}") int idleDays,
+                                @Value("${flightviewer.archive.max-flights-per-run:100}") int maxFlightsPerRun) {
+        this.archive = archive;
+        this.enabled = enabled;
+        this.minAge = Duration.ofDays(minAgeDays);
+        this.idle = Duration.ofDays(idleDays);
+        this.maxFlightsPerRun = maxFlightsPerRun;
+        this.archivedFlights = Counter.builder("flightviewer.archive.archived")
+                .description("Flights moved to the sample archive").register(metrics);
+        this.archivedSamples = Counter.builder("flightviewer.archive.archived.samples")
+                .description("Samples moved to the sample archive").register(metrics);
+        this.reclaimed = Counter.builder("flightviewer.archive.reclaimed").baseUnit("bytes")
+                .description("Space of the sample tables freed by archiving").register(metrics);
+        Gauge.builder("flightviewer.archive.hot", hotBytes, AtomicLong::get).baseUnit("bytes")
+                .description("Space of the sample tables at the last compaction run").register(metrics);
+    }
+
+    /**
+     * Stamps the flights imported before access times were recorded, so that their idle time starts now.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initLastAccess() {
+        int stamped = archive.initLastAccess();
+        if (stamped > 0) log.info("Recorded a first access for {} flight(s)", stamped);
+    }
+
+    /**
+     * Archives the cold flights, if enabled.
+     */
+    @Scheduled(initialDelayString = "${flightviewer.archive.initial-delay-ms:300000}",
+            fixedDelayString = "${flightviewer.archive.interval-ms:3600000}")
+    public void compact() {
+        if (enabled) compact(Instant.now().minus(minAge), Instant.now().minus(idle), maxFlightsPerRun);
+    }
+
+    /**
+     * Archives flights that started and were last read before the given times.
+     *
+     * @param startedBefore  latest start time
+     * @param accessedBefore latest last access
+     * @param limit          maximum number of flights
+     * @return the number of flights archived
+     */
+    public int compact(Instant startedBefore, Instant accessedBefore, int limit) {
+        List<Long> cold = archive.findCold(startedBefore, accessedBefore, limit);
+        long before = archive.measureHotBytes();
+        int done = 0;
+        for (long flightId : cold) {
+            try {
+                long samples = archive.archive(flightId);
+                if (samples < 0) continue;
+                archivedFlights.increment();
+                archivedSamples.increment(samples);
+                done++;
+            } catch (IOException | RuntimeException e) {
+                log.warn("Cannot archive flight {}", flightId, e);
+            }
+        }
+        long after = archive.measureHotBytes();
+        hotBytes.set(after);
+        if (done > 0) {
+            long freed = before >= 0 && after >= 0 ? Math.max(0, before - after) : 0;
+            reclaimed.increment(freed);
+            log.info("Archived {} cold flight(s), sample tables {} -> {} bytes", done, before, after);
+        }
+        return done;
+    }
+}
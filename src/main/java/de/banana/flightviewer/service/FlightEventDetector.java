@@ -0,0 +1,143 @@
+package de.banana.flightviewer.service;
+
+import de.banana.flightviewer.model.FlightEvent;
+import de.banana.flightviewer.repository.FlightEventRepository.Event;
+import de.banana.flightviewer.util.GeoMath;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Detects the {@link FlightEvent}s of one flight from its rows, in time order, one row at a time.
+ * <p>
+ * Thresholds fire once when crossed and re-arm only after the value has recovered by a margin, so a battery
+ * or satellite count flickering around a threshold yields one event, not one per row. A battery level of 0 is
+ * what blank cells read as and is ignored. Mode changes and warnings come from optional log columns; without
+ * them only battery and GPS events are detected. At most {@value #MAX_EVENTS} events are kept per flight.
+ * Not thread-safe.
+ * </p>
+ */
+final class FlightEventDetector {
+
+    static final int LOW_BATTERY = 20;
+    static final int CRITICAL_BATTERY = 10;
+    static final int LOW_SATELLITES = 8;
+    /**
+     * Recovery above a threshold needed before it fires again.
+     */
+    static final int REARM_MARGIN = 3;
+    static final int MAX_EVENTS = 10_000;
+    private static final int MAX_DETAIL = 255;
+
+    private final long flightId;
+    private final List<Event> pending = new ArrayList<>();
+    private int count;
+    private boolean lowArmed = true, criticalArmed = true, satellitesArmed = true;
+    private boolean hadFix, lost;
+    private double lastLat, lastLon;
+    private String mode, warning;
+
+    /**
+     * Creates a detector.
+     *
+     * @param flightId the flight the events belong to
+     */
+    FlightEventDetector(long flightId) {
+        this.flightId = flightId;
+    }
+
+    /**
+     * Processes the next row.
+     *
+     * @param timestamp  epoch milliseconds
+     * @param latitude   latitude in decimal degrees
+     * @param longitude  longitude in decimal degrees
+     * @param altitude   altitude in meters
+     * @param battery    battery percentage
+     * @param satellites number of GPS satellites, or {@code -1} if unknown
+     * @param mode       flight mode, or {@code null} if unknown
+     * @param warning    warning text; blank or {@code null} if none
+     */
+    void sample(long timestamp, double latitude, double longitude, double altitude, int battery,
+                int satellites, String mode, String warning) {
+        boolean fix = GeoMath.hasFix(latitude, longitude);
+        Double lat = fix ? latitude : null, lon = fix ? longitude : null;
+        if (fix) {
+            if (lost) add(FlightEvent.Type.GPS_RECOVERED, timestamp, lat, lon, altitude, null, null);
+            hadFix = true;
+            lost = false;
+            lastLat = latitude;
+            lastLon = longitude;
+        } else if (hadFix && !lost) {
+            lost = true;
+            add(FlightEvent.Type.GPS_LOST, timestamp, lastLat, lastLon, altitude, null, null);
+        }
+
+        if (battery > 0) {
+            if (battery < LOW_BATTERY && lowArmed) {
+                lowArmed = false;
+                add(FlightEvent.Type.LOW_BATTERY, timestamp, lat, lon, altitude, (double) battery, null);
+            } else if (battery >= LOW_BATTERY + REARM_MARGIN) {
+                lowArmed = true;
+            }
+            if (battery < CRITICAL_BATTERY && criticalArmed) {
+                criticalArmed = false;
+                add(FlightEvent.Type.CRITICAL_BATTERY, timestamp, lat, lon, altitude, (double) battery, null);
+            } else if (battery >= CRITICAL_BATTERY + REARM_MARGIN) {
+                criticalArmed = true;
+            }
+        }
+
+        if (satellites >= 0) {
+            if (satellites < LOW_SATELLITES && satellitesArmed) {
+                satellitesArmed = false;
+                add(FlightEvent.Type.SATELLITES_LOW, timestamp, lat, lon, altitude, (double) satellites, null);
+            } else if (satellites >= LOW_SATELLITES + REARM_MARGIN) {
+                satellitesArmed = true;
+            }
+        }
+
+        if (mode != null && !mode.isEmpty()) {
+            if (this.mode != null && !mode.equals(this.mode)) {
+                add(FlightEvent.Type.MODE_CHANGE, timestamp, lat, lon, altitude, null, mode);
+            }
+            this.mode = mode;
+        }
+
+        if (warning == null || warning.isEmpty()) {
+            this.warning = null;
+        } else if (!warning.equals(this.warning)) {
+            this.warning = warning;
+            add(FlightEvent.Type.WARNING, timestamp, lat, lon, altitude, null, warning);
+        }
+    }
+
+    /**
+     * Returns the events detected since the previous call.
+     *
+     * @return the new events in time order
+     */
+    List<Event> drain() {
+        List<Event> out = List.copyOf(pending);
+        pending.clear();
+        return out;
+    }
+
+    /**
+     * Gets the number of events detected so far.
+     * @return the event count
+     */
+    int getCount() {
+        return count;
+    }
+
+    /* ---------- Helpers ---------- */
+
+    private void add(FlightEvent.Type type, long timestamp, Double lat, Double lon, double altitude,
+                     Double reading, String detail) {
+        if (count == MAX_EVENTS) return;
+        if (detail != null && detail.length() > MAX_DETAIL) detail = detail.substring(0, MAX_DETAIL);
+        pending.add(new Event(null, flightId, type, timestamp, lat, lon, altitude, reading, detail));
+        count++;
+    }
+}
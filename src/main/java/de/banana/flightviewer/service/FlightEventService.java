@@ -0,0 +1,97 @@
+package de.banana.flightviewer.service;
+
+import de.banana.flightviewer.model.Flight;
+import de.banana.flightviewer.model.FlightEvent;
+import de.banana.flightviewer.repository.FlightEventRepository;
+import de.banana.flightviewer.repository.FlightRepository;
+import de.banana.flightviewer.repository.SampleStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Cross-flight queries over the {@link FlightEvent} index.
+ * <p>
+ * Events are detected by {@link FlightEventDetector} while a flight is imported or ingested live. Flights
+ * imported before the index existed are scanned once at startup; only their stored samples are available, so
+ * they get battery and GPS events but no satellite, mode or warning events.
+ * </p>
+ */
+@Service
+public class FlightEventService {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightEventService.class);
+
+    private final FlightEventRepository events;
+    private final FlightRepository flights;
+    private final SampleStore samples;
+    private final TransactionTemplate tx;
+
+    /**
+     * Constructs a FlightEventService.
+     *
+     * @param events  the event index
+     * @param flights the flight repository
+     * @param samples the store read when detecting the events of existing flights
+     * @param tx      transaction template for detecting the events of existing flights
+     */
+    public FlightEventService(FlightEventRepository events, FlightRepository flights, SampleStore samples,
+                              TransactionTemplate tx) {
+        this.events = events;
+        this.flights = flights;
+        this.samples = samples;
+        this.tx = tx;
+    }
+
+    /**
+     * Finds events, ordered by time.
+     *
+     * @param types    the kinds of events; all kinds if empty
+     * @param flightId the flight, or {@code null} for all flights
+     * @param since    earliest time (inclusive), or {@code null}
+     * @param until    latest time (exclusive), or {@code null}
+     * @param limit    maximum number of events, capped at {@value FlightEventRepository#MAX_LIMIT}
+     * @return the events
+     */
+    public List<FlightEventRepository.Event> find(Collection<FlightEvent.Type> types, Long flightId,
+                                                  Instant since, Instant until, int limit) {
+        return events.find(types, flightId, since != null ? since.toEpochMilli() : null,
+                until != null ? until.toEpochMilli() : null, limit);
+    }
+
+    /**
+     * Detects the events of the flights that have none recorded yet, one transaction per flight.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void detectMissing() {
+        List<Long> ids = flights.findIdsWithoutEvents();
+        if (ids.isEmpty()) return;
+        log.info("Detecting the events of {} flight(s)", ids.size());
+        for (long id : ids) {
+            tx.executeWithoutResult(status -> {
+                Flight flight = flights.findById(id).orElse(null);
+                if (flight == null) return;
+                events.deleteByFlight(id);
+                FlightEventDetector detector = new FlightEventDetector(id);
+                try {
+                    samples.stream(id, (ts, lat, lon, alt, spd, batt) ->
+                            detector.sample(ts, lat, lon, alt, batt, -1, null, null));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e); // the handler does not throw
+                }
+                events.saveAll(detector.drain());
+                flight.setEventCount(detector.getCount());
+                flights.save(flight);
+            });
+        }
+    }
+}
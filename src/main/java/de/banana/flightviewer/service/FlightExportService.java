@@ -0,0 +1,295 @@
+package de.banana.flightviewer.service;
+
+import de.banana.flightviewer.model.Flight;
+import de.banana.flightviewer.repository.SampleStore;
+import de.banana.flightviewer.util.GeoMath;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes flights in exchange formats for GIS tools and customers: GPX, KML, GeoJSON and a normalized CSV.
+ * <p>
+ * Every format is written straight to the target stream from the sample store's forward-only cursor, so
+ * memory use does not depend on the length of the flight. KML ({@code gx:Track}) and GeoJSON list times and
+ * positions separately and read the cursor twice. The map formats skip samples without a GPS fix; the CSV
+ * keeps every sample and leaves their position empty.
+ * </p>
+ */
+@Service
+public class FlightExportService {
+
+    private static final long[] POW10 = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000};
+
+    /**
+     * Export formats.
+     */
+    public enum Format {
+        GPX("gpx", "application/gpx+xml"),
+        KML("kml", "application/vnd.google-earth.kml+xml"),
+        GEOJSON("geojson", "application/geo+json"),
+        CSV("csv", "text/csv");
+
+        private final String extension;
+        private final String mediaType;
+
+        Format(String extension, String mediaType) {
+            this.extension = extension;
+            this.mediaType = mediaType;
+        }
+
+        /**
+         * Gets the file name extension.
+         * @return the extension without dot
+         */
+        public String getExtension() { return extension; }
+
+        /**
+         * Gets the media type.
+         * @return the media type of the format
+         */
+        public String getMediaType() { return mediaType; }
+
+        /**
+         * Parses a format name as used in the {@code format} request parameter.
+         *
+         * @param name {@code gpx}, {@code kml}, {@code geojson} or {@code csv}
+         * @return the format
+         * @throws IllegalArgumentException for unknown names
+         */
+        public static Format parse(String name) {
+            for (Format f : values()) {
+                if (f.extension.equalsIgnoreCase(name)) return f;
+            }
+            throw new IllegalArgumentException("Unknown export format: " + name);
+        }
+    }
+
+    private final SampleStore samples;
+    private final ObjectMapper json;
+
+    /**
+     * Constructs a FlightExportService.
+     *
+     * @param samples the store the samples are streamed from
+     * @param json    the object mapper whose factory creates streaming generators
+     */
+    public FlightExportService(SampleStore samples, ObjectMapper json) {
+        this.samples = samples;
+        this.json = json;
+    }
+
+    /**
+     * Writes one flight. The target stream is flushed but not closed.
+     *
+     * @param flight the flight
+     * @param format the format
+     * @param out    the target stream
+     * @throws IOException if reading the samples or writing fails
+     */
+    public void write(Flight flight, Format format, OutputStream out) throws IOException {
+        OutputStream target = new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush(); // leave the target open, e.g. for the next ZIP entry
+            }
+        };
+        if (format == Format.GEOJSON) {
+            writeGeoJson(flight, target);
+            return;
+        }
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 16384)) {
+            switch (format) {
+                case GPX -> writeGpx(flight, w);
+                case KML -> writeKml(flight, w);
+                case CSV -> writeCsv(flight, w);
+                default -> throw new IllegalStateException(format.name());
+            }
+        }
+    }
+
+    /**
+     * Writes several flights as a ZIP archive with one entry per flight, one after the other.
+     *
+     * @param flights the flights
+     * @param format  the format of the entries
+     * @param out     the target stream; flushed but not closed
+     * @throws IOException if reading the samples or writing fails
+     */
+    public void writeZip(List<Flight> flights, Format format, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        for (Flight flight : flights) {
+            zip.putNextEntry(new ZipEntry(fileName(flight, format)));
+            write(flight, format, zip);
+            zip.closeEntry();
+        }
+        zip.finish();
+        zip.flush();
+    }
+
+    /**
+     * Gets the file name a flight is exported under.
+     *
+     * @param flight the flight
+     * @param format the format
+     * @return e.g. {@code flight-42.gpx}
+     */
+    public static String fileName(Flight flight, Format format) {
+        return "flight-" + flight.getId() + "." + format.getExtension();
+    }
+
+    /* ---------- Formats ---------- */
+
+    private void writeGpx(Flight flight, Writer w) throws IOException {
+        w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<gpx version=\"1.1\" creator=\"flightviewer\" xmlns=\"http://www.topografix.com/GPX/1/1\">\n"
+                + "<trk><name>");
+        w.write(xml(name(flight)));
+        w.write("</name><trkseg>\n");
+        samples.stream(flight.getId(), (ts, lat, lon, alt, spd, batt) -> {
+            if (!GeoMath.hasFix(lat, lon)) return;
+            w.write("<trkpt lat=\"");
+            w.write(decimal(lat, 7));
+            w.write("\" lon=\"");
+            w.write(decimal(lon, 7));
+            w.write("\"><ele>");
+            w.write(decimal(alt, 2));
+            w.write("</ele><time>");
+            w.write(Instant.ofEpochMilli(ts).toString());
+            w.write("</time></trkpt>\n");
+        });
+        w.write("</trkseg></trk>\n</gpx>\n");
+    }
+
+    private void writeKml(Flight flight, Writer w) throws IOException {
+        w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<kml xmlns=\"http://www.opengis.net/kml/2.2\" xmlns:gx=\"http://www.google.com/kml/ext/2.2\">\n"
+                + "<Document><Placemark><name>");
+        w.write(xml(name(flight)));
+        w.write("</name><gx:Track><altitudeMode>absolute</altitudeMode>\n");
+        samples.stream(flight.getId(), (ts, lat, lon, alt, spd, batt) -> {
+            if (!GeoMath.hasFix(lat, lon)) return;
+            w.write("<when>");
+            w.write(Instant.ofEpochMilli(ts).toString());
+            w.write("</when>\n");
+        });
+        samples.stream(flight.getId(), (ts, lat, lon, alt, spd, batt) -> {
+            if (!GeoMath.hasFix(lat, lon)) return;
+            w.write("<gx:coord>");
+            w.write(decimal(lon, 7));
+            w.write(' ');
+            w.write(decimal(lat, 7));
+            w.write(' ');
+            w.write(decimal(alt, 2));
+            w.write("</gx:coord>\n");
+        });
+        w.write("</gx:Track></Placemark></Document>\n</kml>\n");
+    }
+
+    /**
+     * Writes a Feature with a 3D LineString and the point times in {@code properties.coordTimes}, the
+     * convention GIS converters use for tracks.
+     */
+    private void writeGeoJson(Flight flight, OutputStream out) throws IOException {
+        try (JsonGenerator gen = json.getFactory().createGenerator(out)) {
+            gen.writeStartObject();
+            gen.writeStringField("type", "Feature");
+            gen.writeObjectFieldStart("properties");
+            gen.writeNumberField("id", flight.getId());
+            gen.writeStringField("name", name(flight));
+            gen.writeArrayFieldStart("coordTimes");
+            samples.stream(flight.getId(), (ts, lat, lon, alt, spd, batt) -> {
+                if (GeoMath.hasFix(lat, lon)) gen.writeString(Instant.ofEpochMilli(ts).toString());
+            });
+            gen.writeEndArray();
+            gen.writeEndObject();
+            gen.writeObjectFieldStart("geometry");
+            gen.writeStringField("type", "LineString");
+            gen.writeArrayFieldStart("coordinates");
+            samples.stream(flight.getId(), (ts, lat, lon, alt, spd, batt) -> {
+                if (!GeoMath.hasFix(lat, lon)) return;
+                gen.writeStartArray();
+                gen.writeNumber(lon);
+                gen.writeNumber(lat);
+                gen.writeNumber(alt);
+                gen.writeEndArray();
+            });
+            gen.writeEndArray();
+            gen.writeEndObject();
+            gen.writeEndObject();
+        }
+    }
+
+    private void writeCsv(Flight flight, Writer w) throws IOException {
+        w.write("timestamp,time,latitude,longitude,altitude_m,speed_mps,battery_percent\n");
+        samples.stream(flight.getId(), (ts, lat, lon, alt, spd, batt) -> {
+            boolean fix = GeoMath.hasFix(lat, lon);
+            w.write(Long.toString(ts));
+            w.write(',');
+            w.write(Instant.ofEpochMilli(ts).toString());
+            w.write(',');
+            if (fix) w.write(decimal(lat, 7));
+            w.write(',');
+            if (fix) w.write(decimal(lon, 7));
+            w.write(',');
+            w.write(decimal(alt, 2));
+            w.write(',');
+            w.write(decimal(spd, 2));
+            w.write(',');
+            w.write(Integer.toString(batt));
+            w.write('\n');
+        });
+    }
+
+    /* ---------- Helpers ---------- */
+
+    private static String name(Flight flight) {
+        return flight.getSourceFileName() != null ? flight.getSourceFileName() : "Flight " + flight.getId();
+    }
+
+    /**
+     * Formats a number in plain decimal notation (no exponent, as XML Schema decimals require) with at most
+     * {@code scale} fraction digits.
+     */
+    static String decimal(double v, int scale) {
+        long factor = POW10[scale];
+        long r = Math.round(Math.abs(v) * factor);
+        StringBuilder sb = new StringBuilder(24);
+        if (v < 0 && r != 0) sb.append('-');
+        sb.append(r / factor);
+        long frac = r % factor;
+        if (frac != 0) {
+            int digits = scale;
+            while (frac % 10 == 0) {
+                frac /= 10;
+                digits--;
+            }
+            String f = Long.toString(frac);
+            sb.append('.');
+            for (int i = f.length(); i < digits; i++) sb.append('0');
+            sb.append(f);
+        }
+        return sb.toString();
+    }
+
+    private static String xml(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
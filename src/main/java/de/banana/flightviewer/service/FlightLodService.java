@@ -0,0 +1,285 @@
+package de.banana.flightviewer.service;
+
+import de.banana.flightviewer.model.SampleColumns;
+import de.banana.flightviewer.repository.SampleStore;
+import de.banana.flightviewer.util.DouglasPeucker;
+import de.banana.flightviewer.util.GeoMath;
+import de.banana.flightviewer.util.Lttb;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Level-of-detail views of a flight for map and chart rendering.
+ * <p>
+ * Per flight, the samples are loaded once and the Douglas-Peucker significance of every track point is
+ * computed once. Track requests for any point budget or tolerance are then a selection on that ranking.
+ * Altitude series are downsampled with LTTB; those levels are bucketed to powers of two and cached per
+ * flight, so a level is computed at most once.
+ * </p>
+ * <p>
+ * Imported flights never change, so their levels are never invalidated; live flights are evicted with
+ * {@link #evict(long)} whenever points are appended. The cache is an LRU bounded by the total number of samples
+ * held, full resolution and LTTB levels together ({@code flightviewer.lod.cache-max-samples}).
+ * </p>
+ * <p>
+ * Flights without samples are not cached: the ID may not exist yet, or belong to a flight whose import has
+ * not committed, and an empty entry would hide the samples once they are visible.
+ * </p>
+ */
+@Service
+public class FlightLodService {
+
+    /**
+     * Smallest LTTB level handed out; smaller requests are rounded up.
+     */
+    private static final int MIN_LEVEL = 64;
+
+    /**
+     * Source of the full-resolution samples.
+     */
+    private final SampleStore sampleStore;
+    /**
+     * Upper bound for the number of samples kept in the cache.
+     */
+    private final long maxCachedSamples;
+    /**
+     * Access-ordered cache of prepared flights; guarded by its own monitor.
+     */
+    private final LinkedHashMap<Long, FlightLod> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedSamples;
+
+    /**
+     * Constructs a FlightLodService.
+     *
+     * @param sampleStore      source of the full-resolution samples
+     * @param maxCachedSamples upper bound for the number of samples kept in the cache
+     */
+    public FlightLodService(SampleStore sampleStore,
+                            @Value("${flightviewer.lod.cache-max-samples:1000000}") long maxCachedSamples) {
+        this.sampleStore = sampleStore;
+        this.maxCachedSamples = maxCachedSamples;
+    }
+
+    /**
+     * Returns a simplified track. If several limits are given, the coarsest result wins.
+     *
+     * @param flightId        the ID of the flight
+     * @param maxPoints       maximum number of points, or {@code null}
+     * @param toleranceMeters Douglas-Peucker tolerance in meters, or {@code null}
+     * @param zoom            map zoom level; translates to a tolerance of one screen pixel, or {@code null}
+     * @return the kept samples in track order
+     */
+    public SampleColumns track(long flightId, Integer maxPoints, Double toleranceMeters, Integer zoom) {
+        FlightLod lod = get(flightId);
+        int n = lod.samples.size();
+        int keep = keep(lod, maxPoints, toleranceMeters, zoom);
+        if (keep >= n) {
+            return lod.samples;
+        }
+        int[] indices = Arrays.copyOf(lod.rank, keep);
+        Arrays.sort(indices);
+        return lod.samples.select(indices);
+    }
+
+    /**
+     * Returns the samples downsampled on the altitude series.
+     * <p>
+     * The point budget is rounded up to the next power of two, so the result may hold up to twice as many
+     * points as requested.
+     * </p>
+     *
+     * @param flightId  the ID of the flight
+     * @param maxPoints maximum number of points wanted
+     * @return the selected samples in time order
+     */
+    public SampleColumns samples(long flightId, int maxPoints) {
+        FlightLod lod = get(flightId);
+        int n = lod.samples.size();
+        int level = level(n, maxPoints);
+        if (level >= n) {
+            return lod.samples;
+        }
+        SampleColumns selected = lod.levels.get(level);
+        if (selected != null) {
+            return selected;
+        }
+        selected = lod.samples.select(Lttb.select(lod.samples.timestamps(), lod.samples.altitudes(), n, level));
+        SampleColumns existing = lod.levels.putIfAbsent(level, selected);
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (cache) {
+            if (cache.get(flightId) == lod) {
+                lod.weight += selected.size();
+                cachedSamples += selected.size();
+                trim(flightId);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Gets the number of points {@link #track} returns for the given limits. Limits that keep the same number
+     * of points select the same points, so this identifies the simplified track.
+     *
+     * @param flightId        the ID of the flight
+     * @param maxPoints       maximum number of points, or {@code null}
+     * @param toleranceMeters Douglas-Peucker tolerance in meters, or {@code null}
+     * @param zoom            map zoom level, or {@code null}
+     * @return the number of points kept; the flight's sample count if none is dropped
+     */
+    public int trackLevel(long flightId, Integer maxPoints, Double toleranceMeters, Integer zoom) {
+        FlightLod lod = get(flightId);
+        return Math.min(keep(lod, maxPoints, toleranceMeters, zoom), lod.samples.size());
+    }
+
+    /**
+     * Gets the LTTB level {@link #samples} returns for a point budget. Budgets rounded to the same level
+     * select the same samples, so this identifies the downsampled series.
+     *
+     * @param flightId  the ID of the flight
+     * @param maxPoints maximum number of points wanted
+     * @return the level; the flight's sample count if the budget covers all samples
+     */
+    public int samplesLevel(long flightId, int maxPoints) {
+        return level(get(flightId).samples.size(), maxPoints);
+    }
+
+    /**
+     * Drops the cached levels of a flight whose samples changed.
+     *
+     * @param flightId the ID of the flight
+     */
+    public void evict(long flightId) {
+        synchronized (cache) {
+            FlightLod lod = cache.remove(flightId);
+            if (lod != null) cachedSamples -= lod.weight;
+        }
+    }
+
+    /* ---------- Helpers ---------- */
+
+    private static int keep(FlightLod lod, Integer maxPoints, Double toleranceMeters, Integer zoom) {
+        int keep = lod.samples.size();
+        if (maxPoints != null) {
+            keep = Math.min(keep, Math.max(maxPoints, 2));
+        }
+        double tolerance = toleranceMeters != null ? toleranceMeters : 0;
+        if (zoom != null) {
+            tolerance = Math.max(tolerance, GeoMath.metersPerPixel(lod.referenceLatitude, zoom));
+        }
+        if (tolerance > 0) {
+            keep = Math.min(keep, lod.countAbove(tolerance));
+        }
+        return keep;
+    }
+
+    /**
+     * Rounds a point budget up to the next power of two, at least {@value #MIN_LEVEL}. The budget is clamped to
+     * the flight's {@code n} samples first, so that the rounding cannot overflow.
+     */
+    private static int level(int n, int maxPoints) {
+        if (maxPoints >= n) return n;
+        long level = Math.max(MIN_LEVEL, Long.highestOneBit(Math.max(maxPoints - 1, 1)) << 1);
+        return (int) Math.min(level, n);
+    }
+
+    /* ---------- Cache ---------- */
+
+    private FlightLod get(long flightId) {
+        synchronized (cache) {
+            FlightLod lod = cache.get(flightId);
+            if (lod != null) return lod;
+        }
+        // prepared outside the lock; a concurrent miss for the same flight just computes twice
+        FlightLod lod = new FlightLod(sampleStore.load(flightId));
+        if (lod.samples.size() == 0) {
+            return lod; // unknown or not yet committed; see the class comment
+        }
+        synchronized (cache) {
+            FlightLod existing = cache.putIfAbsent(flightId, lod);
+            if (existing != null) return existing;
+            lod.weight = lod.samples.size();
+            cachedSamples += lod.weight;
+            trim(flightId);
+        }
+        return lod;
+    }
+
+    /**
+     * Drops the least recently used flights other than the given one while the cache is over budget. Must hold
+     * the cache monitor.
+     */
+    private void trim(long keep) {
+        Iterator<Map.Entry<Long, FlightLod>> it = cache.entrySet().iterator();
+        while (cachedSamples > maxCachedSamples && cache.size() > 1 && it.hasNext()) {
+            Map.Entry<Long, FlightLod> eldest = it.next();
+            if (eldest.getKey() == keep) continue;
+            cachedSamples -= eldest.getValue().weight;
+            it.remove();
+        }
+    }
+
+    /**
+     * Full-resolution samples of one flight plus the precomputed simplification data.
+     */
+    private static final class FlightLod {
+        final SampleColumns samples;
+        /**
+         * Point positions ordered by decreasing Douglas-Peucker significance.
+         */
+        final int[] rank;
+        /**
+         * Significance of the points in {@link #rank} order (descending).
+         */
+        final double[] rankedSignificance;
+        /**
+         * Latitude used to translate zoom levels into meters.
+         */
+        final double referenceLatitude;
+        /**
+         * LTTB levels computed so far, keyed by point budget.
+         */
+        final Map<Integer, SampleColumns> levels = new ConcurrentHashMap<>();
+        /**
+         * Samples held, full resolution plus levels; guarded by the cache monitor.
+         */
+        long weight;
+
+        FlightLod(SampleColumns samples) {
+            this.samples = samples;
+            int n = samples.size();
+            double[] sig = DouglasPeucker.significance(samples.latitudes(), samples.longitudes(), n);
+            this.rank = DouglasPeucker.rank(sig);
+            this.rankedSignificance = new double[n];
+            for (int i = 0; i < n; i++) rankedSignificance[i] = sig[rank[i]];
+            double lat = 0;
+            for (int i = 0; i < n; i++) {
+                if (samples.latitude(i) != 0 || samples.longitude(i) != 0) {
+                    lat = samples.latitude(i);
+                    break;
+                }
+            }
+            this.referenceLatitude = lat;
+        }
+
+        /**
+         * Counts the points Douglas-Peucker keeps at the given tolerance.
+         */
+        int countAbove(double tolerance) {
+            int lo = 0, hi = rankedSignificance.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (rankedSignificance[mid] > tolerance) lo = mid + 1;
+                else hi = mid;
+            }
+            return Math.min(Math.max(lo, 2), rankedSignificance.length);
+        }
+    }
+}
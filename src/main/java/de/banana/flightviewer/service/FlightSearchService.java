@@ -0,0 +1,221 @@
+package de.banana.flightviewer.service;
+
+import de.banana.flightviewer.model.Flight;
+import de.banana.flightviewer.repository.FlightCellRepository;
+import de.banana.flightviewer.repository.FlightRepository;
+import de.banana.flightviewer.repository.SampleStore;
+import de.banana.flightviewer.repository.SampleWriter;
+import de.banana.flightviewer.util.Geohash;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Finds the flights that passed through an area, and when.
+ * <p>
+ * The index is built at import time: {@link #openWriter(Flight)} records the flight's bounding box and its
+ * geohash cell visits ({@link FlightCellRepository}). A search covers the box with at most
+ * {@value #MAX_RANGES} geohash prefixes, reads the visits of the cells within them by index range scans and
+ * drops cells outside the box. The remaining visits are candidate time windows per flight; only the samples
+ * within them are read to compute the exact windows spent inside the box. The work is therefore proportional to
+ * the time the matching flights spent near the box, not to the size of the archive.
+ * </p>
+ * <p>
+ * Flights imported before the index existed are indexed once at startup.
+ * </p>
+ */
+@Service
+public class FlightSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightSearchService.class);
+    /**
+     * Maximum number of geohash prefixes (index ranges) per search.
+     */
+    static final int MAX_RANGES = 64;
+
+    private final FlightCellRepository cells;
+    private final FlightRepository flights;
+    private final SampleStore samples;
+    private final TransactionTemplate tx;
+
+    /**
+     * Constructs a FlightSearchService.
+     *
+     * @param cells   the geohash cell visits
+     * @param flights the flight repository
+     * @param samples the store for reading samples within candidate windows
+     * @param tx      transaction template for indexing existing flights
+     */
+    public FlightSearchService(FlightCellRepository cells, FlightRepository flights, SampleStore samples,
+                               TransactionTemplate tx) {
+        this.cells = cells;
+        this.flights = flights;
+        this.samples = samples;
+        this.tx = tx;
+    }
+
+    /**
+     * A time window spent inside the searched box.
+     *
+     * @param from time of the first sample inside, in epoch milliseconds
+     * @param to   time of the last sample inside, in epoch milliseconds
+     */
+    public record Window(long from, long to) { }
+
+    /**
+     * A flight that passed through the searched box.
+     *
+     * @param flightId the flight
+     * @param windows  the time windows spent inside, in time order
+     */
+    public record Match(long flightId, List<Window> windows) { }
+
+    /**
+     * Opens a writer that indexes the samples of a flight. On close the visits are inserted and the bounding
+     * box is set on the flight, which the caller has to save.
+     *
+     * @param flight the (already persisted) flight
+     * @return a new writer
+     */
+    public SampleWriter openWriter(Flight flight) {
+        FlightCellRepository.CellWriter writer = cells.openWriter(flight.getId());
+        return new SampleWriter() {
+            @Override
+            public void append(long timestampMillis, double latitude, double longitude,
+                               double altitude, double speed, int battery) {
+                writer.append(timestampMillis, latitude, longitude, altitude, speed, battery);
+            }
+
+            @Override
+            public long getWritten() {
+                return writer.getWritten();
+            }
+
+            @Override
+            public void close() {
+                writer.close();
+                double[] b = writer.getBounds();
+                if (b != null) {
+                    flight.setMinLatitude(b[0]);
+                    flight.setMinLongitude(b[1]);
+                    flight.setMaxLatitude(b[2]);
+                    flight.setMaxLongitude(b[3]);
+                }
+            }
+        };
+    }
+
+    /**
+     * Finds the flights with samples inside a box.
+     *
+     * @param minLat southern bound
+     * @param minLon western bound
+     * @param maxLat northern bound
+     * @param maxLon eastern bound
+     * @return the matching flights by ID, each with its windows inside the box
+     * @throws IOException if reading samples fails
+     */
+    public List<Match> search(double minLat, double minLon, double maxLat, double maxLon) throws IOException {
+        Set<String> prefixes = null;
+        for (int p = FlightCellRepository.PRECISION; prefixes == null; p--) {
+            prefixes = Geohash.cover(minLat, minLon, maxLat, maxLon, p, MAX_RANGES);
+        }
+
+        /* Candidate windows per flight from the visits of cells intersecting the box */
+        Map<Long, List<Window>> candidates = new TreeMap<>();
+        Map<String, Boolean> intersects = new HashMap<>();
+        for (String prefix : prefixes) {
+            for (FlightCellRepository.Visit v : cells.findWithin(prefix)) {
+                boolean hit = intersects.computeIfAbsent(v.cell(), c -> {
+                    double[] b = Geohash.bounds(c);
+                    return b[0] <= maxLat && b[2] >= minLat && b[1] <= maxLon && b[3] >= minLon;
+                });
+                if (hit) {
+                    candidates.computeIfAbsent(v.flightId(), id -> new ArrayList<>())
+                            .add(new Window(v.enterMillis(), v.exitMillis()));
+                }
+            }
+        }
+
+        /* Exact windows from the samples within the candidate windows */
+        List<Match> matches = new ArrayList<>();
+        for (Map.Entry<Long, List<Window>> e : candidates.entrySet()) {
+            long flightId = e.getKey();
+            List<Window> exact = new ArrayList<>();
+            for (Window w : merge(e.getValue())) {
+                long[] run = {-1, -1};
+                samples.stream(flightId, w.from(), w.to(), (ts, lat, lon, alt, spd, batt) -> {
+                    if (lat >= minLat && lat <= maxLat && lon >= minLon && lon <= maxLon) {
+                        if (run[0] < 0) run[0] = ts;
+                        run[1] = ts;
+                    } else if (run[0] >= 0) {
+                        exact.add(new Window(run[0], run[1]));
+                        run[0] = -1;
+                    }
+                });
+                if (run[0] >= 0) exact.add(new Window(run[0], run[1]));
+            }
+            if (!exact.isEmpty()) matches.add(new Match(flightId, exact));
+        }
+        return matches;
+    }
+
+    /**
+     * Indexes the flights that have no bounding box yet, one transaction per flight. Flights without any GPS
+     * fix stay without a bounding box and are scanned again on the next start.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void indexMissing() {
+        List<Long> ids = flights.findIdsWithoutBounds();
+        if (ids.isEmpty()) return;
+        log.info("Building the spatial index for {} flight(s)", ids.size());
+        for (long id : ids) {
+            tx.executeWithoutResult(status -> {
+                Flight flight = flights.findById(id).orElse(null);
+                if (flight == null) return;
+                cells.deleteByFlight(id);
+                try (SampleWriter writer = openWriter(flight)) {
+                    samples.stream(id, (ts, lat, lon, alt, spd, batt) -> writer.append(ts, lat, lon, alt, spd, batt));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e); // the handler does not throw
+                }
+                flights.save(flight);
+            });
+        }
+    }
+
+    /* ---------- Helpers ---------- */
+
+    /**
+     * Sorts windows and merges those that overlap or are at most {@link FlightCellRepository#MERGE_GAP_MILLIS}
+     * apart, so that nearby cells are read with one range query.
+     */
+    private static List<Window> merge(List<Window> windows) {
+        windows.sort(Comparator.comparingLong(Window::from));
+        List<Window> out = new ArrayList<>();
+        Window cur = null;
+        for (Window w : windows) {
+            if (cur != null && w.from() <= cur.to() + FlightCellRepository.MERGE_GAP_MILLIS) {
+                cur = new Window(cur.from(), Math.max(cur.to(), w.to()));
+            } else {
+                if (cur != null) out.add(cur);
+                cur = w;
+            }
+        }
+        if (cur != null) out.add(cur);
+        return out;
+    }
+}
@@ -0,0 +1,199 @@
+package de.banana.flightviewer.service;
+
+import de.banana.flightviewer.model.Flight;
+import de.banana.flightviewer.repository.FlightRepository;
+import de.banana.flightviewer.repository.FlightRollupRepository;
+import de.banana.flightviewer.repository.FlightRollupRepository.Totals;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+
+/**
+ * Fleet statistics per aircraft and month: flight hours, distance, maximum altitude and battery cycles.
+ * <p>
+ * Statistics are read from the {@link de.banana.flightviewer.model.FlightRollup} rows, which
+ * {@link #record(Flight)} keeps up to date in the transaction that completes each flight. The rollups can be
+ * rebuilt from the flight table: ID ranges of {@value #REBUILD_RANGE} flights are summed on parallel threads
+ * and merged, and the rows are replaced in one transaction. This happens at startup when the rollups do not
+ * account for every flight, e.g. for flights imported before they existed.
+ * </p>
+ * <p>
+ * A rebuild excludes {@link #record(Flight)}: it waits for the transactions that recorded a flight to end, so
+ * that the sums see those flights, and flights completing during the rebuild are added to the new rows once
+ * they are in place. Otherwise a flight committed between summing and replacing would be lost.
+ * </p>
+ * <p>
+ * Battery cycles are equivalent full cycles: the battery percentage used by all flights divided by 100.
+ * Flights imported before it was recorded count as using none.
+ * </p>
+ */
+@Service
+public class FlightStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightStatsService.class);
+    /**
+     * Flight IDs summed per rebuild task.
+     */
+    static final int REBUILD_RANGE = 10_000;
+
+    private final FlightRollupRepository rollups;
+    private final FlightRepository flights;
+    private final TransactionTemplate tx;
+    private final int rebuildThreads;
+    /**
+     * Shared by the transactions recording flights until they end, exclusive for a rebuild.
+     */
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+
+    /**
+     * Constructs a FlightStatsService.
+     *
+     * @param rollups        the rollup rows
+     * @param flights        the flight repository
+     * @param tx             transaction template for rebuilds
+     * @param rebuildThreads number of threads summing flights in a rebuild; 0 for one per available processor
+     */
+    public FlightStatsService(FlightRollupRepository rollups, FlightRepository flights, TransactionTemplate tx,
+                              @Value("${flightviewer.stats.rebuild-threads:0}") int rebuildThreads) {
+        this.rollups = rollups;
+        this.flights = flights;
+        this.tx = tx;
+        this.rebuildThreads = rebuildThreads > 0 ? rebuildThreads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Totals of a group of flights, as served by the API.
+     *
+     * @param aircraftSerial    the aircraft; empty if unknown, {@code null} if not grouped by aircraft
+     * @param month             the month, e.g. {@code 2025-07}; {@code null} if not grouped by month
+     * @param flights           number of flights
+     * @param flightHours       total flight time in hours
+     * @param distanceMeters    total distance in meters
+     * @param maxAltitudeMeters highest altitude in meters
+     * @param batteryCycles     equivalent full battery cycles
+     */
+    public record Stats(String aircraftSerial, String month, long flights, double flightHours,
+                        double distanceMeters, double maxAltitudeMeters, double batteryCycles) { }
+
+    /**
+     * Adds a completed flight to its rollup. Must run in the transaction that saves the flight; waits while
+     * the rollups are rebuilt.
+     *
+     * @param flight the flight with its final stats
+     */
+    public void record(Flight flight) {
+        Lock lock = rebuildLock.readLock();
+        lock.lock();
+        try {
+            rollups.add(Totals.of(flight));
+        } catch (RuntimeException e) {
+            lock.unlock();
+            throw e;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    lock.unlock();
+                }
+            });
+        } else {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads fleet statistics.
+     *
+     * @param byAircraft group by aircraft
+     * @param byMonth    group by month
+     * @param aircraft   only this aircraft, or {@code null}
+     * @param from       only months from this one (inclusive), or {@code null}
+     * @param to         only months up to this one (inclusive), or {@code null}
+     * @return the groups ordered by aircraft and month; a single row of fleet totals if not grouped
+     */
+    public List<Stats> stats(boolean byAircraft, boolean byMonth, String aircraft, YearMonth from, YearMonth to) {
+        return rollups.query(byAircraft, byMonth, aircraft, from, to).stream()
+                .map(t -> new Stats(t.aircraftSerial(), t.yearMonth(), t.flights(), t.flightSeconds() / 3600,
+                        t.distanceMeters(), t.maxAltitudeMeters(), t.batteryUsedPercent() / 100.0))
+                .toList();
+    }
+
+    /**
+     * Rebuilds all rollups from the flight table.
+     *
+     * @param exclude flights to leave out, e.g. live flights whose stats are not final yet
+     * @return the number of flights in the rebuilt rollups
+     */
+    public long rebuild(LongPredicate exclude) {
+        Lock lock = rebuildLock.writeLock();
+        lock.lock();
+        try {
+            return sumAndReplace(exclude);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the rollups if they do not account for every flight.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfStale() {
+        long flightCount = flights.count();
+        if (rollups.countFlights() == flightCount) return;
+        log.info("Rebuilding the flight rollups for {} flight(s)", flightCount);
+        rebuild(id -> false);
+    }
+
+    /* ---------- Helpers ---------- */
+
+    private long sumAndReplace(LongPredicate exclude) {
+        Long maxId = flights.findMaxId();
+        Map<String, Totals> totals = new HashMap<>();
+        if (maxId != null) {
+            ExecutorService pool = Executors.newFixedThreadPool(rebuildThreads,
+                    new CustomizableThreadFactory("stats-rebuild-"));
+            try {
+                List<Future<Map<String, Totals>>> parts = new ArrayList<>();
+                for (long from = 0; from <= maxId; from += REBUILD_RANGE) {
+                    long start = from;
+                    parts.add(pool.submit(() -> rollups.sumFlights(start, start + REBUILD_RANGE, exclude)));
+                }
+                for (Future<Map<String, Totals>> part : parts) {
+                    part.get().forEach((key, t) -> totals.merge(key, t, Totals::plus));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while rebuilding the flight rollups", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Cannot rebuild the flight rollups", e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+        tx.executeWithoutResult(status -> rollups.replaceAll(totals.values()));
+        return totals.values().stream().mapToLong(Totals::flights).sum();
+    }
+}
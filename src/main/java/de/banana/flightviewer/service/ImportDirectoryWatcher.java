@@ -0,0 +1,112 @@
+package de.banana.flightviewer.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+
+/**
+ * Imports CSV and ZIP files dropped into a local directory, e.g. a copied {@code FlightRecord} folder.
+ * <p>
+ * Disabled unless {@code flightviewer.import.watch-dir} is set. The directory is scanned every
+ * {@code flightviewer.import.watch-interval-ms}. Files that have not been modified for a few seconds are
+ * handed to {@link ImportJobService} and then moved to {@code imported/} below the watched directory.
+ * Files that do not fit into the import queue stay in place and are picked up by a later scan; files that
+ * cannot be read are moved to {@code failed/}.
+ * </p>
+ */
+@Component
+public class ImportDirectoryWatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportDirectoryWatcher.class);
+    /**
+     * Minimum age of a file before it is picked up, so that files still being copied are skipped.
+     */
+    private static final long SETTLE_MILLIS = 2000;
+
+    private final ImportJobService jobs;
+    /**
+     * Watched directory, or {@code null} if disabled.
+     */
+    private final Path dir;
+
+    /**
+     * Constructs an ImportDirectoryWatcher.
+     *
+     * @param jobs the service running import jobs
+     * @param dir  the directory to watch; empty to disable
+     */
+    public ImportDirectoryWatcher(ImportJobService jobs,
+                                  @Value("${flightviewer.import.watch-dir:}") String dir) {
+        this.jobs = jobs;
+        this.dir = dir.isBlank() ? null : Path.of(dir);
+    }
+
+    /**
+     * Queues the settled files of the watched directory.
+     */
+    @Scheduled(fixedDelayString = "${flightviewer.import.watch-interval-ms:5000}")
+    public void scan() {
+        if (dir == null || !Files.isDirectory(dir)) return;
+        for (Path file : settledFiles()) {
+            try {
+                List<ImportJob> queued = jobs.submitFile(file);
+                log.info("Queued {} import job(s) from {}", queued.size(), file);
+                moveTo(file, "imported");
+            } catch (RejectedExecutionException e) {
+                return; // queue is full, retry on the next scan
+            } catch (IOException | RuntimeException e) {
+                log.warn("Cannot import {}", file, e);
+                moveTo(file, "failed");
+            }
+        }
+    }
+
+    /* ---------- Helpers ---------- */
+
+    private List<Path> settledFiles() {
+        long cutoff = System.currentTimeMillis() - SETTLE_MILLIS;
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> entries = Files.list(dir)) {
+            entries.filter(Files::isRegularFile)
+                    .filter(ImportDirectoryWatcher::isImportable)
+                    .sorted(Comparator.comparing(Path::getFileName))
+                    .forEach(p -> {
+                        try {
+                            if (Files.getLastModifiedTime(p).toMillis() < cutoff) files.add(p);
+                        } catch (IOException e) {
+                            // vanished while listing
+                        }
+                    });
+        } catch (IOException e) {
+            log.warn("Cannot list {}", dir, e);
+        }
+        return files;
+    }
+
+    private static boolean isImportable(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return !name.startsWith(".") && (name.endsWith(".csv") || name.endsWith(".zip"));
+    }
+
+    private void moveTo(Path file, String subdir) {
+        try {
+            Path target = Files.createDirectories(dir.resolve(subdir)).resolve(file.getFileName());
+            Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.warn("Cannot move {} to {}/", file, subdir, e);
+        }
+    }
+}
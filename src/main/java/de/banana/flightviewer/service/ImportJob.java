@@ -0,0 +1,151 @@
+package de.banana.flightviewer.service;
+
+import de.banana.flightviewer.model.Flight;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * State of one asynchronous CSV import submitted to {@link ImportJobService}.
+ * <p>
+ * Jobs live in memory only. Counters are written by the import thread and read by status requests, so all
+ * mutable fields are volatile; each is written by a single thread.
+ * </p>
+ */
+public class ImportJob implements ImportProgress {
+
+    /**
+     * Lifecycle of a job.
+     */
+    public enum State { QUEUED, RUNNING, DONE, FAILED }
+
+    private final String id;
+    private final String fileName;
+    private final Instant submittedAt = Instant.now();
+    private volatile State state = State.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile long rowsParsed;
+    private volatile long rowsPersisted;
+    private volatile Long flightId;
+    private volatile boolean duplicate;
+    private volatile String error;
+
+    /**
+     * Constructs a queued job.
+     *
+     * @param id       the job ID
+     * @param fileName the original file name
+     */
+    ImportJob(String id, String fileName) {
+        this.id = id;
+        this.fileName = fileName;
+    }
+
+    @Override
+    public void update(long rowsParsed, long rowsPersisted) {
+        this.rowsParsed = rowsParsed;
+        this.rowsPersisted = rowsPersisted;
+    }
+
+    @Override
+    public void duplicateOf(Flight existing) {
+        duplicate = true;
+    }
+
+    void started() {
+        startedAt = Instant.now();
+        state = State.RUNNING;
+    }
+
+    void succeeded(long flightId) {
+        this.flightId = flightId;
+        finishedAt = Instant.now();
+        state = State.DONE;
+    }
+
+    void failed(String error) {
+        this.error = error;
+        finishedAt = Instant.now();
+        state = State.FAILED;
+    }
+
+    /**
+     * Gets the job ID.
+     * @return the ID
+     */
+    public String getId() { return id; }
+
+    /**
+     * Gets the original file name.
+     * @return the file name
+     */
+    public String getFileName() { return fileName; }
+
+    /**
+     * Gets the current state.
+     * @return the state
+     */
+    public State getState() { return state; }
+
+    /**
+     * Gets the time the job was submitted.
+     * @return the submission time
+     */
+    public Instant getSubmittedAt() { return submittedAt; }
+
+    /**
+     * Gets the time the job started running.
+     * @return the start time, or {@code null} while queued
+     */
+    public Instant getStartedAt() { return startedAt; }
+
+    /**
+     * Gets the time the job finished.
+     * @return the finish time, or {@code null} while queued or running
+     */
+    public Instant getFinishedAt() { return finishedAt; }
+
+    /**
+     * Gets the number of CSV rows parsed so far.
+     * @return rows parsed
+     */
+    public long getRowsParsed() { return rowsParsed; }
+
+    /**
+     * Gets the number of samples written to storage so far. They become visible once the job is done.
+     * @return rows persisted
+     */
+    public long getRowsPersisted() { return rowsPersisted; }
+
+    /**
+     * Gets the parse throughput since the job started.
+     * @return rows per second, or 0 before the job starts
+     */
+    public double getRowsPerSecond() {
+        Instant start = startedAt;
+        if (start == null) return 0;
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        long millis = Math.max(1, Duration.between(start, end).toMillis());
+        return rowsParsed * 1000.0 / millis;
+    }
+
+    /**
+     * Gets the ID of the imported flight.
+     * @return the flight ID, or {@code null} unless the job is done
+     */
+    public Long getFlightId() { return flightId; }
+
+    /**
+     * Checks whether the log had been imported before, in which case {@link #getFlightId()} is the existing
+     * flight and nothing was persisted.
+     * @return {@code true} for a duplicate
+     */
+    public boolean isDuplicate() { return duplicate; }
+
+    /**
+     * Gets the failure message.
+     * @return the error, or {@code null} unless the job failed
+     */
+    public String getError() { return error; }
+}
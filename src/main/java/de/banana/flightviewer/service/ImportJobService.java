@@ -0,0 +1,342 @@
+package de.banana.flightviewer.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Runs CSV imports as background jobs so that upload requests return immediately.
+ * <p>
+ * Jobs run on a fixed pool of {@code flightviewer.import.workers} threads behind a queue of
+ * {@code flightviewer.import.queue-capacity} entries. When the queue is full, {@link #submit} fails with a
+ * {@link RejectedExecutionException} instead of buffering more uploads; callers report that as "try again
+ * later". Uploads are spooled to a temporary file first because the multipart data does not outlive the
+ * request.
+ * </p>
+ * <p>
+ * Every CSV is its own job and its own transaction, so in a bulk upload each file commits or rolls back
+ * independently. The workers are the writer threads: each parses its file on the parser pool of
+ * {@link CsvImportService} and writes the rows while the next ones are parsed. With several workers,
+ * files are parsed and written in parallel.
+ * </p>
+ * <p>
+ * Parsing is deliberately tied to the workers: a file is parsed only once a worker has taken it, and at most
+ * a few chunks ahead of its writer (see {@link CsvChunkParser}). Parsing queued files further ahead would have
+ * to keep their rows somewhere until a writer is free, in the heap or in a second spool of every file, while
+ * the writers are what limits a bulk import: parsing a chunk is much cheaper than writing it, so the parser of
+ * a file mostly waits for its writer. Bulk ingest therefore scales with {@code flightviewer.import.workers},
+ * not with the number of cores; raise it (up to the number of cores the database can keep busy) to import
+ * more files at once. At most {@code workers + stream-workers} parser threads are ever busy.
+ * </p>
+ * <p>
+ * Imports reading a stream that is still arriving ({@link #submit(InputStream, String, Consumer)}) spend most
+ * of their time waiting for data, with their transaction open. They run on a separate pool of
+ * {@code flightviewer.import.stream-workers} threads with its own queue, so they never hold up file imports.
+ * </p>
+ * <p>
+ * Job state is kept in memory for the most recent {@code flightviewer.import.retained-jobs} jobs (this
+ * should exceed workers plus queue capacity, so that no unfinished job is dropped).
+ * </p>
+ */
+@Service
+public class ImportJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportJobService.class);
+    private static final String SPOOL_PREFIX = "flightviewer-import-";
+
+    /**
+     * Service doing the actual import.
+     */
+    private final CsvImportService importer;
+    /**
+     * Bounded worker pool; rejects when the queue is full.
+     */
+    private final ThreadPoolExecutor executor;
+    /**
+     * Bounded pool for imports of streams that are still arriving.
+     */
+    private final ThreadPoolExecutor streamExecutor;
+    /**
+     * Recent jobs by ID, oldest first.
+     */
+    private final Map<String, ImportJob> jobs;
+
+    /**
+     * Constructs an ImportJobService.
+     *
+     * @param importer      the CSV import service
+     * @param workers       number of concurrent imports
+     * @param streamWorkers number of concurrent imports of streams that are still arriving
+     * @param queueCapacity number of jobs that may wait for a worker, per pool
+     * @param retainedJobs  number of jobs whose status stays queryable
+     */
+    public ImportJobService(CsvImportService importer,
+                            @Value("${flightviewer.import.workers:2}") int workers,
+                            @Value("${flightviewer.import.stream-workers:2}") int streamWorkers,
+                            @Value("${flightviewer.import.queue-capacity:256}") int queueCapacity,
+                            @Value("${flightviewer.import.retained-jobs:1000}") int retainedJobs) {
+        this.importer = importer;
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("import-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.streamExecutor = new ThreadPoolExecutor(streamWorkers, streamWorkers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("import-stream-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.jobs = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ImportJob> eldest) {
+                return size() > retainedJobs;
+            }
+        });
+    }
+
+    /**
+     * Queues an uploaded CSV for import.
+     *
+     * @param file the uploaded CSV file
+     * @return the queued job
+     * @throws IOException                if the upload cannot be spooled
+     * @throws RejectedExecutionException if the import queue is full
+     */
+    public ImportJob submit(MultipartFile file) throws IOException {
+        if (executor.getQueue().remainingCapacity() == 0) {
+            throw new RejectedExecutionException("Import queue is full");
+        }
+        Path spool = Files.createTempFile(SPOOL_PREFIX, ".csv");
+        try {
+            file.transferTo(spool);
+            return submit(spool, file.getOriginalFilename());
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spool);
+            throw e;
+        }
+    }
+
+    /**
+     * Queues many uploaded files for import, one job per CSV. ZIP archives are expanded and every
+     * {@code *.csv} entry becomes a job of its own.
+     * <p>
+     * All files are spooled first; the batch is rejected as a whole if the queue cannot take all of them.
+     * </p>
+     *
+     * @param files the uploaded CSV and ZIP files
+     * @return the queued jobs
+     * @throws IOException                if an upload cannot be spooled or an archive cannot be read
+     * @throws RejectedExecutionException if the import queue cannot take all files
+     */
+    public List<ImportJob> submitAll(List<MultipartFile> files) throws IOException {
+        List<Spooled> spooled = new ArrayList<>();
+        try {
+            for (MultipartFile file : files) {
+                try (InputStream in = file.getInputStream()) {
+                    spool(in, file.getOriginalFilename(), spooled);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            discard(spooled);
+            throw e;
+        }
+        return enqueue(spooled);
+    }
+
+    /**
+     * Queues a local CSV or ZIP file for import. The file itself is copied and left untouched.
+     *
+     * @param file the CSV or ZIP file
+     * @return the queued jobs
+     * @throws IOException                if the file cannot be copied or the archive cannot be read
+     * @throws RejectedExecutionException if the import queue cannot take all contained CSVs
+     */
+    public List<ImportJob> submitFile(Path file) throws IOException {
+        List<Spooled> spooled = new ArrayList<>();
+        try (InputStream in = Files.newInputStream(file)) {
+            spool(in, file.getFileName().toString(), spooled);
+        } catch (IOException | RuntimeException e) {
+            discard(spooled);
+            throw e;
+        }
+        return enqueue(spooled);
+    }
+
+    /**
+     * Gets the number of jobs that can still be queued.
+     * @return free queue slots
+     */
+    public int getRemainingCapacity() {
+        return executor.getQueue().remainingCapacity();
+    }
+
+    /**
+     * Queues a spooled CSV file for import. The file is deleted once the job has finished.
+     *
+     * @param spool    the CSV file, owned by the job from now on
+     * @param fileName the original file name, stored on the flight
+     * @return the queued job
+     * @throws RejectedExecutionException if the import queue is full
+     */
+    public ImportJob submit(Path spool, String fileName) {
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), fileName);
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job, spool));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * Queues the import of a CSV read from a stream, e.g. an upload that is still arriving
+     * ({@link ChunkedUploadService}). The job runs on the stream workers; it parses whatever the stream
+     * delivers and blocks while it waits for more.
+     *
+     * @param in       the CSV content, owned and closed by the job from now on (not closed if rejected)
+     * @param fileName the original file name, stored on the flight
+     * @param finished called on the worker once the job is done or has failed
+     * @return the queued job
+     * @throws RejectedExecutionException if the import queue is full
+     */
+    public ImportJob submit(InputStream in, String fileName, Consumer<ImportJob> finished) {
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), fileName);
+        jobs.put(job.getId(), job);
+        try {
+            streamExecutor.execute(() -> run(job, in, finished));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * Looks up a job.
+     *
+     * @param jobId the job ID
+     * @return the job, or {@code null} if unknown or no longer retained
+     */
+    public ImportJob get(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    /**
+     * Stops accepting jobs; queued and running imports are finished.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        streamExecutor.shutdown();
+    }
+
+    /* ---------- Helpers ---------- */
+
+    /**
+     * A CSV copied to a temporary file, waiting to be queued.
+     */
+    private record Spooled(Path file, String fileName) { }
+
+    /**
+     * Copies a CSV to a temporary file, or every CSV entry if the input is a ZIP archive.
+     */
+    private static void spool(InputStream in, String fileName, List<Spooled> out) throws IOException {
+        if (fileName == null || !fileName.toLowerCase(Locale.ROOT).endsWith(".zip")) {
+            out.add(new Spooled(copy(in), fileName));
+            return;
+        }
+        ZipInputStream zip = new ZipInputStream(in);
+        for (ZipEntry entry; (entry = zip.getNextEntry()) != null; ) {
+            String name = entry.getName().substring(entry.getName().lastIndexOf('/') + 1);
+            if (entry.isDirectory() || entry.getName().startsWith("__MACOSX/") || name.startsWith(".")
+                    || !name.toLowerCase(Locale.ROOT).endsWith(".csv")) {
+                continue;
+            }
+            out.add(new Spooled(copy(zip), name));
+        }
+    }
+
+    private static Path copy(InputStream in) throws IOException {
+        Path spool = Files.createTempFile(SPOOL_PREFIX, ".csv");
+        try {
+            Files.copy(in, spool, StandardCopyOption.REPLACE_EXISTING);
+            return spool;
+        } catch (IOException e) {
+            Files.deleteIfExists(spool);
+            throw e;
+        }
+    }
+
+    private List<ImportJob> enqueue(List<Spooled> spooled) throws IOException {
+        if (executor.getQueue().remainingCapacity() < spooled.size()) {
+            discard(spooled);
+            throw new RejectedExecutionException("Import queue has room for "
+                    + executor.getQueue().remainingCapacity() + " more files, " + spooled.size() + " submitted");
+        }
+        List<ImportJob> queued = new ArrayList<>(spooled.size());
+        for (int i = 0; i < spooled.size(); i++) {
+            try {
+                queued.add(submit(spooled.get(i).file(), spooled.get(i).fileName()));
+            } catch (RejectedExecutionException e) {
+                // lost a race for the last slots; jobs queued so far keep running
+                discard(spooled.subList(i, spooled.size()));
+                throw e;
+            }
+        }
+        return queued;
+    }
+
+    private static void discard(List<Spooled> spooled) throws IOException {
+        for (Spooled s : spooled) Files.deleteIfExists(s.file());
+    }
+
+    private void run(ImportJob job, Path spool) {
+        job.started();
+        try {
+            job.succeeded(importer.importFile(spool, job.getFileName(), job).getId());
+        } catch (Exception e) {
+            log.warn("Import of {} failed", job.getFileName(), e);
+            job.failed(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        } finally {
+            try {
+                Files.deleteIfExists(spool);
+            } catch (IOException e) {
+                log.warn("Could not delete spooled upload {}", spool, e);
+            }
+        }
+    }
+
+    private void run(ImportJob job, InputStream in, Consumer<ImportJob> finished) {
+        job.started();
+        try (in) {
+            job.succeeded(importer.importCsv(in, job.getFileName(), job).getId());
+        } catch (Exception e) {
+            log.warn("Import of {} failed", job.getFileName(), e);
+            job.failed(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        } finally {
+            finished.accept(job);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package de.banana.flightviewer.service;
+
+import de.banana.flightviewer.model.Flight;
+
+/**
+ * Receives progress updates from {@link CsvImportService} while a file is imported.
+ * <p>
+ * Called on the importing thread, every {@value CsvImportService#PROGRESS_INTERVAL} rows and once more when
+ * all rows are written. Implementations must be cheap and must not throw.
+ * </p>
+ */
+@FunctionalInterface
+public interface ImportProgress {
+
+    /**
+     * Does nothing.
+     */
+    ImportProgress NONE = (parsed, persisted) -> { };
+
+    /**
+     * Reports the rows handled so far.
+     *
+     * @param rowsParsed    rows read from the CSV
+     * @param rowsPersisted rows written to storage (not yet committed)
+     */
+    void update(long rowsParsed, long rowsPersisted);
+
+    /**
+     * Reports that the log was imported before; nothing is persisted and the existing flight is returned.
+     *
+     * @param existing the flight imported earlier from the same log
+     */
+    default void duplicateOf(Flight existing) { }
+}
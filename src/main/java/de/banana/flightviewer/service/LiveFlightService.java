@@ -0,0 +1,306 @@
+package de.banana.flightviewer.service;
+
+import de.banana.flightviewer.model.Flight;
+import de.banana.flightviewer.model.SampleColumns;
+import de.banana.flightviewer.repository.FlightEventRepository;
+import de.banana.flightviewer.repository.FlightRepository;
+import de.banana.flightviewer.repository.FlightSegmentFiles;
+import de.banana.flightviewer.repository.SampleJdbcRepository;
+import de.banana.flightviewer.repository.SampleWriter;
+import de.banana.flightviewer.util.TrackStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Ingest of telemetry for flights that are still in the air.
+ * <p>
+ * A live flight is created by {@link #start(String)} and receives time-ordered batches through
+ * {@link #append(long, SampleColumns)}. Each batch is appended to the row sample store and the running stats
+ * (end time, distance, maximum altitude, minimum battery) and the detected battery and GPS events are updated
+ * in the same transaction. If the transaction fails, the running stats and event detection are rebuilt from
+ * the points appended before, so that a retried batch is not counted twice. The points are also kept in memory and handed to the registered {@link Listener}s,
+ * so viewers of a live flight never poll the database.
+ * </p>
+ * <p>
+ * {@link #finish(long)} ends the flight: the segment file and the spatial index are written from the in-memory
+ * points, the flight is added to the fleet rollups and the coverage tiles, and from then on it is as immutable as an imported one.
+ * Live samples always go to the row store, whatever {@code flightviewer.storage.samples} says, because the
+ * columnar store writes a flight in one piece. Live state is held in memory only; after a restart, unfinished
+ * flights can no longer be appended to and are indexed by the startup backfills.
+ * </p>
+ */
+@Service
+public class LiveFlightService {
+
+    private static final Logger log = LoggerFactory.getLogger(LiveFlightService.class);
+
+    /**
+     * Receives the points of a live flight. Called on the ingesting thread while the flight is locked, so
+     * implementations must copy what they need and must not block.
+     */
+    public interface Listener {
+
+        /**
+         * Handles new points.
+         *
+         * @param points the flight's points so far; only read positions {@code from} to {@code to}
+         * @param from   first new position (inclusive)
+         * @param to     last new position (exclusive)
+         */
+        void samples(SampleColumns points, int from, int to);
+
+        /**
+         * Handles the end of the flight; no more points follow.
+         */
+        void finished();
+    }
+
+    private final FlightRepository flights;
+    private final SampleJdbcRepository rows;
+    private final FlightSegmentFiles segments;
+    private final FlightSearchService search;
+    private final CoverageTileService coverage;
+    private final FlightLodService lod;
+    private final FlightEventRepository events;
+    private final FlightStatsService stats;
+    private final TransactionTemplate tx;
+    private final Map<Long, LiveFlight> live = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a LiveFlightService.
+     *
+     * @param flights  the flight repository
+     * @param rows     the row sample store live points are appended to
+     * @param segments the segment files written when a flight is finished
+     * @param search   the spatial index updated when a flight is finished
+     * @param coverage the coverage tiles updated when a flight is finished
+     * @param lod      the level-of-detail cache, evicted whenever a flight changes
+     * @param events   the event index fed with each batch
+     * @param stats    the fleet rollups updated when a flight is finished
+     * @param tx       transaction template for appends and finishing
+     */
+    public LiveFlightService(FlightRepository flights, SampleJdbcRepository rows, FlightSegmentFiles segments,
+                             FlightSearchService search, CoverageTileService coverage, FlightLodService lod,
+                             FlightEventRepository events, FlightStatsService stats, TransactionTemplate tx) {
+        this.flights = flights;
+        this.rows = rows;
+        this.segments = segments;
+        this.search = search;
+        this.coverage = coverage;
+        this.lod = lod;
+        this.events = events;
+        this.stats = stats;
+        this.tx = tx;
+    }
+
+    /**
+     * Creates a live flight.
+     *
+     * @param name           name stored as the flight's source file name
+     * @param aircraftSerial serial number of the aircraft, or {@code null}
+     * @return the persisted flight
+     */
+    public Flight start(String name, String aircraftSerial) {
+        Flight flight = new Flight();
+        Instant now = Instant.now();
+        flight.setStartTime(now);
+        flight.setEndTime(now);
+        flight.setMinBatteryPercent(100);
+        flight.setSourceFileName(name);
+        flight.setAircraftSerial(aircraftSerial);
+        flight.setEventCount(0);
+        flights.save(flight);
+        live.put(flight.getId(), new LiveFlight(flight.getId()));
+        return flight;
+    }
+
+    /**
+     * Checks whether a flight is still live, i.e. its samples and stats may change.
+     *
+     * @param flightId the ID of the flight
+     * @return {@code true} while the flight accepts appends
+     */
+    public boolean isLive(long flightId) {
+        return live.containsKey(flightId);
+    }
+
+    /**
+     * Appends a batch of points to a live flight and notifies its listeners.
+     *
+     * @param flightId the ID of the flight
+     * @param batch    points in time order, not older than the last appended point
+     * @return the flight with updated stats, or {@code null} if the flight is not live
+     * @throws IllegalArgumentException if the batch is out of time order
+     */
+    public Flight append(long flightId, SampleColumns batch) {
+        LiveFlight f = live.get(flightId);
+        if (f == null) return null;
+        synchronized (f) {
+            if (f.finished) return null;
+            long last = f.points.size() > 0 ? f.points.timestamp(f.points.size() - 1) : Long.MIN_VALUE;
+            for (int i = 0; i < batch.size(); i++) {
+                if (batch.timestamp(i) < last) {
+                    throw new IllegalArgumentException("Samples must be appended in time order");
+                }
+                last = batch.timestamp(i);
+            }
+            Flight flight;
+            try {
+                flight = tx.execute(status -> {
+                    try (SampleWriter writer = rows.openWriter(flightId)) {
+                        for (int i = 0; i < batch.size(); i++) {
+                            writer.append(batch.timestamp(i), batch.latitude(i), batch.longitude(i),
+                                    batch.altitude(i), batch.speed(i), batch.battery(i));
+                        }
+                    }
+                    Flight stored = flights.findById(flightId).orElseThrow();
+                    f.update(stored, batch);
+                    events.saveAll(f.detector.drain());
+                    return flights.save(stored);
+                });
+            } catch (RuntimeException e) {
+                f.rebuild(); // the batch was rolled back, so it must not stay in the running state
+                throw e;
+            }
+            int from = f.points.size();
+            for (int i = 0; i < batch.size(); i++) {
+                f.points.add(batch.timestamp(i), batch.latitude(i), batch.longitude(i),
+                        batch.altitude(i), batch.speed(i), batch.battery(i));
+            }
+            lod.evict(flightId);
+            for (Listener l : f.listeners) l.samples(f.points, from, f.points.size());
+            return flight;
+        }
+    }
+
+    /**
+     * Ends a live flight and builds its segment file, spatial index and coverage tiles.
+     *
+     * @param flightId the ID of the flight
+     * @return the finished flight, or {@code null} if the flight is not live
+     */
+    public Flight finish(long flightId) {
+        LiveFlight f = live.get(flightId);
+        if (f == null) return null;
+        Flight flight;
+        synchronized (f) {
+            if (f.finished) return null;
+            flight = tx.execute(status -> {
+                Flight stored = flights.findById(flightId).orElseThrow();
+                SampleWriter writer = search.openWriter(stored);
+                if (segments.isEnabled()) writer = SampleWriter.tee(writer, segments.openWriter(flightId));
+                try (SampleWriter w = writer) {
+                    SampleColumns p = f.points;
+                    for (int i = 0; i < p.size(); i++) {
+                        w.append(p.timestamp(i), p.latitude(i), p.longitude(i), p.altitude(i), p.speed(i), p.battery(i));
+                    }
+                }
+                stats.record(stored);
+                return flights.save(stored);
+            });
+            f.finished = true;
+            live.remove(flightId);
+            lod.evict(flightId);
+            for (Listener l : f.listeners) l.finished();
+            f.listeners.clear();
+        }
+        try {
+            coverage.addFlight(flightId);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Cannot add flight {} to the coverage tiles", flightId, e); // added again at startup
+        }
+        return flight;
+    }
+
+    /**
+     * Registers a listener with a live flight. The points received so far, starting at {@code fromMillis},
+     * are handed to the listener before any new ones.
+     *
+     * @param flightId   the ID of the flight
+     * @param fromMillis earliest point of the backlog in epoch milliseconds
+     * @param listener   the listener
+     * @return {@code false} if the flight is not live
+     */
+    public boolean subscribe(long flightId, long fromMillis, Listener listener) {
+        LiveFlight f = live.get(flightId);
+        if (f == null) return false;
+        synchronized (f) {
+            if (f.finished) return false;
+            int from = 0;
+            while (from < f.points.size() && f.points.timestamp(from) < fromMillis) from++;
+            if (from < f.points.size()) listener.samples(f.points, from, f.points.size());
+            f.listeners.add(listener);
+            return true;
+        }
+    }
+
+    /**
+     * Removes a listener.
+     *
+     * @param flightId the ID of the flight
+     * @param listener the listener
+     */
+    public void unsubscribe(long flightId, Listener listener) {
+        LiveFlight f = live.get(flightId);
+        if (f != null) f.listeners.remove(listener);
+    }
+
+    /* ---------- Helpers ---------- */
+
+    /**
+     * In-memory state of one live flight; guarded by its own monitor.
+     */
+    private static final class LiveFlight {
+        final SampleColumns points = new SampleColumns(1024);
+        final List<Listener> listeners = new CopyOnWriteArrayList<>();
+        final long flightId;
+        FlightEventDetector detector;
+        TrackStats track = new TrackStats();
+        boolean finished;
+
+        LiveFlight(long flightId) {
+            this.flightId = flightId;
+            this.detector = new FlightEventDetector(flightId);
+        }
+
+        /**
+         * Recomputes the running stats and events from the committed points; events found again were saved
+         * with their batch and are dropped.
+         */
+        void rebuild() {
+            track = new TrackStats();
+            detector = new FlightEventDetector(flightId);
+            update(new Flight(), points);
+            detector.drain();
+        }
+
+        /**
+         * Folds a batch into the running stats and events and copies the stats to the flight.
+         */
+        void update(Flight flight, SampleColumns batch) {
+            for (int i = 0; i < batch.size(); i++) {
+                track.add(batch.timestamp(i), batch.latitude(i), batch.longitude(i), batch.altitude(i),
+                        batch.battery(i));
+                detector.sample(batch.timestamp(i), batch.latitude(i), batch.longitude(i), batch.altitude(i),
+                        batch.battery(i), -1, null, null);
+            }
+            flight.setEventCount(detector.getCount());
+            if (track.getCount() == 0) return;
+            flight.setStartTime(Instant.ofEpochMilli(track.getFirstTimestamp()));
+            flight.setEndTime(Instant.ofEpochMilli(track.getLastTimestamp()));
+            flight.setDistanceMeters(track.getDistanceMeters());
+            flight.setMaxAltitudeMeters(track.getMaxAltitude());
+            flight.setMinBatteryPercent(track.getMinBattery());
+            flight.setBatteryUsedPercent(track.getBatteryUsedPercent());
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package de.banana.flightviewer.service;
+
+import de.banana.flightviewer.repository.SampleRowHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming aggregator reducing time-ordered samples to fixed-width time buckets.
+ * <p>
+ * Buckets are aligned to multiples of the width since the epoch, so the same bucket always covers the same
+ * interval regardless of the queried range. Only buckets containing samples are emitted. Because samples
+ * arrive ordered by timestamp, only the current bucket is kept open and memory use is proportional to the
+ * number of buckets, not samples. Not thread-safe.
+ * </p>
+ */
+public final class SampleBuckets implements SampleRowHandler {
+
+    /**
+     * Minimum, maximum and mean of one value within a bucket.
+     *
+     * @param min the minimum
+     * @param max the maximum
+     * @param avg the arithmetic mean
+     */
+    public record Stats(double min, double max, double avg) { }
+
+    /**
+     * Aggregates of one time bucket.
+     *
+     * @param start    start of the bucket in epoch milliseconds (inclusive)
+     * @param end      end of the bucket in epoch milliseconds (exclusive)
+     * @param count    number of samples
+     * @param altitude altitude in meters
+     * @param speed    horizontal speed in m/s
+     * @param battery  battery percentage
+     */
+    public record Bucket(long start, long end, int count, Stats altitude, Stats speed, Stats battery) { }
+
+    private final long widthMillis;
+    private final List<Bucket> buckets = new ArrayList<>();
+
+    private long start;
+    private int count;
+    private double altMin, altMax, altSum;
+    private double spdMin, spdMax, spdSum;
+    private int battMin, battMax;
+    private long battSum;
+
+    /**
+     * Constructs a SampleBuckets.
+     *
+     * @param widthMillis bucket width in milliseconds
+     * @throws IllegalArgumentException if the width is not positive
+     */
+    public SampleBuckets(long widthMillis) {
+        if (widthMillis <= 0) {
+            throw new IllegalArgumentException("Bucket width must be positive");
+        }
+        this.widthMillis = widthMillis;
+    }
+
+    @Override
+    public void sample(long timestamp, double latitude, double longitude, double altitude, double speed, int battery) {
+        long bucket = Math.floorDiv(timestamp, widthMillis) * widthMillis;
+        if (count == 0 || bucket != start) {
+            flush();
+            start = bucket;
+            altMin = altMax = altitude;
+            spdMin = spdMax = speed;
+            battMin = battMax = battery;
+        } else {
+            altMin = Math.min(altMin, altitude);
+            altMax = Math.max(altMax, altitude);
+            spdMin = Math.min(spdMin, speed);
+            spdMax = Math.max(spdMax, speed);
+            battMin = Math.min(battMin, battery);
+            battMax = Math.max(battMax, battery);
+        }
+        count++;
+        altSum += altitude;
+        spdSum += speed;
+        battSum += battery;
+    }
+
+    /**
+     * Closes the last bucket and returns all buckets.
+     *
+     * @return the buckets in time order
+     */
+    public List<Bucket> finish() {
+        flush();
+        return buckets;
+    }
+
+    /* ---------- Helpers ---------- */
+
+    private void flush() {
+        if (count == 0) return;
+        buckets.add(new Bucket(start, start + widthMillis, count,
+                new Stats(altMin, altMax, altSum / count),
+                new Stats(spdMin, spdMax, spdSum / count),
+                new Stats(battMin, battMax, (double) battSum / count)));
+        count = 0;
+        altSum = spdSum = 0;
+        battSum = 0;
+    }
+}
@@ -0,0 +1,151 @@
+package de.banana.flightviewer.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Instant;
+
+/**
+ * State of one chunked upload of {@link ChunkedUploadService}, serialized as its status.
+ * <p>
+ * The offset only covers chunks whose checksum matched and that were flushed to disk, so it is both the
+ * position the client resumes from and the end of the data the import may read. The import thread waits on
+ * this object for the offset to grow; every change notifies it.
+ * </p>
+ */
+public class UploadSession {
+
+    private final String id;
+    private final String fileName;
+    private final Long size;
+    private final Instant createdAt;
+    private volatile Instant updatedAt;
+    private long offset;
+    private boolean complete;
+    private boolean aborted;
+    private boolean stalled;
+    private volatile ImportJob job;
+
+    /**
+     * Constructs a session.
+     *
+     * @param id        the upload ID
+     * @param fileName  the original file name
+     * @param size      the announced total size in bytes, or {@code null} if unknown
+     * @param createdAt the creation time
+     */
+    UploadSession(String id, String fileName, Long size, Instant createdAt) {
+        this.id = id;
+        this.fileName = fileName;
+        this.size = size;
+        this.createdAt = createdAt;
+        this.updatedAt = createdAt;
+    }
+
+    /**
+     * Gets the upload ID.
+     * @return the ID
+     */
+    public String getId() { return id; }
+
+    /**
+     * Gets the original file name.
+     * @return the file name
+     */
+    public String getFileName() { return fileName; }
+
+    /**
+     * Gets the announced total size.
+     * @return bytes, or {@code null} if the client did not announce it
+     */
+    public Long getSize() { return size; }
+
+    /**
+     * Gets the number of bytes received and verified; the next chunk must start here.
+     * @return the offset
+     */
+    public synchronized long getOffset() { return offset; }
+
+    /**
+     * Checks whether all chunks were received.
+     * @return {@code true} once complete
+     */
+    public synchronized boolean isComplete() { return complete; }
+
+    /**
+     * Gets the creation time.
+     * @return the creation time
+     */
+    public Instant getCreatedAt() { return createdAt; }
+
+    /**
+     * Gets the time of the last chunk or state change.
+     * @return the last activity
+     */
+    public Instant getUpdatedAt() { return updatedAt; }
+
+    /**
+     * Gets the import job reading this upload.
+     * @return the most recent job, or {@code null} before the first chunk
+     */
+    public ImportJob getJob() { return job; }
+
+    synchronized void acknowledge(long newOffset) {
+        offset = newOffset;
+        if (size != null && offset == size) complete = true;
+        touch();
+    }
+
+    synchronized void complete() {
+        complete = true;
+        touch();
+    }
+
+    synchronized void abort() {
+        aborted = true;
+        touch();
+    }
+
+    synchronized boolean isAborted() { return aborted; }
+
+    /**
+     * Checks whether the last job gave up waiting for data, so that a new one has to read the upload again.
+     */
+    synchronized boolean isStalled() { return stalled; }
+
+    synchronized void setJob(ImportJob job) {
+        this.job = job;
+        stalled = false;
+    }
+
+    /**
+     * Waits until data beyond a position has been received.
+     *
+     * @param position      the position of the reader
+     * @param timeoutMillis how long to wait for the next chunk
+     * @return bytes readable at {@code position}, or -1 at the end of a complete upload
+     * @throws IOException if the upload was aborted or no chunk arrived in time
+     */
+    synchronized long awaitData(long position, long timeoutMillis) throws IOException {
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000;
+        while (offset <= position && !complete && !aborted) {
+            long left = (deadline - System.nanoTime()) / 1_000_000;
+            if (left <= 0) {
+                stalled = true;
+                throw new IOException("Upload stalled at " + offset + " bytes; the import restarts when it resumes");
+            }
+            try {
+                wait(left);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for upload data");
+            }
+        }
+        if (aborted) throw new IOException("Upload aborted");
+        return offset > position ? offset - position : -1;
+    }
+
+    private void touch() {
+        updatedAt = Instant.now();
+        notifyAll();
+    }
+}
@@ -0,0 +1,102 @@
+package de.banana.flightviewer.util;
+
+import java.util.Arrays;
+
+/**
+ * Douglas-Peucker line simplification as a one-off ranking.
+ * <p>
+ * Instead of simplifying for a single tolerance, {@link #significance} runs the recursion once and records
+ * for every point the largest tolerance at which it would still be kept. Any later simplification is then a
+ * cheap selection: all points with a significance above a tolerance, or the {@code k} most significant ones.
+ * Distances are measured in a local equirectangular projection, in meters.
+ * </p>
+ */
+public final class DouglasPeucker {
+
+    private DouglasPeucker() {}
+
+    /**
+     * Computes the significance of each point of a track.
+     *
+     * @param lat latitudes in decimal degrees
+     * @param lon longitudes in decimal degrees
+     * @param n   number of points to use from the arrays
+     * @return per point the tolerance in meters below which it is kept; end points are infinite
+     */
+    public static double[] significance(double[] lat, double[] lon, int n) {
+        double[] sig = new double[n];
+        if (n == 0) return sig;
+        sig[0] = Double.POSITIVE_INFINITY;
+        sig[n - 1] = Double.POSITIVE_INFINITY;
+        if (n < 3) return sig;
+
+        // project to meters around the first point
+        double kx = Math.toRadians(1) * GeoMath.EARTH_RADIUS_M * Math.cos(Math.toRadians(lat[0]));
+        double ky = Math.toRadians(1) * GeoMath.EARTH_RADIUS_M;
+
+        // explicit stack of (first, last, parent significance)
+        int[] first = new int[64];
+        int[] last = new int[64];
+        double[] cap = new double[64];
+        first[0] = 0;
+        last[0] = n - 1;
+        cap[0] = Double.POSITIVE_INFINITY;
+        int top = 1;
+
+        while (top > 0) {
+            top--;
+            int a = first[top], b = last[top];
+            double parent = cap[top];
+            if (b - a < 2) continue;
+
+            double ax = lon[a] * kx, ay = lat[a] * ky;
+            double dx = lon[b] * kx - ax, dy = lat[b] * ky - ay;
+            double len2 = dx * dx + dy * dy;
+
+            int best = -1;
+            double bestDist = -1;
+            for (int i = a + 1; i < b; i++) {
+                double px = lon[i] * kx - ax, py = lat[i] * ky - ay;
+                double d;
+                if (len2 == 0) {
+                    d = px * px + py * py;
+                } else {
+                    double t = Math.max(0, Math.min(1, (px * dx + py * dy) / len2));
+                    double ex = px - t * dx, ey = py - t * dy;
+                    d = ex * ex + ey * ey;
+                }
+                if (d > bestDist) {
+                    bestDist = d;
+                    best = i;
+                }
+            }
+            // clamp so that a child is never more significant than the split that exposed it
+            double s = Math.min(Math.sqrt(bestDist), parent);
+            sig[best] = s;
+
+            if (top + 2 > first.length) {
+                first = Arrays.copyOf(first, first.length * 2);
+                last = Arrays.copyOf(last, last.length * 2);
+                cap = Arrays.copyOf(cap, cap.length * 2);
+            }
+            first[top] = a; last[top] = best; cap[top] = s; top++;
+            first[top] = best; last[top] = b; cap[top] = s; top++;
+        }
+        return sig;
+    }
+
+    /**
+     * Orders point positions by decreasing significance (ties keep track order).
+     *
+     * @param sig significance per point, as returned by {@link #significance}
+     * @return point positions, most significant first
+     */
+    public static int[] rank(double[] sig) {
+        Integer[] boxed = new Integer[sig.length];
+        for (int i = 0; i < boxed.length; i++) boxed[i] = i;
+        Arrays.sort(boxed, (x, y) -> Double.compare(sig[y], sig[x]));
+        int[] order = new int[boxed.length];
+        for (int i = 0; i < order.length; i++) order[i] = boxed[i];
+        return order;
+    }
+}
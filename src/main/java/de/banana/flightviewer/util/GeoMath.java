@@ -0,0 +1,71 @@
+package de.banana.flightviewer.util;
+
+/**
+ * Small geodesy helpers shared by import, simplification and search.
+ */
+public final class GeoMath {
+
+    /**
+     * Mean earth radius in meters.
+     */
+    public static final double EARTH_RADIUS_M = 6371000;
+
+    private GeoMath() {}
+
+    /** Great-circle distance in metres (Haversine). */
+    public static double haversine(double lat1, double lon1, double lat2, double lon2) {
+        double R = EARTH_RADIUS_M;
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                        Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * R * Math.asin(Math.sqrt(a));
+    }
+
+    /**
+     * Ground resolution of a Web-Mercator map tile pixel.
+     *
+     * @param latitude latitude in decimal degrees
+     * @param zoom     map zoom level
+     * @return meters per pixel at that latitude and zoom
+     */
+    public static double metersPerPixel(double latitude, int zoom) {
+        return 156543.03392 * Math.cos(Math.toRadians(latitude)) / Math.pow(2, zoom);
+    }
+
+    /**
+     * Checks whether a logged position is a GPS fix. DJI logs report 0/0 until the first fix.
+     *
+     * @param latitude  latitude in decimal degrees
+     * @param longitude longitude in decimal degrees
+     * @return {@code false} for exactly 0/0
+     */
+    public static boolean hasFix(double latitude, double longitude) {
+        return latitude != 0 || longitude != 0;
+    }
+
+    /**
+     * Projects a longitude to a global Web-Mercator pixel column for 256-pixel tiles.
+     *
+     * @param longitude longitude in decimal degrees
+     * @param zoom      map zoom level
+     * @return the pixel column, from 0 to {@code 256 * 2^zoom}
+     */
+    public static double mercatorX(double longitude, int zoom) {
+        return (longitude + 180) / 360 * (256L << zoom);
+    }
+
+    /**
+     * Projects a latitude to a global Web-Mercator pixel row for 256-pixel tiles. Latitudes beyond the
+     * projection's limit of about 85.05 degrees are clamped.
+     *
+     * @param latitude latitude in decimal degrees
+     * @param zoom     map zoom level
+     * @return the pixel row, from 0 (north) to {@code 256 * 2^zoom}
+     */
+    public static double mercatorY(double latitude, int zoom) {
+        double lat = Math.toRadians(Math.max(-85.05112878, Math.min(85.05112878, latitude)));
+        return (1 - Math.log(Math.tan(lat) + 1 / Math.cos(lat)) / Math.PI) / 2 * (256L << zoom);
+    }
+}
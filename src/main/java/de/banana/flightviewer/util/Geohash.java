@@ -0,0 +1,134 @@
+package de.banana.flightviewer.util;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Geohash encoding and box covers for the spatial flight index.
+ * <p>
+ * A geohash of precision {@code p} names a cell of {@code 5p} interleaved longitude/latitude bits in base 32.
+ * Cells sharing a prefix lie within the cell named by that prefix, so a coarse cell matches an index range
+ * of fine cells ({@code prefix <= cell < prefix + "~"}).
+ * </p>
+ */
+public final class Geohash {
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+    private static final int[] DECODE = new int['z' + 1];
+
+    static {
+        Arrays.fill(DECODE, -1);
+        for (int i = 0; i < BASE32.length; i++) DECODE[BASE32[i]] = i;
+    }
+
+    private Geohash() {}
+
+    /**
+     * Encodes a position.
+     *
+     * @param latitude  latitude in decimal degrees
+     * @param longitude longitude in decimal degrees
+     * @param precision number of characters (1 to 12)
+     * @return the geohash
+     */
+    public static String encode(double latitude, double longitude, int precision) {
+        double latMin = -90, latMax = 90, lonMin = -180, lonMax = 180;
+        char[] out = new char[precision];
+        boolean lon = true;
+        for (int c = 0; c < precision; c++) {
+            int bits = 0;
+            for (int b = 0; b < 5; b++) {
+                if (lon) {
+                    double mid = (lonMin + lonMax) / 2;
+                    if (longitude >= mid) { bits = bits << 1 | 1; lonMin = mid; } else { bits <<= 1; lonMax = mid; }
+                } else {
+                    double mid = (latMin + latMax) / 2;
+                    if (latitude >= mid) { bits = bits << 1 | 1; latMin = mid; } else { bits <<= 1; latMax = mid; }
+                }
+                lon = !lon;
+            }
+            out[c] = BASE32[bits];
+        }
+        return new String(out);
+    }
+
+    /**
+     * Decodes a geohash to the bounds of its cell.
+     *
+     * @param hash the geohash
+     * @return {@code {minLat, minLon, maxLat, maxLon}}
+     * @throws IllegalArgumentException if the hash contains invalid characters
+     */
+    public static double[] bounds(String hash) {
+        double latMin = -90, latMax = 90, lonMin = -180, lonMax = 180;
+        boolean lon = true;
+        for (int c = 0; c < hash.length(); c++) {
+            char ch = hash.charAt(c);
+            int bits = ch < DECODE.length ? DECODE[ch] : -1;
+            if (bits < 0) throw new IllegalArgumentException("Invalid geohash: " + hash);
+            for (int b = 4; b >= 0; b--) {
+                boolean set = (bits >> b & 1) == 1;
+                if (lon) {
+                    double mid = (lonMin + lonMax) / 2;
+                    if (set) lonMin = mid; else lonMax = mid;
+                } else {
+                    double mid = (latMin + latMax) / 2;
+                    if (set) latMin = mid; else latMax = mid;
+                }
+                lon = !lon;
+            }
+        }
+        return new double[]{latMin, lonMin, latMax, lonMax};
+    }
+
+    /**
+     * Gets the height of a cell.
+     *
+     * @param precision number of characters
+     * @return cell height in degrees of latitude
+     */
+    public static double cellHeight(int precision) {
+        return 180 / Math.pow(2, (5 * precision) / 2);
+    }
+
+    /**
+     * Gets the width of a cell.
+     *
+     * @param precision number of characters
+     * @return cell width in degrees of longitude
+     */
+    public static double cellWidth(int precision) {
+        return 360 / Math.pow(2, (5 * precision + 1) / 2);
+    }
+
+    /**
+     * Lists the cells of a precision that intersect a box.
+     *
+     * @param minLat    southern bound
+     * @param minLon    western bound
+     * @param maxLat    northern bound
+     * @param maxLon    eastern bound
+     * @param precision number of characters
+     * @param limit     give up once more than this many cells are needed
+     * @return the cells, or {@code null} if there are more than {@code limit}
+     */
+    public static Set<String> cover(double minLat, double minLon, double maxLat, double maxLon, int precision, int limit) {
+        double h = cellHeight(precision), w = cellWidth(precision);
+        long rows = (long) Math.floor((maxLat + 90) / h) - (long) Math.floor((minLat + 90) / h) + 1;
+        long cols = (long) Math.floor((maxLon + 180) / w) - (long) Math.floor((minLon + 180) / w) + 1;
+        if (rows * cols > limit) return null;
+        Set<String> cells = new LinkedHashSet<>();
+        for (long r = 0; r < rows; r++) {
+            double lat = Math.min(maxLat, minLat + r * h);
+            for (long c = 0; c < cols; c++) {
+                double lon = Math.min(maxLon, minLon + c * w);
+                cells.add(encode(lat, lon, precision));
+            }
+        }
+        // the eastern and northern edges again, in case rounding pushed a step past a cell boundary
+        for (long r = 0; r < rows; r++) cells.add(encode(Math.min(maxLat, minLat + r * h), maxLon, precision));
+        for (long c = 0; c < cols; c++) cells.add(encode(maxLat, Math.min(maxLon, minLon + c * w), precision));
+        return cells;
+    }
+}
@@ -0,0 +1,69 @@
+package de.banana.flightviewer.util;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling for time series.
+ * <p>
+ * Keeps the first and last point and, for each of the {@code threshold - 2} buckets in between, the point
+ * forming the largest triangle with the previously selected point and the average of the next bucket.
+ * This preserves peaks and the visual shape of a chart far better than plain decimation.
+ * </p>
+ */
+public final class Lttb {
+
+    private Lttb() {}
+
+    /**
+     * Selects the points to keep.
+     *
+     * @param x         ascending x values (e.g. timestamps)
+     * @param y         y values
+     * @param n         number of points to use from the arrays
+     * @param threshold maximum number of points to return (at least 3)
+     * @return ascending positions of the selected points
+     */
+    public static int[] select(long[] x, double[] y, int n, int threshold) {
+        if (threshold >= n || n < 3) {
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++) all[i] = i;
+            return all;
+        }
+        threshold = Math.max(threshold, 3);
+
+        int[] out = new int[threshold];
+        double every = (double) (n - 2) / (threshold - 2);
+        int a = 0;
+        out[0] = 0;
+
+        for (int i = 0; i < threshold - 2; i++) {
+            // average of the next bucket
+            int avgStart = (int) Math.floor((i + 1) * every) + 1;
+            int avgEnd = Math.min((int) Math.floor((i + 2) * every) + 1, n);
+            double avgX = 0, avgY = 0;
+            for (int j = avgStart; j < avgEnd; j++) {
+                avgX += x[j];
+                avgY += y[j];
+            }
+            int avgLen = avgEnd - avgStart;
+            avgX /= avgLen;
+            avgY /= avgLen;
+
+            // point of the current bucket with the largest triangle
+            int rangeStart = (int) Math.floor(i * every) + 1;
+            int rangeEnd = (int) Math.floor((i + 1) * every) + 1;
+            double ax = x[a], ay = y[a];
+            double maxArea = -1;
+            int next = rangeStart;
+            for (int j = rangeStart; j < rangeEnd; j++) {
+                double area = Math.abs((ax - avgX) * (y[j] - ay) - (ax - x[j]) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = j;
+                }
+            }
+            out[i + 1] = next;
+            a = next;
+        }
+        out[threshold - 1] = n - 1;
+        return out;
+    }
+}
@@ -0,0 +1,69 @@
+package de.banana.flightviewer.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 helpers for content hashes and fingerprints, rendered as lowercase hex.
+ */
+public final class Sha256 {
+
+    private Sha256() {}
+
+    /**
+     * Creates a new SHA-256 digest.
+     *
+     * @return the digest
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required on every Java platform", e);
+        }
+    }
+
+    /**
+     * Completes a digest.
+     *
+     * @param digest the digest
+     * @return the hash as 64 hex characters
+     */
+    public static String hex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Hashes a string (UTF-8).
+     *
+     * @param value the string
+     * @return the hash as 64 hex characters
+     */
+    public static String of(String value) {
+        MessageDigest digest = newDigest();
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        return hex(digest);
+    }
+
+    /**
+     * Hashes the content of a file.
+     *
+     * @param file the file
+     * @return the hash as 64 hex characters
+     * @throws IOException if the file cannot be read
+     */
+    public static String of(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buf = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            for (int n; (n = in.read(buf)) > 0; ) digest.update(buf, 0, n);
+        }
+        return hex(digest);
+    }
+}
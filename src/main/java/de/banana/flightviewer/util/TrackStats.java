@@ -0,0 +1,88 @@
+package de.banana.flightviewer.util;
+
+/**
+ * Running summary of a track, fed one sample at a time in time order: time span, distance, maximum altitude
+ * and battery use. Shared by the import and live ingest so both compute a flight's stats the same way.
+ * <p>
+ * The distance adds the great-circle distance between consecutive samples. A battery level of 0 is what
+ * blank cells read as; it counts for the minimum but not for the battery used. Not thread-safe.
+ * </p>
+ */
+public final class TrackStats {
+
+    private long count;
+    private long firstTimestamp, lastTimestamp;
+    private double prevLat, prevLon;
+    private double distanceMeters;
+    private double maxAltitude = Double.NEGATIVE_INFINITY;
+    private int minBattery = 100;
+    private int firstBattery, lastBattery;
+
+    /**
+     * Adds the next sample.
+     *
+     * @param timestamp epoch milliseconds
+     * @param latitude  latitude in decimal degrees
+     * @param longitude longitude in decimal degrees
+     * @param altitude  altitude in meters
+     * @param battery   battery percentage
+     */
+    public void add(long timestamp, double latitude, double longitude, double altitude, int battery) {
+        if (altitude > maxAltitude) maxAltitude = altitude;
+        if (battery < minBattery) minBattery = battery;
+        if (battery > 0) {
+            if (firstBattery == 0) firstBattery = battery;
+            lastBattery = battery;
+        }
+        if (count++ == 0) {
+            firstTimestamp = timestamp;
+        } else {
+            distanceMeters += GeoMath.haversine(prevLat, prevLon, latitude, longitude);
+        }
+        lastTimestamp = timestamp;
+        prevLat = latitude;
+        prevLon = longitude;
+    }
+
+    /**
+     * Gets the number of samples added.
+     * @return the sample count
+     */
+    public long getCount() { return count; }
+
+    /**
+     * Gets the time of the first sample.
+     * @return epoch milliseconds; undefined without samples
+     */
+    public long getFirstTimestamp() { return firstTimestamp; }
+
+    /**
+     * Gets the time of the last sample.
+     * @return epoch milliseconds; undefined without samples
+     */
+    public long getLastTimestamp() { return lastTimestamp; }
+
+    /**
+     * Gets the distance flown.
+     * @return meters
+     */
+    public double getDistanceMeters() { return distanceMeters; }
+
+    /**
+     * Gets the highest altitude.
+     * @return meters; negative infinity without samples
+     */
+    public double getMaxAltitude() { return maxAltitude; }
+
+    /**
+     * Gets the lowest battery level.
+     * @return percent; 100 without samples
+     */
+    public int getMinBattery() { return minBattery; }
+
+    /**
+     * Gets the battery used: first minus last non-zero reading.
+     * @return percentage points, never negative
+     */
+    public int getBatteryUsedPercent() { return Math.max(0, firstBattery - lastBattery); }
+}
@@ -7,35 +7,64 @@ window.addEventListener('DOMContentLoaded', () => {
     L.tileLayer('https://{s}.tile.openstreetmap.org/{z}/{x}/{y}.png', {
         attribution:'&copy; OpenStreetMap'
     }).addTo(map);
+    // Sample density of all flights, rendered server-side (see CoverageTileService)
+    const coverage = L.tileLayer('/tiles/coverage/{z}/{x}/{y}.png', { maxNativeZoom: 16, opacity: 0.7 });
+    L.control.layers(null, { 'Fleet coverage': coverage }).addTo(map);
 
-    // ---- Fetch samples ----
-    fetch(`/api/flights/${flightId}/samples`)
-        .then(r => r.json())
-        .then(raw => {
-            console.log('Raw samples:', raw.length, raw.slice(0,3));
+    // ---- Level of detail: ask only for as many points as the screen can show ----
+    const dpr = window.devicePixelRatio || 1;
+    const canvas = document.getElementById('altChart');
+    const mapEl = document.getElementById('map');
+    const chartPoints = Math.round(canvas.width * dpr);
+    const trackPoints = Math.round((mapEl.clientWidth + mapEl.clientHeight) * dpr);
+
+    // ---- Track (simplified server-side, refined on zoom) ----
+    let poly = null;
+    const loadTrack = (query, fit) =>
+        fetch(`/api/flights/${flightId}/track?${query}`)
+            .then(r => r.json())
+            .then(geo => {
+                // Drop 0/0 coords (no GPS fix yet)
+                const latlngs = geo.coordinates
+                    .filter(c => Number(c[0]) !== 0 && Number(c[1]) !== 0)
+                    .map(c => [c[1], c[0]]);
+                if (latlngs.length === 0) { console.warn('No valid GPS points.'); return; }
+                if (poly) poly.setLatLngs(latlngs); else poly = L.polyline(latlngs).addTo(map);
+                if (fit) {
+                    map.fitBounds(poly.getBounds());
+                    map.on('zoomend', () => loadTrack(`zoom=${map.getZoom()}`, false));
+                }
+            })
+            .catch(err => console.error('Failed to load track:', err));
+    loadTrack(`maxPoints=${trackPoints}`, true);
+
+    // ---- Fetch samples (compact binary encoding, see SampleCodec) ----
+    fetch(`/api/flights/${flightId}/samples?maxPoints=${chartPoints}`,
+          { headers: { Accept: 'application/x-flight-samples' } })
+        .then(r => r.arrayBuffer())
+        .then(buf => {
+            const cols = decodeSamples(buf);
+            console.log('Samples:', cols.ts.length, 'from', buf.byteLength, 'bytes');
             // Drop leading 0/0 coords
-            const firstValid = raw.findIndex(s => Number(s.latitude)!==0 && Number(s.longitude)!==0);
-            const data = (firstValid > 0 ? raw.slice(firstValid) : raw).map(s => ({
-                ts: Number(s.ts),
-                lat: Number(s.latitude),
-                lon: Number(s.longitude),
-                alt: Number(s.altitude),
-                spd: Number(s.speed),
-                bat: Number(s.battery)
-            }));
+            let first = 0;
+            while (first < cols.ts.length && (cols.lat[first] === 0 || cols.lon[first] === 0)) first++;
+            const data = [];
+            for (let k = first; k < cols.ts.length; k++) {
+                data.push({ ts: cols.ts[k], lat: cols.lat[k], lon: cols.lon[k],
+                            alt: cols.alt[k], spd: cols.spd[k], bat: cols.bat[k] });
+            }
             if (data.length === 0) { console.warn('No valid GPS points.'); return; }
 
-            // ---- Draw track & marker ----
-            const latlngs = data.map(p => [p.lat, p.lon]);
-            const poly = L.polyline(latlngs).addTo(map);
-            map.fitBounds(poly.getBounds());
-            const marker = L.marker(latlngs[0]).addTo(map);
+            // ---- Marker ----
+            const marker = L.marker([data[0].lat, data[0].lon]).addTo(map);
 
-            // ---- Altitude chart (index-based x axis, guaranteed to draw) ----
-            const ctx = document.getElementById('altChart').getContext('2d');
+            // ---- Altitude chart (seconds since first valid sample) ----
+            const ctx = canvas.getContext('2d');
+            const t0 = data[0].ts;
+            const sec = p => (p.ts - t0) / 1000;
 
-            // Build {x: index, y: altitude}
-            const pts = data.map((p, i) => ({ x: i, y: p.alt }));
+            // Build {x: seconds, y: altitude}
+            const pts = data.map(p => ({ x: sec(p), y: p.alt }));
             console.log('Chart points:', pts.length, pts.slice(0, 3));
 
             const altChart = new Chart(ctx, {
@@ -69,7 +98,7 @@ window.addEventListener('DOMContentLoaded', () => {
                     scales: {
                         x: {
                             type: 'linear',
-                            title: { display: true, text: 'Sample' }
+                            title: { display: true, text: 'Seconds' }
                         },
                         y: {
                             title: { display: true, text: 'Meters' },
@@ -82,22 +111,64 @@ window.addEventListener('DOMContentLoaded', () => {
                 }
             });
 
-            // ---- Replay (kept in sync with index-based x) ----
+            // ---- Replay (paced server-side and pushed as Server-Sent Events; follows live flights too) ----
             const btn = document.getElementById('replayBtn');
-            let timer = null, i = 0;
+            let source = null;
             btn.onclick = () => {
-                if (timer || data.length === 0) return;
-                const speed = 10; // 10×
-                i = 0;
-                timer = setInterval(() => {
-                    if (i >= data.length) { clearInterval(timer); timer = null; return; }
-                    const p = data[i++];
-                    marker.setLatLng([p.lat, p.lon]);
+                if (source) return;
+                source = new EventSource(`/api/flights/${flightId}/stream?speed=10`);
+                source.addEventListener('samples', e => {
+                    const batch = JSON.parse(e.data).filter(p => p.latitude !== 0 && p.longitude !== 0);
+                    if (batch.length === 0) return;
+                    const p = batch[batch.length - 1];
+                    marker.setLatLng([p.latitude, p.longitude]);
 
-                    altChart.data.datasets[1].data = [{ x: i - 1, y: p.alt }];
+                    altChart.data.datasets[1].data = [{ x: (p.timestamp - t0) / 1000, y: p.altitude }];
                     altChart.update('none');
-                }, 1000 / speed);
+                });
+                // Close on end, or the browser would reconnect and replay again
+                source.addEventListener('end', () => { source.close(); source = null; });
             };
         })
         .catch(err => console.error('Failed to load samples:', err));
 });
+
+/**
+ * Decodes the application/x-flight-samples format into typed arrays.
+ * Columns are zigzag varint deltas (timestamps in ms, lat/lon in 1e-7 degrees,
+ * altitude and speed in cm), followed by one battery byte per sample.
+ */
+function decodeSamples(buffer) {
+    const bytes = new Uint8Array(buffer);
+    if (String.fromCharCode(bytes[0], bytes[1], bytes[2], bytes[3]) !== 'FVS1') {
+        throw new Error('Unexpected sample encoding');
+    }
+    let pos = 4;
+    // Arithmetic instead of bit ops: timestamps exceed 32 bits
+    const varint = () => {
+        let v = 0, scale = 1, b;
+        do {
+            b = bytes[pos++];
+            v += (b & 0x7f) * scale;
+            scale *= 128;
+        } while (b & 0x80);
+        return v;
+    };
+    const unzigzag = z => (z % 2 === 1 ? -(z + 1) / 2 : z / 2);
+    const deltas = (out, scale) => {
+        let v = 0;
+        for (let i = 0; i < out.length; i++) {
+            v += unzigzag(varint());
+            out[i] = v / scale;
+        }
+        return out;
+    };
+    const n = varint();
+    const ts = deltas(new Float64Array(n), 1);
+    const lat = deltas(new Float64Array(n), 1e7);
+    const lon = deltas(new Float64Array(n), 1e7);
+    const alt = deltas(new Float32Array(n), 100);
+    const spd = deltas(new Float32Array(n), 100);
+    const bat = bytes.slice(pos, pos + n);
+    return { ts, lat, lon, alt, spd, bat };
+}
@@ -0,0 +1,50 @@
+package de.banana.flightviewer.codec;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChannelCodecTest {
+
+    @Test
+    void roundTripsCellsExactly() throws IOException {
+        List<String> cells = List.of("", "P-GPS", "P-GPS", "-10.2", "-10.2", "-10.25", "0", "", "True",
+                "007", "-0.0", "1.", "1e5", "P-GPS", "52.9947824984567", "0.50", "Flight mode changed to P-GPS.");
+        ChannelCodec.Encoder encoder = new ChannelCodec.Encoder();
+        cells.forEach(encoder::add);
+        assertEquals(cells.size(), encoder.getCount());
+
+        List<String> decoded = new ArrayList<>();
+        ChannelCodec.decode(encoder.toByteArray(), new ChannelCodec.ValueHandler() {
+            @Override
+            public void blank() {
+                decoded.add("");
+            }
+
+            @Override
+            public void decimal(long unscaled, int scale) {
+                decoded.add(BigDecimal.valueOf(unscaled, scale).toPlainString());
+            }
+
+            @Override
+            public void text(String text) {
+                decoded.add(text);
+            }
+        });
+        assertEquals(cells, decoded);
+    }
+
+    @Test
+    void encodesRepeatsInOneByte() {
+        ChannelCodec.Encoder encoder = new ChannelCodec.Encoder();
+        encoder.add("12.5");
+        int first = encoder.toByteArray().length;
+        for (int i = 0; i < 1000; i++) encoder.add("12.5");
+        assertEquals(first + 1000, encoder.toByteArray().length);
+    }
+}
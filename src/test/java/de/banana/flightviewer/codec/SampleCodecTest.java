@@ -0,0 +1,39 @@
+package de.banana.flightviewer.codec;
+
+import de.banana.flightviewer.model.SampleColumns;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SampleCodecTest {
+
+    @Test
+    void roundTripsWithinQuantization() {
+        SampleColumns in = new SampleColumns(0);
+        long t = 1_792_301_874_509L;
+        for (int i = 0; i < 5000; i++) {
+            in.add(t + i * 100L, 52.9947824984567 + i * 1e-6, -9.0712926006498 - i * 2e-6,
+                    11.5824 + Math.sin(i / 30.0) * 20, Math.abs(Math.cos(i / 10.0)) * 12, 100 - i / 50);
+        }
+
+        byte[] bytes = SampleCodec.encode(in);
+        assertTrue(bytes.length < in.size() * 14, "expected a compact encoding, got " + bytes.length);
+
+        SampleColumns out = SampleCodec.decode(bytes);
+        assertEquals(in.size(), out.size());
+        for (int i = 0; i < in.size(); i++) {
+            assertEquals(in.timestamp(i), out.timestamp(i));
+            assertEquals(in.latitude(i), out.latitude(i), 1e-7);
+            assertEquals(in.longitude(i), out.longitude(i), 1e-7);
+            assertEquals(in.altitude(i), out.altitude(i), 0.01);
+            assertEquals(in.speed(i), out.speed(i), 0.01);
+            assertEquals(in.battery(i), out.battery(i));
+        }
+    }
+
+    @Test
+    void rejectsForeignData() {
+        assertThrows(IllegalArgumentException.class, () -> SampleCodec.decode(new byte[]{'[', ']'}));
+        assertEquals(0, SampleCodec.decode(SampleCodec.encode(new SampleColumns(0))).size());
+    }
+}
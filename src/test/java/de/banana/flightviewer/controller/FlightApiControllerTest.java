@@ -0,0 +1,58 @@
+package de.banana.flightviewer.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.banana.flightviewer.model.SampleColumns;
+import de.banana.flightviewer.repository.FlightRepository;
+import de.banana.flightviewer.repository.SampleArchive;
+import de.banana.flightviewer.repository.SampleStore;
+import de.banana.flightviewer.service.FlightLodService;
+import de.banana.flightviewer.service.LiveFlightService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class FlightApiControllerTest {
+
+    private final ObjectMapper json = new ObjectMapper();
+
+    @Test
+    void trackRequestedBeforeImportIsNotCachedAsImmutable() throws Exception {
+        SampleStore store = mock(SampleStore.class);
+        FlightRepository flights = mock(FlightRepository.class);
+        SimpleMeterRegistry metrics = new SimpleMeterRegistry();
+        FlightApiController api = new FlightApiController(store, new FlightLodService(store, 1_000_000), null,
+                flights, null, null, null, mock(LiveFlightService.class),
+                new FlightResponseCache(1 << 20, false, metrics), mock(SampleArchive.class),
+                new FlightApiMetrics(metrics), json);
+
+        // before the import commits: neither the flight nor its samples are visible
+        when(flights.existsById(7L)).thenReturn(false);
+        when(store.load(7L)).thenReturn(new SampleColumns(0));
+        ResponseEntity<byte[]> before = api.track(7L, 100, null, null, new MockHttpServletRequest());
+        assertEquals(0, coordinates(before).size());
+        assertFalse(String.valueOf(before.getHeaders().getCacheControl()).contains("immutable"));
+
+        // after the import
+        when(flights.existsById(7L)).thenReturn(true);
+        SampleColumns samples = new SampleColumns(50);
+        for (int i = 0; i < 50; i++) samples.add(1_000L * i, 52 + i * 1e-4, 13 + (i % 7) * 1e-4, 100, 5, 90);
+        when(store.load(7L)).thenReturn(samples);
+        ResponseEntity<byte[]> after = api.track(7L, 100, null, null, new MockHttpServletRequest());
+        assertEquals(50, coordinates(after).size());
+        assertTrue(after.getHeaders().getCacheControl().contains("immutable"));
+
+        ResponseEntity<byte[]> cached = api.track(7L, 100, null, null, new MockHttpServletRequest());
+        assertEquals(after.getHeaders().getFirst(HttpHeaders.ETAG), cached.getHeaders().getFirst(HttpHeaders.ETAG));
+        assertEquals(50, coordinates(cached).size());
+    }
+
+    private JsonNode coordinates(ResponseEntity<byte[]> response) throws Exception {
+        return json.readTree(response.getBody()).get("coordinates");
+    }
+}
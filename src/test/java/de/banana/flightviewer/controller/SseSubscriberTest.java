@@ -0,0 +1,122 @@
+package de.banana.flightviewer.controller;
+
+import de.banana.flightviewer.model.SampleColumns;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SseSubscriberTest {
+
+    @Test
+    void sendsNewestQueuedPointsAndEnds() {
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        RecordingEmitter emitter = new RecordingEmitter(null);
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        try {
+            SseSubscriber subscriber = new SseSubscriber(emitter, tasks::add, timer, 1000, 3);
+            CountDownLatch closed = new CountDownLatch(1);
+            subscriber.onClose(closed::countDown);
+
+            subscriber.samples(points(5), 0, 5);
+            assertFalse(subscriber.isIdle());
+            runAll(tasks);
+            assertTrue(subscriber.isIdle());
+            assertEquals(List.of("id:4000\nevent:samples\ndata:"), emitter.events);
+
+            subscriber.finished();
+            runAll(tasks);
+            assertEquals("event:end\ndata:", emitter.events.get(1));
+            assertEquals(0, closed.getCount());
+        } finally {
+            timer.shutdownNow();
+        }
+    }
+
+    @Test
+    void disconnectsClientThatStopsReadingWithoutDelayingOthers() throws Exception {
+        CountDownLatch unblock = new CountDownLatch(1);
+        RecordingEmitter stalled = new RecordingEmitter(unblock);
+        RecordingEmitter reading = new RecordingEmitter(null);
+        ExecutorService sender = new ThreadPoolExecutor(1, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>());
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        try {
+            SseSubscriber slow = new SseSubscriber(stalled, sender, timer, 200, 100);
+            SseSubscriber fast = new SseSubscriber(reading, sender, timer, 200, 100);
+            CountDownLatch slowClosed = new CountDownLatch(1);
+            slow.onClose(slowClosed::countDown);
+
+            slow.samples(points(1), 0, 1);
+            fast.samples(points(1), 0, 1);
+            assertTrue(slowClosed.await(5, TimeUnit.SECONDS), "stalled client is disconnected");
+            assertTrue(slow.isStalled());
+            assertEquals(1, reading.events.size(), "other clients keep receiving");
+
+            slow.samples(points(2), 1, 2);
+            fast.samples(points(2), 1, 2);
+            waitFor(() -> reading.events.size() == 2);
+            assertEquals(1, stalled.events.size(), "nothing is sent to a disconnected client");
+        } finally {
+            unblock.countDown();
+            sender.shutdownNow();
+            timer.shutdownNow();
+        }
+    }
+
+    private static SampleColumns points(int n) {
+        SampleColumns points = new SampleColumns(n);
+        for (int i = 0; i < n; i++) points.add(1_000L * i, 52, 13, 100, 5, 90);
+        return points;
+    }
+
+    private static void runAll(Queue<Runnable> tasks) {
+        for (Runnable task; (task = tasks.poll()) != null; ) task.run();
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Records the head of each event; blocks every send until released, like a client that stopped reading.
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+        final List<String> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch blockUntil;
+
+        RecordingEmitter(CountDownLatch blockUntil) {
+            super(0L);
+            this.blockUntil = blockUntil;
+        }
+
+        @Override
+        public void send(SseEventBuilder event) throws IOException {
+            events.add(String.valueOf(event.build().iterator().next().getData()));
+            if (blockUntil != null) {
+                try {
+                    blockUntil.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package de.banana.flightviewer.csv;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DjiCsvReaderTest {
+
+    private static final String[] COLUMNS = {
+            "OSD.flyTime [s]", "OSD.latitude", "OSD.longitude",
+            "OSD.altitude [ft]", "OSD.hSpeed [MPH]", "BATTERY.chargeLevel"
+    };
+
+    @Test
+    void fastReaderMatchesCommonsCsvOnDemoFlight() throws IOException {
+        String csv = Files.readString(Path.of("demo flight one.csv"), StandardCharsets.UTF_8);
+
+        DjiCsvReader fast = DjiCsvReader.open(new StringReader(csv));
+        assertInstanceOf(FastDjiCsvReader.class, fast);
+        DjiCsvReader commons = CommonsDjiCsvReader.open(new StringReader(csv.substring(csv.indexOf('\n') + 1)), ",");
+
+        int[] fastSlots = new int[COLUMNS.length];
+        int[] commonsSlots = new int[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            fastSlots[i] = fast.requireColumn(COLUMNS[i]);
+            commonsSlots[i] = commons.requireColumn(COLUMNS[i]);
+        }
+        int flightMode = fast.column("OSD.flycState");
+        int commonsFlightMode = commons.column("OSD.flycState");
+
+        int rows = 0;
+        while (fast.next()) {
+            assertTrue(commons.next());
+            for (int i = 0; i < COLUMNS.length - 1; i++) {
+                assertEquals(commons.getDouble(commonsSlots[i]), fast.getDouble(fastSlots[i]), COLUMNS[i]);
+            }
+            assertEquals(commons.getInt(commonsSlots[5]), fast.getInt(fastSlots[5]));
+            assertEquals(commons.getString(commonsFlightMode), fast.getString(flightMode));
+            rows++;
+        }
+        assertFalse(commons.next());
+        assertTrue(rows > 3000);
+    }
+
+    @Test
+    void handlesQuotesLineBreaksAndBufferBoundaries() throws IOException {
+        String csv = "sep=;\r\na;b;c\r\n1.5;\"x;\"\"y\"\"\nz\";-2\r\n\r\n  ;;7\n3e2;plain";
+        DjiCsvReader r = DjiCsvReader.open(new OneCharReader(new StringReader(csv)));
+        int a = r.requireColumn("a");
+        int b = r.requireColumn("B");
+        int c = r.requireColumn("c");
+
+        assertTrue(r.next());
+        assertEquals(1.5, r.getDouble(a));
+        assertEquals("x;\"y\"\nz", r.getString(b));
+        assertEquals(-2, r.getInt(c));
+
+        assertTrue(r.next());
+        assertTrue(r.isBlank(a));
+        assertEquals(0.0, r.getDouble(a));
+        assertEquals(7, r.getInt(c));
+
+        assertTrue(r.next());
+        assertEquals(300.0, r.getDouble(a));
+        assertEquals("plain", r.getString(b));
+        assertTrue(r.isBlank(c));
+        assertFalse(r.next());
+    }
+
+    @Test
+    void quotedHeaderFallsBackToCommonsCsv() throws IOException {
+        DjiCsvReader r = DjiCsvReader.open(new StringReader("\"a\",\"b\"\n1,2\n"));
+        assertInstanceOf(CommonsDjiCsvReader.class, r);
+        int b = r.requireColumn("b");
+        assertTrue(r.next());
+        assertEquals(2, r.getInt(b));
+        assertThrows(IllegalArgumentException.class, () -> DjiCsvReader.open(new StringReader("")));
+    }
+
+    @Test
+    void parsesNumbersLikeTheJdk() {
+        String[] values = {"0", "-0.0", "52.9947824984567", "9.0712926006498", "0.1", "123456789012345678901",
+                "1e-5", "-3.25E+2", "0.30000000000000004", ".5", "7."};
+        for (String v : values) {
+            char[] chars = v.toCharArray();
+            assertEquals(Double.parseDouble(v), FastDjiCsvReader.parseDouble(chars, 0, chars.length), v);
+        }
+        assertThrows(NumberFormatException.class, () -> FastDjiCsvReader.parseDouble("1.2.3".toCharArray(), 0, 5));
+        assertThrows(NumberFormatException.class, () -> FastDjiCsvReader.parseInt("35.0".toCharArray(), 0, 4));
+    }
+
+    /** Returns at most one char per read to exercise every buffer refill path. */
+    private static final class OneCharReader extends FilterReader {
+        OneCharReader(Reader in) { super(in); }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            return super.read(cbuf, off, Math.min(len, 1));
+        }
+    }
+}
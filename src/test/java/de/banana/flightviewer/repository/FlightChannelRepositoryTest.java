@@ -0,0 +1,24 @@
+package de.banana.flightviewer.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DeflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightChannelRepositoryTest {
+
+    @Test
+    void rejectsTruncatedChannelInsteadOfSpinning() throws Exception {
+        byte[] encoded = "P-GPS,P-GPS,ATTI,P-GPS,Flight mode changed".repeat(200).getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = new DeflaterInputStream(new ByteArrayInputStream(encoded)).readAllBytes();
+        assertArrayEquals(encoded, FlightChannelRepository.inflate(compressed, encoded.length));
+
+        byte[] truncated = Arrays.copyOf(compressed, compressed.length / 2);
+        assertThrows(IllegalStateException.class, () -> FlightChannelRepository.inflate(truncated, encoded.length));
+        assertThrows(IllegalStateException.class, () -> FlightChannelRepository.inflate(compressed, encoded.length + 1));
+    }
+}
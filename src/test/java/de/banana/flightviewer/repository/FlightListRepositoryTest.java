@@ -0,0 +1,125 @@
+package de.banana.flightviewer.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.banana.flightviewer.model.Flight;
+import de.banana.flightviewer.model.FlightSummary;
+import de.banana.flightviewer.repository.FlightListRepository.Cursor;
+import de.banana.flightviewer.repository.FlightListRepository.Page;
+import de.banana.flightviewer.repository.FlightListRepository.Sort;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:list;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+class FlightListRepositoryTest {
+
+    @Autowired
+    FlightListRepository list;
+    @Autowired
+    FlightRepository flights;
+    @Autowired
+    MockMvc mvc;
+    @Autowired
+    ObjectMapper json;
+
+    private final List<Flight> saved = new ArrayList<>();
+
+    @BeforeEach
+    void flights() {
+        flights.deleteAll();
+        saved.clear();
+        double[] distances = {500, 1200, 500, 80, 1200, 500, 3000};
+        for (int i = 0; i < distances.length; i++) {
+            Flight flight = new Flight();
+            flight.setStartTime(Instant.parse("2024-03-01T10:00:00Z").plusSeconds(86_400L * i));
+            flight.setDistanceMeters(distances[i]);
+            flight.setMinBatteryPercent(50);
+            saved.add(flights.save(flight));
+        }
+    }
+
+    @Test
+    void pagesVisitEveryFlightOnceInSortOrder() {
+        Comparator<Flight> byDistance = Comparator.comparingDouble(Flight::getDistanceMeters)
+                .thenComparing(Flight::getId);
+        assertEquals(ids(saved.stream().sorted(byDistance).toList()), pageThrough(Sort.DISTANCE, true, 2));
+        assertEquals(ids(saved.stream().sorted(byDistance.reversed()).toList()), pageThrough(Sort.DISTANCE, false, 3));
+
+        Comparator<Flight> byBattery = Comparator.comparingInt(Flight::getMinBatteryPercent)
+                .thenComparing(Flight::getId);
+        assertEquals(ids(saved.stream().sorted(byBattery).toList()), pageThrough(Sort.BATTERY, true, 1),
+                "ties are broken by ID");
+    }
+
+    @Test
+    void filtersByStartAndEndsWithoutCursor() {
+        Page page = list.page(Sort.START, true, Instant.parse("2024-03-02T00:00:00Z"),
+                Instant.parse("2024-03-04T00:00:00Z"), null, 10);
+        assertEquals(ids(saved.subList(1, 3)), page.items().stream().map(FlightSummary::getId).toList());
+        assertNull(page.next());
+
+        Page first = list.page(Sort.START, false, null, null, null, 7);
+        assertEquals(7, first.items().size());
+        assertNull(first.next(), "no cursor when the last page is exactly full");
+    }
+
+    @Test
+    void rejectsForeignAndMalformedCursors() {
+        String next = list.page(Sort.START, true, null, null, null, 2).next();
+        assertNotNull(Cursor.parse(Sort.START, next));
+        assertThrows(IllegalArgumentException.class, () -> Cursor.parse(Sort.DISTANCE, next));
+        assertThrows(IllegalArgumentException.class, () -> Cursor.parse(Sort.START, "not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> Cursor.parse(Sort.START, "U1RBUlR8eHx5"));
+    }
+
+    @Test
+    void apiAnswersBadCursorsWith400() throws Exception {
+        mvc.perform(get("/api/flights").param("after", "garbage"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Malformed cursor"));
+        String next = list.page(Sort.START, false, null, null, null, 2).next();
+        mvc.perform(get("/api/flights").param("sort", "distance").param("after", next))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/api/flights").param("sort", "nope"))
+                .andExpect(status().isBadRequest());
+
+        String body = mvc.perform(get("/api/flights").param("limit", "2").param("after", next))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        JsonNode page = json.readTree(body);
+        assertEquals(saved.get(4).getId(), page.at("/items/0/id").asLong());
+        assertEquals(saved.get(3).getId(), page.at("/items/1/id").asLong());
+    }
+
+    /* ---------- Helpers ---------- */
+
+    private List<Long> pageThrough(Sort sort, boolean ascending, int limit) {
+        List<Long> ids = new ArrayList<>();
+        Cursor after = null;
+        do {
+            Page page = list.page(sort, ascending, null, null, after, limit);
+            assertTrue(page.items().size() <= limit);
+            page.items().forEach(f -> ids.add(f.getId()));
+            after = Cursor.parse(sort, page.next());
+        } while (after != null);
+        return ids;
+    }
+
+    private static List<Long> ids(List<Flight> flights) {
+        return flights.stream().map(Flight::getId).toList();
+    }
+}
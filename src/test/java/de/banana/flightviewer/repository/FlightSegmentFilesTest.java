@@ -0,0 +1,81 @@
+package de.banana.flightviewer.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightSegmentFilesTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void slicesTimeRangesInclusively() throws Exception {
+        FlightSegmentFiles segments = new FlightSegmentFiles(dir, true);
+        write(segments, 1, 5000); // timestamps 0, 100, ..., 499900
+
+        ByteBuffer all = segments.slice(1, null, null);
+        assertEquals(5000 * FlightSegmentFiles.RECORD_SIZE, all.remaining());
+        assertTrue(all.isReadOnly());
+
+        ByteBuffer range = segments.slice(1, 1000L, 2000L);
+        assertEquals(11, range.remaining() / FlightSegmentFiles.RECORD_SIZE, "both bounds are inclusive");
+        assertEquals(1000, range.getLong(0));
+        assertEquals(2000, range.getLong(10 * FlightSegmentFiles.RECORD_SIZE));
+        assertEquals(47.0 + 10 * 1e-6, range.getDouble(8));
+        assertEquals(90, range.getInt(FlightSegmentFiles.RECORD_SIZE - 4));
+
+        assertEquals(2, segments.slice(1, 1050L, 1200L).remaining() / FlightSegmentFiles.RECORD_SIZE);
+        assertEquals(0, segments.slice(1, 1001L, 1099L).remaining(), "no record in between");
+        assertEquals(0, segments.slice(1, 3000L, 2000L).remaining(), "reversed range");
+        assertEquals(0, segments.slice(1, 600_000L, null).remaining(), "after the flight");
+        assertEquals(2 * FlightSegmentFiles.RECORD_SIZE, segments.slice(1, null, 100L).remaining());
+    }
+
+    @Test
+    void missingAndForeignFiles() throws Exception {
+        FlightSegmentFiles segments = new FlightSegmentFiles(dir, true);
+        assertNull(segments.slice(2, null, null));
+
+        Files.write(dir.resolve("3.seg"), new byte[64]);
+        assertThrows(IOException.class, () -> segments.slice(3, null, null));
+    }
+
+    @Test
+    void publishesOnlyAfterCommit() throws Exception {
+        FlightSegmentFiles segments = new FlightSegmentFiles(dir, true);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            write(segments, 4, 10);
+            write(segments, 5, 10);
+            assertNull(segments.slice(4, null, null), "not visible before commit");
+            var synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            synchronizations.get(1).afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(10 * FlightSegmentFiles.RECORD_SIZE, segments.slice(4, null, null).remaining());
+        assertNull(segments.slice(5, null, null));
+        assertFalse(Files.exists(dir.resolve("5.seg.tmp")), "rolled back file is deleted");
+    }
+
+    /* ---------- Helpers ---------- */
+
+    private static void write(FlightSegmentFiles segments, long flightId, int n) {
+        try (SampleWriter writer = segments.openWriter(flightId)) {
+            for (int i = 0; i < n; i++) {
+                writer.append(i * 100L, 47.0 + i * 1e-6, 8.0, 120.5, 4.25, 90);
+            }
+        }
+    }
+}
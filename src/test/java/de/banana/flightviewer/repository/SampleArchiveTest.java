@@ -0,0 +1,203 @@
+package de.banana.flightviewer.repository;
+
+import de.banana.flightviewer.model.Flight;
+import de.banana.flightviewer.model.Sample;
+import de.banana.flightviewer.model.SampleColumns;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class SampleArchiveTest {
+
+    @TempDir
+    static Path dir;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:archive;DB_CLOSE_DELAY=-1");
+        registry.add("flightviewer.archive.dir", () -> dir.toString());
+        registry.add("flightviewer.archive.enabled", () -> "false");
+    }
+
+    @Autowired
+    SampleArchive archive;
+    @Autowired
+    RoutingSampleStore store;
+    @Autowired
+    SampleJdbcRepository rows;
+    @Autowired
+    ColumnarSampleStore columnar;
+    @Autowired
+    SampleRepository sampleRepository;
+    @Autowired
+    FlightRepository flights;
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Test
+    void rowFlightComesBackExactly() throws Exception {
+        long id = flight(Instant.parse("2020-01-01T00:00:00Z"));
+        SampleColumns original = samples(1234);
+        try (SampleJdbcRepository.BatchWriter writer = rows.openWriter(id)) {
+            for (int i = 0; i < original.size(); i++) {
+                writer.append(original.timestamp(i), original.latitude(i), original.longitude(i),
+                        original.altitude(i), original.speed(i), original.battery(i));
+            }
+        }
+
+        assertEquals(original.size(), archive.archive(id));
+        assertTrue(archive.isArchived(id));
+        assertEquals(0, countRows(id));
+        assertEquals(-1, archive.archive(id));
+
+        assertSamples(original, store.load(id), "read in place");
+        assertTrue(archive.isArchived(id), "internal reads do not rehydrate");
+
+        archive.access(id);
+        assertFalse(archive.isArchived(id));
+        assertEquals(original.size(), countRows(id), "back in the row store");
+        assertNull(columnar.tryLoad(id));
+        assertSamples(original, store.load(id));
+    }
+
+    @Test
+    void columnarFlightComesBackExactly() throws Exception {
+        long id = flight(Instant.parse("2020-01-02T00:00:00Z"));
+        columnar.write(id, samples(500));
+        SampleColumns original = columnar.tryLoad(id);
+
+        assertEquals(500, archive.archive(id));
+        assertNull(columnar.tryLoad(id));
+        List<long[]> streamed = new ArrayList<>();
+        store.stream(id, original.timestamp(100), original.timestamp(199),
+                (ts, lat, lon, alt, spd, batt) -> streamed.add(new long[]{ts}));
+        assertEquals(100, streamed.size(), "ranges read in place");
+        List<Sample> entities = sampleRepository.findByFlightIdOrderByTimestamp(id);
+        assertEquals(500, entities.size(), "the JPA adapter reads archived flights too");
+        assertEquals(original.timestamp(499), entities.get(499).getTimestamp().toEpochMilli());
+
+        assertTrue(archive.restore(id));
+        assertSamples(original, columnar.tryLoad(id));
+        assertEquals(0, countRows(id));
+    }
+
+    @Test
+    void archiveSkipsFlightsBeingRead() throws Exception {
+        long id = flight(Instant.parse("2020-01-03T00:00:00Z"));
+        columnar.write(id, samples(300));
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch archived = new CountDownLatch(1);
+        AtomicInteger read = new AtomicInteger();
+        CompletableFuture<Void> reader = CompletableFuture.runAsync(() -> {
+            try {
+                store.stream(id, (ts, lat, lon, alt, spd, batt) -> {
+                    if (read.getAndIncrement() == 10) {
+                        reading.countDown();
+                        try {
+                            archived.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+
+        assertEquals(-1, archive.archive(id));
+        archived.countDown();
+        reader.get(5, TimeUnit.SECONDS);
+
+        assertEquals(300, read.get());
+        assertFalse(archive.isArchived(id));
+        assertEquals(300, archive.archive(id), "archived once the reader is done");
+        assertEquals(300, store.load(id).size());
+    }
+
+    @Test
+    void findsColdFlightsLeastRecentlyReadFirst() throws Exception {
+        Instant now = Instant.now();
+        long young = flight(Instant.parse("2001-06-01T00:00:00Z"));
+        long recent = flight(Instant.parse("2001-01-01T00:00:00Z"));
+        long idle = flight(Instant.parse("2001-01-02T00:00:00Z"));
+        long idlest = flight(Instant.parse("2001-01-03T00:00:00Z"));
+        long archivedFlight = flight(Instant.parse("2001-01-04T00:00:00Z"));
+        accessed(young, now.minus(400, ChronoUnit.DAYS));
+        accessed(recent, now.minus(1, ChronoUnit.DAYS));
+        accessed(idle, now.minus(200, ChronoUnit.DAYS));
+        accessed(idlest, now.minus(300, ChronoUnit.DAYS));
+        accessed(archivedFlight, now.minus(500, ChronoUnit.DAYS));
+        rows.openWriter(archivedFlight).close();
+        assertEquals(0, archive.archive(archivedFlight));
+
+        Instant startedBefore = Instant.parse("2001-03-01T00:00:00Z");
+        Instant accessedBefore = now.minus(180, ChronoUnit.DAYS);
+        assertEquals(List.of(idlest, idle), archive.findCold(startedBefore, accessedBefore, 10));
+        assertEquals(List.of(idlest), archive.findCold(startedBefore, accessedBefore, 1));
+    }
+
+    /* ---------- Helpers ---------- */
+
+    private long flight(Instant start) {
+        Flight flight = new Flight();
+        flight.setStartTime(start);
+        flight.setEndTime(start.plusSeconds(600));
+        return flights.save(flight).getId();
+    }
+
+    private void accessed(long id, Instant at) {
+        jdbc.update("update flight set last_accessed_at = ? where id = ?", Timestamp.from(at), id);
+    }
+
+    private int countRows(long id) {
+        return jdbc.queryForObject("select count(*) from sample where flight_id = ?", Integer.class, id);
+    }
+
+    /**
+     * Samples whose values need more than the columnar encoding's fixed-point precision.
+     */
+    private static SampleColumns samples(int n) {
+        SampleColumns samples = new SampleColumns(n);
+        for (int i = 0; i < n; i++) {
+            samples.add(1_600_000_000_000L + i * 100L, 47.123456789123 + i * 1e-9, 8.987654321987 - i * 1e-9,
+                    100.123456 + i * 0.001, 12.3456789, 100 - i % 100);
+        }
+        return samples;
+    }
+
+    private static void assertSamples(SampleColumns expected, SampleColumns actual) {
+        assertSamples(expected, actual, null);
+    }
+
+    private static void assertSamples(SampleColumns expected, SampleColumns actual, String message) {
+        assertEquals(expected.size(), actual.size(), message);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.timestamp(i), actual.timestamp(i), message);
+            assertEquals(expected.latitude(i), actual.latitude(i), message);
+            assertEquals(expected.longitude(i), actual.longitude(i), message);
+            assertEquals(expected.altitude(i), actual.altitude(i), message);
+            assertEquals(expected.speed(i), actual.speed(i), message);
+            assertEquals(expected.battery(i), actual.battery(i), message);
+        }
+    }
+}
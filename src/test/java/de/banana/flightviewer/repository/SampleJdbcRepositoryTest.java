@@ -0,0 +1,55 @@
+package de.banana.flightviewer.repository;
+
+import de.banana.flightviewer.model.Flight;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:rows;DB_CLOSE_DELAY=-1")
+class SampleJdbcRepositoryTest {
+
+    @Autowired
+    SampleJdbcRepository rows;
+    @Autowired
+    FlightRepository flights;
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Test
+    void sendsFullBatchesWhileAppendingAndTheRestOnClose() {
+        Flight flight = new Flight();
+        flight.setStartTime(Instant.parse("2024-04-30T08:00:00Z"));
+        long id = flights.save(flight).getId();
+
+        SampleJdbcRepository.BatchWriter writer = rows.openWriter(id, 300);
+        for (int i = 0; i < 2500; i++) {
+            writer.append(1_714_464_000_000L + i * 100L, 47 + i * 1e-6, 8 - i * 1e-6, 100 + i % 7, 4.5, 100 - i / 100);
+            assertEquals(i / 300 * 300, writer.getWritten(), "only whole batches are sent while appending");
+            assertEquals(writer.getWritten(), count(id));
+        }
+        writer.close();
+        assertEquals(2500, writer.getWritten());
+
+        List<Timestamp> timestamps = jdbc.queryForList(
+                "select timestamp from sample where flight_id = ? order by id", Timestamp.class, id);
+        assertEquals(2500, timestamps.size());
+        for (int i = 0; i < timestamps.size(); i++) {
+            assertEquals(1_714_464_000_000L + i * 100L, timestamps.get(i).getTime(), "rows keep their order");
+        }
+        assertEquals(76, jdbc.queryForObject("select min(battery_percent) from sample where flight_id = ?",
+                Integer.class, id));
+    }
+
+    /* ---------- Helpers ---------- */
+
+    private long count(long flightId) {
+        return jdbc.queryForObject("select count(*) from sample where flight_id = ?", Long.class, flightId);
+    }
+}
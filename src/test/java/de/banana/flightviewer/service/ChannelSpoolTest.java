@@ -0,0 +1,56 @@
+package de.banana.flightviewer.service;
+
+import de.banana.flightviewer.codec.ChannelCodec;
+import de.banana.flightviewer.repository.FlightChannelRepository;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ChannelSpoolTest {
+
+    @Test
+    void spilledSegmentsConcatenateToTheWholeChannel() throws Exception {
+        ChannelCodec.Encoder gimbal = new ChannelCodec.Encoder();
+        ChannelCodec.Encoder mode = new ChannelCodec.Encoder();
+        FlightChannelRepository channels = mock(FlightChannelRepository.class);
+        Map<String, byte[]> saved = new HashMap<>();
+        doAnswer(call -> {
+            try (InputStream in = call.getArgument(4)) {
+                byte[] data = in.readAllBytes();
+                assertEquals((int) call.getArgument(3), data.length);
+                saved.put(call.getArgument(1), data);
+            }
+            return null;
+        }).when(channels).save(eq(7L), anyString(), anyInt(), anyInt(), any());
+
+        Path file;
+        try (ChannelSpool spool = new ChannelSpool(List.of("GIMBAL.pitch", "OSD.flycState"), 100)) {
+            for (int row = 0; row < 5_000; row++) {
+                String pitch = row % 7 == 0 ? "" : "-" + (row % 90) + "." + (row % 10);
+                String flycState = row / 500 % 2 == 0 ? "P-GPS" : "Landing";
+                spool.add(0, pitch);
+                spool.add(1, flycState);
+                gimbal.add(pitch);
+                mode.add(flycState);
+                if (row % 1024 == 1023) spool.spill();
+            }
+            spool.save(channels, 7L);
+            file = spool.getFile();
+            assertNotNull(file, "segments went to disk");
+        }
+        assertFalse(Files.exists(file), "spool deleted on close");
+
+        assertArrayEquals(gimbal.toByteArray(), saved.get("GIMBAL.pitch"));
+        assertArrayEquals(mode.toByteArray(), saved.get("OSD.flycState"));
+        verify(channels).save(eq(7L), eq("GIMBAL.pitch"), eq(5_000), anyInt(), any());
+    }
+}
@@ -0,0 +1,86 @@
+package de.banana.flightviewer.service;
+
+import de.banana.flightviewer.service.ChunkedUploadService.UploadConflictException;
+import de.banana.flightviewer.util.Sha256;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ChunkedUploadServiceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void importReadsChunksWhileTheyArrive() throws Exception {
+        ImportJobService jobs = mock(ImportJobService.class);
+        AtomicReference<InputStream> stream = new AtomicReference<>();
+        when(jobs.submit(any(InputStream.class), anyString(), any())).thenAnswer(call -> {
+            stream.set(call.getArgument(0));
+            return new ImportJob("job", call.getArgument(1));
+        });
+        ChunkedUploadService uploads = new ChunkedUploadService(jobs, dir.toString(), 1024, 5000, 60_000);
+        byte[] first = "a,b\n1,2\n".getBytes(StandardCharsets.UTF_8);
+        byte[] second = "3,4\n".getBytes(StandardCharsets.UTF_8);
+        UploadSession upload = uploads.create("log.csv", (long) (first.length + second.length));
+
+        uploads.append(upload.getId(), 0, sha256(first), new ByteArrayInputStream(first));
+        CompletableFuture<byte[]> read = CompletableFuture.supplyAsync(() -> {
+            try (InputStream in = stream.get()) {
+                return in.readAllBytes();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertFalse(read.isDone(), "reader waits for the next chunk");
+        uploads.append(upload.getId(), first.length, sha256(second), new ByteArrayInputStream(second));
+
+        assertEquals("a,b\n1,2\n3,4\n", new String(read.get(5, TimeUnit.SECONDS), StandardCharsets.UTF_8));
+        assertTrue(upload.isComplete());
+        verify(jobs, times(1)).submit(any(InputStream.class), anyString(), any());
+    }
+
+    @Test
+    void rejectsBadChunksAndResumesAfterRestart() throws Exception {
+        ImportJobService jobs = mock(ImportJobService.class);
+        when(jobs.submit(any(InputStream.class), anyString(), any())).thenReturn(new ImportJob("job", "log.csv"));
+        ChunkedUploadService uploads = new ChunkedUploadService(jobs, dir.toString(), 1024, 5000, 60_000);
+        byte[] chunk = "a,b\n".getBytes(StandardCharsets.UTF_8);
+        String id = uploads.create("log.csv", null).getId();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> uploads.append(id, 0, sha256("x".getBytes()), new ByteArrayInputStream(chunk)));
+        assertEquals(0, uploads.get(id).getOffset());
+        uploads.append(id, 0, sha256(chunk), new ByteArrayInputStream(chunk));
+        UploadConflictException conflict = assertThrows(UploadConflictException.class,
+                () -> uploads.append(id, 0, sha256(chunk), new ByteArrayInputStream(chunk)));
+        assertEquals(chunk.length, conflict.getOffset());
+        assertThrows(IllegalArgumentException.class,
+                () -> uploads.append(id, chunk.length, sha256(new byte[2048]), new ByteArrayInputStream(new byte[2048])));
+
+        ChunkedUploadService restarted = new ChunkedUploadService(jobs, dir.toString(), 1024, 5000, 60_000);
+        restarted.recover();
+        assertEquals(chunk.length, restarted.get(id).getOffset());
+        assertFalse(restarted.get(id).isComplete());
+    }
+
+    private static String sha256(byte[] data) {
+        MessageDigest digest = Sha256.newDigest();
+        digest.update(data);
+        return Sha256.hex(digest);
+    }
+}
@@ -0,0 +1,113 @@
+package de.banana.flightviewer.service;
+
+import de.banana.flightviewer.model.SampleColumns;
+import de.banana.flightviewer.repository.FlightRepository;
+import de.banana.flightviewer.repository.SampleStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CoverageTileServiceTest {
+
+    private static final int MAX_ZOOM = 6;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void secondFlightInvalidatesOnlyTheTilesItTouches() throws Exception {
+        SampleStore store = mock(SampleStore.class);
+        when(store.load(1L)).thenReturn(flight(47.0, 8.0, 200, true)); // also passes Sydney
+        when(store.load(2L)).thenReturn(flight(47.0, 8.0, 300, false));
+        CoverageTileService tiles = new CoverageTileService(store, mock(FlightRepository.class), dir, MAX_ZOOM, true);
+
+        tiles.addFlight(1);
+        for (Path cnt : files(".cnt")) render(tiles, cnt);
+        List<Path> rendered = files(".png");
+        assertEquals(files(".cnt").size(), rendered.size());
+
+        tiles.addFlight(2);
+
+        List<Path> invalidated = rendered.stream().filter(png -> !Files.exists(png)).toList();
+        assertEquals(MAX_ZOOM + 1, invalidated.size(), "one shared tile per zoom level");
+        for (Path png : invalidated) {
+            assertTrue(Files.exists(Path.of(png.toString().replace(".png", ".cnt"))));
+        }
+        for (int z = 0; z <= MAX_ZOOM; z++) {
+            assertEquals(200 + 1 + 300, total(z), "fixes of both flights at zoom " + z);
+        }
+        assertTrue(tiles.tile(0, 0, 0).version() > 0, "invalidated tiles are rendered again");
+
+        tiles.addFlight(2);
+        assertEquals(501, total(MAX_ZOOM), "flights are counted once");
+        verify(store, times(1)).load(2L);
+    }
+
+    @Test
+    void addsFlightsMissingAfterARestart() throws Exception {
+        SampleStore store = mock(SampleStore.class);
+        when(store.load(anyLong())).thenAnswer(call -> flight(10.0 + call.<Long>getArgument(0), 20.0, 50, false));
+        FlightRepository flights = mock(FlightRepository.class);
+        new CoverageTileService(store, flights, dir, MAX_ZOOM, true).addFlight(1);
+
+        when(flights.findAllIds()).thenReturn(List.of(1L, 2L, 3L));
+        new CoverageTileService(store, flights, dir, MAX_ZOOM, true).addMissing();
+
+        assertEquals(150, total(MAX_ZOOM));
+        verify(store, times(1)).load(1L);
+    }
+
+    /* ---------- Helpers ---------- */
+
+    /**
+     * A flight of {@code n} fixes around a point, preceded by a row without fix and, if asked for, followed by
+     * a fix on the other side of the world.
+     */
+    private static SampleColumns flight(double lat, double lon, int n, boolean sydney) {
+        SampleColumns samples = new SampleColumns(n + 2);
+        samples.add(0, 0, 0, 0, 0, 100);
+        for (int i = 0; i < n; i++) {
+            samples.add(1000L * (i + 1), lat + i * 1e-5, lon + i * 1e-5, 100, 5, 90);
+        }
+        if (sydney) samples.add(1000L * (n + 1), -33.86, 151.2, 50, 5, 80);
+        return samples;
+    }
+
+    private List<Path> files(String suffix) throws IOException {
+        try (Stream<Path> files = Files.walk(dir.resolve("coverage"))) {
+            return files.filter(p -> p.toString().endsWith(suffix)).sorted().toList();
+        }
+    }
+
+    private void render(CoverageTileService tiles, Path cnt) throws IOException {
+        Path rel = dir.resolve("coverage").relativize(cnt);
+        int z = Integer.parseInt(rel.getName(0).toString());
+        int x = Integer.parseInt(rel.getName(1).toString());
+        int y = Integer.parseInt(rel.getName(2).toString().replace(".cnt", ""));
+        assertNotNull(tiles.tile(z, x, y));
+    }
+
+    /**
+     * Sums the counts of all tiles of a zoom level.
+     */
+    private long total(int z) throws IOException {
+        long total = 0;
+        for (Path cnt : files(".cnt")) {
+            if (!dir.resolve("coverage").relativize(cnt).getName(0).toString().equals(Integer.toString(z))) continue;
+            try (DataInputStream in = new DataInputStream(new InflaterInputStream(Files.newInputStream(cnt)))) {
+                for (int i = 0; i < 256 * 256; i++) total += in.readInt();
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,135 @@
+package de.banana.flightviewer.service;
+
+import de.banana.flightviewer.model.Flight;
+import de.banana.flightviewer.repository.FlightRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class CsvImportServiceTest {
+
+    @TempDir
+    static Path dir;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:import;DB_CLOSE_DELAY=-1");
+        registry.add("flightviewer.segments.dir", () -> dir.resolve("segments").toString());
+        registry.add("flightviewer.tiles.dir", () -> dir.resolve("tiles").toString());
+        registry.add("flightviewer.archive.dir", () -> dir.resolve("archive").toString());
+        registry.add("flightviewer.archive.enabled", () -> "false");
+    }
+
+    @Autowired
+    CsvImportService importer;
+    @Autowired
+    FlightRepository flights;
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Test
+    void reuploadIsRecognizedByContent() throws Exception {
+        byte[] log = log("", "2024-05-01", "10:00:00", 47.5, 20, false);
+        Path file = dir.resolve("DJIFlightRecord_1.csv");
+        Files.write(file, log);
+        Flight first = importer.importFile(file, "DJIFlightRecord_1.csv", ImportProgress.NONE);
+        long count = flights.count();
+        int samples = countSamples();
+
+        AtomicReference<Flight> duplicateOf = new AtomicReference<>();
+        Flight again = importer.importCsv(new ByteArrayInputStream(log), "copy of it.csv", progress(duplicateOf));
+
+        assertEquals(first.getId(), again.getId());
+        assertEquals(first.getId(), duplicateOf.get().getId(), "stream imports compare the hash at the end");
+        assertEquals(count, flights.count());
+        assertEquals(samples, countSamples(), "samples of the duplicate are rolled back");
+        assertEquals(first.getId(), importer.importFile(file, "renamed.csv", ImportProgress.NONE).getId());
+    }
+
+    @Test
+    void reexportIsRecognizedByFingerprint() throws Exception {
+        Flight first = importer.importCsv(new ByteArrayInputStream(
+                log("1581F4XFC2220", "2024-05-02", "09:30:00", 48.1, 20, false)), "airdata.csv");
+        assertNotNull(first.getFingerprint());
+
+        AtomicReference<Flight> duplicateOf = new AtomicReference<>();
+        Flight again = importer.importCsv(new ByteArrayInputStream(
+                log("1581F4XFC2220", "2024-05-02", "09:30:00", 48.1, 20, true)), "phantomhelp export.csv",
+                progress(duplicateOf));
+
+        assertEquals(first.getId(), again.getId());
+        assertEquals(first.getId(), duplicateOf.get().getId());
+        assertEquals("airdata.csv", flights.findById(first.getId()).orElseThrow().getSourceFileName());
+    }
+
+    @Test
+    void fingerprintUsesTheFirstPositionWithFix() throws Exception {
+        Flight first = importer.importCsv(new ByteArrayInputStream(
+                log("1581F4XFC3330", "2024-05-03", "12:00:00", 46.2, 2000, false)), "a.csv");
+        Flight other = importer.importCsv(new ByteArrayInputStream(
+                log("1581F4XFC3330", "2024-05-03", "12:00:00", 46.3, 2000, false)), "b.csv");
+
+        assertNotEquals(first.getId(), other.getId(), "logs differing only after the rows without fix");
+        assertNotEquals(first.getFingerprint(), other.getFingerprint());
+        assertEquals(2100, jdbc.queryForObject("select count(*) from sample where flight_id = ?", Integer.class,
+                other.getId()), "rows read ahead for the fingerprint are imported");
+    }
+
+    /* ---------- Helpers ---------- */
+
+    /**
+     * A log of 100 rows with a fix after {@code rowsWithoutFix} rows at 0,0. The re-export variant orders the
+     * columns differently, pads the numbers and ends lines with CRLF.
+     */
+    private static byte[] log(String serial, String date, String time, double lat, int rowsWithoutFix,
+                              boolean reexport) {
+        StringBuilder csv = new StringBuilder(reexport
+                ? "DETAILS.aircraftSerial,CUSTOM.date [local],CUSTOM.updateTime [local],OSD.flyTime [s],"
+                  + "OSD.longitude,OSD.latitude,OSD.altitude [ft],OSD.hSpeed [MPH],BATTERY.chargeLevel\r\n"
+                : "CUSTOM.date [local],CUSTOM.updateTime [local],OSD.flyTime [s],OSD.latitude,OSD.longitude,"
+                  + "OSD.altitude [ft],OSD.hSpeed [MPH],BATTERY.chargeLevel,DETAILS.aircraftSerial\n");
+        for (int i = 0; i < rowsWithoutFix + 100; i++) {
+            boolean fix = i >= rowsWithoutFix;
+            double la = fix ? lat + i * 1e-5 : 0, lo = fix ? 11.5 + i * 1e-5 : 0;
+            double flyTime = i / 10.0;
+            int battery = 100 - i / 100;
+            csv.append(reexport
+                    ? String.format(Locale.ROOT, "%s,%s,%s,%.3f,%.8f,%.8f,%.2f,%.2f,%d\r\n",
+                            serial, date, time, flyTime, lo, la, 100.0, 10.0, battery)
+                    : String.format(Locale.ROOT, "%s,%s,%s,%s,%s,100,10,%d,%s\n",
+                            date, time, flyTime, la, lo, battery, serial));
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static ImportProgress progress(AtomicReference<Flight> duplicateOf) {
+        return new ImportProgress() {
+            @Override
+            public void update(long rowsParsed, long rowsPersisted) {
+            }
+
+            @Override
+            public void duplicateOf(Flight existing) {
+                duplicateOf.set(existing);
+            }
+        };
+    }
+
+    private int countSamples() {
+        return jdbc.queryForObject("select count(*) from sample", Integer.class);
+    }
+}
@@ -0,0 +1,60 @@
+package de.banana.flightviewer.service;
+
+import de.banana.flightviewer.model.FlightEvent;
+import de.banana.flightviewer.repository.FlightEventRepository.Event;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightEventDetectorTest {
+
+    @Test
+    void batteryThresholdsFireOncePerCrossing() {
+        FlightEventDetector d = new FlightEventDetector(1);
+        int[] battery = {0, 25, 20, 19, 20, 19, 18, 12, 9, 9, 8};
+        for (int i = 0; i < battery.length; i++) d.sample(i, 48, 11, 10, battery[i], -1, null, null);
+        List<Event> events = d.drain();
+        assertEquals(2, events.size());
+        assertEquals(FlightEvent.Type.LOW_BATTERY, events.get(0).type());
+        assertEquals(3, events.get(0).timestamp());
+        assertEquals(19.0, events.get(0).reading());
+        assertEquals(FlightEvent.Type.CRITICAL_BATTERY, events.get(1).type());
+        assertEquals(8, events.get(1).timestamp());
+        assertTrue(d.drain().isEmpty());
+        assertEquals(2, d.getCount());
+    }
+
+    @Test
+    void gpsLossCarriesLastFix() {
+        FlightEventDetector d = new FlightEventDetector(1);
+        d.sample(0, 0, 0, 0, 90, -1, null, null);   // no fix before the first one is not a loss
+        d.sample(1, 48.1, 11.5, 5, 90, -1, null, null);
+        d.sample(2, 0, 0, 6, 90, -1, null, null);
+        d.sample(3, 0, 0, 7, 90, -1, null, null);
+        d.sample(4, 48.2, 11.6, 8, 90, -1, null, null);
+        List<Event> events = d.drain();
+        assertEquals(2, events.size());
+        assertEquals(FlightEvent.Type.GPS_LOST, events.get(0).type());
+        assertEquals(2, events.get(0).timestamp());
+        assertEquals(48.1, events.get(0).latitude());
+        assertEquals(FlightEvent.Type.GPS_RECOVERED, events.get(1).type());
+        assertEquals(48.2, events.get(1).latitude());
+    }
+
+    @Test
+    void statusColumns() {
+        FlightEventDetector d = new FlightEventDetector(1);
+        d.sample(0, 48, 11, 0, 90, 12, "P-GPS", "");
+        d.sample(1, 48, 11, 0, 90, 7, "P-GPS", "");
+        d.sample(2, 48, 11, 0, 90, 6, "Sport", "Strong wind.");
+        d.sample(3, 48, 11, 0, 90, 9, "Sport", "Strong wind.");
+        d.sample(4, 48, 11, 0, 90, 7, "", "");
+        d.sample(5, 48, 11, 0, 90, 11, "Sport", "Strong wind.");
+        d.sample(6, 48, 11, 0, 90, 7, "Sport", "Strong wind.");
+        List<FlightEvent.Type> types = d.drain().stream().map(Event::type).toList();
+        assertEquals(List.of(FlightEvent.Type.SATELLITES_LOW, FlightEvent.Type.MODE_CHANGE,
+                FlightEvent.Type.WARNING, FlightEvent.Type.WARNING, FlightEvent.Type.SATELLITES_LOW), types);
+    }
+}
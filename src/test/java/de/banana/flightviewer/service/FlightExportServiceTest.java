@@ -0,0 +1,150 @@
+package de.banana.flightviewer.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.banana.flightviewer.model.Flight;
+import de.banana.flightviewer.model.SampleColumns;
+import de.banana.flightviewer.repository.SampleRowHandler;
+import de.banana.flightviewer.repository.SampleStore;
+import de.banana.flightviewer.repository.SampleWriter;
+import de.banana.flightviewer.service.FlightExportService.Format;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightExportServiceTest {
+
+    private static final String KML = "http://www.opengis.net/kml/2.2";
+    private static final String GX = "http://www.google.com/kml/ext/2.2";
+
+    /**
+     * Two flights of three samples; the middle sample of each has no GPS fix.
+     */
+    private final SampleStore store = new SampleStore() {
+        @Override
+        public SampleWriter openWriter(long flightId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void stream(long flightId, SampleRowHandler handler) throws IOException {
+            long t0 = 1_700_000_000_000L + flightId * 3_600_000;
+            handler.sample(t0, 48.1234567, 11.5, 520.25, 3.5, 98);
+            handler.sample(t0 + 100, 0, 0, 521, 3.75, 98);
+            handler.sample(t0 + 200, 48.1235, -0.0001, 522.5, 4, 97);
+        }
+
+        @Override
+        public SampleColumns load(long flightId) {
+            throw new UnsupportedOperationException();
+        }
+    };
+    private final ObjectMapper json = new ObjectMapper();
+    private final FlightExportService export = new FlightExportService(store, json);
+
+    @Test
+    void formatsPlainDecimals() {
+        assertEquals("48.1234568", FlightExportService.decimal(48.12345678, 7));
+        assertEquals("-0.0001", FlightExportService.decimal(-1e-4, 7));
+        assertEquals("0", FlightExportService.decimal(-1e-9, 7));
+        assertEquals("12.5", FlightExportService.decimal(12.5, 2));
+        assertEquals("100", FlightExportService.decimal(99.999, 2));
+        assertEquals("3.05", FlightExportService.decimal(3.05, 2));
+    }
+
+    @Test
+    void parsesFormatNames() {
+        assertEquals(FlightExportService.Format.GEOJSON, FlightExportService.Format.parse("GeoJSON"));
+        assertThrows(IllegalArgumentException.class, () -> FlightExportService.Format.parse("shp"));
+    }
+
+    @Test
+    void writesGpxTrackPointsWithFix() throws Exception {
+        Document gpx = xml(export(flight(1, "a<b>.csv"), Format.GPX));
+        assertEquals("a<b>.csv", gpx.getElementsByTagName("name").item(0).getTextContent());
+        assertEquals(2, gpx.getElementsByTagName("trkpt").getLength());
+        Element first = (Element) gpx.getElementsByTagName("trkpt").item(0);
+        assertEquals("48.1234567", first.getAttribute("lat"));
+        assertEquals("11.5", first.getAttribute("lon"));
+        assertEquals("520.25", first.getElementsByTagName("ele").item(0).getTextContent());
+        assertEquals("2023-11-14T23:13:20Z", first.getElementsByTagName("time").item(0).getTextContent());
+    }
+
+    @Test
+    void writesMatchingKmlTimesAndCoordinates() throws Exception {
+        Document kml = xml(export(flight(1, null), Format.KML));
+        assertEquals("Flight 1", kml.getElementsByTagNameNS(KML, "name").item(0).getTextContent());
+        assertEquals(2, kml.getElementsByTagNameNS(KML, "when").getLength());
+        assertEquals(2, kml.getElementsByTagNameNS(GX, "coord").getLength());
+        assertEquals("-0.0001 48.1235 522.5", kml.getElementsByTagNameNS(GX, "coord").item(1).getTextContent());
+    }
+
+    @Test
+    void writesGeoJsonWithOneTimePerCoordinate() throws Exception {
+        JsonNode feature = json.readTree(export(flight(1, "x.csv"), Format.GEOJSON));
+        assertEquals("Feature", feature.get("type").asText());
+        assertEquals("LineString", feature.at("/geometry/type").asText());
+        JsonNode coordinates = feature.at("/geometry/coordinates");
+        assertEquals(2, coordinates.size());
+        assertEquals(feature.at("/properties/coordTimes").size(), coordinates.size());
+        assertEquals(11.5, coordinates.get(0).get(0).asDouble());
+        assertEquals(48.1234567, coordinates.get(0).get(1).asDouble());
+    }
+
+    @Test
+    void writesCsvWithEmptyPositionWithoutFix() throws Exception {
+        String[] lines = new String(export(flight(1, null), Format.CSV), StandardCharsets.UTF_8).split("\n");
+        assertEquals(4, lines.length);
+        assertEquals("timestamp,time,latitude,longitude,altitude_m,speed_mps,battery_percent", lines[0]);
+        assertEquals("1700003600000,2023-11-14T23:13:20Z,48.1234567,11.5,520.25,3.5,98", lines[1]);
+        assertEquals("1700003600100,2023-11-14T23:13:20.100Z,,,521,3.75,98", lines[2]);
+    }
+
+    @Test
+    void writesOneZipEntryPerFlight() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        export.writeZip(List.of(flight(1, null), flight(2, null)), Format.GPX, out);
+
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            for (ZipEntry entry; (entry = zip.getNextEntry()) != null; ) {
+                names.add(entry.getName());
+                assertEquals(2, xml(zip.readAllBytes()).getElementsByTagName("trkpt").getLength());
+            }
+        }
+        assertEquals(List.of("flight-1.gpx", "flight-2.gpx"), names);
+    }
+
+    /* ---------- Helpers ---------- */
+
+    private byte[] export(Flight flight, Format format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        export.write(flight, format, out);
+        return out.toByteArray();
+    }
+
+    private static Flight flight(long id, String name) {
+        Flight flight = new Flight();
+        flight.setId(id);
+        flight.setSourceFileName(name);
+        return flight;
+    }
+
+    private static Document xml(byte[] bytes) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        return factory.newDocumentBuilder().parse(new ByteArrayInputStream(bytes));
+    }
+}
@@ -0,0 +1,73 @@
+package de.banana.flightviewer.service;
+
+import de.banana.flightviewer.model.SampleColumns;
+import de.banana.flightviewer.repository.SampleStore;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class FlightLodServiceTest {
+
+    @Test
+    void doesNotCacheFlightsRequestedBeforeTheirSamplesExist() {
+        SampleStore store = mock(SampleStore.class);
+        when(store.load(1L)).thenReturn(new SampleColumns(0), flight(100));
+        FlightLodService lod = new FlightLodService(store, 1_000_000);
+
+        assertEquals(0, lod.track(1, null, null, null).size());
+        assertEquals(100, lod.track(1, null, null, null).size());
+        assertEquals(100, lod.samples(1, 1000).size());
+        verify(store, times(2)).load(1L);
+    }
+
+    @Test
+    void countsLttbLevelsTowardsTheBudget() {
+        SampleStore store = mock(SampleStore.class);
+        when(store.load(1L)).thenAnswer(call -> flight(100));
+        when(store.load(2L)).thenAnswer(call -> flight(5));
+        FlightLodService lod = new FlightLodService(store, 168);
+
+        assertEquals(64, lod.samples(1, 64).size());
+        lod.track(2, null, null, null); // 100 + 64 + 5 samples exceed the budget
+        lod.track(1, null, null, null);
+        verify(store, times(2)).load(1L);
+    }
+
+    @Test
+    void clampsHugeBudgetsToTheFlight() {
+        SampleStore store = mock(SampleStore.class);
+        when(store.load(1L)).thenReturn(flight(100));
+        FlightLodService lod = new FlightLodService(store, 1_000_000);
+
+        assertEquals(100, lod.samples(1, Integer.MAX_VALUE).size());
+        assertEquals(100, lod.samplesLevel(1, Integer.MAX_VALUE));
+        assertEquals(100, lod.track(1, Integer.MAX_VALUE, null, null).size());
+    }
+
+    @Test
+    void budgetsSelectingTheSameSamplesShareALevel() {
+        SampleStore store = mock(SampleStore.class);
+        when(store.load(1L)).thenReturn(flight(1000));
+        FlightLodService lod = new FlightLodService(store, 1_000_000);
+
+        assertEquals(64, lod.samplesLevel(1, 1));
+        assertEquals(128, lod.samplesLevel(1, 65));
+        assertEquals(128, lod.samplesLevel(1, 128));
+        assertEquals(1000, lod.samplesLevel(1, 600));
+        assertSame(lod.samples(1, 65), lod.samples(1, 100));
+
+        int points = lod.trackLevel(1, null, 5.0, null);
+        assertEquals(points, lod.track(1, null, 5.0, null).size());
+        assertEquals(points, lod.trackLevel(1, points + 10, 5.0, null), "the coarsest limit wins");
+        assertEquals(10, lod.trackLevel(1, 10, 5.0, null));
+    }
+
+    private static SampleColumns flight(int n) {
+        SampleColumns samples = new SampleColumns(n);
+        for (int i = 0; i < n; i++) {
+            samples.add(1_000L * i, 52 + i * 1e-4, 13 + Math.sin(i) * 1e-4, 100 + Math.cos(i) * 10, 5, 90);
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,49 @@
+package de.banana.flightviewer.service;
+
+import de.banana.flightviewer.model.Flight;
+import de.banana.flightviewer.repository.FlightRepository;
+import de.banana.flightviewer.repository.FlightRollupRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class FlightStatsServiceTest {
+
+    @Test
+    void rebuildWaitsForTransactionsThatRecordedAFlight() throws Exception {
+        FlightRollupRepository rollups = mock(FlightRollupRepository.class);
+        FlightRepository flights = mock(FlightRepository.class);
+        TransactionTemplate tx = mock(TransactionTemplate.class);
+        doAnswer(call -> {
+            rollups.replaceAll(List.of());
+            return null;
+        }).when(tx).executeWithoutResult(any());
+        FlightStatsService stats = new FlightStatsService(rollups, flights, tx, 1);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            stats.record(new Flight());
+            CompletableFuture<Long> rebuild = CompletableFuture.supplyAsync(() -> stats.rebuild(id -> false));
+            Thread.sleep(100);
+            assertFalse(rebuild.isDone(), "rebuild waits for the recording transaction");
+            verify(rollups, never()).replaceAll(any());
+
+            for (TransactionSynchronization s : TransactionSynchronizationManager.getSynchronizations()) {
+                s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+            assertEquals(0, rebuild.get(5, TimeUnit.SECONDS));
+            verify(rollups).replaceAll(any());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package de.banana.flightviewer.service;
+
+import de.banana.flightviewer.model.Flight;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ImportJobServiceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void streamsWaitingForDataDoNotHoldFileImports() throws Exception {
+        CsvImportService importer = mock(CsvImportService.class);
+        CountDownLatch moreData = new CountDownLatch(1);
+        Flight flight = new Flight();
+        flight.setId(1L);
+        when(importer.importCsv(any(InputStream.class), anyString(), any())).thenAnswer(call -> {
+            moreData.await();
+            return flight;
+        });
+        when(importer.importFile(any(Path.class), anyString(), any())).thenReturn(flight);
+        ImportJobService jobs = new ImportJobService(importer, 1, 1, 10, 100);
+        try {
+            CountDownLatch streamed = new CountDownLatch(1);
+            ImportJob stream = jobs.submit(InputStream.nullInputStream(), "upload.csv", job -> streamed.countDown());
+            ImportJob file = jobs.submit(Files.writeString(dir.resolve("log.csv"), "a,b\n"), "log.csv");
+
+            waitFor(file, ImportJob.State.DONE);
+            assertEquals(ImportJob.State.RUNNING, stream.getState());
+
+            moreData.countDown();
+            assertTrue(streamed.await(5, TimeUnit.SECONDS));
+            assertEquals(ImportJob.State.DONE, stream.getState());
+        } finally {
+            moreData.countDown();
+            jobs.shutdown();
+        }
+    }
+
+    private static void waitFor(ImportJob job, ImportJob.State state) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (job.getState() != state) {
+            assertTrue(System.currentTimeMillis() < deadline, "job is " + job.getState());
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package de.banana.flightviewer.service;
+
+import de.banana.flightviewer.model.Flight;
+import de.banana.flightviewer.model.SampleColumns;
+import de.banana.flightviewer.repository.FlightEventRepository;
+import de.banana.flightviewer.repository.FlightRepository;
+import de.banana.flightviewer.repository.FlightSegmentFiles;
+import de.banana.flightviewer.repository.SampleJdbcRepository;
+import de.banana.flightviewer.repository.SampleWriter;
+import de.banana.flightviewer.util.TrackStats;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class LiveFlightServiceTest {
+
+    @Test
+    void appendsPointsAndStreamsThemToListenersUntilFinished() {
+        FlightRepository flights = mock(FlightRepository.class);
+        List<Flight> saved = new ArrayList<>();
+        when(flights.save(any(Flight.class))).thenAnswer(call -> {
+            Flight flight = call.getArgument(0);
+            if (flight.getId() == null) flight.setId(1L);
+            saved.add(flight);
+            return flight;
+        });
+        when(flights.findById(1L)).thenAnswer(call -> Optional.of(saved.get(saved.size() - 1)));
+        SampleJdbcRepository rows = mock(SampleJdbcRepository.class, RETURNS_DEEP_STUBS);
+        FlightSearchService search = mock(FlightSearchService.class);
+        when(search.openWriter(any())).thenReturn(mock(SampleWriter.class));
+        FlightLodService lod = mock(FlightLodService.class);
+        FlightStatsService stats = mock(FlightStatsService.class);
+        TransactionTemplate tx = mock(TransactionTemplate.class);
+        when(tx.execute(any())).thenAnswer(call -> ((TransactionCallback<?>) call.getArgument(0)).doInTransaction(null));
+        LiveFlightService live = new LiveFlightService(flights, rows, mock(FlightSegmentFiles.class), search,
+                mock(CoverageTileService.class), lod, mock(FlightEventRepository.class), stats, tx);
+
+        long id = live.start("live", "SN1").getId();
+        assertTrue(live.isLive(id));
+        live.append(id, points(0, 3));
+        RecordingListener listener = new RecordingListener();
+        assertTrue(live.subscribe(id, 1_000, listener));
+        assertEquals(List.of(1_000L, 2_000L), listener.timestamps, "backlog from the requested time");
+
+        Flight flight = live.append(id, points(3, 5));
+        assertEquals(List.of(1_000L, 2_000L, 3_000L, 4_000L), listener.timestamps);
+        assertEquals(4_000, flight.getEndTime().toEpochMilli());
+        verify(lod, times(2)).evict(id);
+        assertThrows(IllegalArgumentException.class, () -> live.append(id, points(0, 1)));
+
+        assertNotNull(live.finish(id));
+        assertTrue(listener.finished);
+        assertFalse(live.isLive(id));
+        verify(stats).record(flight);
+        assertNull(live.append(id, points(5, 6)));
+        assertFalse(live.subscribe(id, 0, new RecordingListener()));
+        verify(rows, times(2)).openWriter(anyLong());
+    }
+
+    @Test
+    void failedAppendDoesNotCountTheRetriedBatchTwice() {
+        FlightRepository flights = mock(FlightRepository.class);
+        Flight stored = new Flight();
+        when(flights.save(any(Flight.class))).thenAnswer(call -> {
+            Flight flight = call.getArgument(0);
+            if (flight.getId() == null) flight.setId(1L);
+            return flight;
+        });
+        when(flights.findById(1L)).thenReturn(Optional.of(stored));
+        FlightEventRepository events = mock(FlightEventRepository.class);
+        TransactionTemplate tx = mock(TransactionTemplate.class);
+        when(tx.execute(any())).thenAnswer(call -> ((TransactionCallback<?>) call.getArgument(0)).doInTransaction(null));
+        LiveFlightService live = new LiveFlightService(flights, mock(SampleJdbcRepository.class, RETURNS_DEEP_STUBS),
+                mock(FlightSegmentFiles.class), mock(FlightSearchService.class), mock(CoverageTileService.class),
+                mock(FlightLodService.class), events, mock(FlightStatsService.class), tx);
+        long id = live.start("live", null).getId();
+
+        live.append(id, points(0, 3));
+        doThrow(new IllegalStateException("database gone")).doNothing().when(events).saveAll(any());
+        assertThrows(IllegalStateException.class, () -> live.append(id, points(3, 6)));
+        Flight flight = live.append(id, points(3, 6));
+
+        TrackStats expected = new TrackStats();
+        SampleColumns all = points(0, 6);
+        for (int i = 0; i < all.size(); i++) {
+            expected.add(all.timestamp(i), all.latitude(i), all.longitude(i), all.altitude(i), all.battery(i));
+        }
+        assertEquals(expected.getDistanceMeters(), flight.getDistanceMeters(), 1e-9);
+        assertEquals(expected.getBatteryUsedPercent(), flight.getBatteryUsedPercent());
+        assertEquals(5_000, flight.getEndTime().toEpochMilli());
+    }
+
+    private static SampleColumns points(int from, int to) {
+        SampleColumns points = new SampleColumns(to - from);
+        for (int i = from; i < to; i++) points.add(1_000L * i, 52 + i * 1e-4, 13, 100 + i, 5, 90 - i);
+        return points;
+    }
+
+    private static final class RecordingListener implements LiveFlightService.Listener {
+        final List<Long> timestamps = new ArrayList<>();
+        boolean finished;
+
+        @Override
+        public void samples(SampleColumns points, int from, int to) {
+            for (int i = from; i < to; i++) timestamps.add(points.timestamp(i));
+        }
+
+        @Override
+        public void finished() {
+            finished = true;
+        }
+    }
+}
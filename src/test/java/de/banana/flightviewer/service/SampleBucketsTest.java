@@ -0,0 +1,42 @@
+package de.banana.flightviewer.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SampleBucketsTest {
+
+    @Test
+    void aggregatesAlignedBuckets() {
+        SampleBuckets buckets = new SampleBuckets(5000);
+        buckets.sample(10_000, 0, 0, 10, 2, 90);
+        buckets.sample(12_000, 0, 0, 20, 4, 89);
+        buckets.sample(14_999, 0, 0, 30, 0, 88);
+        // 15 to 20 s is empty
+        buckets.sample(21_000, 0, 0, 5, 1, 80);
+
+        List<SampleBuckets.Bucket> out = buckets.finish();
+        assertEquals(2, out.size());
+
+        SampleBuckets.Bucket first = out.get(0);
+        assertEquals(10_000, first.start());
+        assertEquals(15_000, first.end());
+        assertEquals(3, first.count());
+        assertEquals(new SampleBuckets.Stats(10, 30, 20), first.altitude());
+        assertEquals(new SampleBuckets.Stats(0, 4, 2), first.speed());
+        assertEquals(new SampleBuckets.Stats(88, 90, 89), first.battery());
+
+        SampleBuckets.Bucket second = out.get(1);
+        assertEquals(20_000, second.start());
+        assertEquals(1, second.count());
+        assertEquals(new SampleBuckets.Stats(5, 5, 5), second.altitude());
+    }
+
+    @Test
+    void rejectsNonPositiveWidth() {
+        assertThrows(IllegalArgumentException.class, () -> new SampleBuckets(0));
+        assertTrue(new SampleBuckets(1000).finish().isEmpty());
+    }
+}
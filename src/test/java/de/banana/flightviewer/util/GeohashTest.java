@@ -0,0 +1,34 @@
+package de.banana.flightviewer.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeohashTest {
+
+    @Test
+    void encodesAndDecodesKnownHash() {
+        assertEquals("u4pruydqqvj", Geohash.encode(57.64911, 10.40744, 11));
+
+        double[] b = Geohash.bounds("u4pruyd");
+        assertTrue(b[0] <= 57.64911 && 57.64911 <= b[2]);
+        assertTrue(b[1] <= 10.40744 && 10.40744 <= b[3]);
+        assertEquals(Geohash.cellHeight(7), b[2] - b[0], 1e-12);
+        assertEquals(Geohash.cellWidth(7), b[3] - b[1], 1e-12);
+    }
+
+    @Test
+    void coversEveryCellOfABox() {
+        double minLat = 52.99, minLon = -9.08, maxLat = 53.01, maxLon = -9.05;
+        Set<String> cover = Geohash.cover(minLat, minLon, maxLat, maxLon, 6, 1000);
+        assertNotNull(cover);
+        for (double lat = minLat; lat <= maxLat; lat += 0.0005) {
+            for (double lon = minLon; lon <= maxLon; lon += 0.0005) {
+                assertTrue(cover.contains(Geohash.encode(lat, lon, 6)), lat + "," + lon);
+            }
+        }
+        assertNull(Geohash.cover(minLat, minLon, maxLat, maxLon, 8, 10));
+    }
+}
@@ -0,0 +1,44 @@
+package de.banana.flightviewer.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimplificationTest {
+
+    @Test
+    void douglasPeuckerKeepsCornersAndDropsCollinearPoints() {
+        // L-shaped track: 11 points east, then 11 points north (~11 m steps)
+        double[] lat = new double[21];
+        double[] lon = new double[21];
+        for (int i = 0; i <= 10; i++) { lat[i] = 50.0; lon[i] = 8.0 + i * 0.00015; }
+        for (int i = 11; i < 21; i++) { lat[i] = 50.0 + (i - 10) * 0.0001; lon[i] = lon[10]; }
+
+        double[] sig = DouglasPeucker.significance(lat, lon, 21);
+        assertEquals(Double.POSITIVE_INFINITY, sig[0]);
+        assertEquals(Double.POSITIVE_INFINITY, sig[20]);
+        assertTrue(sig[10] > 50, "corner must be significant");
+        for (int i = 1; i < 20; i++) {
+            if (i != 10) assertTrue(sig[i] < 1e-6, "collinear point " + i);
+        }
+        int[] rank = DouglasPeucker.rank(sig);
+        assertEquals(10, rank[2]);
+    }
+
+    @Test
+    void lttbKeepsEndpointsAndPeak() {
+        int n = 1000;
+        long[] x = new long[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) { x[i] = i * 100L; y[i] = Math.sin(i / 50.0); }
+        y[437] = 100;
+
+        int[] idx = Lttb.select(x, y, n, 50);
+        assertEquals(50, idx.length);
+        assertEquals(0, idx[0]);
+        assertEquals(n - 1, idx[49]);
+        for (int i = 1; i < idx.length; i++) assertTrue(idx[i] > idx[i - 1]);
+        assertTrue(java.util.Arrays.stream(idx).anyMatch(i -> i == 437));
+        assertEquals(n, Lttb.select(x, y, n, 5000).length);
+    }
+}